@@ -2,11 +2,15 @@ package com.sicnu.geo;
 
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Profile;
 
 import com.sicnu.geo.entity.Project;
 import com.sicnu.geo.enums.ProjectCategory;
+import com.sicnu.geo.export.ExportCommand;
 import com.sicnu.geo.repository.ProjectRepository;
 
 import java.time.LocalDate;
@@ -15,10 +19,21 @@ import java.time.LocalDate;
 public class SicnuGeoApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(SicnuGeoApplication.class, args);
+        SpringApplication app = new SpringApplication(SicnuGeoApplication.class);
+        if (!ExportCommand.requested(args)) {
+            app.run(args);
+            return;
+        }
+        // 命令行导出时不启动 Web 服务器，导出完成后关闭上下文并返回退出码
+        app.setWebApplicationType(WebApplicationType.NONE);
+        app.setAdditionalProfiles(ExportCommand.PROFILE);
+        ConfigurableApplicationContext context = app.run(args);
+        System.exit(SpringApplication.exit(context));
     }
 
+    // 命令行导出时不写入示例数据
     @Bean
+    @Profile("!" + ExportCommand.PROFILE)
     CommandLineRunner seed(ProjectRepository repo) {
         return args -> {
             if (repo.count() == 0) {
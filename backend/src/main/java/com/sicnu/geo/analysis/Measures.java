@@ -0,0 +1,47 @@
+package com.sicnu.geo.analysis;
+
+import com.sicnu.geo.geometry.GeoMath;
+import com.sicnu.geo.geometry.Geometry;
+
+import java.util.List;
+
+/**
+ * 几何的面积、长度与周长（球面近似，单位米 / 平方米）。
+ */
+public final class Measures {
+
+    private Measures() {
+    }
+
+    /**
+     * 返回 {面积, 长度, 周长}；面积为外环减去内环。
+     */
+    public static double[] of(Geometry g) {
+        double[] m = new double[3];
+        accumulate(g, m);
+        return m;
+    }
+
+    private static void accumulate(Geometry g, double[] m) {
+        switch (g.getType()) {
+            case Polygon: case MultiPolygon:
+                for (List<double[]> rings : g.getParts()) {
+                    for (int i = 0; i < rings.size(); i++) {
+                        double area = GeoMath.ringAreaSquareMeters(rings.get(i));
+                        m[0] += i == 0 ? area : -area;
+                        m[2] += GeoMath.lengthMeters(rings.get(i));
+                    }
+                }
+                break;
+            case LineString: case MultiLineString:
+                for (List<double[]> part : g.getParts()) {
+                    for (double[] seq : part) m[1] += GeoMath.lengthMeters(seq);
+                }
+                break;
+            case GeometryCollection:
+                for (Geometry member : g.getGeometries()) accumulate(member, m);
+                break;
+            default:
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.sicnu.geo.analysis;
+
+import com.sicnu.geo.geometry.Envelope;
+import com.sicnu.geo.geometry.GeoMath;
+
+/**
+ * 以某点为原点的局部等距圆柱投影，把经纬度换算成以米为单位的平面坐标。
+ * 在几十公里的城市范围内误差远小于常用的缓冲距离，距离、相交等判断都在该平面上进行。
+ */
+public final class PlanarFrame {
+
+    private final double originLng;
+    private final double originLat;
+    private final double metersPerLng;
+
+    public PlanarFrame(double originLng, double originLat) {
+        this.originLng = originLng;
+        this.originLat = originLat;
+        this.metersPerLng = GeoMath.METERS_PER_DEGREE * Math.cos(Math.toRadians(originLat));
+    }
+
+    public static PlanarFrame centeredOn(Envelope env) {
+        return new PlanarFrame((env.getMinX() + env.getMaxX()) / 2, (env.getMinY() + env.getMaxY()) / 2);
+    }
+
+    public double x(double lng) {
+        return (lng - originLng) * metersPerLng;
+    }
+
+    public double y(double lat) {
+        return (lat - originLat) * GeoMath.METERS_PER_DEGREE;
+    }
+
+    /**
+     * 两个经纬度外包矩形在平面上的最近距离（米），相交时为 0。
+     */
+    public double distance(Envelope a, Envelope b) {
+        double dx = Math.max(0, Math.max(x(a.getMinX()) - x(b.getMaxX()), x(b.getMinX()) - x(a.getMaxX())));
+        double dy = Math.max(0, Math.max(y(a.getMinY()) - y(b.getMaxY()), y(b.getMinY()) - y(a.getMaxY())));
+        return Math.hypot(dx, dy);
+    }
+}
@@ -0,0 +1,408 @@
+package com.sicnu.geo.analysis;
+
+import com.sicnu.geo.geometry.Geometry;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 预处理后的几何：坐标已换算到平面（米），边界拆成线段并建立格网索引，面另建水平条带索引用于点在面内判断。
+ * 同一个查询几何要与大量候选要素比较，预处理一次后每次比较只访问附近的线段。
+ * 构建完成后只读，可被多个线程并发使用。
+ * <p>
+ * 线段数组中依次是：面的环边（前 ringSegments 条）、线的边、孤立点（退化为长度为 0 的线段）。
+ */
+public final class PreparedGeometry {
+
+    private static final int GRID_THRESHOLD = 32;
+    private static final int MAX_GRID_SIDE = 512;
+    private static final int STRIP_THRESHOLD = 16;
+
+    @FunctionalInterface
+    private interface SegmentVisitor {
+        /**
+         * 返回 false 时停止遍历。
+         */
+        boolean visit(int segment);
+    }
+
+    private final double[] segs;      // 每条线段 x1, y1, x2, y2
+    private final int segCount;
+    private final int ringSegments;
+    private final double[] anchors;   // 每个组成部分（环、线、点）的第一个顶点；环在前
+    private final int ringAnchors;
+    private final double minX, minY, maxX, maxY;
+
+    // 线段格网
+    private int[][] cells;
+    private int gridX, gridY;
+    private double cellSize;
+
+    // 环边的水平条带
+    private int[][] strips;
+    private double stripHeight;
+
+    private PreparedGeometry(Builder b) {
+        this.segs = b.segs.toArray();
+        this.segCount = segs.length / 4;
+        this.ringSegments = b.ringSegments;
+        this.anchors = b.anchors.toArray();
+        this.ringAnchors = b.ringAnchors;
+        double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < segs.length; i += 2) {
+            x0 = Math.min(x0, segs[i]);
+            y0 = Math.min(y0, segs[i + 1]);
+            x1 = Math.max(x1, segs[i]);
+            y1 = Math.max(y1, segs[i + 1]);
+        }
+        this.minX = x0;
+        this.minY = y0;
+        this.maxX = x1;
+        this.maxY = y1;
+        if (segCount > GRID_THRESHOLD) buildGrid();
+        if (ringSegments > STRIP_THRESHOLD) buildStrips();
+    }
+
+    public static PreparedGeometry of(Geometry geometry, PlanarFrame frame) {
+        Builder b = new Builder(frame);
+        b.rings(geometry);
+        b.ringSegments = b.segs.size / 4;
+        b.ringAnchors = b.anchors.size / 2;
+        b.lines(geometry);
+        return new PreparedGeometry(b);
+    }
+
+    public boolean isEmpty() {
+        return segCount == 0;
+    }
+
+    public boolean hasArea() {
+        return ringSegments > 0;
+    }
+
+    public double getMinX() { return minX; }
+    public double getMinY() { return minY; }
+    public double getMaxX() { return maxX; }
+    public double getMaxY() { return maxY; }
+
+    // ---------------------------------------------------------------- 谓词
+
+    /**
+     * 与另一几何的最近距离（米），相交或包含时为 0；超过 limit 时返回正无穷（limit 可为正无穷）。
+     */
+    public double distance(PreparedGeometry o, double limit) {
+        if (isEmpty() || o.isEmpty() || envelopeDistance(o) > limit) return Double.POSITIVE_INFINITY;
+        // 一方的某个组成部分整体落在另一方的面内
+        for (int i = 0; i < o.anchors.length; i += 2) {
+            if (containsPoint(o.anchors[i], o.anchors[i + 1])) return 0;
+        }
+        for (int i = 0; i < anchors.length; i += 2) {
+            if (o.containsPoint(anchors[i], anchors[i + 1])) return 0;
+        }
+        double[] best = {limit};
+        boolean found = false;
+        if (Double.isInfinite(limit)) {
+            // 没有上限时先用任意一个实际距离作为初始上界，之后只需检查这个范围内的线段
+            best[0] = pointDistance(o.anchors[0], o.anchors[1]);
+            found = true;
+        }
+        for (int j = 0; j < o.segCount; j++) {
+            int at = j * 4;
+            double ax = o.segs[at], ay = o.segs[at + 1], bx = o.segs[at + 2], by = o.segs[at + 3];
+            boolean[] hit = {false};
+            double r = best[0];
+            visitNear(Math.min(ax, bx) - r, Math.min(ay, by) - r, Math.max(ax, bx) + r, Math.max(ay, by) + r, i -> {
+                int k = i * 4;
+                double d = segmentDistance(ax, ay, bx, by, segs[k], segs[k + 1], segs[k + 2], segs[k + 3]);
+                if (d <= best[0]) {
+                    best[0] = d;
+                    hit[0] = true;
+                }
+                return d > 0;
+            });
+            if (hit[0]) {
+                found = true;
+                if (best[0] == 0) return 0;
+            }
+        }
+        return found ? best[0] : Double.POSITIVE_INFINITY;
+    }
+
+    public boolean intersects(PreparedGeometry o) {
+        return distance(o, 0) == 0;
+    }
+
+    /**
+     * o 完全落在本几何的面内（边界接触按不在内部处理）。
+     */
+    public boolean contains(PreparedGeometry o) {
+        if (!hasArea() || o.isEmpty()) return false;
+        if (o.minX < minX || o.maxX > maxX || o.minY < minY || o.maxY > maxY) return false;
+        for (int i = 0; i < o.anchors.length; i += 2) {
+            if (!containsPoint(o.anchors[i], o.anchors[i + 1])) return false;
+        }
+        for (int j = 0; j < o.segCount; j++) {
+            int at = j * 4;
+            double ax = o.segs[at], ay = o.segs[at + 1], bx = o.segs[at + 2], by = o.segs[at + 3];
+            boolean[] crosses = {false};
+            visitNear(Math.min(ax, bx), Math.min(ay, by), Math.max(ax, bx), Math.max(ay, by), i -> {
+                if (i >= ringSegments) return true;
+                int k = i * 4;
+                crosses[0] = segmentsIntersect(ax, ay, bx, by, segs[k], segs[k + 1], segs[k + 2], segs[k + 3]);
+                return !crosses[0];
+            });
+            if (crosses[0]) return false;
+        }
+        // o 的面盖住了本几何的洞
+        if (o.hasArea()) {
+            for (int i = 0; i < ringAnchors * 2; i += 2) {
+                if (o.containsPoint(anchors[i], anchors[i + 1])) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 点是否在面内（奇偶规则，洞内不算）。
+     */
+    public boolean containsPoint(double x, double y) {
+        if (ringSegments == 0 || x < minX || x > maxX || y < minY || y > maxY) return false;
+        boolean inside = false;
+        if (strips == null) {
+            for (int i = 0; i < ringSegments; i++) inside ^= crosses(i, x, y);
+        } else {
+            int s = Math.min(strips.length - 1, Math.max(0, (int) ((y - minY) / stripHeight)));
+            for (int i : strips[s]) inside ^= crosses(i, x, y);
+        }
+        return inside;
+    }
+
+    // 从 (x, y) 向 +x 方向的射线是否穿过第 i 条线段
+    private boolean crosses(int i, double x, double y) {
+        int k = i * 4;
+        double x1 = segs[k], y1 = segs[k + 1], x2 = segs[k + 2], y2 = segs[k + 3];
+        return (y1 > y) != (y2 > y) && x < (x2 - x1) * (y - y1) / (y2 - y1) + x1;
+    }
+
+    // 点到全部线段的最近距离（暴力计算，只用于求初始上界）
+    private double pointDistance(double x, double y) {
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < segCount; i++) {
+            int k = i * 4;
+            best = Math.min(best, pointSegmentDistance(x, y, segs[k], segs[k + 1], segs[k + 2], segs[k + 3]));
+        }
+        return best;
+    }
+
+    private double envelopeDistance(PreparedGeometry o) {
+        double dx = Math.max(0, Math.max(minX - o.maxX, o.minX - maxX));
+        double dy = Math.max(0, Math.max(minY - o.maxY, o.minY - maxY));
+        return Math.hypot(dx, dy);
+    }
+
+    // ---------------------------------------------------------------- 索引
+
+    private void visitNear(double x0, double y0, double x1, double y1, SegmentVisitor visitor) {
+        if (cells == null || Double.isInfinite(x0) || Double.isInfinite(x1)) {
+            for (int i = 0; i < segCount; i++) {
+                if (!visitor.visit(i)) return;
+            }
+            return;
+        }
+        if (x1 < minX || x0 > maxX || y1 < minY || y0 > maxY) return;
+        int cx0 = cellX(x0), cx1 = cellX(x1), cy0 = cellY(y0), cy1 = cellY(y1);
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cx = cx0; cx <= cx1; cx++) {
+                for (int i : cells[cy * gridX + cx]) {
+                    if (!visitor.visit(i)) return;
+                }
+            }
+        }
+    }
+
+    private int cellX(double x) {
+        return Math.min(gridX - 1, Math.max(0, (int) ((x - minX) / cellSize)));
+    }
+
+    private int cellY(double y) {
+        return Math.min(gridY - 1, Math.max(0, (int) ((y - minY) / cellSize)));
+    }
+
+    // 格子边长取约每格 4 条线段；线段登记到其外包矩形覆盖的所有格子
+    private void buildGrid() {
+        double extent = Math.max(maxX - minX, maxY - minY);
+        if (extent <= 0) return;
+        int side = (int) Math.min(MAX_GRID_SIDE, Math.max(1, Math.ceil(Math.sqrt(segCount / 4.0))));
+        cellSize = extent / side;
+        gridX = Math.min(MAX_GRID_SIDE, (int) ((maxX - minX) / cellSize) + 1);
+        gridY = Math.min(MAX_GRID_SIDE, (int) ((maxY - minY) / cellSize) + 1);
+        int[] counts = new int[gridX * gridY];
+        for (int pass = 0; pass < 2; pass++) {
+            if (pass == 1) {
+                cells = new int[counts.length][];
+                for (int c = 0; c < counts.length; c++) cells[c] = new int[counts[c]];
+                Arrays.fill(counts, 0);
+            }
+            for (int i = 0; i < segCount; i++) {
+                int k = i * 4;
+                int cx0 = cellX(Math.min(segs[k], segs[k + 2])), cx1 = cellX(Math.max(segs[k], segs[k + 2]));
+                int cy0 = cellY(Math.min(segs[k + 1], segs[k + 3])), cy1 = cellY(Math.max(segs[k + 1], segs[k + 3]));
+                for (int cy = cy0; cy <= cy1; cy++) {
+                    for (int cx = cx0; cx <= cx1; cx++) {
+                        int c = cy * gridX + cx;
+                        if (pass == 1) cells[c][counts[c]] = i;
+                        counts[c]++;
+                    }
+                }
+            }
+        }
+    }
+
+    private void buildStrips() {
+        double height = maxY - minY;
+        if (height <= 0) return;
+        int count = Math.min(1024, Math.max(1, ringSegments / 8));
+        stripHeight = height / count;
+        int[] sizes = new int[count];
+        for (int pass = 0; pass < 2; pass++) {
+            if (pass == 1) {
+                strips = new int[count][];
+                for (int s = 0; s < count; s++) strips[s] = new int[sizes[s]];
+                Arrays.fill(sizes, 0);
+            }
+            for (int i = 0; i < ringSegments; i++) {
+                int k = i * 4;
+                int s0 = strip(Math.min(segs[k + 1], segs[k + 3]), count);
+                int s1 = strip(Math.max(segs[k + 1], segs[k + 3]), count);
+                for (int s = s0; s <= s1; s++) {
+                    if (pass == 1) strips[s][sizes[s]] = i;
+                    sizes[s]++;
+                }
+            }
+        }
+    }
+
+    private int strip(double y, int count) {
+        return Math.min(count - 1, Math.max(0, (int) ((y - minY) / stripHeight)));
+    }
+
+    // ---------------------------------------------------------------- 平面几何
+
+    static double segmentDistance(double ax, double ay, double bx, double by,
+                                  double cx, double cy, double dx, double dy) {
+        if (segmentsIntersect(ax, ay, bx, by, cx, cy, dx, dy)) return 0;
+        return Math.min(Math.min(pointSegmentDistance(ax, ay, cx, cy, dx, dy), pointSegmentDistance(bx, by, cx, cy, dx, dy)),
+                Math.min(pointSegmentDistance(cx, cy, ax, ay, bx, by), pointSegmentDistance(dx, dy, ax, ay, bx, by)));
+    }
+
+    static double pointSegmentDistance(double px, double py, double ax, double ay, double bx, double by) {
+        double vx = bx - ax, vy = by - ay;
+        double len2 = vx * vx + vy * vy;
+        double t = len2 == 0 ? 0 : Math.max(0, Math.min(1, ((px - ax) * vx + (py - ay) * vy) / len2));
+        return Math.hypot(px - (ax + t * vx), py - (ay + t * vy));
+    }
+
+    static boolean segmentsIntersect(double ax, double ay, double bx, double by,
+                                     double cx, double cy, double dx, double dy) {
+        double d1 = orient(cx, cy, dx, dy, ax, ay);
+        double d2 = orient(cx, cy, dx, dy, bx, by);
+        double d3 = orient(ax, ay, bx, by, cx, cy);
+        double d4 = orient(ax, ay, bx, by, dx, dy);
+        if (((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0)) && ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0))) return true;
+        return (d1 == 0 && onSegment(cx, cy, dx, dy, ax, ay))
+                || (d2 == 0 && onSegment(cx, cy, dx, dy, bx, by))
+                || (d3 == 0 && onSegment(ax, ay, bx, by, cx, cy))
+                || (d4 == 0 && onSegment(ax, ay, bx, by, dx, dy));
+    }
+
+    private static double orient(double ax, double ay, double bx, double by, double px, double py) {
+        return (bx - ax) * (py - ay) - (by - ay) * (px - ax);
+    }
+
+    // 已知共线时 p 是否在线段 ab 的范围内
+    private static boolean onSegment(double ax, double ay, double bx, double by, double px, double py) {
+        return px >= Math.min(ax, bx) && px <= Math.max(ax, bx) && py >= Math.min(ay, by) && py <= Math.max(ay, by);
+    }
+
+    // ---------------------------------------------------------------- 构建
+
+    private static final class Builder {
+        private final PlanarFrame frame;
+        private final DoubleList segs = new DoubleList();
+        private final DoubleList anchors = new DoubleList();
+        private int ringSegments;
+        private int ringAnchors;
+
+        Builder(PlanarFrame frame) {
+            this.frame = frame;
+        }
+
+        void rings(Geometry g) {
+            switch (g.getType()) {
+                case Polygon: case MultiPolygon:
+                    for (List<double[]> part : g.getParts()) {
+                        for (double[] ring : part) sequence(ring);
+                    }
+                    break;
+                case GeometryCollection:
+                    for (Geometry member : g.getGeometries()) rings(member);
+                    break;
+                default:
+            }
+        }
+
+        void lines(Geometry g) {
+            switch (g.getType()) {
+                case LineString: case MultiLineString: case Point: case MultiPoint:
+                    for (List<double[]> part : g.getParts()) {
+                        for (double[] seq : part) {
+                            if (seq.length == 2 || g.getType() == Geometry.Type.MultiPoint || g.getType() == Geometry.Type.Point) {
+                                points(seq);
+                            } else {
+                                sequence(seq);
+                            }
+                        }
+                    }
+                    break;
+                case GeometryCollection:
+                    for (Geometry member : g.getGeometries()) lines(member);
+                    break;
+                default:
+            }
+        }
+
+        private void sequence(double[] seq) {
+            if (seq.length < 2) return;
+            anchors.add(frame.x(seq[0]), frame.y(seq[1]));
+            for (int i = 0; i + 3 < seq.length; i += 2) {
+                segs.add(frame.x(seq[i]), frame.y(seq[i + 1]));
+                segs.add(frame.x(seq[i + 2]), frame.y(seq[i + 3]));
+            }
+        }
+
+        private void points(double[] seq) {
+            for (int i = 0; i + 1 < seq.length; i += 2) {
+                double x = frame.x(seq[i]), y = frame.y(seq[i + 1]);
+                anchors.add(x, y);
+                segs.add(x, y);
+                segs.add(x, y);
+            }
+        }
+    }
+
+    private static final class DoubleList {
+        private double[] values = new double[16];
+        private int size;
+
+        void add(double a, double b) {
+            if (size + 2 > values.length) values = Arrays.copyOf(values, values.length * 2);
+            values[size++] = a;
+            values[size++] = b;
+        }
+
+        double[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.sicnu.geo.auth;
+
+/**
+ * 验证通过的访问令牌。loginId 标识一次登录，注销时按它吊销该次登录签发的全部令牌。
+ *
+ * @param expiresAt 过期时间（epoch 秒）
+ */
+public record AccessToken(long userId, String role, String loginId, long expiresAt) {
+}
@@ -0,0 +1,153 @@
+package com.sicnu.geo.auth;
+
+import com.sicnu.geo.entity.User;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * 签发与校验短期访问令牌。令牌为 "载荷.签名"（均为 base64url），载荷为 "v1|用户id|角色|登录id|过期时间"，
+ * 签名为 HMAC-SHA256。校验只做本地计算和吊销表查询，不访问 Session 与 Redis。
+ * 各节点需配置相同的 sicnugeo.auth.token-secret；未配置时使用进程内随机密钥，重启后旧令牌全部失效。
+ */
+@Component
+public class AccessTokenService {
+
+    public static final String TOKEN_HEADER = "X-Access-Token";
+    public static final String EXPIRES_HEADER = "X-Access-Token-Expires";
+
+    private static final Logger log = LoggerFactory.getLogger(AccessTokenService.class);
+    private static final String ATTRIBUTE = AccessTokenService.class.getName();
+    private static final String VERSION = "v1";
+    private static final String BEARER = "Bearer ";
+    private static final String CONVERSATION = "conversation|";
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final long ttlSeconds;
+    private final TokenRevocationList revocations;
+    // Mac 不是线程安全的，每个线程一份
+    private final ThreadLocal<Mac> macs;
+
+    public AccessTokenService(@Value("${sicnugeo.auth.token-secret:}") String secret,
+                              @Value("${sicnugeo.auth.access-token-minutes:15}") long ttlMinutes,
+                              TokenRevocationList revocations) {
+        byte[] bytes;
+        if (secret == null || secret.isBlank()) {
+            log.warn("未配置 sicnugeo.auth.token-secret，使用随机密钥：重启后令牌失效，多节点之间令牌不通用");
+            bytes = new byte[32];
+            new SecureRandom().nextBytes(bytes);
+        } else {
+            bytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.key = new SecretKeySpec(bytes, "HmacSHA256");
+        this.ttlSeconds = ttlMinutes * 60;
+        this.revocations = revocations;
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    public long ttlSeconds() {
+        return ttlSeconds;
+    }
+
+    public AccessToken issue(User user, String loginId) {
+        long expiresAt = System.currentTimeMillis() / 1000 + ttlSeconds;
+        return new AccessToken(user.getId(), user.getRole() == null ? "" : user.getRole(), loginId, expiresAt);
+    }
+
+    public String encode(AccessToken token) {
+        String payload = String.join("|", VERSION, String.valueOf(token.userId()), token.role(),
+                token.loginId(), String.valueOf(token.expiresAt()));
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        return ENCODER.encodeToString(bytes) + "." + ENCODER.encodeToString(macs.get().doFinal(bytes));
+    }
+
+    /**
+     * 签名正确、未过期且所属登录未被吊销时返回令牌内容，否则返回 null。
+     */
+    public AccessToken verify(String token) {
+        int dot = token.indexOf('.');
+        if (dot <= 0) return null;
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = DECODER.decode(token.substring(0, dot));
+            signature = DECODER.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (!MessageDigest.isEqual(macs.get().doFinal(payload), signature)) return null;
+        String[] parts = new String(payload, StandardCharsets.UTF_8).split("\\|", -1);
+        if (parts.length != 5 || !VERSION.equals(parts[0])) return null;
+        AccessToken t;
+        try {
+            t = new AccessToken(Long.parseLong(parts[1]), parts[2], parts[3], Long.parseLong(parts[4]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (t.expiresAt() <= System.currentTimeMillis() / 1000) return null;
+        if (revocations.isRevoked(t.loginId())) return null;
+        return t;
+    }
+
+    /**
+     * 签发匿名聊天会话 id：随机部分加上签名，客户端无法伪造，也无法猜出他人的会话 id。
+     */
+    public String issueConversationId() {
+        byte[] bytes = new byte[16];
+        RANDOM.nextBytes(bytes);
+        String id = ENCODER.encodeToString(bytes);
+        return id + "." + conversationSignature(id);
+    }
+
+    /**
+     * 是否为本服务（同一 token-secret）签发的匿名会话 id。
+     */
+    public boolean isIssuedConversationId(String conversationId) {
+        int dot = conversationId.indexOf('.');
+        if (dot <= 0) return false;
+        byte[] expected = conversationSignature(conversationId.substring(0, dot)).getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(expected, conversationId.substring(dot + 1).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // 签名内容带前缀，与访问令牌的签名区分开
+    private String conversationSignature(String id) {
+        return ENCODER.encodeToString(macs.get().doFinal((CONVERSATION + id).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * 解析请求中的 Authorization: Bearer 令牌，结果缓存在请求属性中；没有令牌或令牌无效时返回 null。
+     */
+    public AccessToken authenticate(HttpServletRequest request) {
+        Object cached = request.getAttribute(ATTRIBUTE);
+        if (cached != null) return cached instanceof AccessToken t ? t : null;
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        AccessToken t = null;
+        if (header != null && header.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            t = verify(header.substring(BEARER.length()).trim());
+        }
+        request.setAttribute(ATTRIBUTE, t == null ? Boolean.FALSE : t);
+        return t;
+    }
+}
@@ -0,0 +1,25 @@
+package com.sicnu.geo.auth;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * 发送验证码或登录被拒绝（验证码错误、已锁定、发送太频繁），status 为建议的响应状态码，
+ * retryAfterSeconds 大于 0 时作为 Retry-After 返回。
+ */
+public class LoginRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final HttpStatus status;
+    private final long retryAfterSeconds;
+
+    public LoginRejectedException(HttpStatus status, String message, long retryAfterSeconds) {
+        super(message);
+        this.status = status;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public HttpStatus getStatus() { return status; }
+
+    public long getRetryAfterSeconds() { return retryAfterSeconds; }
+}
@@ -0,0 +1,83 @@
+package com.sicnu.geo.auth;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 基于 Redis 有序集合的滑动窗口限流：每次请求记一个时间戳，同一个键可同时受多个窗口约束（如每分钟 1 次、每小时 5 次）。
+ * 清理、计数、记录在一个脚本中完成，每次检查只有一次 Redis 往返，并发请求不会同时越过上限。
+ */
+@Component
+public class SlidingWindowLimiter {
+
+    /**
+     * 每 seconds 秒内至多 limit 次。
+     */
+    public record Window(int limit, long seconds) {
+
+        /**
+         * 解析 "次数/秒数" 的逗号分隔列表，如 "1/60,5/3600"。
+         */
+        public static List<Window> parseAll(String spec) {
+            List<Window> windows = new ArrayList<>();
+            if (spec == null || spec.isBlank()) return windows;
+            for (String part : spec.split(",")) {
+                String[] kv = part.trim().split("/");
+                if (kv.length != 2) throw new IllegalArgumentException("限流配置应为 次数/秒数: " + part);
+                Window w = new Window(Integer.parseInt(kv[0].trim()), Long.parseLong(kv[1].trim()));
+                if (w.limit() < 1 || w.seconds() < 1) throw new IllegalArgumentException("限流次数与秒数都应大于 0: " + part);
+                windows.add(w);
+            }
+            return windows;
+        }
+    }
+
+    // KEYS[1] 时间戳集合；ARGV[1] 当前毫秒，ARGV[2] 本次请求的成员，ARGV[3..] 成对的 (上限, 窗口毫秒)。
+    // 任一窗口已满时不记录本次请求，返回需要等待的毫秒数；否则记录并返回 0
+    private static final DefaultRedisScript<Long> ACQUIRE = new DefaultRedisScript<>("""
+            local now = tonumber(ARGV[1])
+            local longest = 0
+            for i = 3, #ARGV, 2 do longest = math.max(longest, tonumber(ARGV[i + 1])) end
+            redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now - longest)
+            local wait = 0
+            for i = 3, #ARGV, 2 do
+              local limit, window = tonumber(ARGV[i]), tonumber(ARGV[i + 1])
+              local count = redis.call('ZCOUNT', KEYS[1], now - window + 1, '+inf')
+              if count >= limit then
+                local oldest = redis.call('ZRANGEBYSCORE', KEYS[1], now - window + 1, '+inf', 'WITHSCORES', 'LIMIT', count - limit, 1)
+                wait = math.max(wait, tonumber(oldest[2]) + window - now)
+              end
+            end
+            if wait > 0 then return wait end
+            redis.call('ZADD', KEYS[1], now, ARGV[2])
+            redis.call('PEXPIRE', KEYS[1], longest)
+            return 0
+            """, Long.class);
+
+    private final StringRedisTemplate redis;
+
+    public SlidingWindowLimiter(StringRedisTemplate redis) {
+        this.redis = redis;
+    }
+
+    /**
+     * 未超限时记录本次请求并返回 0，否则返回需要等待的秒数（向上取整）。
+     */
+    public long tryAcquire(String key, List<Window> windows) {
+        if (windows.isEmpty()) return 0;
+        List<String> args = new ArrayList<>(2 + windows.size() * 2);
+        args.add(String.valueOf(System.currentTimeMillis()));
+        args.add(UUID.randomUUID().toString());
+        for (Window w : windows) {
+            args.add(String.valueOf(w.limit()));
+            args.add(String.valueOf(w.seconds() * 1000));
+        }
+        Long waitMillis = redis.execute(ACQUIRE, List.of(key), args.toArray());
+        return waitMillis == null || waitMillis <= 0 ? 0 : (waitMillis + 999) / 1000;
+    }
+}
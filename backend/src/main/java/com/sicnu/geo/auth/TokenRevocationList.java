@@ -0,0 +1,101 @@
+package com.sicnu.geo.auth;
+
+import com.sicnu.geo.export.ExportCommand;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已注销登录的吊销表。每个节点在内存中保留一份，校验令牌时只查本地；
+ * 吊销时写入 Redis 有序集合（分值为过期时间）并通过发布/订阅通知其它节点，节点启动时从有序集合加载。
+ * 条目只需保留到该次登录签发的最后一个令牌过期为止，表的大小与令牌有效期内的注销次数成正比。
+ */
+@Component
+public class TokenRevocationList implements MessageListener {
+
+    public static final String CHANNEL = "sicnugeo:auth:revoke";
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationList.class);
+    private static final String REVOKED_KEY = "auth:revoked";
+
+    // loginId -> 条目过期时间（epoch 秒）
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private final StringRedisTemplate redis;
+
+    public TokenRevocationList(StringRedisTemplate redis) {
+        this.redis = redis;
+    }
+
+    public boolean isRevoked(String loginId) {
+        Long until = revoked.get(loginId);
+        return until != null && until > System.currentTimeMillis() / 1000;
+    }
+
+    /**
+     * 吊销一次登录，until 之后该次登录签发的令牌都已自然过期。
+     */
+    public void revoke(String loginId, long until) {
+        revoked.merge(loginId, until, Math::max);
+        try {
+            redis.opsForZSet().add(REVOKED_KEY, loginId, until);
+            redis.convertAndSend(CHANNEL, loginId + "|" + until);
+        } catch (RuntimeException e) {
+            // 其它节点收不到时，令牌最迟在有效期结束时失效
+            log.warn("登录 {} 的吊销消息发送失败: {}", loginId, e.getMessage());
+        }
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    @EventListener(value = ApplicationReadyEvent.class, condition = ExportCommand.NOT_EXPORTING)
+    public void load() {
+        long now = System.currentTimeMillis() / 1000;
+        try {
+            Set<ZSetOperations.TypedTuple<String>> rows = redis.opsForZSet().rangeByScoreWithScores(REVOKED_KEY, now, Double.MAX_VALUE);
+            if (rows == null) return;
+            for (ZSetOperations.TypedTuple<String> row : rows) {
+                if (row.getValue() != null && row.getScore() != null) {
+                    revoked.merge(row.getValue(), row.getScore().longValue(), Math::max);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("加载令牌吊销表失败: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 2);
+        if (parts.length != 2) return;
+        try {
+            revoked.merge(parts[0], Long.parseLong(parts[1]), Math::max);
+        } catch (NumberFormatException ignored) {
+        }
+    }
+
+    // 清理已过期的条目
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void purge() {
+        long now = System.currentTimeMillis() / 1000;
+        revoked.values().removeIf(until -> until <= now);
+        try {
+            redis.opsForZSet().removeRangeByScore(REVOKED_KEY, 0, now);
+        } catch (RuntimeException ignored) {
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.sicnu.geo.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 通过 Redis 发布/订阅在各节点之间广播缓存失效消息，消息格式为 "节点id|缓存名|键"。
+ * 本节点发出的消息在本地已经处理过，收到时忽略。
+ */
+@Component
+public class CacheInvalidationBus implements MessageListener {
+
+    public static final String CHANNEL = "sicnugeo:cache:invalidate";
+
+    private static final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, Consumer<String>> handlers = new ConcurrentHashMap<>();
+    private final StringRedisTemplate redis;
+
+    public CacheInvalidationBus(StringRedisTemplate redis) {
+        this.redis = redis;
+    }
+
+    public void register(String cacheName, Consumer<String> handler) {
+        handlers.put(cacheName, handler);
+    }
+
+    public void publish(String cacheName, String key) {
+        try {
+            redis.convertAndSend(CHANNEL, nodeId + "|" + cacheName + "|" + key);
+        } catch (RuntimeException e) {
+            // Redis 不可用时其它节点只能等本地条目过期
+            log.warn("缓存失效消息发送失败 {}:{}: {}", cacheName, key, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+        if (parts.length != 3 || nodeId.equals(parts[0])) return;
+        Consumer<String> handler = handlers.get(parts[1]);
+        if (handler != null) handler.accept(parts[2]);
+    }
+}
@@ -0,0 +1,54 @@
+package com.sicnu.geo.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sicnu.geo.entity.Project;
+import com.sicnu.geo.event.ProjectChangedEvent;
+import com.sicnu.geo.repository.ProjectRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 按 id 读取项目的两级缓存，供详情、要素、评论等接口代替 projectRepo.findById / existsById。
+ * 项目的增删改随 ProjectChangedEvent 失效。返回的 Project 为共享的游离对象，不要修改。
+ */
+@Component
+public class ProjectCache {
+
+    private final ProjectRepository repo;
+    private final TwoTierCache<Project> cache;
+
+    public ProjectCache(ProjectRepository repo, StringRedisTemplate redis, ObjectMapper mapper,
+                        CacheInvalidationBus bus,
+                        @Value("${sicnugeo.cache.local-max-entries:10000}") int maxEntries,
+                        @Value("${sicnugeo.cache.local-ttl-seconds:60}") long localTtlSeconds,
+                        @Value("${sicnugeo.cache.remote-ttl-seconds:600}") long remoteTtlSeconds) {
+        this.repo = repo;
+        this.cache = new TwoTierCache<>("project", Project.class, maxEntries, Duration.ofSeconds(localTtlSeconds),
+                Duration.ofSeconds(remoteTtlSeconds), redis, mapper, bus);
+    }
+
+    public Optional<Project> find(Long id) {
+        return cache.get(String.valueOf(id), () -> repo.findById(id));
+    }
+
+    public boolean exists(Long id) {
+        return find(id).isPresent();
+    }
+
+    @EventListener
+    public void onProjectChanged(ProjectChangedEvent e) {
+        // 其它节点的写入由写入方删除 Redis 条目并通知各节点失效
+        if (e.remote()) return;
+        cache.invalidate(String.valueOf(e.projectId()));
+    }
+
+    public Map<String, Object> stats() {
+        return cache.stats();
+    }
+}
@@ -0,0 +1,30 @@
+package com.sicnu.geo.cache;
+
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.util.List;
+
+/**
+ * Lua 脚本的类型化构造。DefaultRedisScript 只接受 Class 形式的结果类型，泛型列表需要在这里统一转换一次。
+ */
+public final class RedisScripts {
+
+    private RedisScripts() {
+    }
+
+    /**
+     * 返回字符串数组（多条批量回复）的脚本；配合 StringRedisTemplate 使用，元素按字符串反序列化。
+     */
+    @SuppressWarnings("unchecked")
+    public static DefaultRedisScript<List<String>> returningStrings(String lua) {
+        return new DefaultRedisScript<>(lua, (Class<List<String>>) (Class<?>) List.class);
+    }
+
+    /**
+     * 返回整数数组的脚本，Lua 数字元素按 Long 返回。
+     */
+    @SuppressWarnings("unchecked")
+    public static DefaultRedisScript<List<Long>> returningLongs(String lua) {
+        return new DefaultRedisScript<>(lua, (Class<List<Long>>) (Class<?>) List.class);
+    }
+}
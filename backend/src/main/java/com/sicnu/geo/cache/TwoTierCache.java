@@ -0,0 +1,178 @@
+package com.sicnu.geo.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 两级读穿缓存：每个节点一份按访问顺序淘汰的本地缓存，其后是各节点共享的 Redis（JSON 存储）。
+ * 写入方调用 invalidate，删除本地条目、把 Redis 中的条目换成短时的墓碑，并通过 {@link CacheInvalidationBus} 通知其它节点。
+ * 回填 Redis 只在键不存在时写入：失效前从数据库读到旧值的节点在墓碑过期前写不回去，其它节点不会读到它。
+ * 不存在的键也会被缓存（较短的过期时间），避免反复穿透到数据库。
+ * <p>
+ * 本地条目另有较短的过期时间，作为失效消息丢失（如 Redis 断连）时的兜底。
+ * 缓存的对象在各线程间共享，调用方只能读取。
+ */
+public class TwoTierCache<V> {
+
+    private static final Logger log = LoggerFactory.getLogger(TwoTierCache.class);
+    private static final String ABSENT = "{}absent";
+    private static final String TOMBSTONE = "{}invalidated";
+    // 应长于一次从数据库加载再回填的耗时
+    private static final Duration TOMBSTONE_TTL = Duration.ofSeconds(10);
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+
+    private final String name;
+    private final Class<V> type;
+    private final int maxEntries;
+    private final long localTtlMillis;
+    private final Duration remoteTtl;
+    private final Duration absentTtl;
+    private final StringRedisTemplate redis;
+    private final ObjectMapper mapper;
+    private final CacheInvalidationBus bus;
+
+    private final LinkedHashMap<String, Entry<V>> local = new LinkedHashMap<>(256, 0.75f, true);
+    private long generation;
+    private long localHits;
+    private long evictions;
+    private final AtomicLong remoteHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong remoteErrors = new AtomicLong();
+
+    public TwoTierCache(String name, Class<V> type, int maxEntries, Duration localTtl, Duration remoteTtl,
+                        StringRedisTemplate redis, ObjectMapper mapper, CacheInvalidationBus bus) {
+        this.name = name;
+        this.type = type;
+        this.maxEntries = maxEntries;
+        this.localTtlMillis = localTtl.toMillis();
+        this.remoteTtl = remoteTtl;
+        this.absentTtl = remoteTtl.compareTo(Duration.ofSeconds(30)) < 0 ? remoteTtl : Duration.ofSeconds(30);
+        this.redis = redis;
+        this.mapper = mapper;
+        this.bus = bus;
+        bus.register(name, this::evictLocal);
+    }
+
+    public Optional<V> get(String key, Supplier<Optional<V>> loader) {
+        long now = System.currentTimeMillis();
+        long gen;
+        synchronized (this) {
+            Entry<V> e = local.get(key);
+            if (e != null && e.expiresAt > now) {
+                localHits++;
+                return Optional.ofNullable(e.value);
+            }
+            if (e != null) local.remove(key);
+            gen = generation;
+        }
+
+        String json = null;
+        try {
+            json = redis.opsForValue().get(redisKey(key));
+        } catch (RuntimeException ex) {
+            remoteErrors.incrementAndGet();
+            log.debug("读取 Redis 缓存失败 {}:{}: {}", name, key, ex.getMessage());
+        }
+        if (json != null && !TOMBSTONE.equals(json)) {
+            V value = decode(json);
+            if (value != null || ABSENT.equals(json)) {
+                remoteHits.incrementAndGet();
+                putLocalIfFresh(key, value, gen);
+                return Optional.ofNullable(value);
+            }
+        }
+
+        misses.incrementAndGet();
+        Optional<V> loaded = loader.get();
+        // 加载期间本节点收到过失效时不回填；其它节点的失效由 Redis 中的墓碑挡住
+        if (isFresh(gen)) {
+            try {
+                if (loaded.isPresent()) {
+                    redis.opsForValue().setIfAbsent(redisKey(key), mapper.writeValueAsString(loaded.get()), remoteTtl);
+                } else {
+                    redis.opsForValue().setIfAbsent(redisKey(key), ABSENT, absentTtl);
+                }
+            } catch (Exception ex) {
+                remoteErrors.incrementAndGet();
+                log.debug("写入 Redis 缓存失败 {}:{}: {}", name, key, ex.getMessage());
+            }
+            putLocalIfFresh(key, loaded.orElse(null), gen);
+        }
+        return loaded;
+    }
+
+    /**
+     * 数据写入后调用：删除本地条目，Redis 条目换成墓碑，并通知其它节点删除各自的本地条目。
+     */
+    public void invalidate(String key) {
+        evictLocal(key);
+        try {
+            redis.opsForValue().set(redisKey(key), TOMBSTONE, TOMBSTONE_TTL);
+        } catch (RuntimeException ex) {
+            remoteErrors.incrementAndGet();
+            log.warn("写入 Redis 缓存墓碑失败 {}:{}: {}", name, key, ex.getMessage());
+        }
+        bus.publish(name, key);
+    }
+
+    private synchronized void evictLocal(String key) {
+        generation++;
+        invalidations.incrementAndGet();
+        local.remove(key);
+    }
+
+    private synchronized boolean isFresh(long gen) {
+        return gen == generation;
+    }
+
+    private synchronized void putLocalIfFresh(String key, V value, long gen) {
+        if (gen != generation) return;
+        local.put(key, new Entry<>(value, System.currentTimeMillis() + localTtlMillis));
+        Iterator<Map.Entry<String, Entry<V>>> it = local.entrySet().iterator();
+        while (local.size() > maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions++;
+        }
+    }
+
+    private V decode(String json) {
+        if (ABSENT.equals(json)) return null;
+        try {
+            return mapper.readValue(json, type);
+        } catch (Exception ex) {
+            // 结构变化后的旧缓存：当作未命中
+            log.debug("Redis 缓存反序列化失败 {}: {}", name, ex.getMessage());
+            return null;
+        }
+    }
+
+    private String redisKey(String key) {
+        return "cache:" + name + ":" + key;
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("entries", local.size());
+        s.put("localHits", localHits);
+        s.put("remoteHits", remoteHits.get());
+        s.put("misses", misses.get());
+        s.put("evictions", evictions);
+        s.put("invalidations", invalidations.get());
+        s.put("remoteErrors", remoteErrors.get());
+        return s;
+    }
+}
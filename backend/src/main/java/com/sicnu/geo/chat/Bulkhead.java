@@ -0,0 +1,120 @@
+package com.sicnu.geo.chat;
+
+import org.springframework.http.HttpStatus;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 非阻塞的并发隔离舱：最多 maxConcurrent 个许可，其余请求排队（最多 maxQueue 个），
+ * 排队超过 queueTimeout 即失败。等待期间不占用任何线程。
+ */
+public class Bulkhead {
+
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private final long queueTimeoutMillis;
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+    private int inUse;
+    private long acquired;
+    private long rejected;
+    private long timedOut;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+
+    private record Waiter(CompletableFuture<Permit> future, long enqueuedAt) {
+    }
+
+    /**
+     * 调用方用完后必须 release 一次；重复 release 无效。
+     */
+    public final class Permit {
+        private boolean released;
+
+        public void release() {
+            synchronized (Bulkhead.this) {
+                if (released) return;
+                released = true;
+                inUse--;
+            }
+            dispatch();
+        }
+    }
+
+    public Bulkhead(int maxConcurrent, int maxQueue, long queueTimeoutMillis) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueue = maxQueue;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+    }
+
+    public CompletableFuture<Permit> acquire() {
+        CompletableFuture<Permit> future = new CompletableFuture<>();
+        synchronized (this) {
+            if (inUse < maxConcurrent && waiters.isEmpty()) {
+                inUse++;
+                acquired++;
+                future.complete(new Permit());
+                return future;
+            }
+            // 已被取消的等待者不再占用队列位置
+            if (waiters.size() >= maxQueue) waiters.removeIf(w -> w.future.isDone());
+            if (waiters.size() >= maxQueue) {
+                rejected++;
+                future.completeExceptionally(new ChatRejectedException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "当前咨询人数较多，请稍后再试", 5));
+                return future;
+            }
+            waiters.add(new Waiter(future, System.nanoTime()));
+        }
+        CompletableFuture.delayedExecutor(queueTimeoutMillis, TimeUnit.MILLISECONDS).execute(() -> {
+            if (future.completeExceptionally(new ChatRejectedException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "排队超时，请稍后再试", 5))) {
+                synchronized (this) {
+                    timedOut++;
+                    waiters.removeIf(w -> w.future == future);
+                }
+            }
+        });
+        return future;
+    }
+
+    // 把空出的许可交给队首仍在等待的请求；超时或已取消的等待者直接跳过
+    private void dispatch() {
+        while (true) {
+            Waiter next;
+            Permit permit;
+            synchronized (this) {
+                if (inUse >= maxConcurrent || waiters.isEmpty()) return;
+                next = waiters.poll();
+                if (next.future.isDone()) continue;
+                inUse++;
+                permit = new Permit();
+            }
+            if (next.future.complete(permit)) {
+                long waited = System.nanoTime() - next.enqueuedAt;
+                synchronized (this) {
+                    acquired++;
+                    totalWaitNanos += waited;
+                    maxWaitNanos = Math.max(maxWaitNanos, waited);
+                }
+            } else {
+                permit.release();
+            }
+        }
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("inFlight", inUse);
+        s.put("queued", waiters.size());
+        s.put("acquired", acquired);
+        s.put("rejected", rejected);
+        s.put("timedOut", timedOut);
+        s.put("avgQueueWaitMillis", acquired == 0 ? 0.0 : totalWaitNanos / 1e6 / acquired);
+        s.put("maxQueueWaitMillis", maxWaitNanos / 1e6);
+        return s;
+    }
+}
@@ -0,0 +1,227 @@
+package com.sicnu.geo.chat;
+
+import com.sicnu.geo.event.ProjectChangedEvent;
+import com.sicnu.geo.index.TextAnalyzer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * ChatClient 前的网关：
+ * <ul>
+ *     <li>按用户限流（Redis 按分钟计数，各节点共享）；</li>
+ *     <li>新会话中的问题按归一化后的文本缓存回答，相同问题正在生成时共享同一次上游调用；</li>
+ *     <li>上游调用经过并发隔离舱，超出并发的请求排队，排队超时即失败。</li>
+ * </ul>
+ * 已有历史的会话依赖上下文，回答因人而异，不参与缓存与合并。
+ */
+@Component
+public class ChatGateway {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatGateway.class);
+    private static final String RATE_KEY = "chat:rate:";
+    // KEYS[1] 本分钟的计数键；ARGV[1] 过期秒数。计数与设置过期在同一脚本中完成，不会留下没有过期时间的键
+    private static final DefaultRedisScript<Long> INCR_WITH_TTL = new DefaultRedisScript<>("""
+            local count = redis.call('INCR', KEYS[1])
+            if count == 1 then redis.call('EXPIRE', KEYS[1], tonumber(ARGV[1])) end
+            return count
+            """, Long.class);
+
+    private final ChatClient chatClient;
+    private final ChatClient statelessClient;
+    private final ChatMemory chatMemory;
+    private final StringRedisTemplate redis;
+    private final Bulkhead bulkhead;
+    private final int rateLimitPerMinute;
+    private final int maxCachedPromptChars;
+    private final int maxCacheEntries;
+    private final long cacheTtlMillis;
+
+    private final Map<String, Flux<String>> inFlight = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, CachedAnswer> answers = new LinkedHashMap<>(256, 0.75f, true);
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong upstreamCalls = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+
+    private record CachedAnswer(String text, long expiresAt) {
+    }
+
+    public ChatGateway(@Qualifier("chatClient") ChatClient chatClient,
+                       @Qualifier("statelessChatClient") ChatClient statelessClient,
+                       ChatMemory chatMemory, StringRedisTemplate redis,
+                       @Value("${sicnugeo.chat.gateway.max-concurrent:8}") int maxConcurrent,
+                       @Value("${sicnugeo.chat.gateway.max-queue:100}") int maxQueue,
+                       @Value("${sicnugeo.chat.gateway.queue-timeout-seconds:10}") long queueTimeoutSeconds,
+                       @Value("${sicnugeo.chat.gateway.rate-limit-per-minute:20}") int rateLimitPerMinute,
+                       @Value("${sicnugeo.chat.gateway.cache-max-entries:1000}") int maxCacheEntries,
+                       @Value("${sicnugeo.chat.gateway.cache-ttl-minutes:30}") long cacheTtlMinutes,
+                       @Value("${sicnugeo.chat.gateway.cache-max-prompt-chars:200}") int maxCachedPromptChars) {
+        this.chatClient = chatClient;
+        this.statelessClient = statelessClient;
+        this.chatMemory = chatMemory;
+        this.redis = redis;
+        this.bulkhead = new Bulkhead(maxConcurrent, maxQueue, queueTimeoutSeconds * 1000);
+        this.rateLimitPerMinute = rateLimitPerMinute;
+        this.maxCacheEntries = maxCacheEntries;
+        this.cacheTtlMillis = Duration.ofMinutes(cacheTtlMinutes).toMillis();
+        this.maxCachedPromptChars = maxCachedPromptChars;
+    }
+
+    /**
+     * 限流检查同步进行（超限直接抛出 ChatRejectedException），其余拒绝通过返回的 Flux 报错。
+     *
+     * @param clientKey      限流维度：已登录用户 id，否则为客户端地址
+     * @param conversationId 聊天记忆的会话 id
+     */
+    public Flux<String> stream(String clientKey, String conversationId, String message) {
+        requests.incrementAndGet();
+        checkRate(clientKey);
+        if (!chatMemory.get(conversationId).isEmpty() || message.length() > maxCachedPromptChars) {
+            return guarded(chatClient.prompt()
+                    .user(message)
+                    .advisors(a -> a.param(ChatMemory.CONVERSATION_ID, conversationId))
+                    .stream()
+                    .content());
+        }
+
+        String key = normalize(message);
+        String cached = cachedAnswer(key);
+        if (cached != null) {
+            cacheHits.incrementAndGet();
+            remember(conversationId, message, cached);
+            return Flux.just(cached);
+        }
+
+        boolean[] leader = {false};
+        Flux<String> shared = inFlight.computeIfAbsent(key, k -> {
+            leader[0] = true;
+            return share(k, message);
+        });
+        if (!leader[0]) coalesced.incrementAndGet();
+        StringBuilder answer = new StringBuilder();
+        return shared.doOnNext(answer::append)
+                .doOnComplete(() -> remember(conversationId, message, answer.toString()));
+    }
+
+    // 共享的上游调用：后加入的订阅者从头重放已生成的内容；所有订阅者都取消时上游一并取消
+    private Flux<String> share(String key, String message) {
+        StringBuilder full = new StringBuilder();
+        AtomicReference<Flux<String>> self = new AtomicReference<>();
+        self.set(guarded(statelessClient.prompt().user(message).stream().content())
+                .doOnNext(full::append)
+                .doOnComplete(() -> putAnswer(key, full.toString()))
+                .doFinally(signal -> inFlight.remove(key, self.get()))
+                .replay()
+                .refCount());
+        return self.get();
+    }
+
+    private Flux<String> guarded(Flux<String> upstream) {
+        return Mono.fromFuture(bulkhead::acquire)
+                .flatMapMany(permit -> {
+                    upstreamCalls.incrementAndGet();
+                    return upstream.doFinally(signal -> permit.release());
+                });
+    }
+
+    // 缓存命中或合并的回答不经过记忆 advisor，手动补记这一轮对话，保证后续追问有上下文
+    private void remember(String conversationId, String message, String answer) {
+        if (answer.isEmpty()) return;
+        try {
+            chatMemory.add(conversationId, List.of(new UserMessage(message), new AssistantMessage(answer)));
+        } catch (RuntimeException e) {
+            log.warn("会话 {} 的聊天记忆写入失败: {}", conversationId, e.getMessage());
+        }
+    }
+
+    private void checkRate(String clientKey) {
+        if (rateLimitPerMinute <= 0) return;
+        long minute = System.currentTimeMillis() / 60_000;
+        String key = RATE_KEY + clientKey + ":" + minute;
+        Long count;
+        try {
+            count = redis.execute(INCR_WITH_TTL, List.of(key), "90");
+        } catch (RuntimeException e) {
+            // Redis 不可用时不限流
+            return;
+        }
+        if (count != null && count > rateLimitPerMinute) {
+            rateLimited.incrementAndGet();
+            long retryAfter = 60 - (System.currentTimeMillis() / 1000) % 60;
+            throw new ChatRejectedException(HttpStatus.TOO_MANY_REQUESTS, "提问太频繁，请稍后再试", retryAfter);
+        }
+    }
+
+    // 问题归一化：全角转半角、小写、合并空白、去掉句末标点
+    static String normalize(String message) {
+        String s = TextAnalyzer.normalize(message).trim().replaceAll("\\s+", " ");
+        return s.replaceAll("[\\s?？!！。.~～]+$", "");
+    }
+
+    // 回答以检索到的项目资料为依据，项目有变化时缓存的回答可能过时，全部作废
+    @EventListener
+    public synchronized void onProjectChanged(ProjectChangedEvent e) {
+        answers.clear();
+    }
+
+    private synchronized String cachedAnswer(String key) {
+        CachedAnswer a = answers.get(key);
+        if (a == null) return null;
+        if (a.expiresAt < System.currentTimeMillis()) {
+            answers.remove(key);
+            return null;
+        }
+        return a.text;
+    }
+
+    private synchronized void putAnswer(String key, String text) {
+        if (text.isBlank()) return;
+        answers.put(key, new CachedAnswer(text, System.currentTimeMillis() + cacheTtlMillis));
+        Iterator<String> it = answers.keySet().iterator();
+        while (answers.size() > maxCacheEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> s = new LinkedHashMap<>();
+        long total = requests.get();
+        s.put("requests", total);
+        s.put("cacheHits", cacheHits.get());
+        s.put("coalesced", coalesced.get());
+        s.put("hitRate", total == 0 ? 0.0 : (double) (cacheHits.get() + coalesced.get()) / total);
+        s.put("upstreamCalls", upstreamCalls.get());
+        s.put("rateLimited", rateLimited.get());
+        synchronized (this) {
+            s.put("cachedAnswers", answers.size());
+        }
+        s.put("inFlightPrompts", inFlight.size());
+        s.put("bulkhead", bulkhead.stats());
+        return s;
+    }
+}
@@ -0,0 +1,24 @@
+package com.sicnu.geo.chat;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * 聊天请求被网关拒绝（限流或并发已满），status 为建议的响应状态码。
+ */
+public class ChatRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final HttpStatus status;
+    private final long retryAfterSeconds;
+
+    public ChatRejectedException(HttpStatus status, String message, long retryAfterSeconds) {
+        super(message);
+        this.status = status;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public HttpStatus getStatus() { return status; }
+
+    public long getRetryAfterSeconds() { return retryAfterSeconds; }
+}
@@ -0,0 +1,437 @@
+package com.sicnu.geo.chat;
+
+import com.sicnu.geo.entity.Comment;
+import com.sicnu.geo.entity.Project;
+import com.sicnu.geo.enums.ProjectCategory;
+import com.sicnu.geo.event.CommentCreatedEvent;
+import com.sicnu.geo.event.ProjectChangedEvent;
+import com.sicnu.geo.export.ExportCommand;
+import com.sicnu.geo.index.HnswIndex;
+import com.sicnu.geo.repository.CommentRepository;
+import com.sicnu.geo.repository.ProjectRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.ollama.OllamaEmbeddingModel;
+import org.springframework.ai.ollama.api.OllamaEmbeddingOptions;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 聊天检索用的知识库：项目名称/描述与评论内容经 Ollama 向量化后放入内存 HNSW 索引。
+ * <ul>
+ *     <li>随 ProjectChangedEvent（含其它节点经 ProjectChangeRelay 转发的）、CommentCreatedEvent 增量更新，向量化在后台批量进行；</li>
+ *     <li>索引与原文定期写入磁盘快照，重启时先加载快照，再与数据库比对，只重新向量化有变化的条目；</li>
+ *     <li>定期与数据库全量比对一次，兜底其它节点的评论与丢失的事件。</li>
+ * </ul>
+ * Ollama 不可用时检索返回空结果，聊天照常进行，待向量化的条目留到下次重试。
+ */
+@Component
+public class KnowledgeBase {
+
+    private static final Logger log = LoggerFactory.getLogger(KnowledgeBase.class);
+    private static final int SNAPSHOT_MAGIC = 0x53474B42; // "SGKB"
+    private static final int BATCH_SIZE = 32;
+    private static final int PAGE_SIZE = 1000;
+    private static final int MAX_TEXT_CHARS = 500;
+    private static final int HNSW_M = 16;
+    private static final int HNSW_EF_CONSTRUCTION = 100;
+
+    private final OllamaEmbeddingModel embeddingModel;
+    private final ProjectRepository projectRepo;
+    private final CommentRepository commentRepo;
+    private final TaskExecutor executor;
+    private final Path snapshotPath;
+    private final String modelName;
+    private final int searchEf;
+
+    // 已进入索引的条目；键的最低位区分项目（0）与评论（1）
+    private final Map<Long, Doc> docs = new ConcurrentHashMap<>();
+    // 等待向量化的条目，值为 null 表示从索引中删除
+    private final LinkedHashMap<Long, Doc> pending = new LinkedHashMap<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final Object writeLock = new Object();
+    private volatile HnswIndex index;
+    private volatile boolean ready;
+
+    /**
+     * 一个被索引的条目。title 为项目名称，评论条目为空，展示时用所属项目的名称。
+     */
+    public record Doc(long key, long projectId, String title, String text, int hash) {
+
+        public boolean isComment() {
+            return (key & 1) == 1;
+        }
+    }
+
+    public record Match(Doc doc, float score) {
+    }
+
+    public KnowledgeBase(OllamaEmbeddingModel embeddingModel, ProjectRepository projectRepo,
+                         CommentRepository commentRepo,
+                         @Qualifier("ragTaskExecutor") TaskExecutor executor,
+                         @Value("${sicnugeo.rag.snapshot-path:data/rag-index.bin}") String snapshotPath,
+                         @Value("${spring.ai.ollama.embedding.options.model:bge-m3}") String modelName,
+                         @Value("${sicnugeo.rag.search-ef:64}") int searchEf) {
+        this.embeddingModel = embeddingModel;
+        this.projectRepo = projectRepo;
+        this.commentRepo = commentRepo;
+        this.executor = executor;
+        this.snapshotPath = Path.of(snapshotPath);
+        this.modelName = modelName;
+        this.searchEf = searchEf;
+    }
+
+    @EventListener(value = ApplicationReadyEvent.class, condition = ExportCommand.NOT_EXPORTING)
+    public void load() {
+        executor.execute(() -> {
+            loadSnapshot();
+            ready = true;
+            reconcile();
+        });
+    }
+
+    @EventListener
+    public void onProjectChanged(ProjectChangedEvent e) {
+        long key = projectKey(e.projectId());
+        if (e.type() == ProjectChangedEvent.Type.DELETED) {
+            List<Long> keys = new ArrayList<>();
+            keys.add(key);
+            for (Doc d : docs.values()) {
+                if (d.isComment() && d.projectId() == e.projectId()) keys.add(d.key());
+            }
+            synchronized (pending) {
+                for (Long k : keys) pending.put(k, null);
+            }
+        } else {
+            Project p = e.project();
+            enqueue(projectDoc(p.getId(), p.getName(), p.getDescription(), p.getCategory(), p.getStatus()));
+        }
+        scheduleDrain();
+    }
+
+    @EventListener
+    public void onCommentCreated(CommentCreatedEvent e) {
+        Comment c = e.comment();
+        enqueue(commentDoc(c.getId(), e.projectId(), c.getAuthorName(), c.getContent()));
+        scheduleDrain();
+    }
+
+    /**
+     * 返回与问题最相关的至多 k 个条目（相似度不低于 minScore）。
+     * 问题的向量化需要一次 Ollama 调用；索引内的检索只在内存中进行。
+     */
+    public List<Match> search(String question, int k, float minScore) {
+        HnswIndex current = index;
+        if (current == null || current.size() == 0 || question == null || question.isBlank()) return List.of();
+        float[] query;
+        try {
+            query = embed(List.of(truncate(question))).get(0);
+        } catch (RuntimeException e) {
+            log.warn("问题向量化失败，本次回答不做检索: {}", e.getMessage());
+            return List.of();
+        }
+        if (query.length != current.dimensions()) return List.of();
+        List<Match> matches = new ArrayList<>(k);
+        for (HnswIndex.Hit hit : current.search(query, k, searchEf)) {
+            if (hit.score() < minScore) break;
+            Doc d = docs.get(hit.key());
+            if (d != null) matches.add(new Match(d, hit.score()));
+        }
+        return matches;
+    }
+
+    /**
+     * 评论条目展示时需要所属项目的名称。
+     */
+    public String projectTitle(long projectId) {
+        Doc d = docs.get(projectKey(projectId));
+        return d == null ? null : d.title();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> s = new LinkedHashMap<>();
+        HnswIndex current = index;
+        s.put("ready", ready);
+        s.put("documents", docs.size());
+        s.put("indexed", current == null ? 0 : current.size());
+        s.put("dimensions", current == null ? 0 : current.dimensions());
+        synchronized (pending) {
+            s.put("pending", pending.size());
+        }
+        return s;
+    }
+
+    // ---------------------------------------------------------------- 定期任务
+
+    // 向量化失败的条目留在队列中，定期重试；索引有变化时写快照
+    @Scheduled(fixedDelayString = "${sicnugeo.rag.snapshot-interval-seconds:60}", timeUnit = TimeUnit.SECONDS)
+    public void flush() {
+        if (!ready) return;
+        scheduleDrain();
+        if (dirty.get()) executor.execute(this::saveSnapshot);
+    }
+
+    @Scheduled(fixedDelayString = "${sicnugeo.rag.reconcile-minutes:30}",
+            initialDelayString = "${sicnugeo.rag.reconcile-minutes:30}", timeUnit = TimeUnit.MINUTES)
+    public void scheduledReconcile() {
+        if (ready) executor.execute(this::reconcile);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (ready && dirty.get()) saveSnapshot();
+    }
+
+    // ---------------------------------------------------------------- 同步
+
+    // 与数据库比对：新增或文本有变化的条目重新向量化，数据库中已不存在的条目删除
+    private void reconcile() {
+        Set<Long> seen = new HashSet<>();
+        try {
+            for (Object[] row : projectRepo.findAllForSearch()) {
+                Doc d = projectDoc((Long) row[0], (String) row[1], (String) row[2],
+                        (ProjectCategory) row[3], (String) row[4]);
+                seen.add(d.key());
+                if (!sameAsIndexed(d)) enqueue(d);
+            }
+            long afterId = 0;
+            List<Object[]> rows;
+            do {
+                rows = commentRepo.findForIndex(afterId, PageRequest.of(0, PAGE_SIZE));
+                for (Object[] row : rows) {
+                    Doc d = commentDoc((Long) row[0], (Long) row[1], (String) row[2], (String) row[3]);
+                    seen.add(d.key());
+                    if (!sameAsIndexed(d)) enqueue(d);
+                    afterId = (Long) row[0];
+                }
+            } while (rows.size() == PAGE_SIZE);
+        } catch (RuntimeException e) {
+            log.warn("知识库与数据库比对失败: {}", e.getMessage());
+            return;
+        }
+        synchronized (pending) {
+            for (Long key : docs.keySet()) {
+                if (!seen.contains(key)) pending.put(key, null);
+            }
+        }
+        scheduleDrain();
+    }
+
+    private boolean sameAsIndexed(Doc d) {
+        return d.equals(docs.get(d.key()));
+    }
+
+    private void enqueue(Doc d) {
+        synchronized (pending) {
+            pending.put(d.key(), d);
+        }
+    }
+
+    private void scheduleDrain() {
+        if (ready && drainScheduled.compareAndSet(false, true)) executor.execute(this::drain);
+    }
+
+    private void drain() {
+        drainScheduled.set(false);
+        while (true) {
+            Map<Long, Doc> batch = new LinkedHashMap<>();
+            synchronized (pending) {
+                Iterator<Map.Entry<Long, Doc>> it = pending.entrySet().iterator();
+                while (it.hasNext() && batch.size() < BATCH_SIZE) {
+                    Map.Entry<Long, Doc> e = it.next();
+                    batch.put(e.getKey(), e.getValue());
+                    it.remove();
+                }
+            }
+            if (batch.isEmpty()) return;
+            try {
+                apply(batch);
+            } catch (RuntimeException e) {
+                // 放回队列（期间有更新的以新值为准），等下次定期任务重试
+                synchronized (pending) {
+                    batch.forEach(pending::putIfAbsent);
+                }
+                log.warn("{} 个知识库条目向量化失败，稍后重试: {}", batch.size(), e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void apply(Map<Long, Doc> batch) {
+        List<Doc> toEmbed = new ArrayList<>(batch.size());
+        for (Doc d : batch.values()) {
+            if (d != null) toEmbed.add(d);
+        }
+        List<float[]> vectors = List.of();
+        if (!toEmbed.isEmpty()) {
+            List<String> texts = new ArrayList<>(toEmbed.size());
+            for (Doc d : toEmbed) texts.add(d.title() == null ? d.text() : d.title() + "\n" + d.text());
+            vectors = embed(texts);
+        }
+        synchronized (writeLock) {
+            HnswIndex current = index;
+            if (!vectors.isEmpty() && (current == null || current.dimensions() != vectors.get(0).length)) {
+                // 首次写入或更换了向量模型：新建索引，已有条目全部重新向量化
+                current = new HnswIndex(vectors.get(0).length, HNSW_M, HNSW_EF_CONSTRUCTION);
+                if (index != null) {
+                    synchronized (pending) {
+                        for (Doc d : docs.values()) pending.putIfAbsent(d.key(), d);
+                    }
+                    docs.clear();
+                }
+                index = current;
+            }
+            for (Map.Entry<Long, Doc> e : batch.entrySet()) {
+                if (e.getValue() == null) {
+                    if (current != null) current.remove(e.getKey());
+                    docs.remove(e.getKey());
+                }
+            }
+            for (int i = 0; i < toEmbed.size(); i++) {
+                Doc d = toEmbed.get(i);
+                current.put(d.key(), vectors.get(i));
+                docs.put(d.key(), d);
+            }
+            dirty.set(true);
+        }
+    }
+
+    // ---------------------------------------------------------------- 快照
+
+    private void loadSnapshot() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) throw new IOException("不是知识库快照");
+            String model = in.readUTF();
+            if (!model.equals(modelName)) {
+                log.info("知识库快照由 {} 生成，改用 {} 重新向量化", model, modelName);
+                return;
+            }
+            int count = in.readInt();
+            Map<Long, Doc> loaded = new LinkedHashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                long key = in.readLong();
+                long projectId = in.readLong();
+                String title = in.readBoolean() ? in.readUTF() : null;
+                String text = in.readUTF();
+                int hash = in.readInt();
+                loaded.put(key, new Doc(key, projectId, title, text, hash));
+            }
+            HnswIndex snapshot = in.readBoolean() ? HnswIndex.read(in) : null;
+            synchronized (writeLock) {
+                docs.putAll(loaded);
+                index = snapshot;
+            }
+            log.info("从 {} 加载了 {} 个知识库条目", snapshotPath, loaded.size());
+        } catch (NoSuchFileException e) {
+            log.info("{} 没有知识库快照，从数据库构建", snapshotPath);
+        } catch (IOException | RuntimeException e) {
+            log.warn("知识库快照 {} 无法读取，已忽略: {}", snapshotPath, e.getMessage());
+        }
+    }
+
+    // 先写临时文件再原子替换，进程中途退出不会留下半个快照
+    private void saveSnapshot() {
+        synchronized (writeLock) {
+            if (!dirty.getAndSet(false)) return;
+            try {
+                Path dir = snapshotPath.toAbsolutePath().getParent();
+                Files.createDirectories(dir);
+                Path tmp = Files.createTempFile(dir, "rag-index", ".tmp");
+                try {
+                    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                        out.writeInt(SNAPSHOT_MAGIC);
+                        out.writeUTF(modelName);
+                        out.writeInt(docs.size());
+                        for (Doc d : docs.values()) {
+                            out.writeLong(d.key());
+                            out.writeLong(d.projectId());
+                            out.writeBoolean(d.title() != null);
+                            if (d.title() != null) out.writeUTF(d.title());
+                            out.writeUTF(d.text());
+                            out.writeInt(d.hash());
+                        }
+                        out.writeBoolean(index != null);
+                        if (index != null) index.write(out);
+                    }
+                    Files.move(tmp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(tmp);
+                }
+            } catch (IOException e) {
+                dirty.set(true);
+                log.warn("知识库快照 {} 写入失败: {}", snapshotPath, e.getMessage());
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------- 条目
+
+    private static long projectKey(long projectId) {
+        return projectId << 1;
+    }
+
+    private static long commentKey(long commentId) {
+        return (commentId << 1) | 1;
+    }
+
+    private static Doc projectDoc(Long id, String name, String description, ProjectCategory category, String status) {
+        StringBuilder text = new StringBuilder();
+        if (category != null) text.append(category.getDisplayName()).append("；");
+        if (status != null) text.append("状态：").append(status).append("；");
+        if (description != null) text.append(description);
+        return doc(projectKey(id), id, truncate(name), text.toString());
+    }
+
+    private static Doc commentDoc(Long id, Long projectId, String author, String content) {
+        return doc(commentKey(id), projectId, null, author + "：" + content);
+    }
+
+    // 每次请求都指定模型，实际使用的模型与写进快照的 modelName 始终一致，不依赖 Spring AI 的默认值
+    private List<float[]> embed(List<String> texts) {
+        List<Embedding> results = embeddingModel.call(new EmbeddingRequest(texts,
+                OllamaEmbeddingOptions.builder().model(modelName).build())).getResults();
+        List<float[]> vectors = new ArrayList<>(results.size());
+        for (Embedding e : results) vectors.add(e.getOutput());
+        return vectors;
+    }
+
+    private static Doc doc(long key, long projectId, String title, String text) {
+        String t = truncate(text);
+        return new Doc(key, projectId, title, t, (title == null ? 0 : title.hashCode()) * 31 + t.hashCode());
+    }
+
+    private static String truncate(String s) {
+        if (s == null) return "";
+        return s.length() <= MAX_TEXT_CHARS ? s : s.substring(0, MAX_TEXT_CHARS);
+    }
+}
@@ -0,0 +1,208 @@
+package com.sicnu.geo.chat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sicnu.geo.cache.RedisScripts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按会话隔离、按 token 预算裁剪的聊天记忆，存放在 Redis 中并带过期时间。
+ * <p>
+ * 每个会话一个 Redis 列表，元素为 "估算token数|消息JSON"。追加与裁剪在同一个 Lua 脚本中完成：
+ * 从最新的消息往前累加，超出预算的旧消息被移出列表（至少保留最近两条）。
+ * 开启摘要时，被移出的消息在后台交给模型并入该会话的摘要，读取时作为系统消息放在最前面。
+ */
+@Component
+public class RedisChatMemory implements ChatMemory {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisChatMemory.class);
+    private static final String KEY_PREFIX = "chat:memory:";
+    private static final String SUMMARY_SUFFIX = ":summary";
+
+    // KEYS[1] 会话列表；ARGV[1] token 预算，ARGV[2] 过期秒数，ARGV[3..] 新消息。返回被移出的旧消息
+    private static final DefaultRedisScript<List<String>> APPEND_AND_TRIM = RedisScripts.returningStrings("""
+            for i = 3, #ARGV do redis.call('RPUSH', KEYS[1], ARGV[i]) end
+            local items = redis.call('LRANGE', KEYS[1], 0, -1)
+            local budget = tonumber(ARGV[1])
+            local total, keep = 0, 0
+            for i = #items, 1, -1 do
+              local t = tonumber(string.match(items[i], '^(%d+)|')) or 0
+              if keep >= 2 and total + t > budget then break end
+              total = total + t
+              keep = keep + 1
+            end
+            local removed = {}
+            local drop = #items - keep
+            if drop > 0 then
+              for i = 1, drop do removed[i] = items[i] end
+              redis.call('LTRIM', KEYS[1], drop, -1)
+            end
+            redis.call('EXPIRE', KEYS[1], tonumber(ARGV[2]))
+            return removed
+            """);
+
+    private final StringRedisTemplate redis;
+    private final ObjectMapper mapper;
+    private final OpenAiChatModel model;
+    private final TaskExecutor executor;
+    private final int maxTokens;
+    private final Duration ttl;
+    private final boolean summarize;
+    private final int summaryMaxChars;
+    private final AtomicLong summaries = new AtomicLong();
+    private final AtomicLong summaryFailures = new AtomicLong();
+    private final AtomicLong summariesDropped = new AtomicLong();
+
+    public RedisChatMemory(StringRedisTemplate redis, ObjectMapper mapper, OpenAiChatModel model,
+                           @Qualifier("chatTaskExecutor") TaskExecutor executor,
+                           @Value("${sicnugeo.chat.memory.max-tokens:2000}") int maxTokens,
+                           @Value("${sicnugeo.chat.memory.ttl-minutes:120}") long ttlMinutes,
+                           @Value("${sicnugeo.chat.memory.summarize:true}") boolean summarize,
+                           @Value("${sicnugeo.chat.memory.summary-max-chars:300}") int summaryMaxChars) {
+        this.redis = redis;
+        this.mapper = mapper;
+        this.model = model;
+        this.executor = executor;
+        this.maxTokens = maxTokens;
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.summarize = summarize;
+        this.summaryMaxChars = summaryMaxChars;
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        List<String> args = new ArrayList<>(messages.size() + 2);
+        args.add(String.valueOf(maxTokens));
+        args.add(String.valueOf(ttl.toSeconds()));
+        for (Message m : messages) {
+            if (m.getMessageType() != MessageType.USER && m.getMessageType() != MessageType.ASSISTANT) continue;
+            String text = m.getText() == null ? "" : m.getText();
+            ObjectNode node = mapper.createObjectNode().put("type", m.getMessageType().name()).put("text", text);
+            args.add(estimateTokens(text) + "|" + node);
+        }
+        if (args.size() == 2) return;
+        List<String> removed = redis.execute(APPEND_AND_TRIM, List.of(key(conversationId)), args.toArray());
+        if (summarize && removed != null && !removed.isEmpty()) {
+            List<Message> evicted = new ArrayList<>(removed.size());
+            for (String entry : removed) {
+                Message m = decode(entry);
+                if (m != null) evicted.add(m);
+            }
+            try {
+                executor.execute(() -> foldIntoSummary(conversationId, evicted));
+            } catch (TaskRejectedException e) {
+                // 摘要队列已满：旧消息照常裁掉，只是不再并入摘要
+                long dropped = summariesDropped.incrementAndGet();
+                log.warn("聊天摘要队列已满，会话 {} 的 {} 条旧消息未并入摘要（累计丢弃 {} 次）",
+                        conversationId, evicted.size(), dropped);
+            }
+        }
+    }
+
+    @Override
+    public List<Message> get(String conversationId) {
+        List<Message> result = new ArrayList<>();
+        String summary = redis.opsForValue().get(key(conversationId) + SUMMARY_SUFFIX);
+        if (summary != null && !summary.isBlank()) {
+            result.add(new SystemMessage("此前对话的摘要：" + summary));
+        }
+        List<String> entries = redis.opsForList().range(key(conversationId), 0, -1);
+        if (entries != null) {
+            for (String entry : entries) {
+                Message m = decode(entry);
+                if (m != null) result.add(m);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        redis.delete(List.of(key(conversationId), key(conversationId) + SUMMARY_SUFFIX));
+    }
+
+    // 被裁掉的消息并入摘要；摘要线程只有一个，同一会话的摘要按顺序更新
+    private void foldIntoSummary(String conversationId, List<Message> evicted) {
+        if (evicted.isEmpty()) return;
+        String summaryKey = key(conversationId) + SUMMARY_SUFFIX;
+        try {
+            String previous = redis.opsForValue().get(summaryKey);
+            StringBuilder prompt = new StringBuilder("请把已有摘要与下面的对话合并成一段不超过 ")
+                    .append(summaryMaxChars).append(" 字的中文摘要，只保留用户关心的事实、偏好与未解决的问题，直接输出摘要。\n");
+            prompt.append("已有摘要：").append(previous == null ? "无" : previous).append('\n').append("对话：\n");
+            for (Message m : evicted) {
+                prompt.append(m.getMessageType() == MessageType.USER ? "用户：" : "助手：").append(m.getText()).append('\n');
+            }
+            String summary = model.call(prompt.toString());
+            if (summary == null || summary.isBlank()) return;
+            if (summary.length() > summaryMaxChars * 2) summary = summary.substring(0, summaryMaxChars * 2);
+            redis.opsForValue().set(summaryKey, summary.trim(), ttl);
+            summaries.incrementAndGet();
+        } catch (RuntimeException e) {
+            // 摘要失败只意味着更早的对话被遗忘
+            summaryFailures.incrementAndGet();
+            log.warn("会话 {} 的聊天摘要更新失败: {}", conversationId, e.getMessage());
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("summaries", summaries.get());
+        s.put("summaryFailures", summaryFailures.get());
+        s.put("summariesDropped", summariesDropped.get());
+        return s;
+    }
+
+    private Message decode(String entry) {
+        int sep = entry.indexOf('|');
+        try {
+            JsonNode node = mapper.readTree(entry.substring(sep + 1));
+            String text = node.path("text").asText("");
+            return MessageType.ASSISTANT.name().equals(node.path("type").asText())
+                    ? new AssistantMessage(text) : new UserMessage(text);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static String key(String conversationId) {
+        return KEY_PREFIX + conversationId;
+    }
+
+    /**
+     * 粗略估算 token 数：中日韩字符按每字一个，其余字符按每四个一个，另加每条消息的固定开销。
+     */
+    static int estimateTokens(String text) {
+        int cjk = 0, other = 0;
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            if (Character.UnicodeScript.of(cp) == Character.UnicodeScript.HAN) cjk++;
+            else other++;
+            i += Character.charCount(cp);
+        }
+        return cjk + (other + 3) / 4 + 4;
+    }
+}
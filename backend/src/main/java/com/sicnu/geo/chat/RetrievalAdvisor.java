@@ -0,0 +1,61 @@
+package com.sicnu.geo.chat;
+
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
+import org.springframework.ai.chat.client.advisor.api.AdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.BaseAdvisor;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.util.List;
+
+/**
+ * 把知识库中与问题最相关的项目、评论拼在用户问题前面，让回答以平台数据为依据。
+ * 排在记忆 advisor 之后：写入会话记忆的是原始问题，不含检索到的资料。
+ */
+public class RetrievalAdvisor implements BaseAdvisor {
+
+    private final KnowledgeBase knowledgeBase;
+    private final int topK;
+    private final float minScore;
+
+    public RetrievalAdvisor(KnowledgeBase knowledgeBase, int topK, float minScore) {
+        this.knowledgeBase = knowledgeBase;
+        this.topK = topK;
+        this.minScore = minScore;
+    }
+
+    @Override
+    public ChatClientRequest before(ChatClientRequest request, AdvisorChain chain) {
+        UserMessage user = request.prompt().getUserMessage();
+        String question = user == null ? null : user.getText();
+        List<KnowledgeBase.Match> matches = knowledgeBase.search(question, topK, minScore);
+        if (matches.isEmpty()) return request;
+
+        StringBuilder sb = new StringBuilder("以下是平台中与问题相关的资料，回答时优先依据这些资料，资料未涉及的内容不要编造：\n");
+        for (KnowledgeBase.Match m : matches) {
+            KnowledgeBase.Doc d = m.doc();
+            if (d.isComment()) {
+                String project = knowledgeBase.projectTitle(d.projectId());
+                sb.append("- [评论] 项目《").append(project == null ? "#" + d.projectId() : project).append("》 ")
+                        .append(d.text()).append('\n');
+            } else {
+                sb.append("- [项目] 《").append(d.title()).append("》 ").append(d.text()).append('\n');
+            }
+        }
+        sb.append("\n问题：").append(question);
+        return request.mutate()
+                .prompt(request.prompt().augmentUserMessage(sb.toString()))
+                .build();
+    }
+
+    @Override
+    public ChatClientResponse after(ChatClientResponse response, AdvisorChain chain) {
+        return response;
+    }
+
+    @Override
+    public int getOrder() {
+        return Advisor.DEFAULT_CHAT_MEMORY_PRECEDENCE_ORDER + 100;
+    }
+}
@@ -1,30 +1,57 @@
 package com.sicnu.geo.config;
 
+import com.sicnu.geo.chat.KnowledgeBase;
+import com.sicnu.geo.chat.RetrievalAdvisor;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
 import org.springframework.ai.chat.memory.ChatMemory;
 import org.springframework.ai.openai.OpenAiChatModel;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
 @Configuration
 public class AiConfiguration {
+
+    private static final String SYSTEM_PROMPT = "你是城市共享愿景的ai助手小成，为你提供专业的地理信息服务";
+
+    // RedisChatMemory：按会话隔离、按 token 预算裁剪，会话 id 由 ChatGateway 通过 advisor 参数传入
     @Autowired
     ChatMemory chatMemory;
 
     @Bean
-    public ChatClient chatClient(OpenAiChatModel model){
+    public RetrievalAdvisor retrievalAdvisor(KnowledgeBase knowledgeBase,
+                                             @Value("${sicnugeo.rag.top-k:4}") int topK,
+                                             @Value("${sicnugeo.rag.min-score:0.5}") float minScore) {
+        return new RetrievalAdvisor(knowledgeBase, topK, minScore);
+    }
+
+    @Bean
+    @Primary
+    public ChatClient chatClient(OpenAiChatModel model, RetrievalAdvisor retrievalAdvisor){
         return ChatClient
                 .builder(model)
-                .defaultSystem("你是城市共享愿景的ai助手小成，为你提供专业的地理信息服务")
+                .defaultSystem(SYSTEM_PROMPT)
                 .defaultAdvisors(
                         new SimpleLoggerAdvisor(),
                          MessageChatMemoryAdvisor.builder(chatMemory)
-                            .build()
+                            .build(),
+                        retrievalAdvisor
                 )
                 .build();
     }
 
+    // 不带记忆的客户端：新会话中的问题与上下文无关，回答可以在用户之间缓存和共享
+    @Bean
+    public ChatClient statelessChatClient(OpenAiChatModel model, RetrievalAdvisor retrievalAdvisor) {
+        return ChatClient
+                .builder(model)
+                .defaultSystem(SYSTEM_PROMPT)
+                .defaultAdvisors(new SimpleLoggerAdvisor(), retrievalAdvisor)
+                .build();
+    }
+
 }
@@ -0,0 +1,82 @@
+package com.sicnu.geo.config;
+
+import com.sicnu.geo.auth.TokenRevocationList;
+import com.sicnu.geo.cache.CacheInvalidationBus;
+import com.sicnu.geo.live.ChangeHub;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ForkJoinPool;
+
+@Configuration
+public class CommonConfiguration {
+
+    // 要素文档的后台任务（细节层级生成、补丁合并），保存请求不等待其完成
+    @Bean
+    public ThreadPoolTaskExecutor featureTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("feature-task-");
+        return executor;
+    }
+
+    // 聊天的后台任务（记忆摘要）；单线程保证同一会话的摘要按顺序更新，排满时拒绝，由 RedisChatMemory 记录丢弃
+    @Bean
+    public ThreadPoolTaskExecutor chatTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(200);
+        executor.setThreadNamePrefix("chat-task-");
+        return executor;
+    }
+
+    // 知识库的向量化与快照写入；单线程保证索引按事件顺序更新，不丢弃任务
+    @Bean
+    public ThreadPoolTaskExecutor ragTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setThreadNamePrefix("rag-task-");
+        return executor;
+    }
+
+    // 变更推送的发送；每个订阅者同一时刻至多一个任务，队列长度只与连接数有关。
+    // 向慢客户端写入会阻塞所在线程，线程数决定了能同时容忍多少个慢客户端
+    @Bean
+    public ThreadPoolTaskExecutor liveTaskExecutor(@Value("${sicnugeo.live.send-threads:4}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(10000);
+        executor.setThreadNamePrefix("live-push-");
+        return executor;
+    }
+
+    // 空间分析的并行判断与细节层级的并行简化；与公共池分开，长时间的计算不占用其它并行流的线程
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool analysisPool(@Value("${sicnugeo.analysis.parallelism:0}") int parallelism) {
+        return new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    // 订阅跨节点的缓存失效消息、令牌吊销消息与变更推送消息
+    @Bean
+    public RedisMessageListenerContainer redisListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                CacheInvalidationBus bus,
+                                                                TokenRevocationList revocations,
+                                                                ChangeHub changes) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(bus, new ChannelTopic(CacheInvalidationBus.CHANNEL));
+        container.addMessageListener(revocations, new ChannelTopic(TokenRevocationList.CHANNEL));
+        container.addMessageListener(changes, new ChannelTopic(ChangeHub.CHANNEL));
+        return container;
+    }
+}
@@ -1,18 +1,26 @@
 package com.sicnu.geo.config;
 
+import com.sicnu.geo.auth.AccessTokenService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpSession;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
 
+// 只校验 Authorization: Bearer 访问令牌，不读取也不创建 Session
 @Component
 public class LoginInterceptor implements HandlerInterceptor {
+
+    private final AccessTokenService tokens;
+
+    public LoginInterceptor(AccessTokenService tokens) {
+        this.tokens = tokens;
+    }
+
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
-        HttpSession session = request.getSession();
-        Object user = session.getAttribute("user");
-        if (user == null) {
+        if (tokens.authenticate(request) == null) {
+            response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
             response.setStatus(401);
             return false;
         }
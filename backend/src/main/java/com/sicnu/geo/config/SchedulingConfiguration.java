@@ -0,0 +1,15 @@
+package com.sicnu.geo.config;
+
+import com.sicnu.geo.export.ExportCommand;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 定时任务（统计校对、知识库快照、心跳、订阅摘要等）只在服务端运行，命令行导出时不启用。
+ */
+@Configuration
+@EnableScheduling
+@Profile("!" + ExportCommand.PROFILE)
+public class SchedulingConfiguration {
+}
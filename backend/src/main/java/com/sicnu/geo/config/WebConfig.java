@@ -1,7 +1,9 @@
 package com.sicnu.geo.config;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -11,6 +13,10 @@ public class WebConfig implements WebMvcConfigurer {
     @Autowired
     private LoginInterceptor loginInterceptor;
 
+    // 异步请求（流式聊天、流式要素输出）的超时时间，需覆盖一次完整的模型生成
+    @Value("${sicnugeo.chat.timeout-seconds:300}")
+    private long asyncTimeoutSeconds;
+
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
         registry.addInterceptor(loginInterceptor)
@@ -18,7 +24,14 @@ public class WebConfig implements WebMvcConfigurer {
                 .excludePathPatterns(
                         "/api/user/login",
                         "/api/user/code",
+                        "/api/user/token", // 凭 Session 换取新令牌
+                        "/api/user/logout",
                         "/api/chat/**" // Allow chat without login for now if needed, or remove to protect
                 );
     }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(asyncTimeoutSeconds * 1000);
+    }
 }
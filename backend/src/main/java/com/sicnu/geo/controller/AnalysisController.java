@@ -0,0 +1,74 @@
+package com.sicnu.geo.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sicnu.geo.cache.ProjectCache;
+import com.sicnu.geo.dto.AnalysisRequest;
+import com.sicnu.geo.dto.AnalysisResult;
+import com.sicnu.geo.dto.Measurement;
+import com.sicnu.geo.geometry.Geometry;
+import com.sicnu.geo.service.AnalysisService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/analysis")
+@CrossOrigin(origins = {"http://localhost:8080"}, allowCredentials = "true")
+public class AnalysisController {
+
+    private final ProjectCache projectCache;
+    private final AnalysisService analysisService;
+
+    public AnalysisController(ProjectCache projectCache, AnalysisService analysisService) {
+        this.projectCache = projectCache;
+        this.analysisService = analysisService;
+    }
+
+    // 请求体为 GeoJSON 几何或 Feature，返回球面面积、长度与周长
+    @PostMapping("/measure")
+    public Measurement measure(@RequestBody JsonNode body) {
+        try {
+            JsonNode geometry = body.has("geometry") ? body.get("geometry") : body;
+            return analysisService.measure(Geometry.fromGeoJson(geometry));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @GetMapping("/projects/{projectId}/measure")
+    public ResponseEntity<Measurement> measureProject(@PathVariable Long projectId) throws IOException {
+        if (!projectCache.exists(projectId)) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(analysisService.measureProject(projectId));
+    }
+
+    // intersects / within / buffer / nearest，查询几何可以是请求中的 GeoJSON，也可以是某个项目的要素
+    @PostMapping("/query")
+    public AnalysisResult query(@RequestBody AnalysisRequest request) throws IOException {
+        try {
+            return analysisService.query(request);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // 冲突检测：其他项目中与本项目要素距离不超过 distanceMeters 的要素
+    @GetMapping("/projects/{projectId}/conflicts")
+    public ResponseEntity<AnalysisResult> conflicts(
+            @PathVariable Long projectId,
+            @RequestParam(defaultValue = "500") double distanceMeters,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Integer limit) throws IOException {
+        if (!projectCache.exists(projectId)) return ResponseEntity.notFound().build();
+        AnalysisRequest request = new AnalysisRequest("buffer", null, projectId, null, distanceMeters, null,
+                null, category, status, false, limit, false);
+        try {
+            return ResponseEntity.ok(analysisService.query(request));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.sicnu.geo.controller;
+
+import com.sicnu.geo.cache.ProjectCache;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/cache")
+@CrossOrigin(origins = {"http://localhost:8080"}, allowCredentials = "true")
+public class CacheController {
+
+    private final ProjectCache projectCache;
+
+    public CacheController(ProjectCache projectCache) {
+        this.projectCache = projectCache;
+    }
+
+    // 各缓存的命中、未命中、淘汰与失效计数（仅本节点）
+    @GetMapping("/stats")
+    public Map<String, Object> stats() {
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("project", projectCache.stats());
+        return s;
+    }
+}
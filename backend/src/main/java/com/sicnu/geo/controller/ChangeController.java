@@ -0,0 +1,76 @@
+package com.sicnu.geo.controller;
+
+import com.sicnu.geo.geometry.Envelope;
+import com.sicnu.geo.live.ChangeHub;
+import com.sicnu.geo.live.ChangeHub.ChangeFilter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/changes")
+@CrossOrigin(origins = {"http://localhost:8080"}, allowCredentials = "true")
+public class ChangeController {
+
+    private final ChangeHub hub;
+
+    public ChangeController(ChangeHub hub) {
+        this.hub = hub;
+    }
+
+    // SSE 变更推送：按项目 id、分类、视野范围订阅（逗号分隔，任一命中即推送，都不指定时接收全部）。
+    // 事件名为 project / features / comment，积压过多时收到 resync 后应重新拉取
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestParam(required = false) String projectIds,
+                                @RequestParam(required = false) String categories,
+                                @RequestParam(required = false) String bbox) {
+        ChangeFilter filter = filter(projectIds, categories, bbox);
+        try {
+            return hub.subscribe(filter);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
+    }
+
+    // 修改已有订阅的筛选条件（视野移动时），订阅 id 来自 ready 事件
+    @PutMapping("/{subscriptionId}")
+    public ResponseEntity<Void> update(@PathVariable String subscriptionId,
+                                       @RequestParam(required = false) String projectIds,
+                                       @RequestParam(required = false) String categories,
+                                       @RequestParam(required = false) String bbox) {
+        ChangeFilter filter = filter(projectIds, categories, bbox);
+        return hub.update(subscriptionId, filter)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/stats")
+    public Map<String, Object> stats() {
+        return hub.stats();
+    }
+
+    private static ChangeFilter filter(String projectIds, String categories, String bbox) {
+        try {
+            Set<Long> ids = split(projectIds).stream().map(Long::valueOf).collect(Collectors.toSet());
+            Set<String> cats = split(categories).stream().map(c -> c.toUpperCase(Locale.ROOT)).collect(Collectors.toSet());
+            Envelope env = bbox == null || bbox.isBlank() ? null : Envelope.parse(bbox);
+            return new ChangeFilter(ids, cats, env);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    private static Set<String> split(String text) {
+        if (text == null || text.isBlank()) return Set.of();
+        return Arrays.stream(text.split(",")).map(String::trim).filter(s -> !s.isEmpty()).collect(Collectors.toSet());
+    }
+}
@@ -1,28 +1,174 @@
 package com.sicnu.geo.controller;
 
-import org.springframework.ai.chat.client.ChatClient;
+import com.sicnu.geo.auth.AccessToken;
+import com.sicnu.geo.auth.AccessTokenService;
+import com.sicnu.geo.chat.ChatGateway;
+import com.sicnu.geo.chat.ChatRejectedException;
+import com.sicnu.geo.chat.KnowledgeBase;
+import com.sicnu.geo.chat.RedisChatMemory;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/chat")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = {ChatController.CONVERSATION_HEADER, HttpHeaders.RETRY_AFTER})
 public class ChatController {
 
-    private final ChatClient chatClient;
+    static final String CONVERSATION_HEADER = "X-Conversation-Id";
+    private static final Pattern CONVERSATION_ID = Pattern.compile("[A-Za-z0-9_.-]{1,128}");
+
+    private final ChatGateway gateway;
+    private final ChatMemory chatMemory;
+    private final KnowledgeBase knowledgeBase;
+    private final AccessTokenService tokens;
+    private final long timeoutMillis;
 
-    public ChatController(ChatClient chatClient) {
-        this.chatClient = chatClient;
+    public ChatController(ChatGateway gateway, ChatMemory chatMemory, KnowledgeBase knowledgeBase,
+                          AccessTokenService tokens,
+                          @Value("${sicnugeo.chat.timeout-seconds:300}") long timeoutSeconds) {
+        this.gateway = gateway;
+        this.chatMemory = chatMemory;
+        this.knowledgeBase = knowledgeBase;
+        this.tokens = tokens;
+        this.timeoutMillis = timeoutSeconds * 1000;
     }
 
+    // 一次性返回完整回答；底层同样走流式接口，等待期间不占用 Servlet 线程
+    // 会话 id 通过 X-Conversation-Id 返回，客户端在同一会话中复用；缺省或匿名会话 id 无效时开始新的会话
     @GetMapping
-    public String chat(@RequestParam String message) {
-        return chatClient.prompt()
-                .user(message)
-                .call()
-                .content();
+    public Mono<String> chat(@RequestParam String message,
+                             @RequestParam(required = false) String conversationId,
+                             HttpServletRequest request, HttpServletResponse response) {
+        String memoryId = memoryId(conversationId, true, request, response);
+        return gateway.stream(clientKey(request), memoryId, message)
+                .collect(Collectors.joining());
+    }
+
+    // SSE 逐段推送：token 事件携带 {"content": ...}，结束时发送 done，出错时发送 error。
+    // 客户端断开后下一次写入失败即取消上游生成
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam String message,
+                             @RequestParam(required = false) String conversationId,
+                             HttpServletRequest request, HttpServletResponse response) {
+        String memoryId = memoryId(conversationId, true, request, response);
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Disposable generation = gateway.stream(clientKey(request), memoryId, message)
+                .subscribe(
+                        token -> send(emitter, SseEmitter.event().name("token")
+                                .data(Map.of("content", token), MediaType.APPLICATION_JSON)),
+                        error -> {
+                            if (!(error instanceof UncheckedIOException)) {
+                                String reason = error instanceof ChatRejectedException ? error.getMessage() : "生成失败，请稍后重试";
+                                trySend(emitter, SseEmitter.event().name("error")
+                                        .data(Map.of("message", reason), MediaType.APPLICATION_JSON));
+                            }
+                            emitter.complete();
+                        },
+                        () -> {
+                            trySend(emitter, SseEmitter.event().name("done").data(""));
+                            emitter.complete();
+                        });
+        emitter.onTimeout(generation::dispose);
+        emitter.onError(e -> generation.dispose());
+        emitter.onCompletion(generation::dispose);
+        return emitter;
+    }
+
+    @DeleteMapping("/conversations/{conversationId}")
+    public ResponseEntity<Void> clear(@PathVariable String conversationId,
+                                      HttpServletRequest request, HttpServletResponse response) {
+        chatMemory.clear(memoryId(conversationId, false, request, response));
+        return ResponseEntity.noContent().build();
+    }
+
+    // 缓存命中率、合并次数、排队等待等网关统计，检索知识库的条目数与记忆摘要的计数（仅本节点）
+    @GetMapping("/stats")
+    public Map<String, Object> stats() {
+        Map<String, Object> s = new LinkedHashMap<>(gateway.stats());
+        s.put("knowledgeBase", knowledgeBase.stats());
+        if (chatMemory instanceof RedisChatMemory memory) s.put("memory", memory.stats());
+        return s;
+    }
+
+    // 限流在开始生成前同步检查，超限时直接返回 429；排队已满等异步拒绝经 Mono 报错后同样由这里处理，都带 Retry-After
+    @ExceptionHandler(ChatRejectedException.class)
+    public ResponseEntity<Map<String, String>> rejected(ChatRejectedException e) {
+        return ResponseEntity.status(e.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("message", e.getMessage()));
+    }
+
+    // 已登录用户按用户 id 限流，匿名用户按客户端地址
+    private String clientKey(HttpServletRequest request) {
+        AccessToken token = tokens.authenticate(request);
+        return token != null ? "u" + token.userId() : "ip" + request.getRemoteAddr();
+    }
+
+    // 记忆按 "u用户id:会话id" 或 "anon:会话id" 隔离；用户来自访问令牌，不读取 Session。
+    // 已登录用户的会话 id 可由客户端生成；匿名会话 id 只接受服务端签发的，否则任何人都能读取、续写或清空他人的匿名会话
+    private String memoryId(String conversationId, boolean startIfInvalid,
+                            HttpServletRequest request, HttpServletResponse response) {
+        boolean blank = conversationId == null || conversationId.isBlank();
+        if (!blank && !CONVERSATION_ID.matcher(conversationId).matches()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "conversationId 只能包含字母、数字、-、_ 和 .");
+        }
+        AccessToken token = tokens.authenticate(request);
+        if (token != null) {
+            if (blank) conversationId = UUID.randomUUID().toString();
+            response.setHeader(CONVERSATION_HEADER, conversationId);
+            return "u" + token.userId() + ":" + conversationId;
+        }
+        if (blank || !tokens.isIssuedConversationId(conversationId)) {
+            if (!blank && !startIfInvalid) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "无效的匿名会话 id");
+            }
+            conversationId = tokens.issueConversationId();
+        }
+        response.setHeader(CONVERSATION_HEADER, conversationId);
+        return "anon:" + conversationId;
+    }
+
+    // 写入失败（客户端已断开）时抛出，由 Reactor 取消订阅
+    private static void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void trySend(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException ignored) {
+            // 连接已关闭
+        }
     }
 }
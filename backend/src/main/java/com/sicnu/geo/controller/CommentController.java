@@ -1,41 +1,81 @@
 package com.sicnu.geo.controller;
 
+import com.sicnu.geo.cache.ProjectCache;
+import com.sicnu.geo.dto.PageCursor;
 import com.sicnu.geo.entity.Comment;
-import com.sicnu.geo.entity.Project;
+import com.sicnu.geo.event.CommentCreatedEvent;
 import com.sicnu.geo.repository.CommentRepository;
-import com.sicnu.geo.repository.ProjectRepository;
 import jakarta.validation.Valid;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.net.URI;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/projects/{projectId}/comments")
-@CrossOrigin(origins = {"http://localhost:8080"}, allowCredentials = "true")
+@CrossOrigin(origins = {"http://localhost:8080"}, allowCredentials = "true",
+        exposedHeaders = CommentController.NEXT_CURSOR_HEADER)
 public class CommentController {
 
-    private final ProjectRepository projectRepo;
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+
+    private final ProjectCache projectCache;
     private final CommentRepository commentRepo;
+    private final ApplicationEventPublisher events;
 
-    public CommentController(ProjectRepository projectRepo, CommentRepository commentRepo) {
-        this.projectRepo = projectRepo;
+    public CommentController(ProjectCache projectCache, CommentRepository commentRepo,
+                             ApplicationEventPublisher events) {
+        this.projectCache = projectCache;
         this.commentRepo = commentRepo;
+        this.events = events;
     }
 
+    // 按 (createdAt, id) 倒序键集翻页，每页默认 50 条；下一页游标放在 X-Next-Cursor 响应头中
     @GetMapping
-    public ResponseEntity<List<Comment>> list(@PathVariable Long projectId) {
-        return projectRepo.findById(projectId)
-                .map(p -> ResponseEntity.ok(commentRepo.findByProjectOrderByCreatedAtDesc(p)))
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<List<Comment>> list(
+            @PathVariable Long projectId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        if (!projectCache.exists(projectId)) return ResponseEntity.notFound().build();
+        if (limit != null && limit < 1) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit 必须大于 0");
+        int size = limit == null ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+        LocalDateTime afterTime = null;
+        Long afterId = null;
+        if (cursor != null) {
+            try {
+                PageCursor after = PageCursor.decode(cursor);
+                afterTime = LocalDateTime.parse(after.key());
+                afterId = after.id();
+            } catch (RuntimeException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "无效的 cursor");
+            }
+        }
+        // 多取一条用于判断是否还有下一页
+        List<Comment> rows = commentRepo.findPage(projectId, afterTime, afterId, PageRequest.of(0, size + 1));
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            Comment last = rows.get(size - 1);
+            ok.header(NEXT_CURSOR_HEADER, new PageCursor(last.getCreatedAt().toString(), last.getId()).encode());
+        }
+        return ok.body(rows);
     }
 
     @PostMapping
     public ResponseEntity<Comment> create(@PathVariable Long projectId, @Valid @RequestBody Comment c) {
-        return projectRepo.findById(projectId).map(p -> {
+        // 缓存中的项目是游离对象，只用于关联外键
+        return projectCache.find(projectId).map(p -> {
             c.setProject(p);
             Comment saved = commentRepo.save(c);
+            events.publishEvent(new CommentCreatedEvent(projectId, saved));
             return ResponseEntity.created(URI.create("/api/projects/" + projectId + "/comments/" + saved.getId()))
                     .body(saved);
         }).orElse(ResponseEntity.notFound().build());
@@ -0,0 +1,53 @@
+package com.sicnu.geo.controller;
+
+import com.sicnu.geo.service.ExportService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/projects/export")
+@CrossOrigin(origins = {"http://localhost:8080"}, allowCredentials = "true",
+        exposedHeaders = HttpHeaders.CONTENT_DISPOSITION)
+public class ExportController {
+
+    private final ExportService exportService;
+
+    public ExportController(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    // 一次请求导出全部（或筛选后的）项目及其要素、评论。直接在请求线程上写响应，
+    // 不受异步请求超时限制；大批量定时同步建议使用命令行 --export
+    @GetMapping
+    public void export(
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String ids,
+            HttpServletResponse response) throws IOException {
+        ExportService.Format fmt;
+        ExportService.Filter filter;
+        try {
+            fmt = ExportService.Format.of(format);
+            filter = ExportService.Filter.parse(category, status, ids);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        response.setContentType(fmt.getContentType());
+        if (fmt == ExportService.Format.NDJSON) response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("sicnugeo-" + LocalDate.now() + "." + fmt.getExtension()).build().toString());
+        WritableByteChannel channel = Channels.newChannel(response.getOutputStream());
+        exportService.export(filter, fmt, channel);
+        response.flushBuffer();
+    }
+}
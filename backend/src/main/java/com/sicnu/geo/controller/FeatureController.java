@@ -1,43 +1,182 @@
 package com.sicnu.geo.controller;
 
-import com.sicnu.geo.entity.FeatureDocument;
-import com.sicnu.geo.repository.FeatureDocumentRepository;
-import com.sicnu.geo.repository.ProjectRepository;
+import com.sicnu.geo.cache.ProjectCache;
+import com.sicnu.geo.dto.FeaturePatchResult;
+import com.sicnu.geo.dto.FeatureSummary;
+import com.sicnu.geo.service.FeatureLevelService;
+import com.sicnu.geo.service.FeatureStoreService;
+import com.sicnu.geo.service.FeatureStoreService.DocumentInfo;
+import com.sicnu.geo.service.ShapefileImportService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.time.LocalDateTime;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/projects/{projectId}/features")
-@CrossOrigin(origins = {"http://localhost:8080"}, allowCredentials = "true")
+@CrossOrigin(origins = {"http://localhost:8080"}, allowCredentials = "true",
+        exposedHeaders = {HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED, "X-Feature-Level"})
 public class FeatureController {
 
-    private final ProjectRepository projectRepo;
-    private final FeatureDocumentRepository featureRepo;
+    private final ProjectCache projectCache;
+    private final FeatureStoreService featureStore;
+    private final FeatureLevelService levelService;
+    private final ShapefileImportService shapefileImport;
 
-    public FeatureController(ProjectRepository projectRepo, FeatureDocumentRepository featureRepo) {
-        this.projectRepo = projectRepo;
-        this.featureRepo = featureRepo;
+    public FeatureController(ProjectCache projectCache, FeatureStoreService featureStore,
+                             FeatureLevelService levelService, ShapefileImportService shapefileImport) {
+        this.projectCache = projectCache;
+        this.featureStore = featureStore;
+        this.levelService = levelService;
+        this.shapefileImport = shapefileImport;
     }
 
+    // 从数据库 LOB 直接流式输出，不在内存中组装整份 GeoJSON；
+    // 指定 zoom 或 tolerance 时返回预先简化的细节层级（尚未生成时退回全精度）。
+    // ETag 由版本号与内容摘要组成，客户端带 If-None-Match / If-Modified-Since 且未变化时返回 304；
+    // 存有 gzip 副本且客户端接受 gzip 时原样发送副本，不做逐请求压缩，副本另用一个 ETag
     @GetMapping
-    public ResponseEntity<String> get(@PathVariable Long projectId) {
-        return projectRepo.findById(projectId).map(p ->
-                featureRepo.findByProject(p)
-                        .map(doc -> ResponseEntity.ok(doc.getContent()))
-                        .orElse(ResponseEntity.ok("{\"type\":\"FeatureCollection\",\"features\":[]}"))
-        ).orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<StreamingResponseBody> get(
+            @PathVariable Long projectId,
+            @RequestParam(required = false) Integer zoom,
+            @RequestParam(required = false) Double tolerance,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request, HttpServletResponse response) {
+        if (!projectCache.exists(projectId)) return ResponseEntity.notFound().build();
+        DocumentInfo info = featureStore.describe(projectId);
+        Integer level = zoom == null && tolerance == null ? null : levelService.resolveLevel(projectId, zoom, tolerance);
+        boolean compressed = level == null && info != null && info.gzipStored() && acceptsGzip(acceptEncoding);
+        // 全精度文档按 Accept-Encoding 选择表示，304 响应也要带上 Vary
+        if (level == null) response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache());
+        if (info != null) {
+            String etag = etag(info.version(), info.contentHash(), level, compressed);
+            long lastModified = info.updatedAt() == null ? -1
+                    : info.updatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            // 未变化时直接以 304 结束；否则 ETag 与 Last-Modified 已由 checkNotModified 写入响应头
+            if (request.checkNotModified(etag, lastModified)) return null;
+        }
+        if (level != null) {
+            return ok.header("X-Feature-Level", String.valueOf(level))
+                    .body(out -> levelService.writeLevel(projectId, level, out));
+        }
+        if (compressed) {
+            return ok.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(out -> {
+                if (featureStore.writeCompressed(projectId, out)) return;
+                // 副本在两次查询之间被补丁作废，退回现场压缩
+                GZIPOutputStream gzip = new GZIPOutputStream(out);
+                featureStore.writeCollection(projectId, gzip);
+                gzip.finish();
+            });
+        }
+        return ok.body(out -> featureStore.writeCollection(projectId, out));
     }
 
+    // 请求体边到达边逐要素校验，返回摘要而非回显整份文档
     @PostMapping
-    public ResponseEntity<String> save(@PathVariable Long projectId, @RequestBody String body) {
-        return projectRepo.findById(projectId).map(p -> {
-            FeatureDocument doc = featureRepo.findByProject(p).orElseGet(() -> new FeatureDocument().setProject(p));
-            doc.setContent(body);
-            doc.setUpdatedAt(LocalDateTime.now());
-            featureRepo.save(doc);
-            return ResponseEntity.ok(doc.getContent());
-        }).orElse(ResponseEntity.notFound().build());
-    }
-}
\ No newline at end of file
+    public ResponseEntity<FeatureSummary> save(@PathVariable Long projectId, InputStream body) throws IOException {
+        if (!projectCache.exists(projectId)) return ResponseEntity.notFound().build();
+        try {
+            FeatureSummary summary = featureStore.save(projectId, body);
+            return ResponseEntity.ok().eTag(etag(summary.version(), summary.contentHash(), null, false)).body(summary);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // 上传 Shapefile 的各个文件或 zip 包，由服务端解析、转换坐标后整体替换要素文档
+    @PostMapping(value = "/shapefile", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<FeatureSummary> importShapefile(
+            @PathVariable Long projectId,
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam(required = false) String encoding,
+            @RequestParam(required = false) String layer) throws IOException {
+        if (!projectCache.exists(projectId)) return ResponseEntity.notFound().build();
+        try {
+            FeatureSummary summary = shapefileImport.importShapefile(projectId, files, encoding, layer);
+            return ResponseEntity.ok().eTag(etag(summary.version(), summary.contentHash(), null, false)).body(summary);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // 按要素 id 增量修改，只写入变化的要素；If-Match 与当前版本不一致时返回 412
+    @PatchMapping
+    public ResponseEntity<FeaturePatchResult> patch(
+            @PathVariable Long projectId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            InputStream body) throws IOException {
+        if (!projectCache.exists(projectId)) return ResponseEntity.notFound().build();
+        Long expected = parseIfMatch(ifMatch);
+        try {
+            FeaturePatchResult result = featureStore.patch(projectId, expected, body);
+            return ResponseEntity.ok().eTag(etag(result.version(), result.contentHash(), null, false)).body(result);
+        } catch (OptimisticLockingFailureException e) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // "版本-摘要前缀"，细节层级再追加层级号，gzip 副本追加 -gz；If-Match 只比较前面的版本号
+    private static String etag(long version, String contentHash, Integer level, boolean gzip) {
+        StringBuilder tag = new StringBuilder("\"").append(version);
+        if (contentHash != null) tag.append('-').append(contentHash, 0, 16);
+        if (level != null) tag.append("-L").append(level);
+        if (gzip) tag.append("-gz");
+        return tag.append('"').toString();
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            String coding = tokens[0].trim();
+            if (!coding.equalsIgnoreCase("gzip") && !coding.equals("*")) continue;
+            boolean refused = false;
+            for (int i = 1; i < tokens.length; i++) {
+                String param = tokens[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        refused = Double.parseDouble(param.substring(2)) <= 0;
+                    } catch (NumberFormatException e) {
+                        refused = true;
+                    }
+                }
+            }
+            if (!refused) return true;
+        }
+        return false;
+    }
+
+    // 支持 "3-…"、W/"3-…" 与 *；缺省或 * 表示不做版本检查
+    private static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) return null;
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) tag = tag.substring(2);
+        tag = tag.replace("\"", "");
+        int dash = tag.indexOf('-');
+        if (dash >= 0) tag = tag.substring(0, dash);
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "If-Match 不是有效的版本号");
+        }
+    }
+}
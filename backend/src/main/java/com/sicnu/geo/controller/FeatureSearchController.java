@@ -0,0 +1,53 @@
+package com.sicnu.geo.controller;
+
+import com.sicnu.geo.enums.ProjectCategory;
+import com.sicnu.geo.geometry.Envelope;
+import com.sicnu.geo.service.FeatureSearchService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping("/api/features")
+@CrossOrigin(origins = {"http://localhost:8080"}, allowCredentials = "true")
+public class FeatureSearchController {
+
+    private final FeatureSearchService searchService;
+
+    public FeatureSearchController(FeatureSearchService searchService) {
+        this.searchService = searchService;
+    }
+
+    // 跨项目按范围检索要素，返回 GeoJSON FeatureCollection（每个要素带 projectId、projectName），
+    // 可按项目分类、状态筛选；参数在开始输出前校验
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> search(
+            @RequestParam String bbox,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Integer limit) {
+        Envelope env;
+        ProjectCategory cat = null;
+        try {
+            env = Envelope.parse(bbox);
+            if (category != null && !category.trim().isEmpty()) {
+                try {
+                    cat = ProjectCategory.valueOf(category.trim().toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("未知的项目分类: " + category);
+                }
+            }
+            if (limit != null && limit < 1) throw new IllegalArgumentException("limit 必须大于 0");
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        ProjectCategory c = cat;
+        String st = status == null || status.trim().isEmpty() ? null : status;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> searchService.search(env, c, st, limit, out));
+    }
+}
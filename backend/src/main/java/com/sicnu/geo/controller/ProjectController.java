@@ -1,53 +1,133 @@
 package com.sicnu.geo.controller;
 
+import com.sicnu.geo.cache.ProjectCache;
+import com.sicnu.geo.dto.PageCursor;
+import com.sicnu.geo.dto.ProjectActiveChanges;
+import com.sicnu.geo.dto.ProjectCluster;
+import com.sicnu.geo.dto.ProjectClusters;
+import com.sicnu.geo.dto.ProjectStats;
+import com.sicnu.geo.dto.ProjectSummary;
 import com.sicnu.geo.entity.Project;
 import com.sicnu.geo.enums.ProjectCategory;
+import com.sicnu.geo.event.ProjectChangedEvent;
+import com.sicnu.geo.geometry.Envelope;
+import com.sicnu.geo.index.IntervalIndex;
+import com.sicnu.geo.index.ProjectClusterIndex;
+import com.sicnu.geo.index.ProjectSpatialIndex;
+import com.sicnu.geo.index.ProjectTemporalIndex;
+import com.sicnu.geo.index.ProjectTextIndex;
 import com.sicnu.geo.repository.ProjectRepository;
+import com.sicnu.geo.stats.ProjectStatistics;
 import jakarta.validation.Valid;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.net.URI;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/api/projects")
-@CrossOrigin(origins = {"http://localhost:8080"}, allowCredentials = "true")
+@CrossOrigin(origins = {"http://localhost:8080"}, allowCredentials = "true",
+        exposedHeaders = ProjectController.NEXT_CURSOR_HEADER)
 public class ProjectController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final double DEFAULT_RADIUS_METERS = 1000;
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final Set<String> SUMMARY_FIELDS =
+            Set.of("id", "name", "category", "status", "centerLng", "centerLat", "createdAt");
+
     private final ProjectRepository repo;
+    private final ProjectCache projectCache;
+    private final ProjectSpatialIndex spatialIndex;
+    private final ProjectTextIndex textIndex;
+    private final ProjectTemporalIndex temporalIndex;
+    private final ProjectClusterIndex clusterIndex;
+    private final ProjectStatistics statistics;
+    private final ApplicationEventPublisher events;
 
-    public ProjectController(ProjectRepository repo) {
+    public ProjectController(ProjectRepository repo, ProjectCache projectCache, ProjectSpatialIndex spatialIndex,
+                             ProjectTextIndex textIndex, ProjectTemporalIndex temporalIndex,
+                             ProjectClusterIndex clusterIndex,
+                             ProjectStatistics statistics, ApplicationEventPublisher events) {
         this.repo = repo;
+        this.projectCache = projectCache;
+        this.spatialIndex = spatialIndex;
+        this.textIndex = textIndex;
+        this.temporalIndex = temporalIndex;
+        this.clusterIndex = clusterIndex;
+        this.statistics = statistics;
+        this.events = events;
     }
 
+    // fields=summary 只返回摘要列；limit / cursor 启用键集翻页（按 createdAt、id 倒序），
+    // 下一页游标放在 X-Next-Cursor 响应头中，响应体仍是数组；
+    // activeOn=日期 / overlaps=起,止 按工期筛选，可与 bbox、分类、状态组合；
+    // keyword 中的中文按二字词匹配，英文和数字按词首前缀匹配（不匹配词中间的子串）
     @GetMapping
-    public List<Project> list(
+    public ResponseEntity<List<?>> list(
             @RequestParam(required = false) String category,
             @RequestParam(required = false) String status,
-            @RequestParam(required = false) String keyword) {
-        
-        // 如果有关键词搜索
-        if (keyword != null && !keyword.trim().isEmpty()) {
-            if (category != null && !category.trim().isEmpty()) {
-                try {
-                    ProjectCategory cat = ProjectCategory.valueOf(category.toUpperCase());
-                    return repo.findByKeywordAndCategory(keyword.trim(), cat);
-                } catch (IllegalArgumentException e) {
-                    return repo.findByKeyword(keyword.trim());
-                }
-            } else {
-                return repo.findByKeyword(keyword.trim());
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) String bbox,
+            @RequestParam(required = false) String near,
+            @RequestParam(required = false) Double radiusMeters,
+            @RequestParam(required = false) String activeOn,
+            @RequestParam(required = false) String overlaps,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        boolean summary = isSummary(fields);
+        Integer size = pageSize(cursor, limit);
+
+        // 时间查询：activeOn / overlaps 走内存区间索引，与空间查询同时出现时取交集并保留空间结果的顺序
+        List<Long> temporal = activeOn != null || overlaps != null ? temporalIds(activeOn, overlaps) : null;
+
+        // 空间查询：bbox / near 走内存空间索引，只加载命中的项目
+        if (bbox != null || near != null) {
+            List<Long> ids = spatialIds(bbox, near, radiusMeters);
+            if (temporal != null) {
+                Set<Long> active = new HashSet<>(temporal);
+                ids.removeIf(id -> !active.contains(id));
             }
+            return ranked(ids, category, status, keyword, summary, cursor, size);
         }
-        
+        if (temporal != null) return ranked(temporal, category, status, keyword, summary, cursor, size);
+
+        // 如果有关键词搜索：走内存全文索引，按相关度排序，分类/状态在索引内求交
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            String st = status == null || status.trim().isEmpty() ? null : status;
+            return ranked(textIndex.search(keyword.trim(), parseCategory(category), st),
+                    null, null, null, summary, cursor, size);
+        }
+
+        // 翻页或摘要：键集查询，只取摘要列
+        if (summary || size != null) {
+            String st = status == null || status.trim().isEmpty() ? null : status;
+            return page(parseCategory(category), st, cursor, size, summary);
+        }
+
         // 如果有分类和状态筛选
         if (category != null && !category.trim().isEmpty() && status != null && !status.trim().isEmpty()) {
             try {
                 ProjectCategory cat = ProjectCategory.valueOf(category.toUpperCase());
-                return repo.findByCategoryAndStatus(cat, status);
+                return ResponseEntity.ok(repo.findByCategoryAndStatus(cat, status));
             } catch (IllegalArgumentException e) {
-                return repo.findAll();
+                return ResponseEntity.ok(repo.findAll());
             }
         }
         
@@ -55,19 +135,57 @@ public class ProjectController {
         if (category != null && !category.trim().isEmpty()) {
             try {
                 ProjectCategory cat = ProjectCategory.valueOf(category.toUpperCase());
-                return repo.findByCategory(cat);
+                return ResponseEntity.ok(repo.findByCategory(cat));
             } catch (IllegalArgumentException e) {
-                return repo.findAll();
+                return ResponseEntity.ok(repo.findAll());
             }
         }
         
         // 默认返回所有项目
-        return repo.findAll();
+        return ResponseEntity.ok(repo.findAll());
+    }
+
+    // 概览地图的网格聚合，由内存中按缩放级别增量维护的格子直接返回；
+    // 超过聚合上限的级别应改用 bbox 列表逐个渲染
+    @GetMapping("/clusters")
+    public ProjectClusters clusters(@RequestParam String bbox, @RequestParam int zoom) {
+        if (zoom < 0) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "zoom 不能为负数");
+        try {
+            List<ProjectCluster> clusters = clusterIndex.query(Envelope.parse(bbox), zoom);
+            int total = clusters.stream().mapToInt(ProjectCluster::count).sum();
+            return new ProjectClusters(Math.min(zoom, clusterIndex.maxZoom()), total, clusters);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // 时间轴拖动：只返回 from 与 to 两个日期之间进入和离开的项目，代价只与变化量有关
+    @GetMapping("/active-changes")
+    public ProjectActiveChanges activeChanges(
+            @RequestParam String from,
+            @RequestParam String to,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String bbox) {
+        LocalDate fromDate = parseDate(from, "from"), toDate = parseDate(to, "to");
+        IntervalIndex.Changes changes = temporalIndex.changes(fromDate, toDate);
+        List<ProjectSummary> added = filter(loadSummariesInOrder(changes.added()), Function.identity(), category, status, null);
+        if (bbox != null) {
+            Set<Long> inside = new HashSet<>(spatialIds(bbox, null, null));
+            added.removeIf(p -> !inside.contains(p.id()));
+        }
+        return new ProjectActiveChanges(fromDate, toDate, added, changes.removed());
+    }
+
+    // 仪表盘统计，读取随项目写入增量维护的计数
+    @GetMapping("/statistics")
+    public ProjectStats statistics() {
+        return statistics.snapshot();
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<Project> get(@PathVariable Long id) {
-        return repo.findById(id)
+        return projectCache.find(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -75,6 +193,7 @@ public class ProjectController {
     @PostMapping
     public ResponseEntity<Project> create(@Valid @RequestBody Project p) {
         Project saved = repo.save(p);
+        events.publishEvent(ProjectChangedEvent.created(saved));
         return ResponseEntity.created(URI.create("/api/projects/" + saved.getId())).body(saved);
     }
 
@@ -90,14 +209,175 @@ public class ProjectController {
                .setCenterLng(p.getCenterLng())
                .setCenterLat(p.getCenterLat())
                .setCategory(p.getCategory());
-            return ResponseEntity.ok(repo.save(old));
+            Project saved = repo.save(old);
+            events.publishEvent(ProjectChangedEvent.updated(saved));
+            return ResponseEntity.ok(saved);
         }).orElse(ResponseEntity.notFound().build());
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable Long id) {
-        if (!repo.existsById(id)) return ResponseEntity.notFound().build();
+        Project before = repo.findById(id).orElse(null);
+        if (before == null) return ResponseEntity.notFound().build();
         repo.deleteById(id);
+        events.publishEvent(ProjectChangedEvent.deleted(id, before));
         return ResponseEntity.noContent().build();
     }
-}
\ No newline at end of file
+
+    private List<Long> spatialIds(String bbox, String near, Double radiusMeters) {
+        try {
+            if (bbox != null) {
+                return spatialIndex.within(Envelope.parse(bbox));
+            }
+            double[] c = Envelope.parseNumbers(near, 2);
+            double r = radiusMeters == null ? DEFAULT_RADIUS_METERS : radiusMeters;
+            if (r <= 0) throw new IllegalArgumentException("radiusMeters 必须大于 0");
+            return spatialIndex.near(c[0], c[1], r);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    private List<Long> temporalIds(String activeOn, String overlaps) {
+        if (activeOn != null && overlaps != null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "activeOn 与 overlaps 只能指定一个");
+        }
+        if (activeOn != null) return temporalIndex.activeOn(parseDate(activeOn, "activeOn"));
+        String[] parts = overlaps.split(",");
+        if (parts.length != 2) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "overlaps 格式应为 起始日期,结束日期");
+        LocalDate from = parseDate(parts[0], "overlaps"), to = parseDate(parts[1], "overlaps");
+        if (to.isBefore(from)) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "overlaps 的结束日期早于起始日期");
+        return temporalIndex.overlapping(from, to);
+    }
+
+    private static LocalDate parseDate(String text, String name) {
+        try {
+            return LocalDate.parse(text.trim());
+        } catch (DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, name + " 不是有效的日期（yyyy-MM-dd）");
+        }
+    }
+
+    // 按 id 批量加载并保持 ids 的顺序（near 查询按距离排序）
+    private List<Project> loadInOrder(List<Long> ids) {
+        if (ids.isEmpty()) return new ArrayList<>();
+        Map<Long, Project> byId = new HashMap<>();
+        for (Project p : repo.findAllById(ids)) byId.put(p.getId(), p);
+        List<Project> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Project p = byId.get(id);
+            if (p != null) result.add(p);
+        }
+        return result;
+    }
+
+    // 空间 / 关键词结果已按距离或相关度排序，不支持游标，只按 limit 截断
+    private ResponseEntity<List<?>> ranked(List<Long> ids, String category, String status, String keyword,
+                                           boolean summary, String cursor, Integer size) {
+        if (cursor != null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "空间与关键词查询按距离/相关度排序，不支持 cursor");
+        }
+        List<?> result = summary
+                ? filter(loadSummariesInOrder(ids), Function.identity(), category, status, keyword)
+                : filter(loadInOrder(ids), ProjectSummary::of, category, status, keyword);
+        if (size != null && result.size() > size) result = result.subList(0, size);
+        return ResponseEntity.ok(result);
+    }
+
+    private ResponseEntity<List<?>> page(ProjectCategory category, String status, String cursor, Integer size,
+                                         boolean summary) {
+        PageCursor after = decodeCursor(cursor);
+        List<ProjectSummary> rows = new ArrayList<>();
+        if (after == null || after.key() != null) {
+            LocalDate afterDate = after == null ? null : LocalDate.parse(after.key());
+            Long afterId = after == null ? null : after.id();
+            rows.addAll(repo.findSummaryPage(category, status, afterDate, afterId, pageable(size, 0)));
+        }
+        // 有日期的项目取完后接着取 createdAt 为空的项目
+        if (size == null || rows.size() <= size) {
+            Long afterId = after != null && after.key() == null ? after.id() : null;
+            rows.addAll(repo.findUndatedSummaryPage(category, status, afterId, pageable(size, rows.size())));
+        }
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        if (size != null && rows.size() > size) {
+            rows = rows.subList(0, size);
+            ProjectSummary last = rows.get(size - 1);
+            String key = last.createdAt() == null ? null : last.createdAt().toString();
+            ok.header(NEXT_CURSOR_HEADER, new PageCursor(key, last.id()).encode());
+        }
+        if (summary) return ok.body(rows);
+        List<Long> ids = new ArrayList<>(rows.size());
+        for (ProjectSummary row : rows) ids.add(row.id());
+        return ok.body(loadInOrder(ids));
+    }
+
+    // 多取一条用于判断是否还有下一页
+    private static Pageable pageable(Integer size, int taken) {
+        return size == null ? Pageable.unpaged() : PageRequest.of(0, size + 1 - taken);
+    }
+
+    private static PageCursor decodeCursor(String cursor) {
+        if (cursor == null) return null;
+        try {
+            PageCursor c = PageCursor.decode(cursor);
+            if (c.key() != null) LocalDate.parse(c.key());
+            return c;
+        } catch (RuntimeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "无效的 cursor");
+        }
+    }
+
+    private static Integer pageSize(String cursor, Integer limit) {
+        if (limit == null) return cursor == null ? null : DEFAULT_PAGE_SIZE;
+        if (limit < 1) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit 必须大于 0");
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    // fields=summary，或只包含摘要字段的字段列表
+    private static boolean isSummary(String fields) {
+        if (fields == null || fields.isBlank()) return false;
+        if (fields.trim().equalsIgnoreCase("summary")) return true;
+        for (String f : fields.split(",")) {
+            if (!SUMMARY_FIELDS.contains(f.trim())) return false;
+        }
+        return true;
+    }
+
+    private List<ProjectSummary> loadSummariesInOrder(List<Long> ids) {
+        if (ids.isEmpty()) return new ArrayList<>();
+        Map<Long, ProjectSummary> byId = new HashMap<>();
+        for (ProjectSummary p : repo.findSummariesByIdIn(ids)) byId.put(p.id(), p);
+        List<ProjectSummary> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ProjectSummary p = byId.get(id);
+            if (p != null) result.add(p);
+        }
+        return result;
+    }
+
+    private <T> List<T> filter(List<T> projects, Function<T, ProjectSummary> view,
+                               String category, String status, String keyword) {
+        ProjectCategory cat = parseCategory(category);
+        String kw = keyword == null || keyword.trim().isEmpty() ? null : keyword.trim();
+        Set<Long> matched = kw == null ? null : new HashSet<>(textIndex.search(kw, null, null));
+        List<T> result = new ArrayList<>(projects.size());
+        for (T item : projects) {
+            ProjectSummary p = view.apply(item);
+            if (cat != null && cat != p.category()) continue;
+            if (status != null && !status.trim().isEmpty() && !status.equals(p.status())) continue;
+            if (matched != null && !matched.contains(p.id())) continue;
+            result.add(item);
+        }
+        return result;
+    }
+
+    // 与其它查询一致：无法识别的分类不参与筛选
+    private static ProjectCategory parseCategory(String category) {
+        if (category == null || category.trim().isEmpty()) return null;
+        try {
+            return ProjectCategory.valueOf(category.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.sicnu.geo.controller;
+
+import com.sicnu.geo.auth.AccessTokenService;
+import com.sicnu.geo.dto.BatchSubscriptionRequest;
+import com.sicnu.geo.dto.BatchSubscriptionResult;
+import com.sicnu.geo.dto.ProjectSubscriptionStatus;
+import com.sicnu.geo.dto.SubscribedProjects;
+import com.sicnu.geo.dto.SubscriptionRequest;
+import com.sicnu.geo.dto.SubscriptionStats;
+import com.sicnu.geo.entity.Subscription;
+import com.sicnu.geo.entity.SubscriptionDigest;
+import com.sicnu.geo.service.SubscriptionService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/subscriptions")
+@CrossOrigin(origins = {"http://localhost:8080"}, allowCredentials = "true")
+public class SubscriptionController {
+
+    private final SubscriptionService subscriptions;
+    private final AccessTokenService tokens;
+
+    public SubscriptionController(SubscriptionService subscriptions, AccessTokenService tokens) {
+        this.subscriptions = subscriptions;
+        this.tokens = tokens;
+    }
+
+    // 当前用户的全部订阅（项目、分类、区域）
+    @GetMapping
+    public List<Subscription> list(HttpServletRequest request) {
+        return subscriptions.list(userId(request));
+    }
+
+    // 新建订阅：{ projectId } / { category } / { bbox: [minLng, minLat, maxLng, maxLat], name }，重复订阅返回已有的
+    @PostMapping
+    public Subscription subscribe(@RequestBody SubscriptionRequest body, HttpServletRequest request) {
+        try {
+            return subscriptions.subscribe(userId(request), body);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> unsubscribe(@PathVariable Long id, HttpServletRequest request) {
+        return subscriptions.unsubscribe(userId(request), id)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    // 按项目订阅的项目列表，page 从 1 开始
+    @GetMapping("/projects")
+    public SubscribedProjects projects(@RequestParam(required = false) String status,
+                                       @RequestParam(required = false) String search,
+                                       @RequestParam(required = false) Integer page,
+                                       @RequestParam(required = false) Integer limit,
+                                       HttpServletRequest request) {
+        try {
+            return subscriptions.subscribedProjects(userId(request), status, search, page, limit);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @GetMapping("/projects/{projectId}")
+    public ProjectSubscriptionStatus projectStatus(@PathVariable Long projectId, HttpServletRequest request) {
+        return subscriptions.projectStatus(userId(request), projectId);
+    }
+
+    @DeleteMapping("/projects/{projectId}")
+    public ResponseEntity<Void> unsubscribeProject(@PathVariable Long projectId, HttpServletRequest request) {
+        return subscriptions.unsubscribeProject(userId(request), projectId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    // 请求体 { enabled: true/false }
+    @PutMapping("/projects/{projectId}/notification")
+    public ResponseEntity<ProjectSubscriptionStatus> updateNotification(@PathVariable Long projectId,
+                                                                        @RequestBody Map<String, Boolean> body,
+                                                                        HttpServletRequest request) {
+        Boolean enabled = body.get("enabled");
+        if (enabled == null) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "enabled 不能为空");
+        ProjectSubscriptionStatus status = subscriptions.updateNotification(userId(request), projectId, enabled);
+        return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
+    }
+
+    @GetMapping("/stats")
+    public SubscriptionStats stats(HttpServletRequest request) {
+        return subscriptions.stats(userId(request));
+    }
+
+    // 批量订阅或取消订阅，各为一次数据库写入
+    @PostMapping("/batch")
+    public BatchSubscriptionResult batch(@RequestBody BatchSubscriptionRequest body, HttpServletRequest request) {
+        try {
+            return subscriptions.batch(userId(request), body.projectIds(), body.action(), body.notificationEnabled());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // 订阅命中的变更摘要，最新的在前
+    @GetMapping("/digests")
+    public List<SubscriptionDigest> digests(@RequestParam(defaultValue = "false") boolean unreadOnly,
+                                            @RequestParam(required = false) Integer limit,
+                                            HttpServletRequest request) {
+        try {
+            return subscriptions.digests(userId(request), unreadOnly, limit);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @PostMapping("/digests/read")
+    public Map<String, Integer> markDigestsRead(HttpServletRequest request) {
+        return Map.of("updated", subscriptions.markDigestsRead(userId(request)));
+    }
+
+    // /api/** 已由登录拦截器校验访问令牌
+    private long userId(HttpServletRequest request) {
+        return tokens.authenticate(request).userId();
+    }
+}
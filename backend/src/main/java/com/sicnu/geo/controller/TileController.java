@@ -0,0 +1,49 @@
+package com.sicnu.geo.controller;
+
+import com.sicnu.geo.enums.ProjectCategory;
+import com.sicnu.geo.service.VectorTileService;
+import com.sicnu.geo.tile.TileMath;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/tiles")
+@CrossOrigin(origins = {"http://localhost:8080"}, allowCredentials = "true")
+public class TileController {
+
+    private static final MediaType MVT = MediaType.parseMediaType("application/vnd.mapbox-vector-tile");
+
+    private final VectorTileService tileService;
+
+    public TileController(VectorTileService tileService) {
+        this.tileService = tileService;
+    }
+
+    @GetMapping("/{z}/{x}/{y}.mvt")
+    public ResponseEntity<byte[]> tile(
+            @PathVariable int z,
+            @PathVariable int x,
+            @PathVariable int y,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String status) {
+        if (!TileMath.isValid(z, x, y)) return ResponseEntity.badRequest().build();
+        ProjectCategory cat = null;
+        if (category != null && !category.trim().isEmpty()) {
+            try {
+                cat = ProjectCategory.valueOf(category.toUpperCase());
+            } catch (IllegalArgumentException ignored) {
+                // 无法识别的分类不参与筛选
+            }
+        }
+        String st = status == null || status.trim().isEmpty() ? null : status;
+        return ResponseEntity.ok().contentType(MVT).body(tileService.getTile(z, x, y, cat, st));
+    }
+
+    @GetMapping("/stats")
+    public Map<String, Object> stats() {
+        return tileService.cacheStats();
+    }
+}
@@ -1,47 +1,113 @@
 package com.sicnu.geo.controller;
 
+import com.sicnu.geo.auth.AccessToken;
+import com.sicnu.geo.auth.AccessTokenService;
+import com.sicnu.geo.auth.LoginRejectedException;
+import com.sicnu.geo.auth.TokenRevocationList;
 import com.sicnu.geo.entity.User;
 import com.sicnu.geo.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/user")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = {AccessTokenService.TOKEN_HEADER, AccessTokenService.EXPIRES_HEADER,
+        HttpHeaders.RETRY_AFTER})
 public class UserController {
 
+    private static final String LOGIN_ID = "loginId";
+
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private AccessTokenService tokens;
+
+    @Autowired
+    private TokenRevocationList revocations;
+
     @PostMapping("/code")
-    public String sendCode(@RequestParam String phone) {
-        userService.sendCode(phone);
+    public String sendCode(@RequestParam String phone, HttpServletRequest request) {
+        userService.sendCode(phone, request.getRemoteAddr());
         return "验证码已发送";
     }
 
+    // 登录后 Session 只用于续签令牌与注销；访问令牌在 X-Access-Token 响应头中返回
     @PostMapping("/login")
-    public User login(@RequestBody Map<String, String> loginForm, HttpSession session) {
+    public User login(@RequestBody Map<String, String> loginForm, HttpSession session, HttpServletResponse response) {
         String phone = loginForm.get("phone");
         String code = loginForm.get("code");
         User user = userService.login(phone, code);
         
         // Store user in session
         session.setAttribute("user", user);
+        String loginId = UUID.randomUUID().toString();
+        session.setAttribute(LOGIN_ID, loginId);
+        writeToken(response, tokens.issue(user, loginId));
         
         return user;
     }
-    
+
+    // 令牌过期前凭 Session 换取新令牌；Session 已失效或已注销时返回 401
+    @PostMapping("/token")
+    public User refresh(HttpServletRequest request, HttpServletResponse response) {
+        HttpSession session = request.getSession(false);
+        Object user = session == null ? null : session.getAttribute("user");
+        Object loginId = session == null ? null : session.getAttribute(LOGIN_ID);
+        if (!(user instanceof User u) || !(loginId instanceof String id) || revocations.isRevoked(id)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "登录已失效");
+        }
+        writeToken(response, tokens.issue(u, id));
+        return u;
+    }
+
+    // 吊销这次登录签发的全部令牌，并广播给其它节点
     @PostMapping("/logout")
-    public String logout(HttpSession session) {
-        session.invalidate();
+    public String logout(HttpServletRequest request) {
+        long until = System.currentTimeMillis() / 1000 + tokens.ttlSeconds();
+        AccessToken token = tokens.authenticate(request);
+        if (token != null) revocations.revoke(token.loginId(), until);
+        HttpSession session = request.getSession(false);
+        if (session != null) {
+            Object loginId = session.getAttribute(LOGIN_ID);
+            if (loginId instanceof String id && (token == null || !id.equals(token.loginId()))) {
+                revocations.revoke(id, until);
+            }
+            session.invalidate();
+        }
         return "退出成功";
     }
     
     @GetMapping("/me")
-    public User me(HttpSession session) {
-        return (User) session.getAttribute("user");
+    public User me(HttpServletRequest request) {
+        User user = userService.findById(tokens.authenticate(request).userId());
+        if (user == null) throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "用户不存在");
+        return user;
+    }
+
+    // 错误信息以纯文本返回，前端直接展示
+    @ExceptionHandler(LoginRejectedException.class)
+    public ResponseEntity<String> rejected(LoginRejectedException e) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(e.getStatus())
+                .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8));
+        if (e.getRetryAfterSeconds() > 0) builder.header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+        return builder.body(e.getMessage());
+    }
+
+    private void writeToken(HttpServletResponse response, AccessToken token) {
+        response.setHeader(AccessTokenService.TOKEN_HEADER, tokens.encode(token));
+        response.setHeader(AccessTokenService.EXPIRES_HEADER, String.valueOf(token.expiresAt()));
     }
 }
@@ -0,0 +1,10 @@
+package com.sicnu.geo.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * 一个命中的要素；sourceFeatureId 为与其距离最近（或首个满足条件）的查询要素，查询几何来自请求体时为空。
+ */
+public record AnalysisHit(Long projectId, String projectName, String featureId, String sourceFeatureId,
+                          double distanceMeters, JsonNode properties, JsonNode geometry) {
+}
@@ -0,0 +1,20 @@
+package com.sicnu.geo.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.List;
+
+/**
+ * 空间分析请求。查询几何二选一：geometry（GeoJSON 几何），或 sourceProjectId 指定项目的已存要素
+ * （sourceFeatureIds 为空时取全部要素）。
+ *
+ * @param op              intersects / within / buffer / nearest
+ * @param distanceMeters  buffer 的缓冲距离；nearest 时为可选的最大搜索距离
+ * @param k               nearest 返回的要素数
+ * @param includeSource   是否在源项目自身中查找（默认否，用于跨项目冲突检测）
+ * @param includeGeometry 结果是否附带要素几何
+ */
+public record AnalysisRequest(String op, JsonNode geometry, Long sourceProjectId, List<String> sourceFeatureIds,
+                              Double distanceMeters, Integer k, List<Long> projectIds, String category,
+                              String status, Boolean includeSource, Integer limit, Boolean includeGeometry) {
+}
@@ -0,0 +1,9 @@
+package com.sicnu.geo.dto;
+
+import java.util.List;
+
+/**
+ * 空间分析结果；candidates 为通过外包矩形筛选后做了精确判断的要素数，truncated 表示命中数达到上限后停止。
+ */
+public record AnalysisResult(String op, List<AnalysisHit> hits, int candidates, boolean truncated, long elapsedMs) {
+}
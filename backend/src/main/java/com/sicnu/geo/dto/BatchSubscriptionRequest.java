@@ -0,0 +1,9 @@
+package com.sicnu.geo.dto;
+
+import java.util.List;
+
+/**
+ * 批量订阅或取消订阅项目，action 为 subscribe 或 unsubscribe。
+ */
+public record BatchSubscriptionRequest(List<Long> projectIds, String action, Boolean notificationEnabled) {
+}
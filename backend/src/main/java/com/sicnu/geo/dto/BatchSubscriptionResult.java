@@ -0,0 +1,12 @@
+package com.sicnu.geo.dto;
+
+import java.util.List;
+
+/**
+ * 批量操作的逐项结果：订阅时不存在的项目记为失败，已订阅的视为成功；取消订阅时原本未订阅的项目记为失败。
+ */
+public record BatchSubscriptionResult(List<Item> results, int successCount, int failCount) {
+
+    public record Item(Long projectId, boolean success) {
+    }
+}
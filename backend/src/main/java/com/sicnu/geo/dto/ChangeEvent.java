@@ -0,0 +1,20 @@
+package com.sicnu.geo.dto;
+
+import java.util.Map;
+
+/**
+ * 推送给客户端的变更通知，只含 id 与少量变化字段，客户端按需再取完整数据。
+ * type 为 project / features / comment；action 为 created / updated / deleted；
+ * bbox 为变化涉及的范围 [minLng, minLat, maxLng, maxLat]，category 为所属项目的分类，二者用于按视野、分类筛选订阅者。
+ * at 为变更发生的时间（epoch 毫秒）。
+ */
+public record ChangeEvent(String type, String action, Long projectId, Long commentId, Long version,
+                          String category, double[] bbox, Map<String, Object> fields, long at) {
+
+    /**
+     * 合并键：同一对象在送达前的多次变化只保留最后一次。
+     */
+    public String key() {
+        return commentId != null ? type + ":" + projectId + ":" + commentId : type + ":" + projectId;
+    }
+}
@@ -0,0 +1,9 @@
+package com.sicnu.geo.dto;
+
+/**
+ * 要素增量修改的结果；pendingPatches 为尚未合并进主文档的补丁数。
+ * contentHash 为主文档原文的摘要（补丁不改变主文档），还没有主文档时为 null。
+ */
+public record FeaturePatchResult(Long projectId, long version, int upserted, int deleted, long pendingPatches,
+                                 String contentHash) {
+}
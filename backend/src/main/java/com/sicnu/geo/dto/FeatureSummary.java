@@ -0,0 +1,11 @@
+package com.sicnu.geo.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * 要素文档保存后返回的摘要，代替回显整个 FeatureCollection。
+ * bbox 为 [minLng, minLat, maxLng, maxLat]，没有几何时为 null；contentHash 为主文档原文的 SHA-256，与 version 一起组成 ETag。
+ */
+public record FeatureSummary(Long projectId, int featureCount, double[] bbox, long version, LocalDateTime updatedAt,
+                             String contentHash) {
+}
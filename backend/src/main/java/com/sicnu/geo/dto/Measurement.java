@@ -0,0 +1,7 @@
+package com.sicnu.geo.dto;
+
+/**
+ * 量算结果（球面近似）：面积与周长来自面，长度来自线。
+ */
+public record Measurement(int featureCount, double areaSquareMeters, double lengthMeters, double perimeterMeters) {
+}
@@ -0,0 +1,27 @@
+package com.sicnu.geo.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 键集翻页游标：上一页最后一条记录的排序键与 id，对客户端是不透明的字符串。
+ * key 为空表示排序键为 NULL 的记录段。
+ */
+public record PageCursor(String key, long id) {
+
+    public static PageCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf('|');
+            String key = raw.substring(0, sep);
+            return new PageCursor(key.isEmpty() ? null : key, Long.parseLong(raw.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("无效的 cursor");
+        }
+    }
+
+    public String encode() {
+        String raw = (key == null ? "" : key) + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,11 @@
+package com.sicnu.geo.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 时间轴从 from 移到 to 时的变化集：added 为新进入的项目摘要（已按分类、状态、范围筛选），
+ * removed 为离开的项目 id（未筛选，客户端忽略本来就不在列表中的 id）。
+ */
+public record ProjectActiveChanges(LocalDate from, LocalDate to, List<ProjectSummary> added, List<Long> removed) {
+}
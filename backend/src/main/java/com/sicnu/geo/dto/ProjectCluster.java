@@ -0,0 +1,11 @@
+package com.sicnu.geo.dto;
+
+import java.util.Map;
+
+/**
+ * 一个聚合格子：lng/lat 为成员中心点的重心，bounds 为格子范围 [minLng, minLat, maxLng, maxLat]，
+ * 只有一个成员时 projectId 为该项目 id。
+ */
+public record ProjectCluster(double lng, double lat, int count, Long projectId,
+                             Map<String, Integer> categories, Map<String, Integer> statuses, double[] bounds) {
+}
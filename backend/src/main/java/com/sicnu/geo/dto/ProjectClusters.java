@@ -0,0 +1,9 @@
+package com.sicnu.geo.dto;
+
+import java.util.List;
+
+/**
+ * zoom 为实际使用的聚合级别（超过上限时取上限），total 为各格子项目数之和。
+ */
+public record ProjectClusters(int zoom, int total, List<ProjectCluster> clusters) {
+}
@@ -0,0 +1,23 @@
+package com.sicnu.geo.dto;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * 仪表盘统计。月份按开始日期（缺省时按创建日期）归入 yyyy-MM；工期为结束日期减开始日期的天数，
+ * 只统计两个日期都有的项目；overdue 为已过结束日期但未完成的项目数。
+ */
+public record ProjectStats(int total,
+                           Map<String, Integer> byCategory,
+                           Map<String, Integer> byStatus,
+                           Map<String, Map<String, Integer>> byCategoryStatus,
+                           Map<String, Integer> byMonth,
+                           Map<String, Duration> durationByCategory,
+                           Map<String, Duration> durationByStatus,
+                           int overdue,
+                           int delayed,
+                           LocalDateTime reconciledAt) {
+
+    public record Duration(int projects, long totalDays, double averageDays) {
+    }
+}
@@ -0,0 +1,12 @@
+package com.sicnu.geo.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * 当前用户对一个项目的订阅状态；未订阅时后两项为默认值。
+ */
+public record ProjectSubscriptionStatus(Long projectId,
+                                        boolean subscribed,
+                                        boolean notificationEnabled,
+                                        LocalDateTime subscriptionDate) {
+}
@@ -0,0 +1,18 @@
+package com.sicnu.geo.dto;
+
+import com.sicnu.geo.entity.Project;
+import com.sicnu.geo.enums.ProjectCategory;
+
+import java.time.LocalDate;
+
+/**
+ * 列表视图用的项目摘要（fields=summary），不含长描述等字段；createdAt 用于翻页游标。
+ */
+public record ProjectSummary(Long id, String name, ProjectCategory category, String status,
+                             Double centerLng, Double centerLat, LocalDate createdAt) {
+
+    public static ProjectSummary of(Project p) {
+        return new ProjectSummary(p.getId(), p.getName(), p.getCategory(), p.getStatus(),
+                p.getCenterLng(), p.getCenterLat(), p.getCreatedAt());
+    }
+}
@@ -0,0 +1,23 @@
+package com.sicnu.geo.dto;
+
+import com.sicnu.geo.enums.ProjectCategory;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 用户按项目订阅的一个项目，附带订阅时间与通知开关。
+ */
+public record SubscribedProject(Long id,
+                                String name,
+                                String description,
+                                String status,
+                                ProjectCategory category,
+                                LocalDate startDate,
+                                LocalDate endDate,
+                                Double centerLng,
+                                Double centerLat,
+                                Long subscriptionId,
+                                LocalDateTime subscriptionDate,
+                                boolean notificationEnabled) {
+}
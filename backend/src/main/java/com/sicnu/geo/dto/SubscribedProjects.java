@@ -0,0 +1,9 @@
+package com.sicnu.geo.dto;
+
+import java.util.List;
+
+/**
+ * 订阅项目的一页，page 从 1 开始，total 为筛选后的总数。
+ */
+public record SubscribedProjects(List<SubscribedProject> projects, long total, int page, int limit) {
+}
@@ -0,0 +1,14 @@
+package com.sicnu.geo.dto;
+
+import com.sicnu.geo.enums.ProjectCategory;
+
+/**
+ * 新建订阅：projectId、category、bbox（[minLng, minLat, maxLng, maxLat]）三者必须且只能指定一个。
+ * notificationEnabled 缺省为 true，name 仅用于区域订阅的显示。
+ */
+public record SubscriptionRequest(Long projectId,
+                                  ProjectCategory category,
+                                  double[] bbox,
+                                  String name,
+                                  Boolean notificationEnabled) {
+}
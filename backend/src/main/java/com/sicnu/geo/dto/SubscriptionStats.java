@@ -0,0 +1,17 @@
+package com.sicnu.geo.dto;
+
+/**
+ * 当前用户的订阅统计。各状态的项目数只统计按项目的订阅，planningProjects 为未开始的项目；
+ * notificationEnabled 为开启通知的订阅数，unreadDigests 为未读的变更摘要数。
+ */
+public record SubscriptionStats(int totalSubscriptions,
+                                int projectSubscriptions,
+                                int categorySubscriptions,
+                                int areaSubscriptions,
+                                int activeProjects,
+                                int completedProjects,
+                                int delayedProjects,
+                                int planningProjects,
+                                int notificationEnabled,
+                                long unreadDigests) {
+}
@@ -1,6 +1,9 @@
 package com.sicnu.geo.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
 import java.time.LocalDateTime;
 
 @Entity
@@ -16,10 +19,31 @@ public class FeatureDocument {
 
     @Lob
     @Column(columnDefinition = "CLOB")
-    private String content; // 存储 GeoJSON FeatureCollection 原文
+    private String content; // 存储 GeoJSON FeatureCollection 原文；二进制存储时为空
+
+    @Basic(fetch = FetchType.LAZY)
+    @JdbcTypeCode(SqlTypes.LONG32VARBINARY)
+    private byte[] contentBinary; // 二进制存储（storage=binary）时的主文档，坐标为定点差值编码
+
+    @Column(length = 64)
+    private String contentHash; // content 的 SHA-256，用于 ETag
+
+    @Basic(fetch = FetchType.LAZY)
+    @JdbcTypeCode(SqlTypes.LONG32VARBINARY)
+    private byte[] contentGzip; // 可选的 gzip 压缩副本，存在未合并补丁时为空
 
     private LocalDateTime updatedAt = LocalDateTime.now();
 
+    // 每次保存递增，随保存摘要返回给客户端
+    private Long version = 0L;
+
+    // 保存时流式统计的要素数与外包矩形，避免为此重新解析正文
+    private Integer featureCount;
+    private Double minLng;
+    private Double minLat;
+    private Double maxLng;
+    private Double maxLat;
+
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
@@ -29,6 +53,33 @@ public class FeatureDocument {
     public String getContent() { return content; }
     public FeatureDocument setContent(String content) { this.content = content; return this; }
 
+    public byte[] getContentBinary() { return contentBinary; }
+    public FeatureDocument setContentBinary(byte[] contentBinary) { this.contentBinary = contentBinary; return this; }
+
+    public String getContentHash() { return contentHash; }
+    public FeatureDocument setContentHash(String contentHash) { this.contentHash = contentHash; return this; }
+
+    public byte[] getContentGzip() { return contentGzip; }
+    public FeatureDocument setContentGzip(byte[] contentGzip) { this.contentGzip = contentGzip; return this; }
+
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public FeatureDocument setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; return this; }
+
+    public Long getVersion() { return version; }
+    public FeatureDocument setVersion(Long version) { this.version = version; return this; }
+
+    public Integer getFeatureCount() { return featureCount; }
+    public FeatureDocument setFeatureCount(Integer featureCount) { this.featureCount = featureCount; return this; }
+
+    public Double getMinLng() { return minLng; }
+    public FeatureDocument setMinLng(Double minLng) { this.minLng = minLng; return this; }
+
+    public Double getMinLat() { return minLat; }
+    public FeatureDocument setMinLat(Double minLat) { this.minLat = minLat; return this; }
+
+    public Double getMaxLng() { return maxLng; }
+    public FeatureDocument setMaxLng(Double maxLng) { this.maxLng = maxLng; return this; }
+
+    public Double getMaxLat() { return maxLat; }
+    public FeatureDocument setMaxLat(Double maxLat) { this.maxLat = maxLat; return this; }
 }
\ No newline at end of file
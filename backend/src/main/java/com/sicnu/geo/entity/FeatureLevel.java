@@ -0,0 +1,67 @@
+package com.sicnu.geo.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "project_feature_levels",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"project_id", "detail_level"}))
+public class FeatureLevel {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @JoinColumn(name = "project_id")
+    private Project project;
+
+    // 细节层级序号，0 最粗
+    @Column(nullable = false)
+    private Integer detailLevel;
+
+    // 该层适用的最大缩放级别与简化容差（度）
+    private Integer maxZoom;
+    private Double tolerance;
+
+    // 生成时所依据的要素文档版本，与当前版本不一致即视为过期
+    private Long sourceVersion;
+
+    private Integer featureCount;
+    private Long vertexCount;
+
+    @Lob
+    @Column(columnDefinition = "CLOB")
+    private String content; // 简化后的 GeoJSON FeatureCollection
+
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Project getProject() { return project; }
+    public FeatureLevel setProject(Project project) { this.project = project; return this; }
+
+    public Integer getDetailLevel() { return detailLevel; }
+    public FeatureLevel setDetailLevel(Integer detailLevel) { this.detailLevel = detailLevel; return this; }
+
+    public Integer getMaxZoom() { return maxZoom; }
+    public FeatureLevel setMaxZoom(Integer maxZoom) { this.maxZoom = maxZoom; return this; }
+
+    public Double getTolerance() { return tolerance; }
+    public FeatureLevel setTolerance(Double tolerance) { this.tolerance = tolerance; return this; }
+
+    public Long getSourceVersion() { return sourceVersion; }
+    public FeatureLevel setSourceVersion(Long sourceVersion) { this.sourceVersion = sourceVersion; return this; }
+
+    public Integer getFeatureCount() { return featureCount; }
+    public FeatureLevel setFeatureCount(Integer featureCount) { this.featureCount = featureCount; return this; }
+
+    public Long getVertexCount() { return vertexCount; }
+    public FeatureLevel setVertexCount(Long vertexCount) { this.vertexCount = vertexCount; return this; }
+
+    public String getContent() { return content; }
+    public FeatureLevel setContent(String content) { this.content = content; return this; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public FeatureLevel setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; return this; }
+}
@@ -0,0 +1,56 @@
+package com.sicnu.geo.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 要素文档的增量补丁：只记录被修改的单个要素，读取时叠加到主文档上，积累到一定数量后合并。
+ */
+@Entity
+@Table(name = "project_feature_patches",
+        indexes = @Index(name = "idx_feature_patch_project", columnList = "project_id, id"))
+public class FeaturePatch {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @JoinColumn(name = "project_id")
+    private Project project;
+
+    @Column(nullable = false)
+    private String featureId;
+
+    @Column(nullable = false, length = 16)
+    private String op; // upsert, delete
+
+    @Lob
+    @Column(columnDefinition = "CLOB")
+    private String content; // 单个 Feature 的 GeoJSON，delete 时为空
+
+    // 应用该补丁后的文档版本
+    private Long docVersion;
+
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Project getProject() { return project; }
+    public FeaturePatch setProject(Project project) { this.project = project; return this; }
+
+    public String getFeatureId() { return featureId; }
+    public FeaturePatch setFeatureId(String featureId) { this.featureId = featureId; return this; }
+
+    public String getOp() { return op; }
+    public FeaturePatch setOp(String op) { this.op = op; return this; }
+
+    public String getContent() { return content; }
+    public FeaturePatch setContent(String content) { this.content = content; return this; }
+
+    public Long getDocVersion() { return docVersion; }
+    public FeaturePatch setDocVersion(Long docVersion) { this.docVersion = docVersion; return this; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public FeaturePatch setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; return this; }
+}
@@ -0,0 +1,72 @@
+package com.sicnu.geo.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+/**
+ * 要素文档按要素拆开的行：每个有几何的要素一行，带外包矩形列，供跨项目按范围检索。
+ * 由要素文档的写入在同一事务中维护，内容与文档（叠加补丁后）一致；文档本身仍是整份读取的来源。
+ */
+@Entity
+@Table(name = "feature_rows", indexes = {
+        @Index(name = "idx_feature_row_min", columnList = "min_x, min_y, max_x, max_y"),
+        @Index(name = "idx_feature_row_max", columnList = "max_x, max_y, min_x, min_y"),
+        @Index(name = "idx_feature_row_key", columnList = "project_id, feature_key")})
+public class FeatureRow {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // 不设外键：项目删除时由事件清理，检索时与 projects 连接，残留行不会被查出
+    @Column(name = "project_id", nullable = false)
+    private Long projectId;
+
+    // 要素 id；没有 id 的要素为空，补丁无法定位它们，只随全量保存整体替换
+    @Column(name = "feature_key")
+    private String featureKey;
+
+    @Column(length = 32)
+    private String geometryType;
+
+    // 几何的外包矩形（经纬度）
+    @Column(name = "min_x", nullable = false)
+    private Double minX;
+    @Column(name = "min_y", nullable = false)
+    private Double minY;
+    @Column(name = "max_x", nullable = false)
+    private Double maxX;
+    @Column(name = "max_y", nullable = false)
+    private Double maxY;
+
+    @Basic(fetch = FetchType.LAZY)
+    @JdbcTypeCode(SqlTypes.LONG32VARBINARY)
+    private byte[] content; // 只含这一个要素的二进制要素文档
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getProjectId() { return projectId; }
+    public FeatureRow setProjectId(Long projectId) { this.projectId = projectId; return this; }
+
+    public String getFeatureKey() { return featureKey; }
+    public FeatureRow setFeatureKey(String featureKey) { this.featureKey = featureKey; return this; }
+
+    public String getGeometryType() { return geometryType; }
+    public FeatureRow setGeometryType(String geometryType) { this.geometryType = geometryType; return this; }
+
+    public Double getMinX() { return minX; }
+    public FeatureRow setMinX(Double minX) { this.minX = minX; return this; }
+
+    public Double getMinY() { return minY; }
+    public FeatureRow setMinY(Double minY) { this.minY = minY; return this; }
+
+    public Double getMaxX() { return maxX; }
+    public FeatureRow setMaxX(Double maxX) { this.maxX = maxX; return this; }
+
+    public Double getMaxY() { return maxY; }
+    public FeatureRow setMaxY(Double maxY) { this.maxY = maxY; return this; }
+
+    public byte[] getContent() { return content; }
+    public FeatureRow setContent(byte[] content) { this.content = content; return this; }
+}
@@ -5,7 +5,10 @@ import jakarta.persistence.*;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "projects")
+@Table(name = "projects", indexes = {
+        @Index(name = "idx_project_created", columnList = "created_at, id"),
+        @Index(name = "idx_project_category_created", columnList = "category, created_at, id")
+})
 public class Project {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,86 @@
+package com.sicnu.geo.entity;
+
+import com.sicnu.geo.enums.ProjectCategory;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 用户的订阅：按项目（projectId）、按分类（category）或按区域（四个经纬度列）三种之一。
+ * 用户与项目都只存 id、不设外键，项目删除后的订阅由变更摘要在通知之后清理。
+ */
+@Entity
+@Table(name = "project_subscriptions",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_subscription_project", columnNames = {"user_id", "project_id"}),
+                @UniqueConstraint(name = "uk_subscription_category", columnNames = {"user_id", "category"})},
+        indexes = {
+                @Index(name = "idx_subscription_user_created", columnList = "user_id, created_at"),
+                @Index(name = "idx_subscription_project", columnList = "project_id")})
+public class Subscription {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false, length = 16)
+    private String kind; // project, category, area
+
+    @Column(name = "project_id")
+    private Long projectId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "category")
+    private ProjectCategory category;
+
+    // 区域订阅的范围（经纬度）
+    private Double minLng;
+    private Double minLat;
+    private Double maxLng;
+    private Double maxLat;
+
+    private String name; // 区域订阅的名称，可为空
+
+    @Column(nullable = false)
+    private Boolean notificationEnabled = true;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getUserId() { return userId; }
+    public Subscription setUserId(Long userId) { this.userId = userId; return this; }
+
+    public String getKind() { return kind; }
+    public Subscription setKind(String kind) { this.kind = kind; return this; }
+
+    public Long getProjectId() { return projectId; }
+    public Subscription setProjectId(Long projectId) { this.projectId = projectId; return this; }
+
+    public ProjectCategory getCategory() { return category; }
+    public Subscription setCategory(ProjectCategory category) { this.category = category; return this; }
+
+    public Double getMinLng() { return minLng; }
+    public Subscription setMinLng(Double minLng) { this.minLng = minLng; return this; }
+
+    public Double getMinLat() { return minLat; }
+    public Subscription setMinLat(Double minLat) { this.minLat = minLat; return this; }
+
+    public Double getMaxLng() { return maxLng; }
+    public Subscription setMaxLng(Double maxLng) { this.maxLng = maxLng; return this; }
+
+    public Double getMaxLat() { return maxLat; }
+    public Subscription setMaxLat(Double maxLat) { this.maxLat = maxLat; return this; }
+
+    public String getName() { return name; }
+    public Subscription setName(String name) { this.name = name; return this; }
+
+    public Boolean getNotificationEnabled() { return notificationEnabled; }
+    public Subscription setNotificationEnabled(Boolean notificationEnabled) { this.notificationEnabled = notificationEnabled; return this; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public Subscription setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; return this; }
+}
@@ -0,0 +1,54 @@
+package com.sicnu.geo.entity;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 发给一个用户的变更摘要：一个汇总周期内其订阅命中的全部项目变化合成一条。
+ */
+@Entity
+@Table(name = "subscription_digests",
+        indexes = @Index(name = "idx_digest_user_created", columnList = "user_id, created_at"))
+public class SubscriptionDigest {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    private Integer projectCount;
+    private Integer changeCount;
+
+    @Lob
+    @Column(columnDefinition = "CLOB")
+    @JsonRawValue
+    private String content; // 各项目变化的 JSON 数组，原样输出给前端
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    private LocalDateTime readAt;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getUserId() { return userId; }
+    public SubscriptionDigest setUserId(Long userId) { this.userId = userId; return this; }
+
+    public Integer getProjectCount() { return projectCount; }
+    public SubscriptionDigest setProjectCount(Integer projectCount) { this.projectCount = projectCount; return this; }
+
+    public Integer getChangeCount() { return changeCount; }
+    public SubscriptionDigest setChangeCount(Integer changeCount) { this.changeCount = changeCount; return this; }
+
+    public String getContent() { return content; }
+    public SubscriptionDigest setContent(String content) { this.content = content; return this; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public SubscriptionDigest setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; return this; }
+
+    public LocalDateTime getReadAt() { return readAt; }
+    public SubscriptionDigest setReadAt(LocalDateTime readAt) { this.readAt = readAt; return this; }
+}
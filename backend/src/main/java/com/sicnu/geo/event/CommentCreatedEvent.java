@@ -0,0 +1,9 @@
+package com.sicnu.geo.event;
+
+import com.sicnu.geo.entity.Comment;
+
+/**
+ * 评论保存后发布的事件，供检索索引等增量更新。
+ */
+public record CommentCreatedEvent(Long projectId, Comment comment) {
+}
@@ -0,0 +1,9 @@
+package com.sicnu.geo.event;
+
+import com.sicnu.geo.geometry.Envelope;
+
+/**
+ * 项目要素文档保存后发布；before/after 为保存前后的外包矩形（可能为空）。
+ */
+public record FeatureDocumentChangedEvent(Long projectId, Envelope before, Envelope after, long version) {
+}
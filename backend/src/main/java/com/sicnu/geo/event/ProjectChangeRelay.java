@@ -0,0 +1,55 @@
+package com.sicnu.geo.event;
+
+import com.sicnu.geo.cache.CacheInvalidationBus;
+import com.sicnu.geo.entity.Project;
+import com.sicnu.geo.repository.ProjectRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * 把本节点的 ProjectChangedEvent 转发给其它节点：每次写入经 {@link CacheInvalidationBus} 发出一条 "类型:项目id" 消息，
+ * 收到的节点从数据库读取一次该项目，再在本地发布 remote 为 true 的 ProjectChangedEvent，
+ * 各内存索引、统计与知识库照常由各自的 @EventListener 增量更新。
+ */
+@Component
+public class ProjectChangeRelay {
+
+    public static final String BUS_NAME = "project-changed";
+
+    private static final Logger log = LoggerFactory.getLogger(ProjectChangeRelay.class);
+
+    private final ProjectRepository repo;
+    private final CacheInvalidationBus bus;
+    private final ApplicationEventPublisher events;
+
+    public ProjectChangeRelay(ProjectRepository repo, CacheInvalidationBus bus, ApplicationEventPublisher events) {
+        this.repo = repo;
+        this.bus = bus;
+        this.events = events;
+        bus.register(BUS_NAME, this::receive);
+    }
+
+    // 提交后再通知，其它节点读到的是已写入的数据
+    @TransactionalEventListener(fallbackExecution = true)
+    public void broadcast(ProjectChangedEvent e) {
+        if (e.remote()) return;
+        bus.publish(BUS_NAME, e.type().name() + ":" + e.projectId());
+    }
+
+    private void receive(String message) {
+        try {
+            int colon = message.indexOf(':');
+            ProjectChangedEvent.Type type = ProjectChangedEvent.Type.valueOf(message.substring(0, colon));
+            long id = Long.parseLong(message.substring(colon + 1));
+            Project p = type == ProjectChangedEvent.Type.DELETED ? null : repo.findById(id).orElse(null);
+            // 消息到达前项目已被删除，按删除处理
+            if (p == null) type = ProjectChangedEvent.Type.DELETED;
+            events.publishEvent(new ProjectChangedEvent(type, id, p, true));
+        } catch (RuntimeException e) {
+            log.warn("其它节点的项目变更处理失败 {}: {}", message, e.getMessage());
+        }
+    }
+}
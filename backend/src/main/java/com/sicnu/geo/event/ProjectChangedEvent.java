@@ -0,0 +1,26 @@
+package com.sicnu.geo.event;
+
+import com.sicnu.geo.entity.Project;
+
+/**
+ * 项目写入（新增/修改/删除）后发布的事件，供各类内存索引增量更新。
+ * 删除事件中 project 为删除前的快照，可能为 null。
+ * remote 为 true 表示其它节点的写入，由 {@link ProjectChangeRelay} 转发而来；
+ * 写库、向外广播等只应由写入节点做一次的监听方应忽略这类事件。
+ */
+public record ProjectChangedEvent(Type type, Long projectId, Project project, boolean remote) {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    public static ProjectChangedEvent created(Project p) {
+        return new ProjectChangedEvent(Type.CREATED, p.getId(), p, false);
+    }
+
+    public static ProjectChangedEvent updated(Project p) {
+        return new ProjectChangedEvent(Type.UPDATED, p.getId(), p, false);
+    }
+
+    public static ProjectChangedEvent deleted(Long id, Project before) {
+        return new ProjectChangedEvent(Type.DELETED, id, before, false);
+    }
+}
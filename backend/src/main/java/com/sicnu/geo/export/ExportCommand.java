@@ -0,0 +1,96 @@
+package com.sicnu.geo.export;
+
+import com.sicnu.geo.service.ExportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * 命令行导出，与服务端共用同一个 jar：
+ * <pre>
+ * java -jar sicnugeo-backend.jar --export=fgb --output=/data/sicnugeo.fgb [--category=ROAD_TRAFFIC] [--status=inProgress] [--ids=1,2,3]
+ * </pre>
+ * 带 --export 启动时激活 {@value #PROFILE} 配置、不启动 Web 服务器，不写入示例数据，
+ * 也不执行启动加载（{@link #NOT_EXPORTING}）与定时任务；
+ * 导出结束后由 main 方法经 {@link org.springframework.boot.SpringApplication#exit} 关闭上下文，
+ * 以退出码 0（成功）或 1（失败）退出。
+ * 先写入同目录下的 .part 文件，完成后原子改名，读取方不会看到写了一半的文件。
+ */
+@Component
+@Profile(ExportCommand.PROFILE)
+public class ExportCommand implements ApplicationRunner, ExitCodeGenerator {
+
+    public static final String OPTION = "export";
+    public static final String PROFILE = "export";
+    /**
+     * 只在服务端启动时执行的 ApplicationReadyEvent 监听器使用的条件（索引加载、知识库向量化、存储迁移等），
+     * 命令行导出时跳过。
+     */
+    public static final String NOT_EXPORTING =
+            "!@environment.acceptsProfiles(T(org.springframework.core.env.Profiles).of('" + PROFILE + "'))";
+
+    private static final Logger log = LoggerFactory.getLogger(ExportCommand.class);
+
+    private final ExportService exportService;
+    private volatile int exitCode = 1;
+
+    public ExportCommand(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    /**
+     * main 方法据此决定是否以非 Web 方式启动。
+     */
+    public static boolean requested(String[] args) {
+        for (String arg : args) {
+            if (arg.equals("--" + OPTION) || arg.startsWith("--" + OPTION + "=")) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption(OPTION)) return;
+        try {
+            String output = option(args, "output");
+            if (output == null) throw new IllegalArgumentException("缺少 --output 参数");
+            ExportService.Format format = ExportService.Format.of(option(args, OPTION));
+            ExportService.Filter filter = ExportService.Filter.parse(
+                    option(args, "category"), option(args, "status"), option(args, "ids"));
+            Path target = Path.of(output).toAbsolutePath();
+            Path part = target.resolveSibling(target.getFileName() + ".part");
+            ExportService.Result result;
+            try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                result = exportService.export(filter, format, channel);
+                channel.force(false);
+            }
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("已导出到 {}：{} 个项目，{} 个要素，{} 条评论", target, result.projects(), result.features(), result.comments());
+            exitCode = 0;
+        } catch (Exception e) {
+            log.error("导出失败", e);
+        }
+    }
+
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    private static String option(ApplicationArguments args, String name) {
+        List<String> values = args.getOptionValues(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+}
@@ -0,0 +1,29 @@
+package com.sicnu.geo.export;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sicnu.geo.geometry.Geometry;
+
+import java.io.IOException;
+
+/**
+ * 批量导出的输出格式。每个项目先写一条项目记录，随后是该项目的要素记录；
+ * 实现只缓冲当前这一条记录，写完即交给输出通道。
+ */
+public interface ExportWriter {
+
+    /**
+     * @param project  项目属性（name、category、status 等），comments 为评论数组
+     * @param location 项目中心点，没有时为 null
+     */
+    void writeProject(long projectId, ObjectNode project, Geometry location) throws IOException;
+
+    /**
+     * @param feature 已存的 GeoJSON 要素（id、properties 按原样导出）
+     */
+    void writeFeature(long projectId, ObjectNode feature, Geometry geometry) throws IOException;
+
+    /**
+     * 写出缓冲中的剩余内容；不关闭输出通道。
+     */
+    void finish() throws IOException;
+}
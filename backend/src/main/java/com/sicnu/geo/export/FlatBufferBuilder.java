@@ -0,0 +1,242 @@
+package com.sicnu.geo.export;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 最小的 FlatBuffers 序列化器，只覆盖 FlatGeobuf 用到的类型（标量、字符串、标量向量、表、表向量）。
+ * 与官方实现从后往前构建不同，这里从前往后排布：vtable 紧挨在表之前，子对象依次写在表之后，
+ * uoffset 因此总是指向后方，满足格式要求；不做 vtable 去重。缓冲区在多次 finish 之间复用。
+ */
+class FlatBufferBuilder {
+
+    /**
+     * 待序列化的表；字段按 schema 中的序号添加，未添加的字段由读取方取默认值。
+     */
+    static final class Table {
+        private final List<Slot> slots = new ArrayList<>();
+
+        Table addUByte(int id, int value) {
+            slots.add(new Slot(id, 1, value & 0xFF, null));
+            return this;
+        }
+
+        Table addBool(int id, boolean value) {
+            return addUByte(id, value ? 1 : 0);
+        }
+
+        Table addUShort(int id, int value) {
+            slots.add(new Slot(id, 2, value & 0xFFFF, null));
+            return this;
+        }
+
+        Table addInt(int id, int value) {
+            slots.add(new Slot(id, 4, value & 0xFFFFFFFFL, null));
+            return this;
+        }
+
+        Table addLong(int id, long value) {
+            slots.add(new Slot(id, 8, value, null));
+            return this;
+        }
+
+        Table addString(int id, String value) {
+            if (value != null) slots.add(new Slot(id, 4, 0, new Bytes(value.getBytes(StandardCharsets.UTF_8), -1, true)));
+            return this;
+        }
+
+        Table addBytes(int id, byte[] value, int length) {
+            slots.add(new Slot(id, 4, 0, new Bytes(value, length, false)));
+            return this;
+        }
+
+        Table addDoubles(int id, double[] value, int length) {
+            slots.add(new Slot(id, 4, 0, new Doubles(value, length)));
+            return this;
+        }
+
+        Table addUInts(int id, int[] value, int length) {
+            slots.add(new Slot(id, 4, 0, new UInts(value, length)));
+            return this;
+        }
+
+        Table addTable(int id, Table value) {
+            if (value != null) slots.add(new Slot(id, 4, 0, value));
+            return this;
+        }
+
+        Table addTables(int id, List<Table> value) {
+            slots.add(new Slot(id, 4, 0, new Tables(value)));
+            return this;
+        }
+    }
+
+    // ref 为空时是 size 字节的标量，否则是 4 字节的 uoffset
+    private record Slot(int id, int size, long bits, Object ref) {
+    }
+
+    private record Bytes(byte[] value, int length, boolean string) {
+    }
+
+    private record Doubles(double[] value, int length) {
+    }
+
+    private record UInts(int[] value, int length) {
+    }
+
+    private record Tables(List<Table> value) {
+    }
+
+    private static final Comparator<Slot> BY_SIZE = Comparator.comparingInt(Slot::size).reversed();
+
+    private byte[] buf = new byte[4096];
+    private int pos;
+
+    /**
+     * 序列化 root，返回字节数；结果在 buffer() 的 [0, 返回值) 中，下次调用前有效。
+     */
+    int finish(Table root) {
+        pos = 0;
+        putInt(0);
+        int table = table(root);
+        setInt(0, table);
+        return pos;
+    }
+
+    byte[] buffer() {
+        return buf;
+    }
+
+    private int table(Table t) {
+        List<Slot> slots = new ArrayList<>(t.slots);
+        slots.sort(BY_SIZE); // 大的字段在前，减少对齐填充
+        int maxId = -1;
+        int align = 4;
+        for (Slot s : slots) {
+            maxId = Math.max(maxId, s.id);
+            align = Math.max(align, s.size);
+        }
+        int[] offsets = new int[slots.size()];
+        int size = 4; // 表头的 soffset
+        for (int i = 0; i < slots.size(); i++) {
+            int fieldSize = slots.get(i).size;
+            size = (size + fieldSize - 1) / fieldSize * fieldSize;
+            offsets[i] = size;
+            size += fieldSize;
+        }
+
+        // vtable：自身长度、表长度、各字段在表内的偏移（0 表示缺省）
+        pad(2);
+        int vtable = pos;
+        int[] byId = new int[maxId + 1];
+        for (int i = 0; i < slots.size(); i++) byId[slots.get(i).id] = offsets[i];
+        putShort(4 + 2 * byId.length);
+        putShort(size);
+        for (int offset : byId) putShort(offset);
+
+        pad(align);
+        int start = pos;
+        ensure(size);
+        Arrays.fill(buf, start, start + size, (byte) 0);
+        setInt(start, start - vtable);
+        for (int i = 0; i < slots.size(); i++) {
+            Slot s = slots.get(i);
+            if (s.ref == null) setScalar(start + offsets[i], s.size, s.bits);
+        }
+        pos = start + size;
+        for (int i = 0; i < slots.size(); i++) {
+            Slot s = slots.get(i);
+            if (s.ref == null) continue;
+            int at = start + offsets[i];
+            setInt(at, child(s.ref) - at);
+        }
+        return start;
+    }
+
+    private int child(Object ref) {
+        if (ref instanceof Table t) return table(t);
+        if (ref instanceof Bytes b) {
+            int length = b.string ? b.value.length : b.length;
+            pad(4);
+            int at = pos;
+            putInt(length);
+            ensure(length + 1);
+            System.arraycopy(b.value, 0, buf, pos, length);
+            pos += length;
+            if (b.string) buf[pos++] = 0;
+            return at;
+        }
+        if (ref instanceof Doubles d) {
+            // 长度前缀之后的元素按 8 字节对齐
+            pad(4);
+            if ((pos + 4) % 8 != 0) {
+                ensure(4);
+                zero(pos, 4);
+                pos += 4;
+            }
+            int at = pos;
+            putInt(d.length);
+            ensure(d.length * 8);
+            for (int i = 0; i < d.length; i++) setScalar(pos + i * 8, 8, Double.doubleToRawLongBits(d.value[i]));
+            pos += d.length * 8;
+            return at;
+        }
+        if (ref instanceof UInts u) {
+            pad(4);
+            int at = pos;
+            putInt(u.length);
+            for (int i = 0; i < u.length; i++) putInt(u.value[i]);
+            return at;
+        }
+        List<Table> tables = ((Tables) ref).value;
+        pad(4);
+        int at = pos;
+        putInt(tables.size());
+        ensure(tables.size() * 4);
+        pos += tables.size() * 4;
+        for (int i = 0; i < tables.size(); i++) {
+            int slot = at + 4 + i * 4;
+            setInt(slot, table(tables.get(i)) - slot);
+        }
+        return at;
+    }
+
+    private void pad(int align) {
+        int padded = (pos + align - 1) / align * align;
+        ensure(padded - pos);
+        zero(pos, padded - pos);
+        pos = padded;
+    }
+
+    private void zero(int from, int length) {
+        Arrays.fill(buf, from, from + length, (byte) 0);
+    }
+
+    private void putShort(int value) {
+        ensure(2);
+        setScalar(pos, 2, value);
+        pos += 2;
+    }
+
+    private void putInt(int value) {
+        ensure(4);
+        setInt(pos, value);
+        pos += 4;
+    }
+
+    private void setInt(int at, int value) {
+        setScalar(at, 4, value);
+    }
+
+    // 小端序
+    private void setScalar(int at, int size, long bits) {
+        for (int i = 0; i < size; i++) buf[at + i] = (byte) (bits >>> (8 * i));
+    }
+
+    private void ensure(int more) {
+        if (pos + more > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + more));
+    }
+}
@@ -0,0 +1,238 @@
+package com.sicnu.geo.export;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sicnu.geo.geometry.Geometry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * FlatGeobuf（v3）输出：文件头声明固定的列，几何类型为 Unknown（每个要素自带类型），
+ * 不写空间索引、要素数记为 0（未知），因此可以单遍流式写出。
+ * 项目记录以中心点为几何，项目的其余属性与评论分别放在 properties、comments 两个 JSON 列中。
+ */
+public class FlatGeobufExportWriter implements ExportWriter {
+
+    private static final byte[] MAGIC = {0x66, 0x67, 0x62, 0x03, 0x66, 0x67, 0x62, 0x00};
+
+    // FlatGeobuf ColumnType
+    private static final int TYPE_LONG = 7;
+    private static final int TYPE_STRING = 11;
+    private static final int TYPE_JSON = 12;
+
+    // 列序号，与 COLUMN_NAMES 的顺序一致
+    private static final int COL_KIND = 0;
+    private static final int COL_PROJECT_ID = 1;
+    private static final int COL_FEATURE_ID = 2;
+    private static final int COL_NAME = 3;
+    private static final int COL_CATEGORY = 4;
+    private static final int COL_STATUS = 5;
+    private static final int COL_PROPERTIES = 6;
+    private static final int COL_COMMENTS = 7;
+
+    private static final String[] COLUMN_NAMES =
+            {"kind", "project_id", "feature_id", "name", "category", "status", "properties", "comments"};
+    private static final int[] COLUMN_TYPES =
+            {TYPE_STRING, TYPE_LONG, TYPE_STRING, TYPE_STRING, TYPE_STRING, TYPE_STRING, TYPE_JSON, TYPE_JSON};
+
+    private final ObjectMapper mapper;
+    private final WritableByteChannel channel;
+    private final FlatBufferBuilder builder = new FlatBufferBuilder();
+    // 输出缓冲，攒满后整块写入通道，避免每个要素两次小写入
+    private final ByteBuffer out = ByteBuffer.allocateDirect(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+    // 当前要素的属性编码：列序号(ushort) + 值
+    private byte[] props = new byte[1024];
+    private int propsLength;
+
+    public FlatGeobufExportWriter(ObjectMapper mapper, WritableByteChannel channel, String name) throws IOException {
+        this.mapper = mapper;
+        this.channel = channel;
+        out.put(MAGIC);
+        List<FlatBufferBuilder.Table> columns = new ArrayList<>();
+        for (int i = 0; i < COLUMN_NAMES.length; i++) {
+            columns.add(new FlatBufferBuilder.Table().addString(0, COLUMN_NAMES[i]).addUByte(1, COLUMN_TYPES[i]));
+        }
+        FlatBufferBuilder.Table header = new FlatBufferBuilder.Table()
+                .addString(0, name)
+                .addUByte(2, 0) // GeometryType.Unknown
+                .addTables(7, columns)
+                .addLong(8, 0)
+                .addUShort(9, 0) // 不写空间索引
+                .addTable(10, new FlatBufferBuilder.Table().addString(0, "EPSG").addInt(1, 4326));
+        writeSizePrefixed(builder.finish(header));
+    }
+
+    @Override
+    public void writeProject(long projectId, ObjectNode project, Geometry location) throws IOException {
+        propsLength = 0;
+        putString(COL_KIND, "project");
+        putLong(COL_PROJECT_ID, projectId);
+        ObjectNode rest = project.deepCopy();
+        putString(COL_NAME, text(rest.remove("name")));
+        putString(COL_CATEGORY, text(rest.remove("category")));
+        putString(COL_STATUS, text(rest.remove("status")));
+        JsonNode comments = rest.remove("comments");
+        putJson(COL_PROPERTIES, rest);
+        putJson(COL_COMMENTS, comments);
+        writeFeature(location);
+    }
+
+    @Override
+    public void writeFeature(long projectId, ObjectNode feature, Geometry geometry) throws IOException {
+        propsLength = 0;
+        putString(COL_KIND, "feature");
+        putLong(COL_PROJECT_ID, projectId);
+        putString(COL_FEATURE_ID, text(feature.get("id")));
+        putJson(COL_PROPERTIES, feature.get("properties"));
+        writeFeature(geometry);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        out.flip();
+        writeFully(out);
+        out.clear();
+    }
+
+    private void writeFeature(Geometry geometry) throws IOException {
+        FlatBufferBuilder.Table feature = new FlatBufferBuilder.Table()
+                .addTable(0, geometry == null ? null : geometry(geometry))
+                .addBytes(1, props, propsLength);
+        writeSizePrefixed(builder.finish(feature));
+    }
+
+    // ---------------------------------------------------------------- 几何
+
+    // FlatGeobuf GeometryType
+    private static int typeCode(Geometry.Type type) {
+        switch (type) {
+            case Point: return 1;
+            case LineString: return 2;
+            case Polygon: return 3;
+            case MultiPoint: return 4;
+            case MultiLineString: return 5;
+            case MultiPolygon: return 6;
+            default: return 7;
+        }
+    }
+
+    private static FlatBufferBuilder.Table geometry(Geometry g) {
+        FlatBufferBuilder.Table table = new FlatBufferBuilder.Table().addUByte(6, typeCode(g.getType()));
+        switch (g.getType()) {
+            case MultiPolygon: {
+                List<FlatBufferBuilder.Table> parts = new ArrayList<>();
+                for (List<double[]> rings : g.getParts()) {
+                    FlatBufferBuilder.Table polygon = new FlatBufferBuilder.Table().addUByte(6, typeCode(Geometry.Type.Polygon));
+                    parts.add(addCoordinates(polygon, rings));
+                }
+                return table.addTables(7, parts);
+            }
+            case GeometryCollection: {
+                List<FlatBufferBuilder.Table> parts = new ArrayList<>();
+                for (Geometry member : g.getGeometries()) parts.add(geometry(member));
+                return table.addTables(7, parts);
+            }
+            default: {
+                // 其余类型的全部坐标序列依次拼接，多条序列时以 ends 记录每条的结束位置（点数）
+                List<double[]> sequences = new ArrayList<>();
+                for (List<double[]> part : g.getParts()) sequences.addAll(part);
+                if (g.getType() == Geometry.Type.MultiPoint) {
+                    double[] xy = concat(sequences);
+                    return table.addDoubles(1, xy, xy.length);
+                }
+                return addCoordinates(table, sequences);
+            }
+        }
+    }
+
+    private static FlatBufferBuilder.Table addCoordinates(FlatBufferBuilder.Table table, List<double[]> sequences) {
+        double[] xy = concat(sequences);
+        if (sequences.size() > 1) {
+            int[] ends = new int[sequences.size()];
+            int end = 0;
+            for (int i = 0; i < ends.length; i++) {
+                end += sequences.get(i).length / 2;
+                ends[i] = end;
+            }
+            table.addUInts(0, ends, ends.length);
+        }
+        return table.addDoubles(1, xy, xy.length);
+    }
+
+    private static double[] concat(List<double[]> sequences) {
+        if (sequences.size() == 1) return sequences.get(0);
+        int length = 0;
+        for (double[] seq : sequences) length += seq.length;
+        double[] xy = new double[length];
+        int at = 0;
+        for (double[] seq : sequences) {
+            System.arraycopy(seq, 0, xy, at, seq.length);
+            at += seq.length;
+        }
+        return xy;
+    }
+
+    // ---------------------------------------------------------------- 属性
+
+    private static String text(JsonNode node) {
+        return node == null || node.isNull() ? null : node.asText();
+    }
+
+    private void putLong(int column, long value) {
+        ensureProps(10);
+        putColumn(column);
+        for (int i = 0; i < 8; i++) props[propsLength++] = (byte) (value >>> (8 * i));
+    }
+
+    // null 值不写，读取方按空值处理
+    private void putString(int column, String value) {
+        if (value != null) putBytes(column, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void putJson(int column, JsonNode value) throws IOException {
+        if (value != null && !value.isNull()) putBytes(column, mapper.writeValueAsBytes(value));
+    }
+
+    private void putBytes(int column, byte[] value) {
+        ensureProps(6 + value.length);
+        putColumn(column);
+        for (int i = 0; i < 4; i++) props[propsLength++] = (byte) (value.length >>> (8 * i));
+        System.arraycopy(value, 0, props, propsLength, value.length);
+        propsLength += value.length;
+    }
+
+    private void putColumn(int column) {
+        props[propsLength++] = (byte) column;
+        props[propsLength++] = (byte) (column >>> 8);
+    }
+
+    private void ensureProps(int more) {
+        if (propsLength + more > props.length) props = Arrays.copyOf(props, Math.max(props.length * 2, propsLength + more));
+    }
+
+    // ---------------------------------------------------------------- 输出
+
+    private void writeSizePrefixed(int length) throws IOException {
+        if (out.remaining() < 4 + length) finish();
+        out.putInt(length);
+        if (out.remaining() >= length) {
+            out.put(builder.buffer(), 0, length);
+        } else {
+            // 超过缓冲区的大要素直接写入
+            finish();
+            writeFully(ByteBuffer.wrap(builder.buffer(), 0, length));
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+}
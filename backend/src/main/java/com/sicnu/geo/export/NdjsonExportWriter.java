@@ -0,0 +1,72 @@
+package com.sicnu.geo.export;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sicnu.geo.geometry.Geometry;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * 换行分隔的 GeoJSON（每行一个 Feature）。顶层的 kind 区分 project / feature，projectId 关联二者。
+ */
+public class NdjsonExportWriter implements ExportWriter {
+
+    private final JsonGenerator gen;
+
+    public NdjsonExportWriter(ObjectMapper mapper, WritableByteChannel channel) throws IOException {
+        this.gen = mapper.getFactory().createGenerator(Channels.newOutputStream(channel), JsonEncoding.UTF8);
+        gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    @Override
+    public void writeProject(long projectId, ObjectNode project, Geometry location) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("type", "Feature");
+        gen.writeStringField("kind", "project");
+        gen.writeNumberField("projectId", projectId);
+        gen.writeFieldName("properties");
+        gen.writeTree(project);
+        writeGeometry(location);
+        endLine();
+    }
+
+    @Override
+    public void writeFeature(long projectId, ObjectNode feature, Geometry geometry) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("type", "Feature");
+        gen.writeStringField("kind", "feature");
+        gen.writeNumberField("projectId", projectId);
+        JsonNode id = feature.get("id");
+        if (id != null && !id.isNull()) {
+            gen.writeFieldName("id");
+            gen.writeTree(id);
+        }
+        gen.writeFieldName("properties");
+        JsonNode properties = feature.get("properties");
+        if (properties == null) gen.writeNull();
+        else gen.writeTree(properties);
+        writeGeometry(geometry);
+        endLine();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        gen.flush();
+    }
+
+    private void writeGeometry(Geometry geometry) throws IOException {
+        gen.writeFieldName("geometry");
+        if (geometry == null) gen.writeNull();
+        else geometry.writeGeoJson(gen);
+    }
+
+    private void endLine() throws IOException {
+        gen.writeEndObject();
+        gen.writeRaw('\n');
+    }
+}
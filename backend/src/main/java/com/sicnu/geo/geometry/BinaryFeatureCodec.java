@@ -0,0 +1,343 @@
+package com.sicnu.geo.geometry;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 要素文档的紧凑二进制格式（参照 TWKB）：坐标按固定小数位数取整，逐点存与前一点的差值，
+ * 差值做 zigzag 变换后以变长整数写出，城市范围内相邻点通常每个坐标只占 1~3 字节。
+ * 要素的其它成员（id、properties 等）以 JSON 单独存放，与坐标互不混杂。
+ * 只有二维坐标、没有 bbox 等额外成员的几何才写成二进制，其余几何（带高程/测量值等）原样保留在要素 JSON 中。
+ * <pre>
+ * 文件头：  "SGF" 1 | 精度(1 字节，小数位数)
+ * 记录：    1 | 要素 JSON 长度 | 要素 JSON（geometry 成员为 null 占位）| 几何
+ *          2 | 名称长度 | 名称 | 值 JSON 长度 | 值 JSON            （集合的其它顶层成员，如 crs）
+ * 几何：    类型(1 字节，0 表示几何保留在要素 JSON 中) | 按类型的结构：
+ *          Point: x y；MultiPoint / LineString: n 点；MultiLineString: n 条线；
+ *          Polygon: n 个环；MultiPolygon: n 个面；GeometryCollection: n 个带类型的几何
+ * </pre>
+ * 差值基准在每个要素开始时归零，同一要素内（包括集合成员之间）连续累积。
+ */
+public final class BinaryFeatureCodec {
+
+    public static final int DEFAULT_PRECISION = 7;
+
+    private static final byte[] MAGIC = {'S', 'G', 'F', 1};
+    private static final int RECORD_FEATURE = 1;
+    private static final int RECORD_MEMBER = 2;
+    private static final int GEOMETRY_IN_JSON = 0;
+    private static final Geometry.Type[] TYPES = Geometry.Type.values();
+
+    public interface Handler {
+        /** 集合的其它顶层成员，按原文顺序回调。 */
+        default void member(String name, JsonNode value) throws IOException {
+        }
+
+        /**
+         * feature 为要素的其它成员；feature 中的 geometry 成员为 null 占位时几何只在 geometry 参数中，
+         * 否则 geometry 成员是原文，geometry 参数为其解析结果（无法解析时为 null）。
+         */
+        void feature(ObjectNode feature, Geometry geometry) throws IOException;
+    }
+
+    private BinaryFeatureCodec() {
+    }
+
+    /**
+     * 判断输入是否以本格式的文件头开始（用于区分存储格式）。
+     */
+    public static boolean isBinary(byte[] head) {
+        return head.length >= MAGIC.length && Arrays.equals(Arrays.copyOf(head, MAGIC.length), MAGIC);
+    }
+
+    /**
+     * 判断 GeoJSON 几何能否无损写成二进制：除 type 与 coordinates（集合为 geometries）外没有其它成员，
+     * 且每个位置恰好是 x、y 两个值。
+     */
+    public static boolean isLossless(JsonNode geometry) {
+        if (geometry == null || !geometry.isObject()) return false;
+        boolean collection = "GeometryCollection".equals(geometry.path("type").asText());
+        String body = collection ? "geometries" : "coordinates";
+        for (Iterator<String> it = geometry.fieldNames(); it.hasNext(); ) {
+            String name = it.next();
+            if (!name.equals("type") && !name.equals(body)) return false;
+        }
+        JsonNode content = geometry.get(body);
+        if (content == null || !content.isArray()) return false;
+        if (!collection) return planar(content);
+        for (JsonNode member : content) {
+            if (!isLossless(member)) return false;
+        }
+        return true;
+    }
+
+    // 坐标数组最内层的位置都只有两个值
+    private static boolean planar(JsonNode coordinates) {
+        if (coordinates.size() > 0 && coordinates.get(0).isNumber()) return coordinates.size() == 2;
+        for (JsonNode child : coordinates) {
+            if (!child.isArray() || !planar(child)) return false;
+        }
+        return true;
+    }
+
+    // ---------------------------------------------------------------- 写
+
+    public static final class Writer {
+        private final OutputStream out;
+        private final ObjectMapper mapper;
+        private final double scale;
+        private long lastX, lastY;
+
+        public Writer(OutputStream out, ObjectMapper mapper, int precision) throws IOException {
+            if (precision < 0 || precision > 9) throw new IllegalArgumentException("精度应为 0 到 9 位小数");
+            this.out = out;
+            this.mapper = mapper;
+            this.scale = Math.pow(10, precision);
+            out.write(MAGIC);
+            out.write(precision);
+        }
+
+        public void member(String name, JsonNode value) throws IOException {
+            out.write(RECORD_MEMBER);
+            writeBytes(name.getBytes(StandardCharsets.UTF_8));
+            writeBytes(mapper.writeValueAsBytes(value));
+        }
+
+        /**
+         * geometry 为 feature 中 geometry 成员的解析结果；为 null 或原文不能无损写成二进制（见 {@link #isLossless}）时
+         * geometry 成员原样保存在 JSON 中，否则把 feature 的 geometry 成员改为 null 占位。
+         */
+        public void feature(ObjectNode feature, Geometry geometry) throws IOException {
+            if (geometry != null && !isLossless(feature.get("geometry"))) geometry = null;
+            out.write(RECORD_FEATURE);
+            if (geometry != null) feature.putNull("geometry");
+            writeBytes(mapper.writeValueAsBytes(feature));
+            lastX = 0;
+            lastY = 0;
+            if (geometry == null) out.write(GEOMETRY_IN_JSON);
+            else writeGeometry(geometry);
+        }
+
+        private void writeGeometry(Geometry g) throws IOException {
+            out.write(g.getType().ordinal() + 1);
+            List<List<double[]>> parts = g.getParts();
+            switch (g.getType()) {
+                case Point:
+                    writePoints(parts.get(0).get(0), false);
+                    break;
+                case MultiPoint:
+                    writeVarint(parts.size());
+                    for (List<double[]> p : parts) writePoints(p.get(0), false);
+                    break;
+                case LineString:
+                    writePoints(parts.get(0).get(0), true);
+                    break;
+                case MultiLineString:
+                    writeVarint(parts.size());
+                    for (List<double[]> p : parts) writePoints(p.get(0), true);
+                    break;
+                case Polygon:
+                    writeRings(parts.get(0));
+                    break;
+                case MultiPolygon:
+                    writeVarint(parts.size());
+                    for (List<double[]> p : parts) writeRings(p);
+                    break;
+                default:
+                    writeVarint(g.getGeometries().size());
+                    for (Geometry m : g.getGeometries()) writeGeometry(m);
+            }
+        }
+
+        private void writeRings(List<double[]> rings) throws IOException {
+            writeVarint(rings.size());
+            for (double[] ring : rings) writePoints(ring, true);
+        }
+
+        private void writePoints(double[] seq, boolean counted) throws IOException {
+            if (counted) writeVarint(seq.length / 2);
+            for (int i = 0; i + 1 < seq.length; i += 2) {
+                long x = Math.round(seq[i] * scale), y = Math.round(seq[i + 1] * scale);
+                writeVarint(zigzag(x - lastX));
+                writeVarint(zigzag(y - lastY));
+                lastX = x;
+                lastY = y;
+            }
+        }
+
+        private void writeBytes(byte[] bytes) throws IOException {
+            writeVarint(bytes.length);
+            out.write(bytes);
+        }
+
+        private void writeVarint(long v) throws IOException {
+            while ((v & ~0x7FL) != 0) {
+                out.write((int) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            out.write((int) v);
+        }
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    // ---------------------------------------------------------------- 读
+
+    /**
+     * 逐记录解码，任何时刻只有一个要素驻留内存；坐标直接还原为 double[]，不经过 JSON。
+     * in 应带缓冲。返回要素个数。
+     */
+    public static int read(InputStream in, ObjectMapper mapper, Handler handler) throws IOException {
+        byte[] head = in.readNBytes(MAGIC.length);
+        if (!isBinary(head)) throw new IOException("不是二进制要素文档");
+        Reader reader = new Reader(in, Math.pow(10, readByte(in)));
+        int count = 0;
+        int kind;
+        while ((kind = in.read()) != -1) {
+            switch (kind) {
+                case RECORD_FEATURE: {
+                    ObjectNode feature = (ObjectNode) mapper.readTree(reader.readBytes());
+                    reader.lastX = 0;
+                    reader.lastY = 0;
+                    int type = readByte(in);
+                    Geometry geometry = type == GEOMETRY_IN_JSON ? parseLenient(feature.get("geometry"))
+                            : reader.readGeometry(type);
+                    handler.feature(feature, geometry);
+                    count++;
+                    break;
+                }
+                case RECORD_MEMBER: {
+                    String name = new String(reader.readBytes(), StandardCharsets.UTF_8);
+                    handler.member(name, mapper.readTree(reader.readBytes()));
+                    break;
+                }
+                default:
+                    throw new IOException("二进制要素文档损坏：未知记录类型 " + kind);
+            }
+        }
+        return count;
+    }
+
+    // 保留在 JSON 中的几何照常解析，供检索、瓦片等使用；历史数据中无法解析的几何为 null
+    private static Geometry parseLenient(JsonNode geometry) {
+        try {
+            return Geometry.fromGeoJson(geometry);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b == -1) throw new EOFException("二进制要素文档不完整");
+        return b;
+    }
+
+    private static final class Reader {
+        private final InputStream in;
+        private final double scale;
+        long lastX, lastY;
+
+        Reader(InputStream in, double scale) {
+            this.in = in;
+            this.scale = scale;
+        }
+
+        Geometry readGeometry(int code) throws IOException {
+            if (code < 1 || code > TYPES.length) throw new IOException("二进制要素文档损坏：未知几何类型 " + code);
+            Geometry.Type type = TYPES[code - 1];
+            List<List<double[]>> parts = new ArrayList<>();
+            switch (type) {
+                case Point:
+                    parts.add(List.of(readPoints(1)));
+                    break;
+                case MultiPoint: {
+                    int n = count();
+                    for (int i = 0; i < n; i++) parts.add(List.of(readPoints(1)));
+                    break;
+                }
+                case LineString:
+                    parts.add(List.of(readPoints(count())));
+                    break;
+                case MultiLineString: {
+                    int n = count();
+                    for (int i = 0; i < n; i++) parts.add(List.of(readPoints(count())));
+                    break;
+                }
+                case Polygon:
+                    parts.add(readRings());
+                    break;
+                case MultiPolygon: {
+                    int n = count();
+                    for (int i = 0; i < n; i++) parts.add(readRings());
+                    break;
+                }
+                default: {
+                    int n = count();
+                    List<Geometry> members = new ArrayList<>(n);
+                    for (int i = 0; i < n; i++) members.add(readGeometry(readByte(in)));
+                    return Geometry.collection(members);
+                }
+            }
+            return new Geometry(type, parts);
+        }
+
+        private List<double[]> readRings() throws IOException {
+            int n = count();
+            List<double[]> rings = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) rings.add(readPoints(count()));
+            return rings;
+        }
+
+        private double[] readPoints(int n) throws IOException {
+            double[] seq = new double[n * 2];
+            for (int i = 0; i < seq.length; i += 2) {
+                lastX += unzigzag(readVarint());
+                lastY += unzigzag(readVarint());
+                seq[i] = lastX / scale;
+                seq[i + 1] = lastY / scale;
+            }
+            return seq;
+        }
+
+        byte[] readBytes() throws IOException {
+            int n = count();
+            byte[] bytes = in.readNBytes(n);
+            if (bytes.length != n) throw new EOFException("二进制要素文档不完整");
+            return bytes;
+        }
+
+        private int count() throws IOException {
+            long n = readVarint();
+            if (n > Integer.MAX_VALUE) throw new IOException("二进制要素文档损坏：长度越界");
+            return (int) n;
+        }
+
+        private long readVarint() throws IOException {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte(in);
+                v |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return v;
+            }
+            throw new IOException("二进制要素文档损坏：变长整数过长");
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.sicnu.geo.geometry;
+
+/**
+ * 经纬度外包矩形（minX=最小经度, minY=最小纬度, maxX=最大经度, maxY=最大纬度）。
+ */
+public final class Envelope {
+
+    private double minX = Double.POSITIVE_INFINITY;
+    private double minY = Double.POSITIVE_INFINITY;
+    private double maxX = Double.NEGATIVE_INFINITY;
+    private double maxY = Double.NEGATIVE_INFINITY;
+
+    public Envelope() {
+    }
+
+    public Envelope(double minX, double minY, double maxX, double maxY) {
+        this.minX = Math.min(minX, maxX);
+        this.minY = Math.min(minY, maxY);
+        this.maxX = Math.max(minX, maxX);
+        this.maxY = Math.max(minY, maxY);
+    }
+
+    /**
+     * 解析 "minLng,minLat,maxLng,maxLat" 形式的参数，格式错误时抛出 IllegalArgumentException。
+     */
+    public static Envelope parse(String bbox) {
+        double[] v = parseNumbers(bbox, 4);
+        return new Envelope(v[0], v[1], v[2], v[3]);
+    }
+
+    /**
+     * 解析逗号分隔的固定个数数字参数，如 "lng,lat"。
+     */
+    public static double[] parseNumbers(String text, int count) {
+        if (text == null) throw new IllegalArgumentException("参数为空");
+        String[] parts = text.split(",");
+        if (parts.length != count) throw new IllegalArgumentException("参数个数应为 " + count + ": " + text);
+        double[] v = new double[count];
+        for (int i = 0; i < count; i++) {
+            v[i] = Double.parseDouble(parts[i].trim());
+            if (!Double.isFinite(v[i])) throw new IllegalArgumentException("非法数值: " + text);
+        }
+        return v;
+    }
+
+    public boolean isEmpty() { return minX > maxX; }
+
+    public Envelope expand(double x, double y) {
+        if (x < minX) minX = x;
+        if (x > maxX) maxX = x;
+        if (y < minY) minY = y;
+        if (y > maxY) maxY = y;
+        return this;
+    }
+
+    public Envelope expand(Envelope other) {
+        if (other == null || other.isEmpty()) return this;
+        expand(other.minX, other.minY);
+        return expand(other.maxX, other.maxY);
+    }
+
+    public boolean contains(double x, double y) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+
+    public boolean intersects(Envelope o) {
+        if (isEmpty() || o == null || o.isEmpty()) return false;
+        return o.minX <= maxX && o.maxX >= minX && o.minY <= maxY && o.maxY >= minY;
+    }
+
+    public boolean intersects(double oMinX, double oMinY, double oMaxX, double oMaxY) {
+        return !isEmpty() && oMinX <= maxX && oMaxX >= minX && oMinY <= maxY && oMaxY >= minY;
+    }
+
+    public double getMinX() { return minX; }
+    public double getMinY() { return minY; }
+    public double getMaxX() { return maxX; }
+    public double getMaxY() { return maxY; }
+
+    public double[] toArray() {
+        return isEmpty() ? null : new double[]{minX, minY, maxX, maxY};
+    }
+
+    @Override
+    public String toString() {
+        return isEmpty() ? "EMPTY" : minX + "," + minY + "," + maxX + "," + maxY;
+    }
+}
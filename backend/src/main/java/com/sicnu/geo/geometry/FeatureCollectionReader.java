@@ -0,0 +1,86 @@
+package com.sicnu.geo.geometry;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+
+/**
+ * 逐要素读取 GeoJSON FeatureCollection：任何时刻只有一个 Feature 以树形式驻留内存。
+ * parser 需带有 ObjectCodec（通过 ObjectMapper 创建）。
+ */
+public final class FeatureCollectionReader {
+
+    public interface Handler {
+        /** features 以外的顶层成员（type 除外），如 name、crs。 */
+        default void member(String name, JsonNode value) throws IOException {
+        }
+
+        default void beginFeatures() throws IOException {
+        }
+
+        void feature(ObjectNode feature, int index) throws IOException;
+
+        default void endFeatures() throws IOException {
+        }
+    }
+
+    private FeatureCollectionReader() {
+    }
+
+    /**
+     * 读取整个集合，返回要素个数；结构不合法时抛出 IllegalArgumentException。
+     * parser 可以尚未前进，也可以已停在顶层 START_OBJECT 上。
+     */
+    public static int read(JsonParser p, Handler handler) throws IOException {
+        if (p.currentToken() == null) p.nextToken();
+        if (p.currentToken() != JsonToken.START_OBJECT) throw new IllegalArgumentException("GeoJSON 必须是对象");
+        int count = 0;
+        boolean sawType = false;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            JsonToken t = p.nextToken();
+            if ("type".equals(name)) {
+                if (t != JsonToken.VALUE_STRING || !"FeatureCollection".equals(p.getText())) {
+                    throw new IllegalArgumentException("只接受 FeatureCollection");
+                }
+                sawType = true;
+            } else if ("features".equals(name)) {
+                if (t != JsonToken.START_ARRAY) throw new IllegalArgumentException("features 必须是数组");
+                handler.beginFeatures();
+                while (p.nextToken() != JsonToken.END_ARRAY) {
+                    if (p.currentToken() != JsonToken.START_OBJECT) {
+                        throw new IllegalArgumentException("第 " + count + " 个要素不是对象");
+                    }
+                    ObjectNode feature = p.readValueAsTree();
+                    handler.feature(feature, count++);
+                }
+                handler.endFeatures();
+            } else {
+                handler.member(name, p.readValueAsTree());
+            }
+        }
+        if (!sawType) throw new IllegalArgumentException("缺少 type: FeatureCollection");
+        return count;
+    }
+
+    /**
+     * 校验单个 Feature 并返回其几何（可能为 null）。
+     */
+    public static Geometry validateFeature(ObjectNode feature, int index) {
+        if (!"Feature".equals(feature.path("type").asText())) {
+            throw new IllegalArgumentException("第 " + index + " 个要素 type 不是 Feature");
+        }
+        JsonNode props = feature.get("properties");
+        if (props != null && !props.isNull() && !props.isObject()) {
+            throw new IllegalArgumentException("第 " + index + " 个要素 properties 必须是对象");
+        }
+        try {
+            return Geometry.fromGeoJson(feature.get("geometry"));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("第 " + index + " 个要素几何不合法: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.sicnu.geo.geometry;
+
+/**
+ * 常用球面距离计算（WGS84 经纬度）。
+ */
+public final class GeoMath {
+
+    public static final double EARTH_RADIUS = 6371008.8; // 平均地球半径（米）
+    public static final double METERS_PER_DEGREE = Math.PI * EARTH_RADIUS / 180.0;
+
+    private GeoMath() {
+    }
+
+    /**
+     * Haversine 公式计算两点间大圆距离（米）。
+     */
+    public static double distanceMeters(double lng1, double lat1, double lng2, double lat2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    /**
+     * 以 (lng, lat) 为中心、radiusMeters 为半径的圆的外包矩形。
+     */
+    public static Envelope envelopeAround(double lng, double lat, double radiusMeters) {
+        double dLat = radiusMeters / METERS_PER_DEGREE;
+        double cos = Math.max(Math.cos(Math.toRadians(lat)), 1e-6);
+        double dLng = Math.min(radiusMeters / (METERS_PER_DEGREE * cos), 180);
+        return new Envelope(lng - dLng, Math.max(lat - dLat, -90), lng + dLng, Math.min(lat + dLat, 90));
+    }
+
+    /**
+     * 外包矩形四周各外扩 meters 米（经度方向按离赤道较远一侧的纬度换算，保证覆盖）。
+     */
+    public static Envelope expand(Envelope env, double meters) {
+        if (env.isEmpty() || meters <= 0) return new Envelope().expand(env);
+        double dLat = meters / METERS_PER_DEGREE;
+        double lat = Math.min(Math.max(Math.abs(env.getMinY()), Math.abs(env.getMaxY())), 89);
+        double dLng = Math.min(meters / (METERS_PER_DEGREE * Math.cos(Math.toRadians(lat))), 180);
+        return new Envelope(env.getMinX() - dLng, Math.max(env.getMinY() - dLat, -90),
+                env.getMaxX() + dLng, Math.min(env.getMaxY() + dLat, 90));
+    }
+
+    /**
+     * 交错坐标序列的折线长度（米）。
+     */
+    public static double lengthMeters(double[] seq) {
+        double length = 0;
+        for (int i = 0; i + 3 < seq.length; i += 2) {
+            length += distanceMeters(seq[i], seq[i + 1], seq[i + 2], seq[i + 3]);
+        }
+        return length;
+    }
+
+    /**
+     * 闭合环在球面上的面积（平方米），不区分方向；与 Turf 等前端库采用同一近似公式。
+     */
+    public static double ringAreaSquareMeters(double[] ring) {
+        int n = ring.length / 2;
+        if (n < 3) return 0;
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            int j = (i + 1) % n;
+            double lng1 = Math.toRadians(ring[i * 2]), lat1 = Math.toRadians(ring[i * 2 + 1]);
+            double lng2 = Math.toRadians(ring[j * 2]), lat2 = Math.toRadians(ring[j * 2 + 1]);
+            sum += (lng2 - lng1) * (2 + Math.sin(lat1) + Math.sin(lat2));
+        }
+        return Math.abs(sum * EARTH_RADIUS * EARTH_RADIUS / 2);
+    }
+}
@@ -0,0 +1,261 @@
+package com.sicnu.geo.geometry;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * GeoJSON 几何的轻量内存表示，坐标以交错的 double[]{x0, y0, x1, y1, ...} 保存。
+ * <p>
+ * parts 的含义随类型不同：Point/LineString 只有一个 part、其中一条坐标序列；
+ * Polygon 一个 part、包含外环与内环；Multi* 每个成员一个 part；
+ * GeometryCollection 的成员放在 geometries 中。Z 值在解析时被丢弃。
+ */
+public final class Geometry {
+
+    public enum Type {
+        Point, MultiPoint, LineString, MultiLineString, Polygon, MultiPolygon, GeometryCollection;
+
+        public static Type of(String name) {
+            for (Type t : values()) {
+                if (t.name().equals(name)) return t;
+            }
+            throw new IllegalArgumentException("不支持的几何类型: " + name);
+        }
+    }
+
+    private final Type type;
+    private final List<List<double[]>> parts;
+    private final List<Geometry> geometries;
+
+    public Geometry(Type type, List<List<double[]>> parts) {
+        this(type, parts, Collections.emptyList());
+    }
+
+    private Geometry(Type type, List<List<double[]>> parts, List<Geometry> geometries) {
+        this.type = type;
+        this.parts = parts;
+        this.geometries = geometries;
+    }
+
+    public static Geometry collection(List<Geometry> geometries) {
+        return new Geometry(Type.GeometryCollection, Collections.emptyList(), geometries);
+    }
+
+    public Type getType() { return type; }
+    public List<List<double[]>> getParts() { return parts; }
+    public List<Geometry> getGeometries() { return geometries; }
+
+    /**
+     * 0=点, 1=线, 2=面；GeometryCollection 取成员中的最大值。
+     */
+    public int dimension() {
+        switch (type) {
+            case Point: case MultiPoint: return 0;
+            case LineString: case MultiLineString: return 1;
+            case Polygon: case MultiPolygon: return 2;
+            default:
+                int d = 0;
+                for (Geometry g : geometries) d = Math.max(d, g.dimension());
+                return d;
+        }
+    }
+
+    public boolean isEmpty() {
+        if (type == Type.GeometryCollection) {
+            for (Geometry g : geometries) if (!g.isEmpty()) return false;
+            return true;
+        }
+        return parts.isEmpty();
+    }
+
+    public Envelope envelope() {
+        return expandEnvelope(new Envelope());
+    }
+
+    public Envelope expandEnvelope(Envelope env) {
+        for (List<double[]> part : parts) {
+            for (double[] seq : part) {
+                for (int i = 0; i + 1 < seq.length; i += 2) env.expand(seq[i], seq[i + 1]);
+            }
+        }
+        for (Geometry g : geometries) g.expandEnvelope(env);
+        return env;
+    }
+
+    public int vertexCount() {
+        int n = 0;
+        for (List<double[]> part : parts) for (double[] seq : part) n += seq.length / 2;
+        for (Geometry g : geometries) n += g.vertexCount();
+        return n;
+    }
+
+    /**
+     * 所有坐标都是合法经纬度（且为有限值）。
+     */
+    public boolean isWithinLngLat() {
+        for (List<double[]> part : parts) {
+            for (double[] seq : part) {
+                for (int i = 0; i + 1 < seq.length; i += 2) {
+                    if (!(seq[i] >= -180 && seq[i] <= 180 && seq[i + 1] >= -90 && seq[i + 1] <= 90)) return false;
+                }
+            }
+        }
+        for (Geometry g : geometries) if (!g.isWithinLngLat()) return false;
+        return true;
+    }
+
+    // ---------------------------------------------------------------- GeoJSON
+
+    /**
+     * 从 GeoJSON geometry 对象解析并校验；null / JSON null 返回 null。
+     * 坐标必须是合法经纬度，线至少 2 个点，面环至少 4 个点且首尾闭合。
+     */
+    public static Geometry fromGeoJson(JsonNode node) {
+        if (node == null || node.isNull()) return null;
+        if (!node.isObject()) throw new IllegalArgumentException("geometry 必须是对象");
+        Type type = Type.of(node.path("type").asText(null));
+        if (type == Type.GeometryCollection) {
+            JsonNode members = node.get("geometries");
+            if (members == null || !members.isArray()) throw new IllegalArgumentException("GeometryCollection 缺少 geometries");
+            List<Geometry> list = new ArrayList<>(members.size());
+            for (JsonNode m : members) {
+                Geometry g = fromGeoJson(m);
+                if (g != null) list.add(g);
+            }
+            return collection(list);
+        }
+        JsonNode c = node.get("coordinates");
+        if (c == null || !c.isArray()) throw new IllegalArgumentException(type + " 缺少 coordinates");
+        List<List<double[]>> parts = new ArrayList<>();
+        switch (type) {
+            case Point:
+                parts.add(List.of(readPositions(arrayOf(c))));
+                break;
+            case MultiPoint:
+                for (JsonNode pos : c) parts.add(List.of(readPositions(arrayOf(pos))));
+                break;
+            case LineString:
+                parts.add(List.of(readLine(c)));
+                break;
+            case MultiLineString:
+                for (JsonNode line : c) parts.add(List.of(readLine(line)));
+                break;
+            case Polygon:
+                parts.add(readPolygon(c));
+                break;
+            case MultiPolygon:
+                for (JsonNode poly : c) parts.add(readPolygon(poly));
+                break;
+            default:
+                break;
+        }
+        return new Geometry(type, parts);
+    }
+
+    public void writeGeoJson(JsonGenerator g) throws IOException {
+        g.writeStartObject();
+        g.writeStringField("type", type.name());
+        if (type == Type.GeometryCollection) {
+            g.writeArrayFieldStart("geometries");
+            for (Geometry m : geometries) m.writeGeoJson(g);
+            g.writeEndArray();
+            g.writeEndObject();
+            return;
+        }
+        g.writeArrayFieldStart("coordinates");
+        switch (type) {
+            case Point:
+                g.writeNumber(parts.get(0).get(0)[0]);
+                g.writeNumber(parts.get(0).get(0)[1]);
+                break;
+            case MultiPoint:
+                for (List<double[]> p : parts) writePosition(g, p.get(0), 0);
+                break;
+            case LineString:
+                writeSequenceBody(g, parts.get(0).get(0));
+                break;
+            case MultiLineString:
+                for (List<double[]> p : parts) writeSequence(g, p.get(0));
+                break;
+            case Polygon:
+                for (double[] ring : parts.get(0)) writeSequence(g, ring);
+                break;
+            case MultiPolygon:
+                for (List<double[]> poly : parts) {
+                    g.writeStartArray();
+                    for (double[] ring : poly) writeSequence(g, ring);
+                    g.writeEndArray();
+                }
+                break;
+            default:
+                break;
+        }
+        g.writeEndArray();
+        g.writeEndObject();
+    }
+
+    private static JsonNode arrayOf(JsonNode pos) {
+        // 将单个 position 包装为 position 数组，复用 readPositions
+        return JsonNodeFactory.instance.arrayNode().add(pos);
+    }
+
+    private static double[] readPositions(JsonNode positions) {
+        if (!positions.isArray()) throw new IllegalArgumentException("coordinates 结构错误");
+        double[] seq = new double[positions.size() * 2];
+        int i = 0;
+        for (JsonNode pos : positions) {
+            if (!pos.isArray() || pos.size() < 2 || !pos.get(0).isNumber() || !pos.get(1).isNumber()) {
+                throw new IllegalArgumentException("坐标必须是 [lng, lat] 数字数组");
+            }
+            double x = pos.get(0).asDouble(), y = pos.get(1).asDouble();
+            if (x < -180 || x > 180 || y < -90 || y > 90) {
+                throw new IllegalArgumentException("坐标超出经纬度范围: [" + x + ", " + y + "]");
+            }
+            seq[i++] = x;
+            seq[i++] = y;
+        }
+        return seq;
+    }
+
+    private static double[] readLine(JsonNode c) {
+        double[] seq = readPositions(c);
+        if (seq.length < 4) throw new IllegalArgumentException("LineString 至少需要 2 个点");
+        return seq;
+    }
+
+    private static List<double[]> readPolygon(JsonNode c) {
+        if (!c.isArray() || c.size() == 0) throw new IllegalArgumentException("Polygon 至少需要一个环");
+        List<double[]> rings = new ArrayList<>(c.size());
+        for (JsonNode r : c) {
+            double[] ring = readPositions(r);
+            int n = ring.length;
+            if (n < 8) throw new IllegalArgumentException("Polygon 环至少需要 4 个点");
+            if (ring[0] != ring[n - 2] || ring[1] != ring[n - 1]) throw new IllegalArgumentException("Polygon 环首尾未闭合");
+            rings.add(ring);
+        }
+        return rings;
+    }
+
+    private static void writeSequence(JsonGenerator g, double[] seq) throws IOException {
+        g.writeStartArray();
+        writeSequenceBody(g, seq);
+        g.writeEndArray();
+    }
+
+    private static void writeSequenceBody(JsonGenerator g, double[] seq) throws IOException {
+        for (int i = 0; i + 1 < seq.length; i += 2) writePosition(g, seq, i);
+    }
+
+    private static void writePosition(JsonGenerator g, double[] seq, int i) throws IOException {
+        g.writeStartArray();
+        g.writeNumber(seq[i]);
+        g.writeNumber(seq[i + 1]);
+        g.writeEndArray();
+    }
+}
@@ -0,0 +1,101 @@
+package com.sicnu.geo.geometry;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 记录在两个及以上要素中出现的顶点（按 1e-7 度量化），简化时固定这些顶点以保持要素间拓扑。
+ * 开放寻址的原始类型哈希表，每个顶点约 12~24 字节，不产生装箱对象。
+ */
+public final class SharedVertexIndex {
+
+    private static final double SCALE = 1e7;
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int SHARED = -1;
+
+    private long[] keys;
+    private int[] owners;
+    private int size;
+
+    public SharedVertexIndex() {
+        keys = new long[1 << 12];
+        owners = new int[keys.length];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * 记录 featureIndex 对应要素的全部顶点。
+     */
+    public void addAll(Geometry g, int featureIndex) {
+        if (g == null) return;
+        for (List<double[]> part : g.getParts()) {
+            for (double[] seq : part) {
+                for (int i = 0; i + 1 < seq.length; i += 2) add(seq[i], seq[i + 1], featureIndex);
+            }
+        }
+        for (Geometry m : g.getGeometries()) addAll(m, featureIndex);
+    }
+
+    public void add(double x, double y, int featureIndex) {
+        if ((size + 1) * 2 > keys.length) resize();
+        long key = key(x, y);
+        int slot = slot(key);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            owners[slot] = featureIndex;
+            size++;
+        } else if (owners[slot] != featureIndex) {
+            owners[slot] = SHARED;
+        }
+    }
+
+    public boolean isShared(double x, double y) {
+        int slot = slot(key(x, y));
+        return keys[slot] != EMPTY && owners[slot] == SHARED;
+    }
+
+    /**
+     * 标出一条坐标序列中需要固定的顶点；没有共享顶点时返回 null。
+     */
+    public boolean[] pinned(double[] seq) {
+        boolean[] pins = null;
+        for (int i = 0; i + 1 < seq.length; i += 2) {
+            if (isShared(seq[i], seq[i + 1])) {
+                if (pins == null) pins = new boolean[seq.length / 2];
+                pins[i / 2] = true;
+            }
+        }
+        return pins;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int h = (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+        int slot = (h ^ (h >>> 16)) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldOwners = owners;
+        keys = new long[oldKeys.length * 2];
+        owners = new int[keys.length];
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) continue;
+            int slot = slot(oldKeys[i]);
+            keys[slot] = oldKeys[i];
+            owners[slot] = oldOwners[i];
+        }
+    }
+
+    private static long key(double x, double y) {
+        long qx = Math.round(x * SCALE), qy = Math.round(y * SCALE);
+        return (qx << 32) ^ (qy & 0xffffffffL);
+    }
+}
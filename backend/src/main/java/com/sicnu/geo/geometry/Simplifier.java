@@ -0,0 +1,135 @@
+package com.sicnu.geo.geometry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Douglas-Peucker 折线/环简化，坐标为交错的 double[]{x0, y0, x1, y1, ...}。
+ * 使用显式栈而非递归，避免长管线触发栈溢出。
+ */
+public final class Simplifier {
+
+    private Simplifier() {
+    }
+
+    public static double[] simplify(double[] seq, double tolerance) {
+        return simplify(seq, tolerance, null);
+    }
+
+    /**
+     * @param pinned 可为 null；pinned[i] 为 true 的第 i 个顶点一定保留（用于保持要素间共享节点）
+     */
+    public static double[] simplify(double[] seq, double tolerance, boolean[] pinned) {
+        int n = seq.length / 2;
+        if (n <= 2 || tolerance <= 0) return seq;
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        double sqTol = tolerance * tolerance;
+
+        // 以固定点切分后分段简化，固定点自然保留
+        int start = 0;
+        for (int i = 1; i < n; i++) {
+            if (i == n - 1 || (pinned != null && pinned[i])) {
+                keep[i] = true;
+                simplifySection(seq, start, i, sqTol, keep);
+                start = i;
+            }
+        }
+
+        int kept = 0;
+        for (boolean k : keep) if (k) kept++;
+        if (kept == n) return seq;
+        double[] out = new double[kept * 2];
+        int j = 0;
+        for (int i = 0; i < n; i++) {
+            if (!keep[i]) continue;
+            out[j++] = seq[2 * i];
+            out[j++] = seq[2 * i + 1];
+        }
+        return out;
+    }
+
+    /**
+     * 按容差简化整个几何并将坐标舍入到 decimals 位小数。
+     * shared 中的共享顶点始终保留；简化后不足 4 点的环保留原样，保证面不退化、不丢洞。
+     */
+    public static Geometry simplify(Geometry g, double tolerance, SharedVertexIndex shared, int decimals) {
+        if (g == null) return null;
+        if (g.getType() == Geometry.Type.GeometryCollection) {
+            List<Geometry> members = new ArrayList<>(g.getGeometries().size());
+            for (Geometry m : g.getGeometries()) members.add(simplify(m, tolerance, shared, decimals));
+            return Geometry.collection(members);
+        }
+        boolean points = g.dimension() == 0;
+        boolean rings = g.dimension() == 2;
+        List<List<double[]>> parts = new ArrayList<>(g.getParts().size());
+        for (List<double[]> part : g.getParts()) {
+            List<double[]> seqs = new ArrayList<>(part.size());
+            for (double[] seq : part) {
+                double[] out = seq;
+                if (!points) {
+                    out = simplify(seq, tolerance, shared == null ? null : shared.pinned(seq));
+                    if (rings && out.length < 8) out = seq;
+                }
+                seqs.add(round(out, decimals));
+            }
+            parts.add(seqs);
+        }
+        return new Geometry(g.getType(), parts);
+    }
+
+    private static double[] round(double[] seq, int decimals) {
+        double scale = Math.pow(10, decimals);
+        double[] out = new double[seq.length];
+        for (int i = 0; i < seq.length; i++) out[i] = Math.round(seq[i] * scale) / scale;
+        return out;
+    }
+
+    private static void simplifySection(double[] seq, int first, int last, double sqTol, boolean[] keep) {
+        int[] stack = new int[Math.max(16, 2 * (last - first + 1))];
+        int top = 0;
+        stack[top++] = first;
+        stack[top++] = last;
+        while (top > 0) {
+            int b = stack[--top];
+            int a = stack[--top];
+            double maxSq = 0;
+            int index = -1;
+            for (int i = a + 1; i < b; i++) {
+                double d = sqSegmentDistance(seq, i, a, b);
+                if (d > maxSq) {
+                    maxSq = d;
+                    index = i;
+                }
+            }
+            if (index >= 0 && maxSq > sqTol) {
+                keep[index] = true;
+                stack[top++] = a;
+                stack[top++] = index;
+                stack[top++] = index;
+                stack[top++] = b;
+            }
+        }
+    }
+
+    // 第 p 个点到线段 (a, b) 的平方距离；a、b 重合（闭合环）时退化为点距
+    private static double sqSegmentDistance(double[] s, int p, int a, int b) {
+        double x = s[2 * a], y = s[2 * a + 1];
+        double dx = s[2 * b] - x, dy = s[2 * b + 1] - y;
+        double px = s[2 * p], py = s[2 * p + 1];
+        if (dx != 0 || dy != 0) {
+            double t = ((px - x) * dx + (py - y) * dy) / (dx * dx + dy * dy);
+            if (t > 1) {
+                x = s[2 * b];
+                y = s[2 * b + 1];
+            } else if (t > 0) {
+                x += dx * t;
+                y += dy * t;
+            }
+        }
+        dx = px - x;
+        dy = py - y;
+        return dx * dx + dy * dy;
+    }
+}
@@ -0,0 +1,153 @@
+package com.sicnu.geo.index;
+
+import com.sicnu.geo.geometry.Envelope;
+import com.sicnu.geo.geometry.GeoMath;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 基于规则经纬度格网的点索引，支持按 id 增量插入/移动/删除，以及矩形和半径查询。
+ * 线程安全：读写锁保护，查询之间可并发。
+ */
+public class GeoGridIndex {
+
+    private final double cellSize;
+    private final Map<Long, double[]> points = new HashMap<>();
+    private final Map<Long, Set<Long>> cells = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public GeoGridIndex(double cellSizeDegrees) {
+        if (cellSizeDegrees <= 0) throw new IllegalArgumentException("cellSize 必须大于 0");
+        this.cellSize = cellSizeDegrees;
+    }
+
+    /**
+     * 插入或移动一个点；坐标为空时等同于删除。
+     */
+    public void put(long id, Double lng, Double lat) {
+        if (lng == null || lat == null || !Double.isFinite(lng) || !Double.isFinite(lat)) {
+            remove(id);
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            double[] old = points.put(id, new double[]{lng, lat});
+            if (old != null) {
+                long oldKey = cellKey(old[0], old[1]);
+                if (oldKey == cellKey(lng, lat)) return;
+                removeFromCell(oldKey, id);
+            }
+            cells.computeIfAbsent(cellKey(lng, lat), k -> new HashSet<>()).add(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            double[] old = points.remove(id);
+            if (old != null) removeFromCell(cellKey(old[0], old[1]), id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return points.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 返回落在矩形内（含边界）的点 id。
+     */
+    public List<Long> query(Envelope env) {
+        List<Long> result = new ArrayList<>();
+        if (env == null || env.isEmpty()) return result;
+        lock.readLock().lock();
+        try {
+            long x0 = cellX(env.getMinX()), x1 = cellX(env.getMaxX());
+            long y0 = cellY(env.getMinY()), y1 = cellY(env.getMaxY());
+            // 视口覆盖的格网数多于点数时，直接遍历点更省
+            if ((x1 - x0 + 1) * (y1 - y0 + 1) > points.size()) {
+                for (Map.Entry<Long, double[]> e : points.entrySet()) {
+                    double[] p = e.getValue();
+                    if (env.contains(p[0], p[1])) result.add(e.getKey());
+                }
+                return result;
+            }
+            for (long x = x0; x <= x1; x++) {
+                for (long y = y0; y <= y1; y++) {
+                    Set<Long> ids = cells.get(key(x, y));
+                    if (ids == null) continue;
+                    for (Long id : ids) {
+                        double[] p = points.get(id);
+                        if (env.contains(p[0], p[1])) result.add(id);
+                    }
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 返回距 (lng, lat) 不超过 radiusMeters 的点 id，按距离由近到远排序。
+     */
+    public List<Long> near(double lng, double lat, double radiusMeters) {
+        List<Long> candidates = query(GeoMath.envelopeAround(lng, lat, radiusMeters));
+        List<Hit> hits = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Long id : candidates) {
+                double[] p = points.get(id);
+                if (p == null) continue;
+                double d = GeoMath.distanceMeters(lng, lat, p[0], p[1]);
+                if (d <= radiusMeters) hits.add(new Hit(id, d));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        hits.sort((a, b) -> Double.compare(a.distance(), b.distance()));
+        List<Long> result = new ArrayList<>(hits.size());
+        for (Hit h : hits) result.add(h.id());
+        return result;
+    }
+
+    private record Hit(long id, double distance) {
+    }
+
+    private void removeFromCell(long key, long id) {
+        Set<Long> ids = cells.get(key);
+        if (ids == null) return;
+        ids.remove(id);
+        if (ids.isEmpty()) cells.remove(key);
+    }
+
+    private long cellX(double lng) {
+        return (long) Math.floor((Math.max(-180, Math.min(180, lng)) + 180) / cellSize);
+    }
+
+    private long cellY(double lat) {
+        return (long) Math.floor((Math.max(-90, Math.min(90, lat)) + 90) / cellSize);
+    }
+
+    private long cellKey(double lng, double lat) {
+        return key(cellX(lng), cellY(lat));
+    }
+
+    private static long key(long x, long y) {
+        return (x << 32) | (y & 0xffffffffL);
+    }
+}
@@ -0,0 +1,391 @@
+package com.sicnu.geo.index;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 基于 HNSW（分层可导航小世界图）的内存近似最近邻索引，向量为 float[]，按余弦相似度检索。
+ * 向量写入时归一化，距离取 1 - 点积。
+ * 删除只做标记，被删节点仍参与图的导航但不出现在结果中；标记删除的节点超过四分之一时整体重建。
+ * 读写锁保护：检索并发进行，写入互斥。
+ */
+public class HnswIndex {
+
+    private static final int MAGIC = 0x484E5357; // "HNSW"
+    private static final int FORMAT_VERSION = 1;
+
+    private final int dimensions;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int size;
+    private long[] keys = new long[64];
+    private float[][] vectors = new float[64][];
+    // links[node][layer] 第 0 个元素为邻居数
+    private int[][][] links = new int[64][][];
+    private final BitSet deleted = new BitSet();
+    private int deletedCount;
+    private final Map<Long, Integer> nodes = new HashMap<>();
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    public record Hit(long key, float score) {
+    }
+
+    private record Candidate(int node, float distance) {
+    }
+
+    public HnswIndex(int dimensions, int m, int efConstruction) {
+        if (dimensions <= 0 || m < 2) throw new IllegalArgumentException("HNSW 参数无效");
+        this.dimensions = dimensions;
+        this.m = m;
+        this.maxM0 = m * 2;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.levelMultiplier = 1 / Math.log(m);
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(long key) {
+        lock.readLock().lock();
+        try {
+            return nodes.containsKey(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 写入或替换 key 对应的向量。
+     */
+    public void put(long key, float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("向量维数应为 " + dimensions + "，实际为 " + vector.length);
+        }
+        float[] v = normalize(vector);
+        lock.writeLock().lock();
+        try {
+            markDeleted(key);
+            insert(key, v);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long key) {
+        lock.writeLock().lock();
+        try {
+            markDeleted(key);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 返回与 query 最相似的至多 k 个条目，按相似度降序；ef 为检索时的候选集大小，越大越准越慢。
+     */
+    public List<Hit> search(float[] query, int k, int ef) {
+        if (query.length != dimensions) {
+            throw new IllegalArgumentException("向量维数应为 " + dimensions + "，实际为 " + query.length);
+        }
+        float[] q = normalize(query);
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || k <= 0) return List.of();
+            int ep = entryPoint;
+            for (int layer = maxLevel; layer > 0; layer--) {
+                ep = greedyClosest(q, ep, layer);
+            }
+            PriorityQueue<Candidate> found = searchLayer(q, ep, Math.max(ef, k), 0);
+            List<Candidate> sorted = new ArrayList<>(found);
+            sorted.sort((a, b) -> Float.compare(a.distance, b.distance));
+            List<Hit> hits = new ArrayList<>(Math.min(k, sorted.size()));
+            for (Candidate c : sorted) {
+                if (deleted.get(c.node)) continue;
+                hits.add(new Hit(keys[c.node], 1 - c.distance));
+                if (hits.size() == k) break;
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---------------------------------------------------------------- 快照
+
+    public void write(DataOutputStream out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(dimensions);
+            out.writeInt(m);
+            out.writeInt(efConstruction);
+            out.writeInt(size);
+            out.writeInt(entryPoint);
+            out.writeInt(maxLevel);
+            for (int n = 0; n < size; n++) {
+                out.writeLong(keys[n]);
+                out.writeBoolean(deleted.get(n));
+                for (float f : vectors[n]) out.writeFloat(f);
+                out.writeByte(links[n].length);
+                for (int[] layer : links[n]) {
+                    out.writeShort(layer[0]);
+                    for (int i = 1; i <= layer[0]; i++) out.writeInt(layer[i]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static HnswIndex read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) throw new IOException("不是 HNSW 索引快照");
+        int dimensions = in.readInt();
+        int m = in.readInt();
+        HnswIndex index = new HnswIndex(dimensions, m, in.readInt());
+        int size = in.readInt();
+        index.ensureCapacity(size);
+        index.entryPoint = in.readInt();
+        index.maxLevel = in.readInt();
+        for (int n = 0; n < size; n++) {
+            index.keys[n] = in.readLong();
+            boolean removed = in.readBoolean();
+            float[] v = new float[dimensions];
+            for (int i = 0; i < dimensions; i++) v[i] = in.readFloat();
+            index.vectors[n] = v;
+            int[][] layers = new int[in.readUnsignedByte()][];
+            for (int l = 0; l < layers.length; l++) {
+                int count = in.readUnsignedShort();
+                int[] layer = new int[(l == 0 ? index.maxM0 : index.m) + 1];
+                if (count >= layer.length) throw new IOException("HNSW 索引快照已损坏");
+                layer[0] = count;
+                for (int i = 1; i <= count; i++) layer[i] = in.readInt();
+                layers[l] = layer;
+            }
+            index.links[n] = layers;
+            if (removed) {
+                index.deleted.set(n);
+                index.deletedCount++;
+            } else {
+                index.nodes.put(index.keys[n], n);
+            }
+        }
+        index.size = size;
+        return index;
+    }
+
+    // ---------------------------------------------------------------- 构建
+
+    private void insert(long key, float[] v) {
+        int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+        int node = size;
+        ensureCapacity(node + 1);
+        keys[node] = key;
+        vectors[node] = v;
+        int[][] layers = new int[level + 1][];
+        for (int l = 0; l <= level; l++) layers[l] = new int[(l == 0 ? maxM0 : m) + 1];
+        links[node] = layers;
+        size++;
+        nodes.put(key, node);
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+        int ep = entryPoint;
+        for (int layer = maxLevel; layer > level; layer--) {
+            ep = greedyClosest(v, ep, layer);
+        }
+        for (int layer = Math.min(level, maxLevel); layer >= 0; layer--) {
+            PriorityQueue<Candidate> found = searchLayer(v, ep, efConstruction, layer);
+            List<Candidate> sorted = new ArrayList<>(found);
+            sorted.sort((a, b) -> Float.compare(a.distance, b.distance));
+            ep = sorted.get(0).node;
+            for (int neighbor : selectNeighbors(sorted, m)) {
+                addLink(node, neighbor, layer);
+                addLink(neighbor, node, layer);
+            }
+        }
+        if (level > maxLevel) {
+            entryPoint = node;
+            maxLevel = level;
+        }
+    }
+
+    private void addLink(int from, int to, int layer) {
+        int[] list = links[from][layer];
+        int count = list[0];
+        if (count < list.length - 1) {
+            list[count + 1] = to;
+            list[0] = count + 1;
+            return;
+        }
+        // 邻居已满：连同新邻居一起按启发式重新挑选
+        List<Candidate> candidates = new ArrayList<>(count + 1);
+        float[] base = vectors[from];
+        for (int i = 1; i <= count; i++) candidates.add(new Candidate(list[i], distance(base, vectors[list[i]])));
+        candidates.add(new Candidate(to, distance(base, vectors[to])));
+        candidates.sort((a, b) -> Float.compare(a.distance, b.distance));
+        int[] selected = selectNeighbors(candidates, list.length - 1);
+        System.arraycopy(selected, 0, list, 1, selected.length);
+        list[0] = selected.length;
+    }
+
+    /**
+     * 启发式选邻：候选按距离升序，离查询点比离任一已选邻居更近的才入选，保证邻居分布在不同方向；
+     * 不足 max 个时用被跳过的候选补齐。
+     */
+    private int[] selectNeighbors(List<Candidate> sortedCandidates, int max) {
+        int[] selected = new int[Math.min(max, sortedCandidates.size())];
+        int count = 0;
+        List<Candidate> skipped = new ArrayList<>();
+        for (Candidate c : sortedCandidates) {
+            if (count == selected.length) break;
+            boolean keep = true;
+            for (int i = 0; i < count; i++) {
+                if (distance(vectors[c.node], vectors[selected[i]]) < c.distance) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) selected[count++] = c.node;
+            else skipped.add(c);
+        }
+        for (int i = 0; count < selected.length && i < skipped.size(); i++) {
+            selected[count++] = skipped.get(i).node;
+        }
+        return selected;
+    }
+
+    private int greedyClosest(float[] q, int ep, int layer) {
+        int current = ep;
+        float best = distance(q, vectors[current]);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] list = links[current][layer];
+            for (int i = 1; i <= list[0]; i++) {
+                float d = distance(q, vectors[list[i]]);
+                if (d < best) {
+                    best = d;
+                    current = list[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    // 返回的队列为大顶堆（堆顶是最远的结果）
+    private PriorityQueue<Candidate> searchLayer(float[] q, int ep, int ef, int layer) {
+        BitSet visited = new BitSet(size);
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>((a, b) -> Float.compare(a.distance, b.distance));
+        PriorityQueue<Candidate> results = new PriorityQueue<>((a, b) -> Float.compare(b.distance, a.distance));
+        Candidate start = new Candidate(ep, distance(q, vectors[ep]));
+        visited.set(ep);
+        candidates.add(start);
+        results.add(start);
+        while (!candidates.isEmpty()) {
+            Candidate c = candidates.poll();
+            if (c.distance > results.peek().distance && results.size() >= ef) break;
+            int[] list = links[c.node][layer];
+            for (int i = 1; i <= list[0]; i++) {
+                int n = list[i];
+                if (visited.get(n)) continue;
+                visited.set(n);
+                float d = distance(q, vectors[n]);
+                if (results.size() < ef || d < results.peek().distance) {
+                    Candidate next = new Candidate(n, d);
+                    candidates.add(next);
+                    results.add(next);
+                    if (results.size() > ef) results.poll();
+                }
+            }
+        }
+        return results;
+    }
+
+    private void markDeleted(long key) {
+        Integer old = nodes.remove(key);
+        if (old != null) {
+            deleted.set(old);
+            deletedCount++;
+        }
+    }
+
+    // 标记删除的节点过多会拖慢检索并挤占结果名额，超过四分之一时用存活向量重建
+    private void compactIfNeeded() {
+        if (deletedCount < 64 || deletedCount * 4 < size) return;
+        long[] liveKeys = new long[nodes.size()];
+        float[][] liveVectors = new float[nodes.size()][];
+        int i = 0;
+        for (int n = 0; n < size; n++) {
+            if (deleted.get(n)) continue;
+            liveKeys[i] = keys[n];
+            liveVectors[i++] = vectors[n];
+        }
+        size = 0;
+        keys = new long[Math.max(64, liveKeys.length)];
+        vectors = new float[keys.length][];
+        links = new int[keys.length][][];
+        deleted.clear();
+        deletedCount = 0;
+        nodes.clear();
+        entryPoint = -1;
+        maxLevel = -1;
+        for (int n = 0; n < liveKeys.length; n++) insert(liveKeys[n], liveVectors[n]);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= keys.length) return;
+        int next = Math.max(capacity, keys.length * 2);
+        keys = Arrays.copyOf(keys, next);
+        vectors = Arrays.copyOf(vectors, next);
+        links = Arrays.copyOf(links, next);
+    }
+
+    private static float distance(float[] a, float[] b) {
+        float dot = 0;
+        for (int i = 0; i < a.length; i++) dot += a[i] * b[i];
+        return 1 - dot;
+    }
+
+    private static float[] normalize(float[] v) {
+        double norm = 0;
+        for (float f : v) norm += f * f;
+        norm = Math.sqrt(norm);
+        float[] out = new float[v.length];
+        if (norm == 0) return out;
+        for (int i = 0; i < v.length; i++) out[i] = (float) (v[i] / norm);
+        return out;
+    }
+}
@@ -0,0 +1,222 @@
+package com.sicnu.geo.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 闭区间 [start, end] 的索引，支持按 id 增量插入/修改/删除。
+ * 区间树为按 (start, id) 排序、以子树最大 end 增强的 treap，用于时刻查询与区间重叠查询；
+ * 另按 start、end 各维护一个有序集合，用于求两个时刻之间“新增/移出”的变化集，代价只与变化量有关。
+ * 线程安全：读写锁保护，查询之间可并发。
+ */
+public class IntervalIndex {
+
+    private static final class Node {
+        final long start, end, id;
+        final int priority;
+        long maxEnd;
+        Node left, right;
+
+        Node(long start, long end, long id, int priority) {
+            this.start = start;
+            this.end = end;
+            this.id = id;
+            this.priority = priority;
+            this.maxEnd = end;
+        }
+    }
+
+    private record Key(long at, long id) implements Comparable<Key> {
+        @Override
+        public int compareTo(Key o) {
+            int c = Long.compare(at, o.at);
+            return c != 0 ? c : Long.compare(id, o.id);
+        }
+    }
+
+    /**
+     * 从 from 时刻移到 to 时刻时进入与离开的 id。
+     */
+    public record Changes(List<Long> added, List<Long> removed) {
+    }
+
+    private final Map<Long, long[]> intervals = new HashMap<>();
+    private final NavigableSet<Key> byStart = new TreeSet<>();
+    private final NavigableSet<Key> byEnd = new TreeSet<>();
+    private final Random random = new Random();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Node root;
+
+    public void put(long id, long start, long end) {
+        if (end < start) throw new IllegalArgumentException("区间结束早于开始");
+        lock.writeLock().lock();
+        try {
+            long[] old = intervals.put(id, new long[]{start, end});
+            if (old != null) {
+                if (old[0] == start && old[1] == end) return;
+                detach(id, old);
+            }
+            root = insert(root, new Node(start, end, id, random.nextInt()));
+            byStart.add(new Key(start, id));
+            byEnd.add(new Key(end, id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            long[] old = intervals.remove(id);
+            if (old != null) detach(id, old);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return intervals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 包含时刻 t 的区间 id，按 start 升序。
+     */
+    public List<Long> at(long t) {
+        return overlapping(t, t);
+    }
+
+    /**
+     * 与 [from, to] 有交集的区间 id，按 start 升序。
+     */
+    public List<Long> overlapping(long from, long to) {
+        List<Long> result = new ArrayList<>();
+        if (to < from) return result;
+        lock.readLock().lock();
+        try {
+            collect(root, from, to, result);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * 时刻从 from 移到 to：added 为包含 to 但不包含 from 的区间，removed 反之。
+     */
+    public Changes changes(long from, long to) {
+        List<Long> added = new ArrayList<>();
+        List<Long> removed = new ArrayList<>();
+        if (from == to) return new Changes(added, removed);
+        long lo = Math.min(from, to), hi = Math.max(from, to);
+        lock.readLock().lock();
+        try {
+            // 向后移动：start 落在 (lo, hi] 的进入、end 落在 [lo, hi) 的离开；向前移动两者互换
+            List<Long> entering = from < to ? added : removed;
+            List<Long> leaving = from < to ? removed : added;
+            for (Key k : byStart.subSet(new Key(lo, Long.MAX_VALUE), false, new Key(hi, Long.MAX_VALUE), true)) {
+                if (intervals.get(k.id)[1] >= hi) entering.add(k.id);
+            }
+            for (Key k : byEnd.subSet(new Key(lo, Long.MIN_VALUE), true, new Key(hi, Long.MIN_VALUE), false)) {
+                if (intervals.get(k.id)[0] <= lo) leaving.add(k.id);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new Changes(added, removed);
+    }
+
+    // ---------------------------------------------------------------- treap
+
+    private void detach(long id, long[] old) {
+        root = delete(root, old[0], id);
+        byStart.remove(new Key(old[0], id));
+        byEnd.remove(new Key(old[1], id));
+    }
+
+    private static int compare(long start, long id, Node n) {
+        int c = Long.compare(start, n.start);
+        return c != 0 ? c : Long.compare(id, n.id);
+    }
+
+    private static Node insert(Node node, Node n) {
+        if (node == null) return n;
+        if (compare(n.start, n.id, node) < 0) {
+            node.left = insert(node.left, n);
+            if (node.left.priority > node.priority) node = rotateRight(node);
+        } else {
+            node.right = insert(node.right, n);
+            if (node.right.priority > node.priority) node = rotateLeft(node);
+        }
+        update(node);
+        return node;
+    }
+
+    private static Node delete(Node node, long start, long id) {
+        if (node == null) return null;
+        int c = compare(start, id, node);
+        if (c == 0) return merge(node.left, node.right);
+        if (c < 0) node.left = delete(node.left, start, id);
+        else node.right = delete(node.right, start, id);
+        update(node);
+        return node;
+    }
+
+    // a 中所有键小于 b 中所有键
+    private static Node merge(Node a, Node b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        update(b);
+        return b;
+    }
+
+    private static Node rotateRight(Node n) {
+        Node l = n.left;
+        n.left = l.right;
+        l.right = n;
+        update(n);
+        update(l);
+        return l;
+    }
+
+    private static Node rotateLeft(Node n) {
+        Node r = n.right;
+        n.right = r.left;
+        r.left = n;
+        update(n);
+        update(r);
+        return r;
+    }
+
+    private static void update(Node n) {
+        long max = n.end;
+        if (n.left != null) max = Math.max(max, n.left.maxEnd);
+        if (n.right != null) max = Math.max(max, n.right.maxEnd);
+        n.maxEnd = max;
+    }
+
+    // 子树最大 end 早于 from 的整棵跳过；start 晚于 to 的节点其右子树也都晚于 to
+    private static void collect(Node node, long from, long to, List<Long> out) {
+        if (node == null || node.maxEnd < from) return;
+        collect(node.left, from, to, out);
+        if (node.start > to) return;
+        if (node.end >= from) out.add(node.id);
+        collect(node.right, from, to, out);
+    }
+}
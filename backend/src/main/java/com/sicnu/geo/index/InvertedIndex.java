@@ -0,0 +1,190 @@
+package com.sicnu.geo.index;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 内存倒排索引：词项与筛选键（如分类、状态）各自对应一个文档位图，查询时先做位图求交，
+ * 再对候选文档按 BM25 计算相关度。支持按 id 增量插入/替换/删除。
+ * 线程安全：读写锁保护，查询之间可并发。
+ */
+public class InvertedIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // 首个字段（名称）包含完整查询串时的得分倍数
+    private static final double PHRASE_BOOST = 1.5;
+
+    private final double[] fieldWeights;
+    private final TreeMap<String, BitSet> terms = new TreeMap<>();
+    private final Map<String, BitSet> filters = new HashMap<>();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private final List<Doc> docs = new ArrayList<>();
+    private final ArrayDeque<Integer> freeOrdinals = new ArrayDeque<>();
+    private double totalLength;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private record Doc(long id, Map<String, Double> termFreqs, double length, Collection<String> filterKeys,
+                       String firstField) {
+    }
+
+    /**
+     * @param fieldWeights 各字段词频的权重，put 时 fields 按同样顺序传入
+     */
+    public InvertedIndex(double... fieldWeights) {
+        if (fieldWeights.length == 0) throw new IllegalArgumentException("至少需要一个字段");
+        this.fieldWeights = fieldWeights.clone();
+    }
+
+    /**
+     * 插入或替换一个文档。
+     */
+    public void put(long id, String[] fields, Collection<String> filterKeys) {
+        Map<String, Double> tf = new HashMap<>();
+        double length = 0;
+        for (int f = 0; f < fieldWeights.length && f < fields.length; f++) {
+            for (String token : TextAnalyzer.indexTokens(fields[f])) {
+                tf.merge(token, fieldWeights[f], Double::sum);
+                length += fieldWeights[f];
+            }
+        }
+        String first = fields.length == 0 ? "" : TextAnalyzer.normalize(fields[0]);
+        lock.writeLock().lock();
+        try {
+            unindex(id);
+            int ord = freeOrdinals.isEmpty() ? docs.size() : freeOrdinals.pop();
+            Doc doc = new Doc(id, tf, length, List.copyOf(filterKeys), first);
+            if (ord == docs.size()) docs.add(doc);
+            else docs.set(ord, doc);
+            ordinals.put(id, ord);
+            for (String term : tf.keySet()) terms.computeIfAbsent(term, k -> new BitSet()).set(ord);
+            for (String key : doc.filterKeys) filters.computeIfAbsent(key, k -> new BitSet()).set(ord);
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            unindex(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 返回同时包含全部查询词、且满足全部筛选键的文档 id，按相关度降序。
+     * 查询中的字母数字单词按词首前缀匹配（不再像 LIKE 那样匹配词中间的子串，如 gis 不匹配 webgis），
+     * 中文按二字词匹配。前缀展开不设上限；打分时只看文档自身的词项，代价不随展开的词项数增长。
+     */
+    public List<Long> search(String query, Collection<String> requiredFilters) {
+        List<String> tokens = TextAnalyzer.queryTokens(query);
+        List<Long> result = new ArrayList<>();
+        if (tokens.isEmpty()) return result;
+        lock.readLock().lock();
+        try {
+            BitSet candidates = null;
+            for (String key : requiredFilters) {
+                BitSet bits = filters.get(key);
+                if (bits == null) return result;
+                candidates = and(candidates, bits);
+            }
+            // 每个查询词对应若干词项（前缀扩展），词项之间取并，查询词之间取交
+            for (String token : tokens) {
+                BitSet union = postings(token);
+                if (union == null) return result;
+                candidates = and(candidates, union);
+                if (candidates.isEmpty()) return result;
+            }
+            Map<String, Double> idf = new HashMap<>();
+            double n = ordinals.size();
+            double avgLength = n == 0 ? 1 : Math.max(totalLength / n, 1);
+            String phrase = TextAnalyzer.normalize(query).trim();
+            List<double[]> scored = new ArrayList<>(candidates.cardinality());
+            for (int ord = candidates.nextSetBit(0); ord >= 0; ord = candidates.nextSetBit(ord + 1)) {
+                Doc doc = docs.get(ord);
+                double norm = K1 * (1 - B + B * doc.length / avgLength);
+                double score = 0;
+                for (String token : tokens) {
+                    boolean word = TextAnalyzer.isWord(token);
+                    double best = 0;
+                    for (Map.Entry<String, Double> t : doc.termFreqs.entrySet()) {
+                        String term = t.getKey();
+                        if (word ? !term.startsWith(token) || !TextAnalyzer.isWord(term) : !term.equals(token)) continue;
+                        double w = idf.computeIfAbsent(term, k -> {
+                            double df = terms.get(k).cardinality();
+                            return Math.log(1 + (n - df + 0.5) / (df + 0.5));
+                        });
+                        double tf = t.getValue();
+                        best = Math.max(best, w * tf * (K1 + 1) / (tf + norm));
+                    }
+                    score += best;
+                }
+                if (!phrase.isEmpty() && doc.firstField.contains(phrase)) score *= PHRASE_BOOST;
+                scored.add(new double[]{score, ord});
+            }
+            scored.sort(Comparator.<double[]>comparingDouble(s -> -s[0])
+                    .thenComparingLong(s -> docs.get((int) s[1]).id));
+            for (double[] s : scored) result.add(docs.get((int) s[1]).id);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 查询词命中的文档位图：字母数字单词取全部以它为前缀的单词词项之并，其它词项精确匹配；没有命中时返回 null
+    private BitSet postings(String token) {
+        if (!TextAnalyzer.isWord(token)) return terms.get(token);
+        BitSet union = null;
+        NavigableMap<String, BitSet> range = terms.subMap(token, true, token + Character.MAX_VALUE, false);
+        for (Map.Entry<String, BitSet> e : range.entrySet()) {
+            if (!TextAnalyzer.isWord(e.getKey())) continue;
+            if (union == null) union = new BitSet();
+            union.or(e.getValue());
+        }
+        return union;
+    }
+
+    private static BitSet and(BitSet acc, BitSet bits) {
+        if (acc == null) return (BitSet) bits.clone();
+        acc.and(bits);
+        return acc;
+    }
+
+    private void unindex(long id) {
+        Integer ord = ordinals.remove(id);
+        if (ord == null) return;
+        Doc doc = docs.set(ord, null);
+        for (String term : doc.termFreqs.keySet()) clear(terms, term, ord);
+        for (String key : doc.filterKeys) clear(filters, key, ord);
+        totalLength -= doc.length;
+        freeOrdinals.push(ord);
+    }
+
+    private static void clear(Map<String, BitSet> postings, String key, int ord) {
+        BitSet bits = postings.get(key);
+        if (bits == null) return;
+        bits.clear(ord);
+        if (bits.isEmpty()) postings.remove(key);
+    }
+}
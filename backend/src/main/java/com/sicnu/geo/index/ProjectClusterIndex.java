@@ -0,0 +1,203 @@
+package com.sicnu.geo.index;
+
+import com.sicnu.geo.dto.ProjectCluster;
+import com.sicnu.geo.entity.Project;
+import com.sicnu.geo.enums.ProjectCategory;
+import com.sicnu.geo.event.ProjectChangedEvent;
+import com.sicnu.geo.export.ExportCommand;
+import com.sicnu.geo.geometry.Envelope;
+import com.sicnu.geo.repository.ProjectRepository;
+import com.sicnu.geo.tile.TileMath;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 概览地图用的项目聚合：每个缩放级别把 Web Mercator 平面划成边长 cellPixels 像素的格子，
+ * 每个格子保存项目数、坐标和（求重心）以及按分类、状态的计数。
+ * 启动时加载一次，之后随 ProjectChangedEvent 只更新项目新旧位置所在的格子，查询时不再逐项目计算。
+ */
+@Component
+public class ProjectClusterIndex {
+
+    private static final ProjectCategory[] CATEGORIES = ProjectCategory.values();
+
+    private record Member(double x, double y, ProjectCategory category, String status) {
+    }
+
+    private static final class Bin {
+        int count;
+        double sumX, sumY;
+        // 成员 id 之和；只剩一个成员时即为其 id
+        long sumIds;
+        final int[] categories = new int[CATEGORIES.length];
+        final Map<String, Integer> statuses = new HashMap<>(4);
+    }
+
+    private final ProjectRepository repo;
+    private final int maxZoom;
+    private final int cellPixels;
+    private final Map<Long, Member> members = new HashMap<>();
+    // levels[z]：格子键 -> 格子
+    private final List<Map<Long, Bin>> levels = new ArrayList<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public ProjectClusterIndex(ProjectRepository repo,
+                               @Value("${sicnugeo.clusters.max-zoom:16}") int maxZoom,
+                               @Value("${sicnugeo.clusters.cell-pixels:64}") int cellPixels) {
+        if (maxZoom < 0 || maxZoom > 20) throw new IllegalArgumentException("clusters.max-zoom 应在 0 到 20 之间");
+        if (cellPixels < 8 || cellPixels > 256) throw new IllegalArgumentException("clusters.cell-pixels 应在 8 到 256 之间");
+        this.repo = repo;
+        this.maxZoom = maxZoom;
+        this.cellPixels = cellPixels;
+        for (int z = 0; z <= maxZoom; z++) levels.add(new HashMap<>());
+    }
+
+    @EventListener(value = ApplicationReadyEvent.class, condition = ExportCommand.NOT_EXPORTING)
+    public void load() {
+        for (Object[] row : repo.findAllForClustering()) {
+            put((Long) row[0], (Double) row[1], (Double) row[2], (ProjectCategory) row[3], (String) row[4]);
+        }
+    }
+
+    @EventListener
+    public void onProjectChanged(ProjectChangedEvent e) {
+        if (e.type() == ProjectChangedEvent.Type.DELETED) {
+            remove(e.projectId());
+            return;
+        }
+        Project p = e.project();
+        put(p.getId(), p.getCenterLng(), p.getCenterLat(), p.getCategory(), p.getStatus());
+    }
+
+    /**
+     * 插入、移动或修改一个项目；坐标为空时等同于删除。
+     */
+    public void put(long id, Double lng, Double lat, ProjectCategory category, String status) {
+        if (lng == null || lat == null || !Double.isFinite(lng) || !Double.isFinite(lat)) {
+            remove(id);
+            return;
+        }
+        Member member = new Member(TileMath.lngToX(lng), TileMath.latToY(lat), category, status);
+        lock.writeLock().lock();
+        try {
+            Member old = members.put(id, member);
+            if (member.equals(old)) return;
+            if (old != null) apply(id, old, -1);
+            apply(id, member, 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Member old = members.remove(id);
+            if (old != null) apply(id, old, -1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return members.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 超过该级别的请求按该级别聚合。
+     */
+    public int maxZoom() {
+        return maxZoom;
+    }
+
+    /**
+     * 返回 zoom 级别下与 bbox 相交的格子。格子数只取决于视野像素大小，与项目总数无关。
+     */
+    public List<ProjectCluster> query(Envelope bbox, int zoom) {
+        List<ProjectCluster> result = new ArrayList<>();
+        if (bbox == null || bbox.isEmpty()) return result;
+        int z = Math.max(0, Math.min(zoom, maxZoom));
+        long cells = cellsPerAxis(z);
+        long x0 = cell(TileMath.lngToX(bbox.getMinX()), cells), x1 = cell(TileMath.lngToX(bbox.getMaxX()), cells);
+        // y 轴向下，纬度大的一侧 y 小
+        long y0 = cell(TileMath.latToY(bbox.getMaxY()), cells), y1 = cell(TileMath.latToY(bbox.getMinY()), cells);
+        lock.readLock().lock();
+        try {
+            Map<Long, Bin> level = levels.get(z);
+            if ((x1 - x0 + 1) * (y1 - y0 + 1) <= level.size()) {
+                for (long cx = x0; cx <= x1; cx++) {
+                    for (long cy = y0; cy <= y1; cy++) {
+                        Bin bin = level.get(key(cx, cy));
+                        if (bin != null) result.add(toCluster(bin, cx, cy, cells));
+                    }
+                }
+            } else {
+                for (Map.Entry<Long, Bin> entry : level.entrySet()) {
+                    long cx = entry.getKey() >>> 32, cy = entry.getKey() & 0xFFFFFFFFL;
+                    if (cx >= x0 && cx <= x1 && cy >= y0 && cy <= y1) result.add(toCluster(entry.getValue(), cx, cy, cells));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    // 调用方持有写锁
+    private void apply(long id, Member m, int delta) {
+        for (int z = 0; z <= maxZoom; z++) {
+            long cells = cellsPerAxis(z);
+            long key = key(cell(m.x, cells), cell(m.y, cells));
+            Map<Long, Bin> level = levels.get(z);
+            Bin bin = level.computeIfAbsent(key, k -> new Bin());
+            bin.count += delta;
+            if (bin.count == 0) {
+                level.remove(key);
+                continue;
+            }
+            bin.sumX += delta * m.x;
+            bin.sumY += delta * m.y;
+            bin.sumIds += delta * id;
+            if (m.category != null) bin.categories[m.category.ordinal()] += delta;
+            if (m.status != null) bin.statuses.merge(m.status, delta, (a, b) -> a + b == 0 ? null : a + b);
+        }
+    }
+
+    // 调用方持有读锁
+    private static ProjectCluster toCluster(Bin bin, long cx, long cy, long cells) {
+        Map<String, Integer> categories = new LinkedHashMap<>();
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            if (bin.categories[i] > 0) categories.put(CATEGORIES[i].name(), bin.categories[i]);
+        }
+        double[] bounds = {TileMath.xToLng((double) cx / cells), TileMath.yToLat((double) (cy + 1) / cells),
+                TileMath.xToLng((double) (cx + 1) / cells), TileMath.yToLat((double) cy / cells)};
+        return new ProjectCluster(TileMath.xToLng(bin.sumX / bin.count), TileMath.yToLat(bin.sumY / bin.count),
+                bin.count, bin.count == 1 ? bin.sumIds : null, categories, new HashMap<>(bin.statuses), bounds);
+    }
+
+    private long cellsPerAxis(int z) {
+        return (256L << z) / cellPixels;
+    }
+
+    private static long cell(double normalized, long cells) {
+        return Math.max(0, Math.min(cells - 1, (long) Math.floor(normalized * cells)));
+    }
+
+    private static long key(long cx, long cy) {
+        return cx << 32 | cy;
+    }
+}
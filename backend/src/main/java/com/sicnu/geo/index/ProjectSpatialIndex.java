@@ -0,0 +1,59 @@
+package com.sicnu.geo.index;
+
+import com.sicnu.geo.entity.Project;
+import com.sicnu.geo.event.ProjectChangedEvent;
+import com.sicnu.geo.export.ExportCommand;
+import com.sicnu.geo.geometry.Envelope;
+import com.sicnu.geo.repository.ProjectRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 项目中心点（centerLng/centerLat）的内存空间索引。
+ * 启动时加载一次，之后只随 ProjectChangedEvent 增量维护。
+ */
+@Component
+public class ProjectSpatialIndex {
+
+    private final ProjectRepository repo;
+    private final GeoGridIndex grid;
+
+    public ProjectSpatialIndex(ProjectRepository repo,
+                               @Value("${sicnugeo.index.grid-cell-degrees:0.01}") double cellSize) {
+        this.repo = repo;
+        this.grid = new GeoGridIndex(cellSize);
+    }
+
+    @EventListener(value = ApplicationReadyEvent.class, condition = ExportCommand.NOT_EXPORTING)
+    public void load() {
+        for (Object[] row : repo.findAllCenters()) {
+            grid.put((Long) row[0], (Double) row[1], (Double) row[2]);
+        }
+    }
+
+    @EventListener
+    public void onProjectChanged(ProjectChangedEvent e) {
+        if (e.type() == ProjectChangedEvent.Type.DELETED) {
+            grid.remove(e.projectId());
+            return;
+        }
+        Project p = e.project();
+        grid.put(p.getId(), p.getCenterLng(), p.getCenterLat());
+    }
+
+    public List<Long> within(Envelope bbox) {
+        return grid.query(bbox);
+    }
+
+    public List<Long> near(double lng, double lat, double radiusMeters) {
+        return grid.near(lng, lat, radiusMeters);
+    }
+
+    public int size() {
+        return grid.size();
+    }
+}
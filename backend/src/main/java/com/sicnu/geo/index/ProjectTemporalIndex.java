@@ -0,0 +1,76 @@
+package com.sicnu.geo.index;
+
+import com.sicnu.geo.entity.Project;
+import com.sicnu.geo.event.ProjectChangedEvent;
+import com.sicnu.geo.export.ExportCommand;
+import com.sicnu.geo.repository.ProjectRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 项目工期（startDate ~ endDate）的内存区间索引，供时间轴按日期查询。
+ * 缺少开始日期时以创建日期代替；缺少结束日期视为仍在进行；两端都没有的项目不进入索引。
+ * 启动时加载一次，之后只随 ProjectChangedEvent 增量维护。
+ */
+@Component
+public class ProjectTemporalIndex {
+
+    private final ProjectRepository repo;
+    private final IntervalIndex intervals = new IntervalIndex();
+
+    public ProjectTemporalIndex(ProjectRepository repo) {
+        this.repo = repo;
+    }
+
+    @EventListener(value = ApplicationReadyEvent.class, condition = ExportCommand.NOT_EXPORTING)
+    public void load() {
+        for (Object[] row : repo.findAllPeriods()) {
+            put((Long) row[0], (LocalDate) row[1], (LocalDate) row[2], (LocalDate) row[3]);
+        }
+    }
+
+    @EventListener
+    public void onProjectChanged(ProjectChangedEvent e) {
+        if (e.type() == ProjectChangedEvent.Type.DELETED) {
+            intervals.remove(e.projectId());
+            return;
+        }
+        Project p = e.project();
+        put(p.getId(), p.getStartDate(), p.getEndDate(), p.getCreatedAt());
+    }
+
+    private void put(long id, LocalDate startDate, LocalDate endDate, LocalDate createdAt) {
+        LocalDate startOrCreated = startDate != null ? startDate : createdAt;
+        if (startOrCreated == null && endDate == null) {
+            intervals.remove(id);
+            return;
+        }
+        long start = startOrCreated == null ? Long.MIN_VALUE : startOrCreated.toEpochDay();
+        long end = endDate == null ? Long.MAX_VALUE : endDate.toEpochDay();
+        // 结束早于开始的脏数据按两者之间处理
+        intervals.put(id, Math.min(start, end), Math.max(start, end));
+    }
+
+    public List<Long> activeOn(LocalDate date) {
+        return intervals.at(date.toEpochDay());
+    }
+
+    public List<Long> overlapping(LocalDate from, LocalDate to) {
+        return intervals.overlapping(from.toEpochDay(), to.toEpochDay());
+    }
+
+    /**
+     * 时间轴从 from 拖到 to 时进入与离开的项目。
+     */
+    public IntervalIndex.Changes changes(LocalDate from, LocalDate to) {
+        return intervals.changes(from.toEpochDay(), to.toEpochDay());
+    }
+
+    public int size() {
+        return intervals.size();
+    }
+}
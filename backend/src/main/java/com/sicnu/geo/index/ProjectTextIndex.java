@@ -0,0 +1,78 @@
+package com.sicnu.geo.index;
+
+import com.sicnu.geo.entity.Project;
+import com.sicnu.geo.enums.ProjectCategory;
+import com.sicnu.geo.event.ProjectChangedEvent;
+import com.sicnu.geo.export.ExportCommand;
+import com.sicnu.geo.repository.ProjectRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 项目名称与描述的内存全文索引，替代 LIKE '%keyword%' 全表扫描。
+ * 名称权重高于描述；分类、状态作为筛选键与词项位图求交。
+ * 启动时加载一次，之后只随 ProjectChangedEvent 增量维护。
+ */
+@Component
+public class ProjectTextIndex {
+
+    private static final double NAME_WEIGHT = 3.0;
+    private static final double DESCRIPTION_WEIGHT = 1.0;
+
+    private final ProjectRepository repo;
+    private final InvertedIndex index = new InvertedIndex(NAME_WEIGHT, DESCRIPTION_WEIGHT);
+
+    public ProjectTextIndex(ProjectRepository repo) {
+        this.repo = repo;
+    }
+
+    @EventListener(value = ApplicationReadyEvent.class, condition = ExportCommand.NOT_EXPORTING)
+    public void load() {
+        for (Object[] row : repo.findAllForSearch()) {
+            put((Long) row[0], (String) row[1], (String) row[2], (ProjectCategory) row[3], (String) row[4]);
+        }
+    }
+
+    @EventListener
+    public void onProjectChanged(ProjectChangedEvent e) {
+        if (e.type() == ProjectChangedEvent.Type.DELETED) {
+            index.remove(e.projectId());
+            return;
+        }
+        Project p = e.project();
+        put(p.getId(), p.getName(), p.getDescription(), p.getCategory(), p.getStatus());
+    }
+
+    /**
+     * 按相关度降序返回匹配的项目 id；category、status 为空表示不筛选。
+     */
+    public List<Long> search(String keyword, ProjectCategory category, String status) {
+        List<String> filters = new ArrayList<>(2);
+        if (category != null) filters.add(categoryKey(category));
+        if (status != null) filters.add(statusKey(status));
+        return index.search(keyword, filters);
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    private void put(Long id, String name, String description, ProjectCategory category, String status) {
+        List<String> filters = new ArrayList<>(2);
+        if (category != null) filters.add(categoryKey(category));
+        if (status != null) filters.add(statusKey(status));
+        index.put(id, new String[]{name, description}, filters);
+    }
+
+    private static String categoryKey(ProjectCategory category) {
+        return "category:" + category.name();
+    }
+
+    private static String statusKey(String status) {
+        return "status:" + status;
+    }
+}
@@ -0,0 +1,93 @@
+package com.sicnu.geo.index;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * 一次性批量构建的只读 R 树（Sort-Tile-Recursive 打包），条目为外包矩形与其在构建数组中的下标。
+ * 构建后不可修改，查询之间无共享状态，可被多个线程并发查询。
+ */
+public class StrTree {
+
+    private static final int NODE_CAPACITY = 16;
+
+    // 每层节点的外包矩形（minX, minY, maxX, maxY 交错）；levels[0] 为叶子层，即条目本身
+    private final double[][] levels;
+    // 叶子层第 i 个位置对应的条目下标
+    private final int[] items;
+
+    /**
+     * @param boxes 每个条目 4 个数：minX, minY, maxX, maxY
+     */
+    public StrTree(double[][] boxes) {
+        int n = boxes.length;
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        // 先按中心 x 切成竖条，条内再按中心 y 排序
+        Arrays.sort(order, (a, b) -> Double.compare(boxes[a][0] + boxes[a][2], boxes[b][0] + boxes[b][2]));
+        int leaves = (n + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        int sliceSize = (int) Math.ceil(Math.sqrt(Math.max(leaves, 1))) * NODE_CAPACITY;
+        for (int from = 0; from < n; from += sliceSize) {
+            Arrays.sort(order, from, Math.min(from + sliceSize, n),
+                    (a, b) -> Double.compare(boxes[a][1] + boxes[a][3], boxes[b][1] + boxes[b][3]));
+        }
+        this.items = new int[n];
+        double[] level = new double[n * 4];
+        for (int i = 0; i < n; i++) {
+            items[i] = order[i];
+            System.arraycopy(boxes[order[i]], 0, level, i * 4, 4);
+        }
+        int depth = 1;
+        for (int count = n; count > NODE_CAPACITY; count = (count + NODE_CAPACITY - 1) / NODE_CAPACITY) depth++;
+        this.levels = new double[depth][];
+        levels[0] = level;
+        for (int d = 1; d < depth; d++) levels[d] = parents(levels[d - 1]);
+    }
+
+    private static double[] parents(double[] children) {
+        int count = children.length / 4;
+        int parents = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        double[] level = new double[parents * 4];
+        for (int p = 0; p < parents; p++) {
+            double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+            for (int c = p * NODE_CAPACITY; c < Math.min((p + 1) * NODE_CAPACITY, count); c++) {
+                minX = Math.min(minX, children[c * 4]);
+                minY = Math.min(minY, children[c * 4 + 1]);
+                maxX = Math.max(maxX, children[c * 4 + 2]);
+                maxY = Math.max(maxY, children[c * 4 + 3]);
+            }
+            level[p * 4] = minX;
+            level[p * 4 + 1] = minY;
+            level[p * 4 + 2] = maxX;
+            level[p * 4 + 3] = maxY;
+        }
+        return level;
+    }
+
+    public int size() {
+        return items.length;
+    }
+
+    /**
+     * 对外包矩形与查询矩形相交的每个条目回调其下标。
+     */
+    public void query(double minX, double minY, double maxX, double maxY, IntConsumer visitor) {
+        int top = levels.length - 1;
+        for (int i = 0; i < levels[top].length / 4; i++) visit(top, i, minX, minY, maxX, maxY, visitor);
+    }
+
+    private void visit(int depth, int node, double minX, double minY, double maxX, double maxY, IntConsumer visitor) {
+        double[] level = levels[depth];
+        int at = node * 4;
+        if (level[at] > maxX || level[at + 2] < minX || level[at + 1] > maxY || level[at + 3] < minY) return;
+        if (depth == 0) {
+            visitor.accept(items[node]);
+            return;
+        }
+        int count = levels[depth - 1].length / 4;
+        for (int c = node * NODE_CAPACITY; c < Math.min((node + 1) * NODE_CAPACITY, count); c++) {
+            visit(depth - 1, c, minX, minY, maxX, maxY, visitor);
+        }
+    }
+}
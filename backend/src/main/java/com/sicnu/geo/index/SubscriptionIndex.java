@@ -0,0 +1,255 @@
+package com.sicnu.geo.index;
+
+import com.sicnu.geo.cache.CacheInvalidationBus;
+import com.sicnu.geo.enums.ProjectCategory;
+import com.sicnu.geo.export.ExportCommand;
+import com.sicnu.geo.geometry.Envelope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 订阅的内存索引，用于从一次项目变化找出命中的订阅，代价只与命中数有关，不随订阅总数增长：
+ * 按项目、按分类各一个哈希表；区域订阅放进分层格网，每个区域选择使它最多覆盖 2×2 个格子的层级登记，
+ * 查询时每层只看变化范围覆盖的少数格子（格子比该层订阅还多时改为逐个检查该层订阅）。
+ * <p>
+ * 本节点的订阅写入直接调用 {@link #reloadUser}；其它节点的写入经 {@link CacheInvalidationBus} 以用户 id 通知，
+ * 收到后从数据库重新加载该用户的订阅。
+ */
+@Component
+public class SubscriptionIndex {
+
+    public static final String BUS_NAME = "subscriptions";
+
+    private static final Logger log = LoggerFactory.getLogger(SubscriptionIndex.class);
+
+    // 第 0 层格子边长（度），逐层翻倍；最高层一个格子覆盖全球
+    private static final double BASE_CELL = 0.01;
+    private static final int LEVELS = 16;
+    private static final String SELECT = "SELECT id, user_id, project_id, category, min_lng, min_lat, max_lng, max_lat, "
+            + "notification_enabled FROM project_subscriptions";
+
+    public enum MatchKind { PROJECT, CATEGORY, AREA }
+
+    public record Entry(long id, long userId, Long projectId, ProjectCategory category, Envelope area,
+                        boolean notificationEnabled) {
+
+        public MatchKind kind() {
+            return projectId != null ? MatchKind.PROJECT : category != null ? MatchKind.CATEGORY : MatchKind.AREA;
+        }
+    }
+
+    private final JdbcTemplate jdbc;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Entry> byId = new HashMap<>();
+    private final Map<Long, Set<Long>> byUser = new HashMap<>();
+    private final Map<Long, Set<Long>> byProject = new HashMap<>();
+    private final Map<ProjectCategory, Set<Long>> byCategory = new EnumMap<>(ProjectCategory.class);
+    private final Map<Long, Set<Long>> cells = new HashMap<>();
+    private final List<Set<Long>> levels = new ArrayList<>(LEVELS);
+
+    public SubscriptionIndex(JdbcTemplate jdbc, CacheInvalidationBus bus) {
+        this.jdbc = jdbc;
+        for (int i = 0; i < LEVELS; i++) levels.add(new HashSet<>());
+        bus.register(BUS_NAME, key -> {
+            try {
+                reloadUser(Long.parseLong(key));
+            } catch (RuntimeException e) {
+                log.warn("订阅索引更新失败，用户 {}: {}", key, e.getMessage());
+            }
+        });
+    }
+
+    @EventListener(value = ApplicationReadyEvent.class, condition = ExportCommand.NOT_EXPORTING)
+    public void load() {
+        List<Entry> entries = new ArrayList<>();
+        jdbc.query(SELECT, (RowCallbackHandler) rs -> entries.add(entry(rs)));
+        lock.writeLock().lock();
+        try {
+            for (Entry e : entries) add(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("订阅索引已加载 {} 条订阅", entries.size());
+    }
+
+    /**
+     * 以数据库为准替换该用户的全部订阅。
+     */
+    public void reloadUser(long userId) {
+        List<Entry> entries = new ArrayList<>();
+        jdbc.query(SELECT + " WHERE user_id = ?", (RowCallbackHandler) rs -> entries.add(entry(rs)), userId);
+        lock.writeLock().lock();
+        try {
+            Set<Long> old = byUser.get(userId);
+            if (old != null) for (Long id : new ArrayList<>(old)) remove(byId.get(id));
+            for (Entry e : entries) add(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 与一次项目变化匹配的订阅；area 为变化涉及的范围（项目中心点、要素变化的外包矩形），可为空。
+     * 同一订阅只出现一次。
+     */
+    public List<Entry> match(Long projectId, ProjectCategory category, Envelope area) {
+        List<Entry> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (projectId != null) collect(byProject.get(projectId), result);
+            if (category != null) collect(byCategory.get(category), result);
+            if (area != null && !area.isEmpty()) matchArea(area, result);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    private void matchArea(Envelope area, List<Entry> result) {
+        Set<Long> seen = new HashSet<>();
+        for (int level = 0; level < LEVELS; level++) {
+            Set<Long> ids = levels.get(level);
+            if (ids.isEmpty()) continue;
+            double size = cellSize(level);
+            long x0 = cell(area.getMinX() + 180, size), x1 = cell(area.getMaxX() + 180, size);
+            long y0 = cell(area.getMinY() + 90, size), y1 = cell(area.getMaxY() + 90, size);
+            if ((x1 - x0 + 1) * (y1 - y0 + 1) > ids.size()) {
+                for (Long id : ids) {
+                    Entry e = byId.get(id);
+                    if (e.area.intersects(area) && seen.add(id)) result.add(e);
+                }
+                continue;
+            }
+            for (long x = x0; x <= x1; x++) {
+                for (long y = y0; y <= y1; y++) {
+                    Set<Long> cell = cells.get(key(level, x, y));
+                    if (cell == null) continue;
+                    for (Long id : cell) {
+                        Entry e = byId.get(id);
+                        if (e.area.intersects(area) && seen.add(id)) result.add(e);
+                    }
+                }
+            }
+        }
+    }
+
+    private void collect(Set<Long> ids, List<Entry> result) {
+        if (ids == null) return;
+        for (Long id : ids) result.add(byId.get(id));
+    }
+
+    // ---------------------------------------------------------------- 维护（持有写锁）
+
+    private void add(Entry e) {
+        if (e.kind() == MatchKind.AREA && e.area == null) return; // 三种条件都没有的残缺记录
+        byId.put(e.id, e);
+        byUser.computeIfAbsent(e.userId, k -> new HashSet<>()).add(e.id);
+        switch (e.kind()) {
+            case PROJECT:
+                byProject.computeIfAbsent(e.projectId, k -> new HashSet<>()).add(e.id);
+                break;
+            case CATEGORY:
+                byCategory.computeIfAbsent(e.category, k -> new HashSet<>()).add(e.id);
+                break;
+            default:
+                forEachCell(e.area, (k, level) -> {
+                    cells.computeIfAbsent(k, c -> new HashSet<>()).add(e.id);
+                    levels.get(level).add(e.id);
+                });
+        }
+    }
+
+    private void remove(Entry e) {
+        if (e == null) return;
+        byId.remove(e.id);
+        removeFrom(byUser, e.userId, e.id);
+        switch (e.kind()) {
+            case PROJECT:
+                removeFrom(byProject, e.projectId, e.id);
+                break;
+            case CATEGORY:
+                removeFrom(byCategory, e.category, e.id);
+                break;
+            default:
+                forEachCell(e.area, (k, level) -> {
+                    removeFrom(cells, k, e.id);
+                    levels.get(level).remove(e.id);
+                });
+        }
+    }
+
+    private static <K> void removeFrom(Map<K, Set<Long>> map, K key, Long id) {
+        Set<Long> ids = map.get(key);
+        if (ids == null) return;
+        ids.remove(id);
+        if (ids.isEmpty()) map.remove(key);
+    }
+
+    private interface CellVisitor {
+        void visit(long key, int level);
+    }
+
+    // 区域登记在使它最多跨 2 个格子（每个方向）的最低层
+    private static void forEachCell(Envelope area, CellVisitor visitor) {
+        int level = 0;
+        while (level < LEVELS - 1 && Math.max(area.getMaxX() - area.getMinX(), area.getMaxY() - area.getMinY())
+                > cellSize(level)) {
+            level++;
+        }
+        double size = cellSize(level);
+        long x0 = cell(area.getMinX() + 180, size), x1 = cell(area.getMaxX() + 180, size);
+        long y0 = cell(area.getMinY() + 90, size), y1 = cell(area.getMaxY() + 90, size);
+        for (long x = x0; x <= x1; x++) {
+            for (long y = y0; y <= y1; y++) visitor.visit(key(level, x, y), level);
+        }
+    }
+
+    private static double cellSize(int level) {
+        return BASE_CELL * (1L << level);
+    }
+
+    private static long cell(double offset, double size) {
+        return (long) Math.floor(offset / size);
+    }
+
+    private static long key(int level, long x, long y) {
+        return ((long) level << 58) | ((x & 0x1FFFFFFFL) << 29) | (y & 0x1FFFFFFFL);
+    }
+
+    private static Entry entry(ResultSet rs) throws SQLException {
+        long projectId = rs.getLong(3);
+        Long project = rs.wasNull() ? null : projectId;
+        String category = rs.getString(4);
+        Envelope area = null;
+        double minLng = rs.getDouble(5);
+        if (!rs.wasNull()) area = new Envelope(minLng, rs.getDouble(6), rs.getDouble(7), rs.getDouble(8));
+        boolean notify = rs.getBoolean(9);
+        return new Entry(rs.getLong(1), rs.getLong(2), project,
+                category == null ? null : ProjectCategory.valueOf(category), area, notify);
+    }
+}
@@ -0,0 +1,88 @@
+package com.sicnu.geo.index;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 中英文混合文本的切词：中日韩字符按单字与相邻二字（bigram）切分，其余按连续的字母数字切成单词。
+ * 切词前统一做 NFKC 归一化（全角转半角）与小写。
+ */
+public final class TextAnalyzer {
+
+    private TextAnalyzer() {
+    }
+
+    public static String normalize(String text) {
+        if (text == null) return "";
+        return Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 建索引用：中文连续片段输出全部单字与二字词，使单字查询也能命中。允许重复，用于统计词频。
+     */
+    public static List<String> indexTokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        split(normalize(text), tokens, true);
+        return tokens;
+    }
+
+    /**
+     * 查询用：中文片段只取二字词（单字片段取单字），结果去重并保持出现顺序。
+     */
+    public static List<String> queryTokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        split(normalize(text), tokens, false);
+        Set<String> distinct = new LinkedHashSet<>(tokens);
+        return new ArrayList<>(distinct);
+    }
+
+    /**
+     * 是否为字母数字单词（查询时可做前缀扩展）；中文二字词、单字返回 false。
+     */
+    public static boolean isWord(String token) {
+        return !token.isEmpty() && !isCjk(token.codePointAt(0));
+    }
+
+    private static void split(String text, List<String> out, boolean unigrams) {
+        int i = 0, n = text.length();
+        while (i < n) {
+            int cp = text.codePointAt(i);
+            if (isCjk(cp)) {
+                List<String> chars = new ArrayList<>();
+                while (i < n && isCjk(cp = text.codePointAt(i))) {
+                    int len = Character.charCount(cp);
+                    chars.add(text.substring(i, i + len));
+                    i += len;
+                }
+                emitCjk(chars, out, unigrams);
+            } else if (Character.isLetterOrDigit(cp)) {
+                int start = i;
+                while (i < n && Character.isLetterOrDigit(cp = text.codePointAt(i)) && !isCjk(cp)) {
+                    i += Character.charCount(cp);
+                }
+                out.add(text.substring(start, i));
+            } else {
+                i += Character.charCount(cp);
+            }
+        }
+    }
+
+    private static void emitCjk(List<String> chars, List<String> out, boolean unigrams) {
+        if (chars.size() == 1 || unigrams) out.addAll(chars);
+        for (int k = 0; k + 1 < chars.size(); k++) {
+            out.add(chars.get(k) + chars.get(k + 1));
+        }
+    }
+
+    private static boolean isCjk(int cp) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
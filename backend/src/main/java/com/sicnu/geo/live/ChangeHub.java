@@ -0,0 +1,317 @@
+package com.sicnu.geo.live;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sicnu.geo.cache.ProjectCache;
+import com.sicnu.geo.dto.ChangeEvent;
+import com.sicnu.geo.entity.Comment;
+import com.sicnu.geo.entity.Project;
+import com.sicnu.geo.event.CommentCreatedEvent;
+import com.sicnu.geo.event.FeatureDocumentChangedEvent;
+import com.sicnu.geo.event.ProjectChangedEvent;
+import com.sicnu.geo.geometry.Envelope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 项目、要素与评论的变更推送。本节点的写入在提交后转成 {@link ChangeEvent}，直接投递给本节点的订阅者，
+ * 同时经 Redis 发布/订阅广播给其它节点（消息格式为 "节点id|事件 JSON"，本节点发出的消息收到时忽略）。
+ * <p>
+ * 每个订阅者有一个待发送表，按 {@link ChangeEvent#key()} 合并：客户端来不及接收时，同一对象的多次变化只保留最后一次，
+ * 发送在推送线程池中按订阅者串行进行，慢客户端只占用自己的待发送表。待发送表超过上限时整体丢弃，
+ * 改发一条 resync 通知，客户端收到后重新拉取数据。
+ */
+@Component
+public class ChangeHub implements MessageListener {
+
+    public static final String CHANNEL = "sicnugeo:changes";
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeHub.class);
+    private static final String RESYNC = "resync";
+    private static final String PING = "ping";
+    private static final int PREVIEW_LENGTH = 100;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final StringRedisTemplate redis;
+    private final ObjectMapper mapper;
+    private final ProjectCache projectCache;
+    private final TaskExecutor executor;
+    private final int maxPending;
+    private final int maxSubscribers;
+    private final long timeoutMillis;
+
+    public ChangeHub(StringRedisTemplate redis, ObjectMapper mapper, ProjectCache projectCache,
+                     @Qualifier("liveTaskExecutor") TaskExecutor executor,
+                     @Value("${sicnugeo.live.max-pending:256}") int maxPending,
+                     @Value("${sicnugeo.live.max-subscribers:1000}") int maxSubscribers,
+                     @Value("${sicnugeo.live.timeout-minutes:30}") long timeoutMinutes) {
+        this.redis = redis;
+        this.mapper = mapper;
+        this.projectCache = projectCache;
+        this.executor = executor;
+        this.maxPending = maxPending;
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMillis = TimeUnit.MINUTES.toMillis(timeoutMinutes);
+    }
+
+    // ---------------------------------------------------------------- 订阅
+
+    /**
+     * 新建订阅，首条消息为 ready（带订阅 id，用于之后修改筛选条件）。连接数达到上限时抛出 IllegalStateException。
+     */
+    public SseEmitter subscribe(ChangeFilter filter) {
+        if (subscribers.size() >= maxSubscribers) throw new IllegalStateException("推送连接数已达上限");
+        String id = UUID.randomUUID().toString();
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber sub = new Subscriber(id, emitter, filter);
+        subscribers.put(id, sub);
+        emitter.onCompletion(() -> subscribers.remove(id));
+        emitter.onTimeout(() -> subscribers.remove(id));
+        emitter.onError(e -> subscribers.remove(id));
+        sub.offer("ready", new Outgoing("ready", Map.of("subscriptionId", id)));
+        return emitter;
+    }
+
+    /**
+     * 修改订阅的筛选条件（如视野移动），不必重新连接。订阅不存在时返回 false。
+     */
+    public boolean update(String subscriptionId, ChangeFilter filter) {
+        Subscriber sub = subscribers.get(subscriptionId);
+        if (sub == null) return false;
+        sub.filter = filter;
+        return true;
+    }
+
+    public Map<String, Object> stats() {
+        int pending = 0;
+        for (Subscriber sub : subscribers.values()) pending += sub.pendingCount();
+        return Map.of("subscribers", subscribers.size(), "pending", pending);
+    }
+
+    // 心跳：让代理不断开空闲连接，也借此发现已断开的客户端
+    @Scheduled(fixedDelayString = "${sicnugeo.live.heartbeat-seconds:25}",
+            initialDelayString = "${sicnugeo.live.heartbeat-seconds:25}", timeUnit = TimeUnit.SECONDS)
+    public void heartbeat() {
+        for (Subscriber sub : subscribers.values()) sub.offer(PING, new Outgoing(null, PING));
+    }
+
+    // ---------------------------------------------------------------- 本节点的写入
+
+    // 有事务时在提交后执行，没有事务（各控制器直接调用仓库）时立即执行
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProjectChanged(ProjectChangedEvent e) {
+        // 其它节点的写入由该节点经 CHANNEL 推送
+        if (e.remote()) return;
+        Project p = e.project();
+        Map<String, Object> fields = null;
+        if (e.type() != ProjectChangedEvent.Type.DELETED && p != null) {
+            fields = new LinkedHashMap<>();
+            fields.put("name", p.getName());
+            fields.put("status", p.getStatus());
+            fields.put("category", p.getCategory() == null ? null : p.getCategory().name());
+            fields.put("startDate", p.getStartDate() == null ? null : p.getStartDate().toString());
+            fields.put("endDate", p.getEndDate() == null ? null : p.getEndDate().toString());
+            fields.put("centerLng", p.getCenterLng());
+            fields.put("centerLat", p.getCenterLat());
+        }
+        publish(new ChangeEvent("project", e.type().name().toLowerCase(Locale.ROOT), e.projectId(), null, null,
+                category(p), center(p), fields, System.currentTimeMillis()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFeaturesChanged(FeatureDocumentChangedEvent e) {
+        Envelope env = new Envelope();
+        if (e.before() != null) env.expand(e.before());
+        if (e.after() != null) env.expand(e.after());
+        Project p = projectCache.find(e.projectId()).orElse(null);
+        publish(new ChangeEvent("features", "updated", e.projectId(), null, e.version(),
+                category(p), env.toArray(), null, System.currentTimeMillis()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCommentCreated(CommentCreatedEvent e) {
+        Comment c = e.comment();
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("authorName", c.getAuthorName());
+        String content = c.getContent();
+        fields.put("preview", content == null || content.length() <= PREVIEW_LENGTH
+                ? content : content.substring(0, PREVIEW_LENGTH));
+        fields.put("createdAt", c.getCreatedAt() == null ? null : c.getCreatedAt().toString());
+        Project p = c.getProject();
+        publish(new ChangeEvent("comment", "created", e.projectId(), c.getId(), null,
+                category(p), center(p), fields, System.currentTimeMillis()));
+    }
+
+    private void publish(ChangeEvent event) {
+        dispatch(event);
+        try {
+            redis.convertAndSend(CHANNEL, nodeId + "|" + mapper.writeValueAsString(event));
+        } catch (JsonProcessingException | RuntimeException e) {
+            // 其它节点的客户端收不到这次变更，下次 resync 或重新拉取时补上
+            log.warn("变更消息发送失败 {}: {}", event.key(), e.getMessage());
+        }
+    }
+
+    // ---------------------------------------------------------------- 其它节点的写入
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int sep = body.indexOf('|');
+        if (sep < 0 || nodeId.equals(body.substring(0, sep))) return;
+        try {
+            dispatch(mapper.readValue(body.substring(sep + 1), ChangeEvent.class));
+        } catch (JsonProcessingException e) {
+            log.warn("无法解析变更消息: {}", e.getOriginalMessage());
+        }
+    }
+
+    private void dispatch(ChangeEvent event) {
+        if (subscribers.isEmpty()) return;
+        Outgoing message = new Outgoing(event.type(), event);
+        for (Subscriber sub : subscribers.values()) {
+            if (sub.filter.matches(event)) sub.offer(event.key(), message);
+        }
+    }
+
+    private static String category(Project p) {
+        return p == null || p.getCategory() == null ? null : p.getCategory().name();
+    }
+
+    private static double[] center(Project p) {
+        if (p == null || p.getCenterLng() == null || p.getCenterLat() == null) return null;
+        return new double[]{p.getCenterLng(), p.getCenterLat(), p.getCenterLng(), p.getCenterLat()};
+    }
+
+    /**
+     * 待发送的一条消息；name 为空时作为 SSE 注释发送（心跳）。
+     * SseEventBuilder 构建一次后不能复用，因此各订阅者在发送时各自构建。
+     */
+    private record Outgoing(String name, Object data) {
+
+        SseEmitter.SseEventBuilder toEvent() {
+            if (name == null) return SseEmitter.event().comment(String.valueOf(data));
+            return SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON);
+        }
+    }
+
+    /**
+     * 一个 SSE 连接。pending 与 draining 由 this 保护；同一时刻至多一个推送任务在发送。
+     */
+    private final class Subscriber {
+        final String id;
+        final SseEmitter emitter;
+        volatile ChangeFilter filter;
+        private LinkedHashMap<String, Outgoing> pending = new LinkedHashMap<>();
+        private boolean draining;
+        private boolean overflowed;
+
+        Subscriber(String id, SseEmitter emitter, ChangeFilter filter) {
+            this.id = id;
+            this.emitter = emitter;
+            this.filter = filter;
+        }
+
+        synchronized int pendingCount() {
+            return pending.size();
+        }
+
+        void offer(String key, Outgoing message) {
+            synchronized (this) {
+                if (overflowed) return; // 已决定 resync，之前与之后的变化都由重新拉取覆盖
+                // 先删后放，合并后的消息排到队尾，保持各对象最后一次变化的先后顺序
+                pending.remove(key);
+                pending.put(key, message);
+                if (pending.size() > maxPending) {
+                    pending.clear();
+                    pending.put(RESYNC, new Outgoing(RESYNC, Map.of("reason", "overflow")));
+                    overflowed = true;
+                    log.debug("推送订阅 {} 积压超过 {} 条，改发 resync", id, maxPending);
+                }
+                if (draining) return;
+                draining = true;
+            }
+            try {
+                executor.execute(this::drain);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    draining = false;
+                }
+                log.warn("推送任务提交失败: {}", e.getMessage());
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                List<Outgoing> batch;
+                synchronized (this) {
+                    if (pending.isEmpty()) {
+                        draining = false;
+                        overflowed = false;
+                        return;
+                    }
+                    batch = new ArrayList<>(pending.values());
+                    pending = new LinkedHashMap<>();
+                    overflowed = false;
+                }
+                try {
+                    for (Outgoing message : batch) emitter.send(message.toEvent());
+                } catch (IOException | IllegalStateException e) {
+                    // 客户端已断开
+                    subscribers.remove(id);
+                    emitter.completeWithError(e);
+                    synchronized (this) {
+                        pending.clear();
+                        draining = false;
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 订阅的筛选条件：项目 id、分类、视野范围之间是“或”的关系，都为空时接收全部变更。
+     */
+    public record ChangeFilter(Set<Long> projectIds, Set<String> categories, Envelope bbox) {
+
+        public boolean isEmpty() {
+            return projectIds.isEmpty() && categories.isEmpty() && bbox == null;
+        }
+
+        boolean matches(ChangeEvent e) {
+            if (isEmpty()) return true;
+            if (e.projectId() != null && projectIds.contains(e.projectId())) return true;
+            if (e.category() != null && categories.contains(e.category())) return true;
+            if (bbox != null && e.bbox() != null) {
+                double[] b = e.bbox();
+                return bbox.intersects(new Envelope(b[0], b[1], b[2], b[3]));
+            }
+            return false;
+        }
+    }
+}
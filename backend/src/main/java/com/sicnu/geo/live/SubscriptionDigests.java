@@ -0,0 +1,215 @@
+package com.sicnu.geo.live;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sicnu.geo.cache.ProjectCache;
+import com.sicnu.geo.entity.Project;
+import com.sicnu.geo.enums.ProjectCategory;
+import com.sicnu.geo.event.CommentCreatedEvent;
+import com.sicnu.geo.event.FeatureDocumentChangedEvent;
+import com.sicnu.geo.event.ProjectChangedEvent;
+import com.sicnu.geo.geometry.Envelope;
+import com.sicnu.geo.index.SubscriptionIndex;
+import com.sicnu.geo.service.SubscriptionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 订阅通知的汇总：变更发生时只在按项目合并的活动表里累加计数（与订阅数无关）；
+ * 每个汇总周期把活动表整体换出，逐个项目到 {@link SubscriptionIndex} 中找出命中的订阅，
+ * 按用户合成一条摘要，一次批量写入 subscription_digests。同一项目在一个周期内无论变化多少次都只匹配一次。
+ * <p>
+ * 变更只在发生写入的节点上汇总，多节点时同一用户在一个周期内可能收到每个节点各一条摘要。
+ */
+@Component
+public class SubscriptionDigests {
+
+    private static final Logger log = LoggerFactory.getLogger(SubscriptionDigests.class);
+
+    private final SubscriptionIndex index;
+    private final SubscriptionService subscriptions;
+    private final ProjectCache projectCache;
+    private final JdbcTemplate jdbc;
+    private final ObjectMapper mapper;
+    // 记录变化时持读锁（活动表本身并发安全），换出时持写锁
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<Long, Activity> pending = new ConcurrentHashMap<>();
+
+    public SubscriptionDigests(SubscriptionIndex index, SubscriptionService subscriptions, ProjectCache projectCache,
+                               JdbcTemplate jdbc, ObjectMapper mapper) {
+        this.index = index;
+        this.subscriptions = subscriptions;
+        this.projectCache = projectCache;
+        this.jdbc = jdbc;
+        this.mapper = mapper;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProjectChanged(ProjectChangedEvent e) {
+        if (e.remote()) return;
+        record(e.projectId(), e.project(), a -> {
+            switch (e.type()) {
+                case CREATED:
+                    a.created = true;
+                    break;
+                case DELETED:
+                    a.deleted = true;
+                    break;
+                default:
+                    a.projectUpdates++;
+            }
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFeaturesChanged(FeatureDocumentChangedEvent e) {
+        record(e.projectId(), null, a -> {
+            a.featureEdits++;
+            if (e.before() != null) a.area.expand(e.before());
+            if (e.after() != null) a.area.expand(e.after());
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCommentCreated(CommentCreatedEvent e) {
+        record(e.projectId(), e.comment().getProject(), a -> a.comments++);
+    }
+
+    private interface Update {
+        void apply(Activity a);
+    }
+
+    private void record(Long projectId, Project snapshot, Update update) {
+        Project p = snapshot != null ? snapshot : projectCache.find(projectId).orElse(null);
+        lock.readLock().lock();
+        try {
+            pending.compute(projectId, (id, a) -> {
+                if (a == null) a = new Activity(id);
+                a.observe(p);
+                update.apply(a);
+                return a;
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${sicnugeo.subscriptions.digest-minutes:5}",
+            initialDelayString = "${sicnugeo.subscriptions.digest-minutes:5}", timeUnit = TimeUnit.MINUTES)
+    public void flush() {
+        Map<Long, Activity> batch;
+        lock.writeLock().lock();
+        try {
+            if (pending.isEmpty()) return;
+            batch = pending;
+            pending = new ConcurrentHashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        // 用户 -> 项目 -> 该项目的摘要条目
+        Map<Long, Map<Long, Map<String, Object>>> byUser = new HashMap<>();
+        List<Long> deleted = new ArrayList<>();
+        long matched = 0;
+        for (Activity a : batch.values()) {
+            if (a.deleted) deleted.add(a.projectId);
+            Map<Long, Set<SubscriptionIndex.MatchKind>> users = new HashMap<>();
+            for (SubscriptionIndex.Entry e : index.match(a.projectId, a.category, a.area)) {
+                if (!e.notificationEnabled()) continue;
+                users.computeIfAbsent(e.userId(), k -> EnumSet.noneOf(SubscriptionIndex.MatchKind.class))
+                        .add(e.kind());
+                matched++;
+            }
+            if (users.isEmpty()) continue;
+            for (Map.Entry<Long, Set<SubscriptionIndex.MatchKind>> u : users.entrySet()) {
+                Map<String, Object> item = a.toItem();
+                Set<String> by = new TreeSet<>();
+                for (SubscriptionIndex.MatchKind k : u.getValue()) by.add(k.name().toLowerCase(Locale.ROOT));
+                item.put("matchedBy", by);
+                byUser.computeIfAbsent(u.getKey(), k -> new LinkedHashMap<>()).put(a.projectId, item);
+            }
+        }
+
+        List<Object[]> rows = new ArrayList<>(byUser.size());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (Map.Entry<Long, Map<Long, Map<String, Object>>> u : byUser.entrySet()) {
+            int changes = 0;
+            for (Map<String, Object> item : u.getValue().values()) changes += (Integer) item.get("changeCount");
+            try {
+                rows.add(new Object[]{u.getKey(), u.getValue().size(), changes,
+                        mapper.writeValueAsString(u.getValue().values()), now});
+            } catch (JsonProcessingException e) {
+                log.warn("用户 {} 的订阅摘要序列化失败: {}", u.getKey(), e.getOriginalMessage());
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbc.batchUpdate("INSERT INTO subscription_digests (user_id, project_count, change_count, content, created_at) "
+                    + "VALUES (?, ?, ?, ?, ?)", rows);
+        }
+        // 已删除项目的订阅在通知发出后清理
+        if (!deleted.isEmpty()) subscriptions.removeForProjects(deleted);
+        log.debug("订阅摘要：{} 个项目有变化，命中 {} 条订阅，生成 {} 条摘要", batch.size(), matched, rows.size());
+    }
+
+    /**
+     * 一个项目在本周期内的变化；由 pending.compute 串行修改。
+     */
+    private static final class Activity {
+        final long projectId;
+        final Envelope area = new Envelope(); // 项目中心点与要素变化范围
+        String name;
+        String status;
+        ProjectCategory category;
+        boolean created, deleted;
+        int projectUpdates, featureEdits, comments;
+        LocalDateTime lastAt;
+
+        Activity(long projectId) {
+            this.projectId = projectId;
+        }
+
+        void observe(Project p) {
+            lastAt = LocalDateTime.now();
+            if (p == null) return;
+            name = p.getName();
+            status = p.getStatus();
+            if (p.getCategory() != null) category = p.getCategory();
+            if (p.getCenterLng() != null && p.getCenterLat() != null) area.expand(p.getCenterLng(), p.getCenterLat());
+        }
+
+        Map<String, Object> toItem() {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("projectId", projectId);
+            item.put("name", name);
+            item.put("category", category == null ? null : category.name());
+            item.put("status", status);
+            item.put("created", created);
+            item.put("deleted", deleted);
+            item.put("projectUpdates", projectUpdates);
+            item.put("featureEdits", featureEdits);
+            item.put("comments", comments);
+            item.put("changeCount", (created ? 1 : 0) + (deleted ? 1 : 0) + projectUpdates + featureEdits + comments);
+            item.put("lastChangedAt", lastAt == null ? null : lastAt.toString());
+            return item;
+        }
+    }
+}
@@ -1,11 +1,23 @@
 package com.sicnu.geo.repository;
 
 import com.sicnu.geo.entity.Comment;
-import com.sicnu.geo.entity.Project;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
-    List<Comment> findByProjectOrderByCreatedAtDesc(Project project);
-}
\ No newline at end of file
+    // 键集翻页：按 (createdAt, id) 倒序取 afterTime/afterId 之后的一页，首页两者为空
+    @Query("SELECT c FROM Comment c WHERE c.project.id = :projectId "
+            + "AND (:afterTime IS NULL OR c.createdAt < :afterTime OR (c.createdAt = :afterTime AND c.id < :afterId)) "
+            + "ORDER BY c.createdAt DESC, c.id DESC")
+    List<Comment> findPage(@Param("projectId") Long projectId, @Param("afterTime") LocalDateTime afterTime,
+                           @Param("afterId") Long afterId, Pageable pageable);
+
+    // 按 id 顺序分批取检索索引需要的列：id、项目 id、作者、内容
+    @Query("SELECT c.id, c.project.id, c.authorName, c.content FROM Comment c WHERE c.id > :afterId ORDER BY c.id")
+    List<Object[]> findForIndex(@Param("afterId") Long afterId, Pageable pageable);
+}
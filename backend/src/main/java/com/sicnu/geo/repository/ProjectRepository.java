@@ -1,11 +1,15 @@
 package com.sicnu.geo.repository;
 
+import com.sicnu.geo.dto.ProjectSummary;
 import com.sicnu.geo.entity.Project;
 import com.sicnu.geo.enums.ProjectCategory;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 public interface ProjectRepository extends JpaRepository<Project, Long> {
@@ -15,9 +19,45 @@ public interface ProjectRepository extends JpaRepository<Project, Long> {
     @Query("SELECT p FROM Project p WHERE p.category = :category AND p.status = :status")
     List<Project> findByCategoryAndStatus(@Param("category") ProjectCategory category, @Param("status") String status);
     
-    @Query("SELECT p FROM Project p WHERE p.name LIKE %:keyword% OR p.description LIKE %:keyword%")
-    List<Project> findByKeyword(@Param("keyword") String keyword);
-    
-    @Query("SELECT p FROM Project p WHERE (p.name LIKE %:keyword% OR p.description LIKE %:keyword%) AND p.category = :category")
-    List<Project> findByKeywordAndCategory(@Param("keyword") String keyword, @Param("category") ProjectCategory category);
-}
\ No newline at end of file
+    // 只取 id 与中心点，用于启动时构建空间索引
+    @Query("SELECT p.id, p.centerLng, p.centerLat FROM Project p WHERE p.centerLng IS NOT NULL AND p.centerLat IS NOT NULL")
+    List<Object[]> findAllCenters();
+
+    // 只取聚合需要的列，用于启动时构建分级聚合
+    @Query("SELECT p.id, p.centerLng, p.centerLat, p.category, p.status FROM Project p "
+            + "WHERE p.centerLng IS NOT NULL AND p.centerLat IS NOT NULL")
+    List<Object[]> findAllForClustering();
+
+    // 只取统计需要的列，用于统计计数的加载与定期校准
+    @Query("SELECT p.id, p.category, p.status, p.startDate, p.endDate, p.createdAt FROM Project p")
+    List<Object[]> findAllForStats();
+
+    // 只取工期相关列，用于启动时构建时间区间索引
+    @Query("SELECT p.id, p.startDate, p.endDate, p.createdAt FROM Project p")
+    List<Object[]> findAllPeriods();
+
+    // 只取全文索引需要的列，用于启动时构建关键词索引
+    @Query("SELECT p.id, p.name, p.description, p.category, p.status FROM Project p")
+    List<Object[]> findAllForSearch();
+
+    // 键集翻页（只取摘要列）：按 (createdAt, id) 倒序，createdAt 为空的项目排在最后由下一个查询单独翻页
+    @Query("SELECT new com.sicnu.geo.dto.ProjectSummary(p.id, p.name, p.category, p.status, p.centerLng, p.centerLat, p.createdAt) "
+            + "FROM Project p WHERE p.createdAt IS NOT NULL "
+            + "AND (:category IS NULL OR p.category = :category) AND (:status IS NULL OR p.status = :status) "
+            + "AND (:afterDate IS NULL OR p.createdAt < :afterDate OR (p.createdAt = :afterDate AND p.id < :afterId)) "
+            + "ORDER BY p.createdAt DESC, p.id DESC")
+    List<ProjectSummary> findSummaryPage(@Param("category") ProjectCategory category, @Param("status") String status,
+                                         @Param("afterDate") LocalDate afterDate, @Param("afterId") Long afterId,
+                                         Pageable pageable);
+
+    @Query("SELECT new com.sicnu.geo.dto.ProjectSummary(p.id, p.name, p.category, p.status, p.centerLng, p.centerLat, p.createdAt) "
+            + "FROM Project p WHERE p.createdAt IS NULL "
+            + "AND (:category IS NULL OR p.category = :category) AND (:status IS NULL OR p.status = :status) "
+            + "AND (:afterId IS NULL OR p.id < :afterId) ORDER BY p.id DESC")
+    List<ProjectSummary> findUndatedSummaryPage(@Param("category") ProjectCategory category, @Param("status") String status,
+                                                @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT new com.sicnu.geo.dto.ProjectSummary(p.id, p.name, p.category, p.status, p.centerLng, p.centerLat, p.createdAt) "
+            + "FROM Project p WHERE p.id IN :ids")
+    List<ProjectSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+}
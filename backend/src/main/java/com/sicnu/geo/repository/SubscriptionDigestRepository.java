@@ -0,0 +1,27 @@
+package com.sicnu.geo.repository;
+
+import com.sicnu.geo.entity.SubscriptionDigest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface SubscriptionDigestRepository extends JpaRepository<SubscriptionDigest, Long> {
+    // 最新的在前；unreadOnly 为 true 时只取未读
+    @Query("SELECT d FROM SubscriptionDigest d WHERE d.userId = :userId AND (:unreadOnly = false OR d.readAt IS NULL) "
+            + "ORDER BY d.createdAt DESC, d.id DESC")
+    List<SubscriptionDigest> findRecent(@Param("userId") Long userId, @Param("unreadOnly") boolean unreadOnly,
+                                        Pageable pageable);
+
+    long countByUserIdAndReadAtIsNull(Long userId);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE SubscriptionDigest d SET d.readAt = :at WHERE d.userId = :userId AND d.readAt IS NULL")
+    int markAllRead(@Param("userId") Long userId, @Param("at") LocalDateTime at);
+}
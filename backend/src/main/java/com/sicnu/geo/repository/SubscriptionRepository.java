@@ -0,0 +1,16 @@
+package com.sicnu.geo.repository;
+
+import com.sicnu.geo.entity.Subscription;
+import com.sicnu.geo.enums.ProjectCategory;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface SubscriptionRepository extends JpaRepository<Subscription, Long> {
+    List<Subscription> findByUserIdOrderByCreatedAtDesc(Long userId);
+
+    Optional<Subscription> findByUserIdAndProjectId(Long userId, Long projectId);
+
+    Optional<Subscription> findByUserIdAndCategory(Long userId, ProjectCategory category);
+}
@@ -0,0 +1,26 @@
+package com.sicnu.geo.service;
+
+import com.sicnu.geo.dto.AnalysisRequest;
+import com.sicnu.geo.dto.AnalysisResult;
+import com.sicnu.geo.dto.Measurement;
+import com.sicnu.geo.geometry.Geometry;
+
+import java.io.IOException;
+
+/**
+ * 基于已存要素的服务端空间分析：量算、相交、包含、缓冲区查询与最近邻，可跨项目检测冲突。
+ */
+public interface AnalysisService {
+
+    Measurement measure(Geometry geometry);
+
+    /**
+     * 项目全部要素的合计。
+     */
+    Measurement measureProject(Long projectId) throws IOException;
+
+    /**
+     * 请求参数不合法时抛出 IllegalArgumentException。
+     */
+    AnalysisResult query(AnalysisRequest request) throws IOException;
+}
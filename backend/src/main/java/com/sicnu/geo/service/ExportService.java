@@ -0,0 +1,80 @@
+package com.sicnu.geo.service;
+
+import com.sicnu.geo.enums.ProjectCategory;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 批量导出项目、要素与评论，供数据仓库夜间同步等场景一次取走全部数据。
+ */
+public interface ExportService {
+
+    enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        FLATGEOBUF("application/octet-stream", "fgb");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() { return contentType; }
+        public String getExtension() { return extension; }
+
+        public static Format of(String name) {
+            switch (name == null ? "" : name.trim().toLowerCase(Locale.ROOT)) {
+                case "": case "ndjson": case "geojsonl": case "geojsonseq":
+                    return NDJSON;
+                case "fgb": case "flatgeobuf":
+                    return FLATGEOBUF;
+                default:
+                    throw new IllegalArgumentException("不支持的导出格式: " + name + "（可选 ndjson、fgb）");
+            }
+        }
+    }
+
+    /**
+     * 导出范围；各条件为空表示不限。
+     */
+    record Filter(ProjectCategory category, String status, List<Long> projectIds) {
+
+        public static Filter parse(String category, String status, String ids) {
+            ProjectCategory cat = null;
+            if (category != null && !category.isBlank()) {
+                try {
+                    cat = ProjectCategory.valueOf(category.trim().toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("未知的项目分类: " + category);
+                }
+            }
+            List<Long> projectIds = null;
+            if (ids != null && !ids.isBlank()) {
+                projectIds = new ArrayList<>();
+                for (String id : ids.split(",")) {
+                    if (id.isBlank()) continue;
+                    try {
+                        projectIds.add(Long.parseLong(id.trim()));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("无效的项目 id: " + id);
+                    }
+                }
+            }
+            return new Filter(cat, status == null || status.isBlank() ? null : status.trim(), projectIds);
+        }
+    }
+
+    record Result(int projects, long features, long comments) {
+    }
+
+    /**
+     * 按项目 id 顺序逐个写出；不关闭通道。
+     */
+    Result export(Filter filter, Format format, WritableByteChannel out) throws IOException;
+}
@@ -0,0 +1,22 @@
+package com.sicnu.geo.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 要素文档的多级简化（细节层级）：保存后预先计算，读取时按缩放级别或容差选用。
+ */
+public interface FeatureLevelService {
+
+    /**
+     * 按 zoom 或 tolerance（度）选出可用且未过期的层级；应使用全精度文档时返回 null。
+     */
+    Integer resolveLevel(Long projectId, Integer zoom, Double tolerance);
+
+    void writeLevel(Long projectId, int level, OutputStream out) throws IOException;
+
+    /**
+     * 重新生成项目的全部层级；文档在生成期间再次变化时丢弃本次结果。
+     */
+    void rebuild(Long projectId);
+}
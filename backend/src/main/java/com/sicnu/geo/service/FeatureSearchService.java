@@ -0,0 +1,21 @@
+package com.sicnu.geo.service;
+
+import com.sicnu.geo.enums.ProjectCategory;
+import com.sicnu.geo.geometry.Envelope;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 跨项目的要素检索：先按 feature_rows 的外包矩形列在数据库中筛选，再对几何做精确相交判断。
+ */
+public interface FeatureSearchService {
+
+    /**
+     * 把与 bbox 相交的要素写成 GeoJSON FeatureCollection，每个要素附带 projectId、projectName；
+     * 超过 limit 个时截断并在集合上标记 truncated。category、status 为空表示不筛选，limit 为空取默认值。
+     * 返回写出的要素个数。
+     */
+    int search(Envelope bbox, ProjectCategory category, String status, Integer limit, OutputStream out)
+            throws IOException;
+}
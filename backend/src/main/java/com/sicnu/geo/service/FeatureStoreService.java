@@ -0,0 +1,83 @@
+package com.sicnu.geo.service;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sicnu.geo.dto.FeaturePatchResult;
+import com.sicnu.geo.dto.FeatureSummary;
+import com.sicnu.geo.geometry.Geometry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+public interface FeatureStoreService {
+
+    @FunctionalInterface
+    interface FeatureVisitor {
+        void visit(ObjectNode feature, Geometry geometry) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface FeatureSink {
+        /**
+         * properties 可以为 null；geometry 为 null 表示空几何。
+         */
+        void accept(ObjectNode properties, Geometry geometry) throws IOException;
+    }
+
+    /**
+     * 逐个产生要素的数据源（如服务端解析的 Shapefile），保存时边产生边写出，不在内存中累积。
+     */
+    @FunctionalInterface
+    interface FeatureSource {
+        void forEach(FeatureSink sink) throws IOException;
+    }
+
+    /**
+     * 文档的版本信息，不读取正文；contentHash 为主文档原文的 SHA-256，gzipStored 表示存有可直接发送的压缩副本。
+     */
+    record DocumentInfo(long version, String contentHash, LocalDateTime updatedAt, boolean gzipStored) {
+    }
+
+    /**
+     * 将项目的 FeatureCollection 从数据库 LOB 流式写出；没有文档时写出空集合。
+     */
+    void writeCollection(Long projectId, OutputStream out) throws IOException;
+
+    /**
+     * 边读取边逐要素校验并保存 FeatureCollection，校验失败抛出 IllegalArgumentException。
+     */
+    FeatureSummary save(Long projectId, InputStream body) throws IOException;
+
+    /**
+     * 用数据源逐个产生的要素整体替换项目的文档；坐标必须已是 WGS84 经纬度，超出范围抛出 IllegalArgumentException。
+     */
+    FeatureSummary save(Long projectId, FeatureSource source) throws IOException;
+
+    /**
+     * 按要素 id 增量新增/修改/删除。expectedVersion 不为空且与当前版本不一致时
+     * 抛出 OptimisticLockingFailureException，此时不读写任何 LOB。
+     */
+    FeaturePatchResult patch(Long projectId, Long expectedVersion, InputStream body) throws IOException;
+
+    /**
+     * 当前文档的版本信息；没有文档时返回 null。
+     */
+    DocumentInfo describe(Long projectId);
+
+    /**
+     * 原样写出已存的 gzip 压缩副本；没有副本时不写任何内容并返回 false。
+     */
+    boolean writeCompressed(Long projectId, OutputStream out) throws IOException;
+
+    /**
+     * 逐要素遍历项目的已存文档（已叠加补丁），任何时刻只解析一个要素；没有文档时不回调。
+     * 几何以 geometry 参数为准：二进制存储的要素中 geometry 成员只是 null 占位。
+     */
+    void forEachFeature(Long projectId, FeatureVisitor visitor) throws IOException;
+
+    /**
+     * 将累积的补丁合并进主文档，并重算内容摘要与压缩副本；文档内容与版本号不变。
+     */
+    void compact(Long projectId);
+}
@@ -0,0 +1,20 @@
+package com.sicnu.geo.service;
+
+import com.sicnu.geo.dto.FeatureSummary;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 服务端解析上传的 Shapefile，逐条转换为 WGS84 要素写入项目的要素文档。
+ */
+public interface ShapefileImportService {
+
+    /**
+     * @param files    .shp/.shx/.dbf/.prj/.cpg 文件，或包含它们的 zip 压缩包
+     * @param encoding 属性表编码，为空时依次参考 .cpg、.dbf 文件头与配置的默认编码
+     * @param layer    上传内容包含多个图层时要导入的图层名（不含扩展名）
+     */
+    FeatureSummary importShapefile(Long projectId, List<MultipartFile> files, String encoding, String layer) throws IOException;
+}
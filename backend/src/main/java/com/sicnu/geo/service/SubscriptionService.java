@@ -0,0 +1,57 @@
+package com.sicnu.geo.service;
+
+import com.sicnu.geo.dto.BatchSubscriptionResult;
+import com.sicnu.geo.dto.ProjectSubscriptionStatus;
+import com.sicnu.geo.dto.SubscribedProjects;
+import com.sicnu.geo.dto.SubscriptionRequest;
+import com.sicnu.geo.dto.SubscriptionStats;
+import com.sicnu.geo.entity.Subscription;
+import com.sicnu.geo.entity.SubscriptionDigest;
+
+import java.util.List;
+
+/**
+ * 用户对项目、分类、区域的订阅。每次写入后同步更新本节点的订阅索引并通知其它节点，
+ * 变化的匹配与摘要见 {@link com.sicnu.geo.live.SubscriptionDigests}。
+ */
+public interface SubscriptionService {
+
+    List<Subscription> list(long userId);
+
+    /**
+     * 按项目、分类订阅时重复订阅返回已有的订阅；项目不存在或参数不合法时抛出 IllegalArgumentException。
+     */
+    Subscription subscribe(long userId, SubscriptionRequest request);
+
+    boolean unsubscribe(long userId, long subscriptionId);
+
+    boolean unsubscribeProject(long userId, long projectId);
+
+    /**
+     * 按项目订阅的项目，按订阅时间倒序；status 为空或 all 表示不筛选，search 匹配项目名称与描述。
+     */
+    SubscribedProjects subscribedProjects(long userId, String status, String search, Integer page, Integer limit);
+
+    ProjectSubscriptionStatus projectStatus(long userId, long projectId);
+
+    /**
+     * 修改项目订阅的通知开关；未订阅该项目时返回 null。
+     */
+    ProjectSubscriptionStatus updateNotification(long userId, long projectId, boolean enabled);
+
+    SubscriptionStats stats(long userId);
+
+    /**
+     * 批量订阅或取消订阅，各为一条写入语句；取消订阅只把原本订阅了的项目记为成功。
+     */
+    BatchSubscriptionResult batch(long userId, List<Long> projectIds, String action, Boolean notificationEnabled);
+
+    List<SubscriptionDigest> digests(long userId, boolean unreadOnly, Integer limit);
+
+    int markDigestsRead(long userId);
+
+    /**
+     * 删除指向这些项目的订阅（项目已删除）。
+     */
+    void removeForProjects(List<Long> projectIds);
+}
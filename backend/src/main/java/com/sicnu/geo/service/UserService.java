@@ -3,6 +3,7 @@ package com.sicnu.geo.service;
 import com.sicnu.geo.entity.User;
 
 public interface UserService {
-    void sendCode(String phone);
+    void sendCode(String phone, String clientIp);
     User login(String phone, String code);
+    User findById(Long id);
 }
@@ -0,0 +1,15 @@
+package com.sicnu.geo.service;
+
+import com.sicnu.geo.enums.ProjectCategory;
+
+import java.util.Map;
+
+public interface VectorTileService {
+
+    /**
+     * 生成（或从缓存取得）z/x/y 瓦片的 MVT 编码；category、status 为空表示不筛选。
+     */
+    byte[] getTile(int z, int x, int y, ProjectCategory category, String status);
+
+    Map<String, Object> cacheStats();
+}
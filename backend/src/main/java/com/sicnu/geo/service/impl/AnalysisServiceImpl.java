@@ -0,0 +1,353 @@
+package com.sicnu.geo.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.sicnu.geo.analysis.Measures;
+import com.sicnu.geo.analysis.PlanarFrame;
+import com.sicnu.geo.analysis.PreparedGeometry;
+import com.sicnu.geo.dto.AnalysisHit;
+import com.sicnu.geo.dto.AnalysisRequest;
+import com.sicnu.geo.dto.AnalysisResult;
+import com.sicnu.geo.dto.Measurement;
+import com.sicnu.geo.enums.ProjectCategory;
+import com.sicnu.geo.geometry.Envelope;
+import com.sicnu.geo.geometry.GeoMath;
+import com.sicnu.geo.geometry.Geometry;
+import com.sicnu.geo.index.StrTree;
+import com.sicnu.geo.service.AnalysisService;
+import com.sicnu.geo.service.FeatureStoreService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 查询几何预处理一次（平面坐标 + 线段格网），多个查询要素再建一棵 STR 树；
+ * 候选项目先用 project_features 的外包矩形列在数据库中筛选，项目内的要素逐个读取、按外包矩形过滤后分批
+ * 交给 ForkJoinPool 并行做精确判断。最近邻按项目外包矩形的距离由近及远处理，已有 k 个结果且下一个项目
+ * 更远时停止。
+ */
+@Service
+public class AnalysisServiceImpl implements AnalysisService {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalysisServiceImpl.class);
+
+    private static final int DEFAULT_K = 5;
+    private static final int MAX_K = 100;
+    private static final int MAX_SOURCES = 10000;
+    private static final double MAX_DISTANCE_METERS = 100_000;
+
+    private enum Op { INTERSECTS, WITHIN, BUFFER, NEAREST }
+
+    private record Source(String featureId, Geometry geometry) {
+    }
+
+    private record Candidate(long projectId, String projectName, ObjectNode feature, Geometry geometry) {
+    }
+
+    private record Scored(Candidate candidate, String sourceFeatureId, double distance) {
+    }
+
+    private record ProjectRow(long id, String name, Envelope envelope) {
+    }
+
+    private final JdbcTemplate jdbc;
+    private final ObjectMapper mapper;
+    private final FeatureStoreService featureStore;
+    private final ForkJoinPool pool;
+    private final int maxResults;
+    private final int batchSize;
+
+    public AnalysisServiceImpl(JdbcTemplate jdbc, ObjectMapper mapper, FeatureStoreService featureStore,
+                               @Qualifier("analysisPool") ForkJoinPool pool,
+                               @Value("${sicnugeo.analysis.max-results:1000}") int maxResults,
+                               @Value("${sicnugeo.analysis.batch-size:512}") int batchSize) {
+        this.jdbc = jdbc;
+        this.mapper = mapper;
+        this.featureStore = featureStore;
+        this.pool = pool;
+        this.maxResults = maxResults;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public Measurement measure(Geometry geometry) {
+        double[] m = Measures.of(geometry);
+        return new Measurement(1, round(m[0]), round(m[1]), round(m[2]));
+    }
+
+    @Override
+    public Measurement measureProject(Long projectId) throws IOException {
+        double[] total = new double[3];
+        int[] count = {0};
+        featureStore.forEachFeature(projectId, (feature, geometry) -> {
+            count[0]++;
+            if (geometry == null) return;
+            double[] m = Measures.of(geometry);
+            for (int i = 0; i < 3; i++) total[i] += m[i];
+        });
+        return new Measurement(count[0], round(total[0]), round(total[1]), round(total[2]));
+    }
+
+    @Override
+    public AnalysisResult query(AnalysisRequest request) throws IOException {
+        long started = System.currentTimeMillis();
+        Run run = new Run(request);
+        run.execute();
+        long elapsed = System.currentTimeMillis() - started;
+        log.debug("空间分析 {}：{} 个查询要素，{} 个候选，{} 个结果，耗时 {} ms",
+                run.op, run.sources.size(), run.candidates, run.hits.size(), elapsed);
+        return new AnalysisResult(run.op.name().toLowerCase(Locale.ROOT), run.hits, run.candidates, run.truncated, elapsed);
+    }
+
+    /**
+     * 一次查询的状态；分批评估在 ForkJoinPool 中进行，其余步骤都在调用线程上。
+     */
+    private final class Run {
+        private final AnalysisRequest request;
+        private final Op op;
+        private final List<Source> sources;
+        private final double distance;
+        private final int k;
+        private final int limit;
+        private final boolean includeGeometry;
+        private final Envelope sourceEnvelope = new Envelope();
+        private final PlanarFrame frame;
+        private final PreparedGeometry[] prepared;
+        private final StrTree tree;
+        private final Envelope searchEnvelope;
+
+        private final List<Candidate> batch = new ArrayList<>();
+        private final List<AnalysisHit> hits = new ArrayList<>();
+        private final PriorityQueue<Scored> nearest =
+                new PriorityQueue<>(Comparator.comparingDouble(Scored::distance).reversed());
+        private int candidates;
+        private boolean truncated;
+
+        Run(AnalysisRequest request) throws IOException {
+            this.request = request;
+            this.op = parseOp(request.op());
+            this.sources = loadSources(request);
+            for (Source s : sources) sourceEnvelope.expand(s.geometry.envelope());
+            if (sourceEnvelope.isEmpty()) throw new IllegalArgumentException("查询几何为空");
+
+            Double d = request.distanceMeters();
+            if (d != null && (!Double.isFinite(d) || d < 0 || d > MAX_DISTANCE_METERS)) {
+                throw new IllegalArgumentException("distanceMeters 应在 0 到 " + (long) MAX_DISTANCE_METERS + " 之间");
+            }
+            if (op == Op.BUFFER && d == null) throw new IllegalArgumentException("buffer 需要 distanceMeters");
+            this.distance = op == Op.BUFFER || op == Op.NEAREST ? (d == null ? Double.POSITIVE_INFINITY : d) : 0;
+            this.k = request.k() == null ? DEFAULT_K : request.k();
+            if (op == Op.NEAREST && (k < 1 || k > MAX_K)) throw new IllegalArgumentException("k 应在 1 到 " + MAX_K + " 之间");
+            this.limit = request.limit() == null ? maxResults : Math.max(1, Math.min(request.limit(), maxResults));
+            this.includeGeometry = Boolean.TRUE.equals(request.includeGeometry());
+
+            frame = PlanarFrame.centeredOn(sourceEnvelope);
+            prepared = new PreparedGeometry[sources.size()];
+            double[][] boxes = new double[sources.size()][];
+            boolean hasArea = false;
+            for (int i = 0; i < prepared.length; i++) {
+                prepared[i] = PreparedGeometry.of(sources.get(i).geometry, frame);
+                boxes[i] = new double[]{prepared[i].getMinX(), prepared[i].getMinY(), prepared[i].getMaxX(), prepared[i].getMaxY()};
+                hasArea |= prepared[i].hasArea();
+            }
+            if (op == Op.WITHIN && !hasArea) throw new IllegalArgumentException("within 的查询几何必须包含面");
+            tree = new StrTree(boxes);
+            searchEnvelope = Double.isInfinite(distance) ? null : GeoMath.expand(sourceEnvelope, distance);
+        }
+
+        void execute() throws IOException {
+            for (ProjectRow project : candidateProjects()) {
+                if (truncated) break;
+                // 项目按距离排序，之后的项目都不可能更近
+                if (op == Op.NEAREST && nearest.size() == k
+                        && frame.distance(sourceEnvelope, project.envelope) > nearest.peek().distance) break;
+                featureStore.forEachFeature(project.id, (feature, geometry) -> {
+                    if (geometry == null || truncated) return;
+                    Envelope env = geometry.envelope();
+                    if (searchEnvelope != null && !searchEnvelope.intersects(env)) return;
+                    if (op == Op.NEAREST && nearest.size() == k && frame.distance(sourceEnvelope, env) > nearest.peek().distance) return;
+                    batch.add(new Candidate(project.id, project.name, feature, geometry));
+                    if (batch.size() >= batchSize) flush();
+                });
+            }
+            flush();
+            if (op == Op.NEAREST) {
+                List<Scored> sorted = new ArrayList<>(nearest);
+                sorted.sort(Comparator.comparingDouble(Scored::distance));
+                for (Scored s : sorted) hits.add(hit(s));
+            }
+        }
+
+        private void flush() throws IOException {
+            if (batch.isEmpty()) return;
+            double bound = op == Op.NEAREST && nearest.size() == k ? Math.min(distance, nearest.peek().distance) : distance;
+            List<Candidate> work = new ArrayList<>(batch);
+            batch.clear();
+            candidates += work.size();
+            List<Scored> scored = pool.submit(() -> work.parallelStream()
+                    .map(c -> evaluate(c, bound))
+                    .filter(Objects::nonNull)
+                    .toList()).join();
+            if (op == Op.NEAREST) {
+                for (Scored s : scored) {
+                    nearest.add(s);
+                    if (nearest.size() > k) nearest.poll();
+                }
+                return;
+            }
+            for (Scored s : scored) {
+                if (hits.size() >= limit) {
+                    truncated = true;
+                    return;
+                }
+                hits.add(hit(s));
+            }
+        }
+
+        // 在 ForkJoinPool 的工作线程上执行，只读共享状态
+        private Scored evaluate(Candidate c, double bound) {
+            PreparedGeometry g = PreparedGeometry.of(c.geometry, frame);
+            if (g.isEmpty()) return null;
+            double r = op == Op.INTERSECTS || op == Op.WITHIN ? 0 : bound;
+            List<Integer> near = new ArrayList<>();
+            tree.query(g.getMinX() - r, g.getMinY() - r, g.getMaxX() + r, g.getMaxY() + r, near::add);
+            String featureId = featureId(c.feature);
+            String best = null;
+            double bestDistance = Double.POSITIVE_INFINITY;
+            for (int i : near) {
+                Source source = sources.get(i);
+                // 源项目内查找时跳过要素与自身的比较
+                if (isSelf(c, featureId, source)) continue;
+                switch (op) {
+                    case INTERSECTS:
+                        if (prepared[i].intersects(g)) return new Scored(c, source.featureId, 0);
+                        break;
+                    case WITHIN:
+                        if (prepared[i].contains(g)) return new Scored(c, source.featureId, 0);
+                        break;
+                    default: {
+                        double d = prepared[i].distance(g, Math.min(r, bestDistance));
+                        if (Double.isFinite(d) && (best == null || d < bestDistance)) {
+                            best = source.featureId == null ? "" : source.featureId;
+                            bestDistance = d;
+                            if (d == 0) return new Scored(c, source.featureId, 0);
+                        }
+                    }
+                }
+            }
+            return best == null ? null : new Scored(c, best.isEmpty() ? null : best, bestDistance);
+        }
+
+        private boolean isSelf(Candidate c, String featureId, Source source) {
+            return request.sourceProjectId() != null && c.projectId == request.sourceProjectId()
+                    && featureId != null && featureId.equals(source.featureId);
+        }
+
+        private AnalysisHit hit(Scored s) throws IOException {
+            ObjectNode feature = s.candidate.feature;
+            return new AnalysisHit(s.candidate.projectId, s.candidate.projectName, featureId(feature), s.sourceFeatureId,
+                    round(s.distance), feature.get("properties"), includeGeometry ? geoJson(s.candidate.geometry) : null);
+        }
+
+        // 二进制存储的要素中 geometry 成员只是占位，几何以解码结果为准
+        private JsonNode geoJson(Geometry geometry) throws IOException {
+            try (TokenBuffer buffer = new TokenBuffer(mapper, false)) {
+                geometry.writeGeoJson(buffer);
+                return mapper.readTree(buffer.asParser());
+            }
+        }
+
+        private List<ProjectRow> candidateProjects() {
+            StringBuilder sql = new StringBuilder("SELECT f.project_id, p.name, f.min_lng, f.min_lat, f.max_lng, f.max_lat "
+                    + "FROM project_features f JOIN projects p ON p.id = f.project_id WHERE f.min_lng IS NOT NULL");
+            List<Object> args = new ArrayList<>();
+            if (searchEnvelope != null) {
+                sql.append(" AND f.max_lng >= ? AND f.min_lng <= ? AND f.max_lat >= ? AND f.min_lat <= ?");
+                args.addAll(List.of(searchEnvelope.getMinX(), searchEnvelope.getMaxX(),
+                        searchEnvelope.getMinY(), searchEnvelope.getMaxY()));
+            }
+            if (request.category() != null && !request.category().isBlank()) {
+                try {
+                    args.add(ProjectCategory.valueOf(request.category().trim().toUpperCase(Locale.ROOT)).name());
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("未知的项目分类: " + request.category());
+                }
+                sql.append(" AND p.category = ?");
+            }
+            if (request.status() != null && !request.status().isBlank()) {
+                sql.append(" AND p.status = ?");
+                args.add(request.status().trim());
+            }
+            if (request.projectIds() != null && !request.projectIds().isEmpty()) {
+                sql.append(" AND f.project_id IN (")
+                        .append(String.join(", ", Collections.nCopies(request.projectIds().size(), "?"))).append(")");
+                args.addAll(request.projectIds());
+            }
+            if (request.sourceProjectId() != null && !Boolean.TRUE.equals(request.includeSource())) {
+                sql.append(" AND f.project_id <> ?");
+                args.add(request.sourceProjectId());
+            }
+            List<ProjectRow> rows = jdbc.query(sql.toString(), (rs, i) -> new ProjectRow(rs.getLong(1), rs.getString(2),
+                    new Envelope(rs.getDouble(3), rs.getDouble(4), rs.getDouble(5), rs.getDouble(6))), args.toArray());
+            if (op == Op.NEAREST) rows.sort(Comparator.comparingDouble(p -> frame.distance(sourceEnvelope, p.envelope)));
+            return rows;
+        }
+    }
+
+    private List<Source> loadSources(AnalysisRequest request) throws IOException {
+        boolean hasGeometry = request.geometry() != null && !request.geometry().isNull();
+        if (hasGeometry == (request.sourceProjectId() != null)) {
+            throw new IllegalArgumentException("geometry 与 sourceProjectId 必须且只能指定一个");
+        }
+        if (hasGeometry) return List.of(new Source(null, Geometry.fromGeoJson(request.geometry())));
+
+        Set<String> wanted = request.sourceFeatureIds() == null || request.sourceFeatureIds().isEmpty()
+                ? null : new HashSet<>(request.sourceFeatureIds());
+        List<Source> sources = new ArrayList<>();
+        featureStore.forEachFeature(request.sourceProjectId(), (feature, geometry) -> {
+            if (geometry == null) return;
+            String id = featureId(feature);
+            if (wanted != null && !wanted.contains(id)) return;
+            if (sources.size() >= MAX_SOURCES) throw new IllegalArgumentException("查询要素超过 " + MAX_SOURCES + " 个");
+            sources.add(new Source(id, geometry));
+        });
+        if (sources.isEmpty()) throw new IllegalArgumentException("源项目没有可用的要素");
+        return sources;
+    }
+
+    private static Op parseOp(String op) {
+        switch (op == null ? "" : op.trim().toLowerCase(Locale.ROOT)) {
+            case "intersects": return Op.INTERSECTS;
+            case "within": return Op.WITHIN;
+            case "buffer": case "dwithin": return Op.BUFFER;
+            case "nearest": return Op.NEAREST;
+            default: throw new IllegalArgumentException("不支持的分析操作: " + op + "（可选 intersects、within、buffer、nearest）");
+        }
+    }
+
+    private static String featureId(ObjectNode feature) {
+        JsonNode id = feature.get("id");
+        return id == null || id.isNull() ? null : id.asText();
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 100) / 100.0;
+    }
+}
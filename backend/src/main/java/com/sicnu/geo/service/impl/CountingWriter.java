@@ -0,0 +1,35 @@
+package com.sicnu.geo.service.impl;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * 统计写出字符数，供 PreparedStatement.setCharacterStream 传入长度。
+ */
+class CountingWriter extends FilterWriter {
+
+    long count;
+
+    CountingWriter(Writer out) {
+        super(out);
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        super.write(c);
+        count++;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        super.write(cbuf, off, len);
+        count += len;
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        super.write(str, off, len);
+        count += len;
+    }
+}
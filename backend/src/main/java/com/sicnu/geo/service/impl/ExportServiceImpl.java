@@ -0,0 +1,160 @@
+package com.sicnu.geo.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sicnu.geo.export.ExportWriter;
+import com.sicnu.geo.export.FlatGeobufExportWriter;
+import com.sicnu.geo.export.NdjsonExportWriter;
+import com.sicnu.geo.geometry.Geometry;
+import com.sicnu.geo.service.ExportService;
+import com.sicnu.geo.service.FeatureStoreService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 项目表用只进游标逐行读取（MySQL 流式结果集，其它数据库按 fetchSize 分批），
+ * 每个项目的评论与要素文档随读随写，内存中只保留当前这一个项目的记录。
+ */
+@Service
+public class ExportServiceImpl implements ExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportServiceImpl.class);
+    private static final int FETCH_SIZE = 200;
+
+    private final JdbcTemplate jdbc;
+    private final ObjectMapper mapper;
+    private final FeatureStoreService featureStore;
+    private final TransactionTemplate readOnlyTx;
+    private volatile Boolean mysql;
+
+    public ExportServiceImpl(JdbcTemplate jdbc, ObjectMapper mapper, FeatureStoreService featureStore,
+                             PlatformTransactionManager txManager) {
+        this.jdbc = jdbc;
+        this.mapper = mapper;
+        this.featureStore = featureStore;
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    @Override
+    public Result export(Filter filter, Format format, WritableByteChannel out) throws IOException {
+        long started = System.currentTimeMillis();
+        ExportWriter writer = format == Format.FLATGEOBUF
+                ? new FlatGeobufExportWriter(mapper, out, "sicnugeo")
+                : new NdjsonExportWriter(mapper, out);
+
+        StringBuilder sql = new StringBuilder("SELECT id, name, description, status, category, start_date, end_date, "
+                + "created_at, center_lng, center_lat FROM projects WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (filter.category() != null) {
+            sql.append(" AND category = ?");
+            args.add(filter.category().name());
+        }
+        if (filter.status() != null) {
+            sql.append(" AND status = ?");
+            args.add(filter.status());
+        }
+        if (filter.projectIds() != null) {
+            if (filter.projectIds().isEmpty()) return finish(writer, new long[3], started);
+            sql.append(" AND id IN (").append(String.join(", ", Collections.nCopies(filter.projectIds().size(), "?"))).append(")");
+            args.addAll(filter.projectIds());
+        }
+        sql.append(" ORDER BY id");
+
+        long[] counts = new long[3]; // 项目、要素、评论
+        boolean streaming = isMySql();
+        JdbcTemplate cursor = new JdbcTemplate(jdbc.getDataSource());
+        cursor.setFetchSize(streaming ? Integer.MIN_VALUE : FETCH_SIZE);
+        RowCallbackHandler handler = rs -> {
+            try {
+                writeProject(rs, writer, counts);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        try {
+            // MySQL 的流式结果集独占连接，不放进事务，每个项目的评论与要素查询取用连接池中的其它连接；
+            // PostgreSQL 只有在事务中（关闭自动提交）才会按 fetchSize 用游标分批读取
+            if (streaming) {
+                cursor.query(sql.toString(), handler, args.toArray());
+            } else {
+                readOnlyTx.executeWithoutResult(status -> cursor.query(sql.toString(), handler, args.toArray()));
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return finish(writer, counts, started);
+    }
+
+    private Result finish(ExportWriter writer, long[] counts, long started) throws IOException {
+        writer.finish();
+        log.info("导出完成：{} 个项目，{} 个要素，{} 条评论，耗时 {} ms",
+                counts[0], counts[1], counts[2], System.currentTimeMillis() - started);
+        return new Result((int) counts[0], counts[1], counts[2]);
+    }
+
+    private void writeProject(ResultSet rs, ExportWriter writer, long[] counts) throws SQLException, IOException {
+        long projectId = rs.getLong("id");
+        ObjectNode project = mapper.createObjectNode();
+        project.put("name", rs.getString("name"));
+        project.put("description", rs.getString("description"));
+        project.put("status", rs.getString("status"));
+        project.put("category", rs.getString("category"));
+        project.put("startDate", date(rs.getDate("start_date")));
+        project.put("endDate", date(rs.getDate("end_date")));
+        project.put("createdAt", date(rs.getDate("created_at")));
+        Double lng = rs.getObject("center_lng", Double.class);
+        Double lat = rs.getObject("center_lat", Double.class);
+        project.put("centerLng", lng);
+        project.put("centerLat", lat);
+        ArrayNode comments = project.putArray("comments");
+        jdbc.query("SELECT id, author_name, content, created_at FROM comments WHERE project_id = ? ORDER BY created_at, id",
+                (RowCallbackHandler) c -> {
+                    Timestamp createdAt = c.getTimestamp(4);
+                    comments.addObject()
+                            .put("id", c.getLong(1))
+                            .put("authorName", c.getString(2))
+                            .put("content", c.getString(3))
+                            .put("createdAt", createdAt == null ? null : createdAt.toLocalDateTime().toString());
+                }, projectId);
+        Geometry location = lng == null || lat == null ? null
+                : new Geometry(Geometry.Type.Point, List.of(List.of(new double[]{lng, lat})));
+        writer.writeProject(projectId, project, location);
+        counts[0]++;
+        counts[2] += comments.size();
+        featureStore.forEachFeature(projectId, (feature, geometry) -> {
+            writer.writeFeature(projectId, feature, geometry);
+            counts[1]++;
+        });
+    }
+
+    private static String date(Date date) {
+        return date == null ? null : date.toLocalDate().toString();
+    }
+
+    private boolean isMySql() {
+        if (mysql == null) {
+            String product = jdbc.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+            mysql = product != null && product.toLowerCase().contains("mysql");
+        }
+        return mysql;
+    }
+}
@@ -0,0 +1,290 @@
+package com.sicnu.geo.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sicnu.geo.event.FeatureDocumentChangedEvent;
+import com.sicnu.geo.geometry.Geometry;
+import com.sicnu.geo.geometry.SharedVertexIndex;
+import com.sicnu.geo.geometry.Simplifier;
+import com.sicnu.geo.service.FeatureLevelService;
+import com.sicnu.geo.service.FeatureStoreService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * 保存后在后台按多个缩放区间生成 Douglas-Peucker 简化结果，并保持要素间的共享顶点。
+ * 两遍流式读取：第一遍统计共享顶点，第二遍按批次并行简化并写出各层级。
+ * 同一项目两次重建至少相隔 rebuild-interval，期间的多次保存（如连续的小补丁）合并为间隔结束时的一次重建；
+ * 重建完成前按缩放级别的请求返回全精度文档。
+ */
+@Service
+public class FeatureLevelServiceImpl implements FeatureLevelService {
+
+    private static final Logger log = LoggerFactory.getLogger(FeatureLevelServiceImpl.class);
+
+    // 各层级适用的最大缩放级别；更大的缩放级别直接使用全精度文档
+    private static final int[] MAX_ZOOMS = {6, 9, 12, 15};
+    private static final int BATCH_SIZE = 256;
+
+    private final JdbcTemplate jdbc;
+    private final ObjectMapper mapper;
+    private final FeatureStoreService featureStore;
+    private final TaskExecutor executor;
+    private final ForkJoinPool pool;
+    private final TransactionTemplate tx;
+    private final long rebuildIntervalMillis;
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    // 项目 id -> 上次开始重建的时间
+    private final Map<Long, Long> lastRebuild = new ConcurrentHashMap<>();
+
+    public FeatureLevelServiceImpl(JdbcTemplate jdbc, ObjectMapper mapper, FeatureStoreService featureStore,
+                                   @Qualifier("featureTaskExecutor") TaskExecutor executor,
+                                   @Qualifier("analysisPool") ForkJoinPool pool,
+                                   PlatformTransactionManager txManager,
+                                   @Value("${sicnugeo.features.level-rebuild-interval-seconds:30}") long rebuildIntervalSeconds) {
+        this.jdbc = jdbc;
+        this.mapper = mapper;
+        this.featureStore = featureStore;
+        this.executor = executor;
+        this.pool = pool;
+        this.tx = new TransactionTemplate(txManager);
+        this.rebuildIntervalMillis = TimeUnit.SECONDS.toMillis(rebuildIntervalSeconds);
+    }
+
+    // 约 1 像素（256 像素瓦片）对应的经度跨度
+    static double tolerance(int level) {
+        return 360.0 / (256L << MAX_ZOOMS[level]);
+    }
+
+    // 保留到容差的十分之一即可，显著缩短坐标文本
+    static int decimals(int level) {
+        return (int) Math.ceil(-Math.log10(tolerance(level) / 10));
+    }
+
+    @EventListener
+    public void onFeaturesChanged(FeatureDocumentChangedEvent e) {
+        Long projectId = e.projectId();
+        // 同一项目排队中的重建合并为一次；距上次重建不足间隔时推迟到间隔结束
+        if (!pending.add(projectId)) return;
+        Runnable task = () -> {
+            pending.remove(projectId);
+            lastRebuild.put(projectId, System.currentTimeMillis());
+            rebuild(projectId);
+        };
+        long wait = lastRebuild.getOrDefault(projectId, 0L) + rebuildIntervalMillis - System.currentTimeMillis();
+        if (wait <= 0) executor.execute(task);
+        else CompletableFuture.delayedExecutor(wait, TimeUnit.MILLISECONDS, executor).execute(task);
+    }
+
+    @Override
+    public Integer resolveLevel(Long projectId, Integer zoom, Double tolerance) {
+        int level = -1;
+        if (zoom != null) {
+            for (int i = 0; i < MAX_ZOOMS.length; i++) {
+                if (zoom <= MAX_ZOOMS[i]) {
+                    level = i;
+                    break;
+                }
+            }
+        } else if (tolerance != null) {
+            for (int i = 0; i < MAX_ZOOMS.length; i++) {
+                if (tolerance(i) <= tolerance) {
+                    level = i;
+                    break;
+                }
+            }
+        }
+        if (level < 0) return null;
+        Integer found = jdbc.query("SELECT l.detail_level FROM project_feature_levels l "
+                + "JOIN project_features f ON f.project_id = l.project_id AND f.version = l.source_version "
+                + "WHERE l.project_id = ? AND l.detail_level = ?", rs -> rs.next() ? rs.getInt(1) : null, projectId, level);
+        return found;
+    }
+
+    @Override
+    public void writeLevel(Long projectId, int level, OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        try {
+            jdbc.query("SELECT content FROM project_feature_levels WHERE project_id = ? AND detail_level = ?", rs -> {
+                if (!rs.next()) return null;
+                try (Reader reader = rs.getCharacterStream(1)) {
+                    if (reader != null) reader.transferTo(writer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            }, projectId, level);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    @Override
+    public void rebuild(Long projectId) {
+        Long version = jdbc.query("SELECT version FROM project_features WHERE project_id = ?",
+                rs -> rs.next() ? rs.getLong(1) : null, projectId);
+        if (version == null) return;
+        List<Path> files = new ArrayList<>();
+        try {
+            SharedVertexIndex shared = new SharedVertexIndex();
+            int[] index = {0};
+            featureStore.forEachFeature(projectId, (feature, geometry) -> shared.addAll(geometry, index[0]++));
+
+            LevelWriter[] writers = new LevelWriter[MAX_ZOOMS.length];
+            for (int i = 0; i < writers.length; i++) {
+                Path file = Files.createTempFile("feature-level-" + projectId + "-" + i + "-", ".geojson");
+                files.add(file);
+                writers[i] = new LevelWriter(file);
+            }
+            try {
+                List<ObjectNode> features = new ArrayList<>(BATCH_SIZE);
+                List<Geometry> geometries = new ArrayList<>(BATCH_SIZE);
+                featureStore.forEachFeature(projectId, (feature, geometry) -> {
+                    features.add(feature);
+                    geometries.add(geometry);
+                    if (features.size() == BATCH_SIZE) flushBatch(features, geometries, shared, writers);
+                });
+                flushBatch(features, geometries, shared, writers);
+            } finally {
+                for (LevelWriter w : writers) w.close();
+            }
+            persist(projectId, version, writers);
+        } catch (IOException | RuntimeException e) {
+            log.warn("项目 {} 的细节层级生成失败: {}", projectId, e.getMessage());
+        } finally {
+            for (Path f : files) {
+                try {
+                    Files.deleteIfExists(f);
+                } catch (IOException ignored) {
+                    // 临时文件删除失败不影响结果
+                }
+            }
+        }
+    }
+
+    // 一批要素在 analysisPool 上并行简化，再按原顺序写出，输出与输入顺序一致
+    private void flushBatch(List<ObjectNode> features, List<Geometry> geometries, SharedVertexIndex shared,
+                            LevelWriter[] writers) throws IOException {
+        int n = features.size();
+        if (n == 0) return;
+        Geometry[][] simplified = new Geometry[n][writers.length];
+        pool.submit(() -> IntStream.range(0, n).parallel().forEach(i -> {
+            for (int level = 0; level < writers.length; level++) {
+                simplified[i][level] = Simplifier.simplify(geometries.get(i), tolerance(level), shared, decimals(level));
+            }
+        })).join();
+        for (int i = 0; i < n; i++) {
+            for (int level = 0; level < writers.length; level++) {
+                writers[level].write(features.get(i), simplified[i][level]);
+            }
+        }
+        features.clear();
+        geometries.clear();
+    }
+
+    private void persist(Long projectId, long version, LevelWriter[] writers) throws IOException {
+        LocalDateTime now = LocalDateTime.now();
+        tx.executeWithoutResult(status -> {
+            Long current = jdbc.query("SELECT version FROM project_features WHERE project_id = ?",
+                    rs -> rs.next() ? rs.getLong(1) : null, projectId);
+            if (current == null || current != version) return; // 期间又有保存，交给下一次重建
+            jdbc.update("DELETE FROM project_feature_levels WHERE project_id = ?", projectId);
+            for (int level = 0; level < writers.length; level++) {
+                LevelWriter w = writers[level];
+                int lv = level;
+                try (Reader reader = Files.newBufferedReader(w.file, StandardCharsets.UTF_8)) {
+                    jdbc.update("INSERT INTO project_feature_levels (project_id, detail_level, max_zoom, tolerance, source_version, "
+                            + "feature_count, vertex_count, content, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", ps -> {
+                        ps.setLong(1, projectId);
+                        ps.setInt(2, lv);
+                        ps.setInt(3, MAX_ZOOMS[lv]);
+                        ps.setDouble(4, tolerance(lv));
+                        ps.setLong(5, version);
+                        ps.setInt(6, w.features);
+                        ps.setLong(7, w.vertices);
+                        ps.setCharacterStream(8, reader, (int) w.chars());
+                        ps.setTimestamp(9, Timestamp.valueOf(now));
+                    });
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    private final class LevelWriter {
+        final Path file;
+        final CountingWriter counter;
+        final JsonGenerator gen;
+        int features;
+        long vertices;
+
+        LevelWriter(Path file) throws IOException {
+            this.file = file;
+            this.counter = new CountingWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8));
+            this.gen = mapper.getFactory().createGenerator(counter);
+            gen.writeStartObject();
+            gen.writeStringField("type", "FeatureCollection");
+            gen.writeArrayFieldStart("features");
+        }
+
+        // 原样保留要素的其它成员，只替换 geometry
+        void write(ObjectNode feature, Geometry geometry) throws IOException {
+            gen.writeStartObject();
+            Iterator<Map.Entry<String, JsonNode>> it = feature.fields();
+            while (it.hasNext()) {
+                Map.Entry<String, JsonNode> e = it.next();
+                gen.writeFieldName(e.getKey());
+                if ("geometry".equals(e.getKey()) && geometry != null) geometry.writeGeoJson(gen);
+                else gen.writeTree(e.getValue());
+            }
+            gen.writeEndObject();
+            features++;
+            if (geometry != null) vertices += geometry.vertexCount();
+        }
+
+        long chars() {
+            return counter.count;
+        }
+
+        void close() throws IOException {
+            if (gen.isClosed()) return;
+            gen.writeEndArray();
+            gen.writeEndObject();
+            gen.close();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.sicnu.geo.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sicnu.geo.geometry.BinaryFeatureCodec;
+import com.sicnu.geo.geometry.Envelope;
+import com.sicnu.geo.geometry.Geometry;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * feature_rows 的写入：调用方须处在修改要素文档的同一事务中，使行与文档保持一致。
+ * 没有几何（或几何为空）的要素不会被范围查询命中，不写行。
+ */
+final class FeatureRows {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbc;
+    private final ObjectMapper mapper;
+    private final int precision;
+
+    FeatureRows(JdbcTemplate jdbc, ObjectMapper mapper, int precision) {
+        this.jdbc = jdbc;
+        this.mapper = mapper;
+        this.precision = precision;
+    }
+
+    /**
+     * 清空项目的全部行，返回用于写入新行的批次。
+     */
+    Batch replace(long projectId) {
+        jdbc.update("DELETE FROM feature_rows WHERE project_id = ?", projectId);
+        return new Batch(projectId);
+    }
+
+    /**
+     * 按补丁更新：被覆盖或删除的 id 先删除，再写入覆盖后的要素。upserts 的值为已校验的要素 JSON。
+     */
+    void apply(long projectId, Map<String, String> upserts, Set<String> deletes) {
+        List<Object[]> keys = new ArrayList<>();
+        for (String id : upserts.keySet()) keys.add(new Object[]{projectId, id});
+        for (String id : deletes) keys.add(new Object[]{projectId, id});
+        jdbc.batchUpdate("DELETE FROM feature_rows WHERE project_id = ? AND feature_key = ?", keys);
+        try {
+            Batch batch = new Batch(projectId);
+            for (String content : upserts.values()) {
+                ObjectNode feature = (ObjectNode) mapper.readTree(content);
+                Geometry geometry;
+                try {
+                    geometry = Geometry.fromGeoJson(feature.get("geometry"));
+                } catch (IllegalArgumentException e) {
+                    geometry = null;
+                }
+                batch.add(feature, geometry);
+            }
+            batch.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void deleteProject(long projectId) {
+        jdbc.update("DELETE FROM feature_rows WHERE project_id = ?", projectId);
+    }
+
+    /**
+     * 从 content 列还原要素，回调的参数与 {@link BinaryFeatureCodec.Handler#feature} 相同。
+     */
+    static void decode(byte[] content, ObjectMapper mapper, BinaryFeatureCodec.Handler handler) throws IOException {
+        BinaryFeatureCodec.read(new ByteArrayInputStream(content), mapper, handler);
+    }
+
+    /**
+     * 攒够一批再批量插入；结束时须调用 flush。会修改传入的 feature（geometry 成员改为占位）。
+     */
+    final class Batch {
+        private final long projectId;
+        private final List<Object[]> rows = new ArrayList<>();
+
+        private Batch(long projectId) {
+            this.projectId = projectId;
+        }
+
+        void add(ObjectNode feature, Geometry geometry) throws IOException {
+            if (geometry == null) return;
+            Envelope env = geometry.envelope();
+            if (env.isEmpty()) return;
+            String key = featureKey(feature);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+            new BinaryFeatureCodec.Writer(out, mapper, precision).feature(feature, geometry);
+            rows.add(new Object[]{projectId, key, geometry.getType().name(),
+                    env.getMinX(), env.getMinY(), env.getMaxX(), env.getMaxY(), out.toByteArray()});
+            if (rows.size() >= BATCH_SIZE) flush();
+        }
+
+        void flush() {
+            if (rows.isEmpty()) return;
+            jdbc.batchUpdate("INSERT INTO feature_rows (project_id, feature_key, geometry_type, "
+                    + "min_x, min_y, max_x, max_y, content) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", rows);
+            rows.clear();
+        }
+    }
+
+    private static String featureKey(ObjectNode feature) {
+        JsonNode id = feature.get("id");
+        return id == null || id.isNull() || !id.isValueNode() ? null : id.asText();
+    }
+}
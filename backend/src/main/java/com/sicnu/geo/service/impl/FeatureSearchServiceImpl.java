@@ -0,0 +1,148 @@
+package com.sicnu.geo.service.impl;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sicnu.geo.analysis.PlanarFrame;
+import com.sicnu.geo.analysis.PreparedGeometry;
+import com.sicnu.geo.enums.ProjectCategory;
+import com.sicnu.geo.geometry.Envelope;
+import com.sicnu.geo.geometry.Geometry;
+import com.sicnu.geo.service.FeatureSearchService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 外包矩形条件只用到四个普通数值列（min_x、min_y、max_x、max_y 上各有以 min、max 开头的复合索引），
+ * H2、MySQL、PostgreSQL 上写法相同；结果集逐行解码、精确判断后立即写出，达到上限即停止读取。
+ * 外包矩形整个落在查询范围内的要素必然相交，跳过精确判断。
+ */
+@Service
+public class FeatureSearchServiceImpl implements FeatureSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(FeatureSearchServiceImpl.class);
+
+    private static final int DEFAULT_LIMIT = 1000;
+
+    private final JdbcTemplate jdbc;
+    private final ObjectMapper mapper;
+    private final int maxResults;
+
+    public FeatureSearchServiceImpl(JdbcTemplate jdbc, ObjectMapper mapper,
+                                    @Value("${sicnugeo.features.search-max-results:5000}") int maxResults) {
+        this.jdbc = jdbc;
+        this.mapper = mapper;
+        this.maxResults = maxResults;
+    }
+
+    @Override
+    public int search(Envelope bbox, ProjectCategory category, String status, Integer limit, OutputStream out)
+            throws IOException {
+        if (bbox == null || bbox.isEmpty()) throw new IllegalArgumentException("bbox 不能为空");
+        if (limit != null && limit < 1) throw new IllegalArgumentException("limit 必须大于 0");
+        int max = Math.min(limit == null ? DEFAULT_LIMIT : limit, maxResults);
+
+        StringBuilder sql = new StringBuilder("SELECT r.project_id, p.name, r.min_x, r.min_y, r.max_x, r.max_y, r.content "
+                + "FROM feature_rows r JOIN projects p ON p.id = r.project_id "
+                + "WHERE r.min_x <= ? AND r.max_x >= ? AND r.min_y <= ? AND r.max_y >= ?");
+        List<Object> args = new ArrayList<>(List.of(bbox.getMaxX(), bbox.getMinX(), bbox.getMaxY(), bbox.getMinY()));
+        if (category != null) {
+            sql.append(" AND p.category = ?");
+            args.add(category.name());
+        }
+        if (status != null) {
+            sql.append(" AND p.status = ?");
+            args.add(status);
+        }
+
+        PlanarFrame frame = PlanarFrame.centeredOn(bbox);
+        PreparedGeometry window = PreparedGeometry.of(rectangle(bbox), frame);
+        long started = System.currentTimeMillis();
+        int[] written = {0};
+        int[] candidates = {0};
+        boolean[] truncated = {false};
+        try (JsonGenerator gen = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            gen.writeStartObject();
+            gen.writeStringField("type", "FeatureCollection");
+            gen.writeArrayFieldStart("features");
+            jdbc.query(sql.toString(), rs -> {
+                try {
+                    while (rs.next()) {
+                        candidates[0]++;
+                        long projectId = rs.getLong(1);
+                        String projectName = rs.getString(2);
+                        boolean inside = rs.getDouble(3) >= bbox.getMinX() && rs.getDouble(4) >= bbox.getMinY()
+                                && rs.getDouble(5) <= bbox.getMaxX() && rs.getDouble(6) <= bbox.getMaxY();
+                        FeatureRows.decode(rs.getBytes(7), mapper, (feature, geometry) -> {
+                            if (truncated[0] || geometry == null) return;
+                            if (!inside && !window.intersects(PreparedGeometry.of(geometry, frame))) return;
+                            // 已写满时再命中一个才算截断
+                            if (written[0] >= max) {
+                                truncated[0] = true;
+                                return;
+                            }
+                            writeFeature(gen, feature, geometry, projectId, projectName);
+                            written[0]++;
+                        });
+                        if (truncated[0]) break;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            }, args.toArray());
+            gen.writeEndArray();
+            gen.writeNumberField("numberReturned", written[0]);
+            gen.writeBooleanField("truncated", truncated[0]);
+            gen.writeEndObject();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        log.debug("要素检索 {}：{} 个候选，{} 个结果，耗时 {} ms", Arrays.toString(bbox.toArray()), candidates[0], written[0],
+                System.currentTimeMillis() - started);
+        return written[0];
+    }
+
+    // 经纬度矩形在等距圆柱平面上仍是矩形，按面参与相交判断
+    private static Geometry rectangle(Envelope env) {
+        double[] ring = {env.getMinX(), env.getMinY(), env.getMaxX(), env.getMinY(), env.getMaxX(), env.getMaxY(),
+                env.getMinX(), env.getMaxY(), env.getMinX(), env.getMinY()};
+        List<double[]> rings = new ArrayList<>();
+        rings.add(ring);
+        return new Geometry(Geometry.Type.Polygon, List.of(rings));
+    }
+
+    // geometry 成员是 null 占位时以解码出的几何代替，保留原文的几何原样写出；其余成员原样写出，再附上所属项目
+    private static void writeFeature(JsonGenerator gen, JsonNode feature, Geometry geometry, long projectId,
+                                     String projectName) throws IOException {
+        gen.writeStartObject();
+        boolean wroteGeometry = false;
+        for (Iterator<Map.Entry<String, JsonNode>> it = feature.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> e = it.next();
+            gen.writeFieldName(e.getKey());
+            if ("geometry".equals(e.getKey())) wroteGeometry = true;
+            if (e.getValue().isNull() && "geometry".equals(e.getKey())) geometry.writeGeoJson(gen);
+            else gen.writeTree(e.getValue());
+        }
+        if (!wroteGeometry) {
+            gen.writeFieldName("geometry");
+            geometry.writeGeoJson(gen);
+        }
+        gen.writeNumberField("projectId", projectId);
+        gen.writeStringField("projectName", projectName);
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,1000 @@
+package com.sicnu.geo.service.impl;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sicnu.geo.dto.FeaturePatchResult;
+import com.sicnu.geo.dto.FeatureSummary;
+import com.sicnu.geo.event.FeatureDocumentChangedEvent;
+import com.sicnu.geo.event.ProjectChangedEvent;
+import com.sicnu.geo.export.ExportCommand;
+import com.sicnu.geo.geometry.BinaryFeatureCodec;
+import com.sicnu.geo.geometry.Envelope;
+import com.sicnu.geo.geometry.FeatureCollectionReader;
+import com.sicnu.geo.geometry.Geometry;
+import com.sicnu.geo.service.FeatureStoreService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 基于 JDBC 流的要素文档存取：读取时从 LOB 字符流逐 token 转写到响应，
+ * 保存时逐要素校验并先落到临时文件，再以字符流写入 LOB，全程不在堆上拼接整份文档。
+ * <p>
+ * 增量修改只写入 project_feature_patches 中被改动的要素，读取时叠加到主文档上；
+ * 补丁累积到阈值后在后台合并回主文档。
+ * <p>
+ * 写入主文档时同时记录内容摘要（用作 ETag），开启 store-gzip 时另存一份 gzip 压缩副本，
+ * 客户端接受 gzip 时原样发送；有未合并补丁时副本作废。
+ * <p>
+ * storage=binary 时主文档以 {@link BinaryFeatureCodec} 格式存入 content_binary，content 置空；
+ * 读取时两列哪个有值用哪个，因此两种格式的行可以共存，启动时在后台逐个转换为当前配置的格式。
+ * GeoJSON 输出由二进制文档现场生成。坐标按 binary-precision 位小数取整，
+ * 带高程/测量值或 bbox 等额外成员的几何不编码，原样保留在要素 JSON 中。
+ * <p>
+ * 每次写入同时在同一事务中维护 feature_rows（每个要素一行，带外包矩形列），供跨项目的要素检索使用。
+ */
+@Service
+public class FeatureStoreServiceImpl implements FeatureStoreService {
+
+    private static final Logger log = LoggerFactory.getLogger(FeatureStoreServiceImpl.class);
+    private static final String EMPTY_COLLECTION = "{\"type\":\"FeatureCollection\",\"features\":[]}";
+    private static final int MAX_SAVE_ATTEMPTS = 5;
+
+    private final JdbcTemplate jdbc;
+    private final ObjectMapper mapper;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate tx;
+    private final TransactionTemplate snapshot;
+    private final TaskExecutor executor;
+    private final int compactThreshold;
+    private final boolean storeGzip;
+    private final boolean binaryStorage;
+    private final int binaryPrecision;
+    private final FeatureRows rows;
+    private final Set<Long> compacting = ConcurrentHashMap.newKeySet();
+
+    public FeatureStoreServiceImpl(JdbcTemplate jdbc, ObjectMapper mapper, ApplicationEventPublisher events,
+                                   PlatformTransactionManager txManager,
+                                   @Qualifier("featureTaskExecutor") TaskExecutor executor,
+                                   @Value("${sicnugeo.features.patch-compact-threshold:200}") int compactThreshold,
+                                   @Value("${sicnugeo.features.store-gzip:false}") boolean storeGzip,
+                                   @Value("${sicnugeo.features.storage:geojson}") String storage,
+                                   @Value("${sicnugeo.features.binary-precision:7}") int binaryPrecision) {
+        this.jdbc = jdbc;
+        this.mapper = mapper;
+        this.events = events;
+        this.tx = new TransactionTemplate(txManager);
+        this.snapshot = new TransactionTemplate(txManager);
+        snapshot.setReadOnly(true);
+        snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.executor = executor;
+        this.compactThreshold = compactThreshold;
+        this.storeGzip = storeGzip;
+        if (!storage.equalsIgnoreCase("geojson") && !storage.equalsIgnoreCase("binary")) {
+            throw new IllegalArgumentException("sicnugeo.features.storage 只能是 geojson 或 binary");
+        }
+        this.binaryStorage = storage.equalsIgnoreCase("binary");
+        if (binaryPrecision < 0 || binaryPrecision > 9) {
+            throw new IllegalArgumentException("sicnugeo.features.binary-precision 应在 0 到 9 之间");
+        }
+        this.binaryPrecision = binaryPrecision;
+        this.rows = new FeatureRows(jdbc, mapper, binaryPrecision);
+    }
+
+    /**
+     * 为引入摘要列之前保存的文档补算要素数、外包矩形与内容摘要（瓦片、条件请求依赖这些列），
+     * 开启 store-gzip 时一并补齐压缩副本。
+     */
+    @EventListener(value = ApplicationReadyEvent.class, condition = ExportCommand.NOT_EXPORTING)
+    public void backfillSummaries() {
+        String sql = "SELECT project_id FROM project_features WHERE feature_count IS NULL OR content_hash IS NULL";
+        if (storeGzip) {
+            sql += " OR (content_gzip IS NULL AND NOT EXISTS "
+                    + "(SELECT 1 FROM project_feature_patches p WHERE p.project_id = project_features.project_id))";
+        }
+        List<Long> ids = jdbc.queryForList(sql, Long.class);
+        int done = 0;
+        for (Long projectId : ids) {
+            if (rewrite(projectId)) done++;
+        }
+        if (done > 0) log.info("已补算 {} 个要素文档的摘要", done);
+    }
+
+    /**
+     * 把另一种存储格式的文档逐个重写为当前格式（storage 切换后的迁移）。
+     * 在后台执行，迁移期间两种格式都可正常读取；重写不改变内容与版本号。
+     */
+    @EventListener(value = ApplicationReadyEvent.class, condition = ExportCommand.NOT_EXPORTING)
+    public void migrateStorage() {
+        String sql = binaryStorage
+                ? "SELECT project_id FROM project_features WHERE content_binary IS NULL"
+                : "SELECT project_id FROM project_features WHERE content_binary IS NOT NULL";
+        List<Long> ids = jdbc.queryForList(sql, Long.class);
+        if (ids.isEmpty()) return;
+        executor.execute(() -> {
+            int done = 0;
+            for (Long projectId : ids) {
+                if (rewrite(projectId)) done++;
+            }
+            log.info("已将 {}/{} 个要素文档转换为 {} 存储", done, ids.size(), binaryStorage ? "binary" : "geojson");
+        });
+    }
+
+    /**
+     * 为引入 feature_rows 之前保存的文档补写要素行。在后台逐个执行，
+     * 先锁住文档行再读取，保证与并发的保存、补丁串行。
+     */
+    @EventListener(value = ApplicationReadyEvent.class, condition = ExportCommand.NOT_EXPORTING)
+    public void backfillRows() {
+        List<Long> ids = jdbc.queryForList("SELECT project_id FROM project_features f "
+                + "WHERE NOT EXISTS (SELECT 1 FROM feature_rows r WHERE r.project_id = f.project_id) "
+                + "AND (f.feature_count IS NULL OR f.feature_count > 0 "
+                + "OR EXISTS (SELECT 1 FROM project_feature_patches p WHERE p.project_id = f.project_id))", Long.class);
+        if (ids.isEmpty()) return;
+        executor.execute(() -> {
+            int done = 0;
+            for (Long projectId : ids) {
+                try {
+                    tx.executeWithoutResult(status -> {
+                        jdbc.update("UPDATE project_features SET version = version WHERE project_id = ?", projectId);
+                        FeatureRows.Batch batch = rows.replace(projectId);
+                        try {
+                            forEachFeature(projectId, batch::add);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        batch.flush();
+                    });
+                    done++;
+                } catch (RuntimeException e) {
+                    log.warn("项目 {} 的要素行补写失败: {}", projectId, e.getMessage());
+                }
+            }
+            log.info("已为 {}/{} 个要素文档补写要素行", done, ids.size());
+        });
+    }
+
+    // 要素行没有外键，项目删除后在这里清理
+    @EventListener
+    public void onProjectChanged(ProjectChangedEvent e) {
+        if (!e.remote() && e.type() == ProjectChangedEvent.Type.DELETED) rows.deleteProject(e.projectId());
+    }
+
+    // ---------------------------------------------------------------- 读取
+
+    @Override
+    public DocumentInfo describe(Long projectId) {
+        return jdbc.query("SELECT COALESCE(version, 0), content_hash, updated_at, "
+                + "CASE WHEN content_gzip IS NULL THEN 0 ELSE 1 END FROM project_features WHERE project_id = ?", rs -> {
+            if (!rs.next()) return null;
+            Timestamp updatedAt = rs.getTimestamp(3);
+            return new DocumentInfo(rs.getLong(1), rs.getString(2),
+                    updatedAt == null ? null : updatedAt.toLocalDateTime(), rs.getInt(4) == 1);
+        }, projectId);
+    }
+
+    @Override
+    public boolean writeCompressed(Long projectId, OutputStream out) throws IOException {
+        try {
+            Boolean written = jdbc.query("SELECT content_gzip FROM project_features WHERE project_id = ?", rs -> {
+                if (!rs.next()) return false;
+                try (InputStream in = rs.getBinaryStream(1)) {
+                    if (in == null) return false;
+                    in.transferTo(out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return true;
+            }, projectId);
+            out.flush();
+            return Boolean.TRUE.equals(written);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void writeCollection(Long projectId, OutputStream out) throws IOException {
+        inSnapshot(() -> {
+            Map<String, String> patches = loadPatches(projectId);
+            if (!patches.isEmpty()) {
+                try (JsonGenerator gen = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+                    gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                    writeMerged(projectId, patches, gen, null);
+                }
+                return null;
+            }
+            // 没有补丁时 GeoJSON 正文逐 token 原样转写，二进制正文现场生成 GeoJSON
+            boolean[] written = {false};
+            withContent(projectId, reader -> written[0] = copyTokens(reader, out), in -> {
+                try (JsonGenerator gen = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+                    gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                    writeMerged(in, Map.of(), gen, null);
+                }
+                written[0] = true;
+            });
+            if (!written[0]) out.write(EMPTY_COLLECTION.getBytes(StandardCharsets.UTF_8));
+            return null;
+        });
+        out.flush();
+    }
+
+    @Override
+    public void forEachFeature(Long projectId, FeatureVisitor visitor) throws IOException {
+        inSnapshot(() -> {
+            Map<String, String> patches = loadPatches(projectId);
+            Set<String> applied = new HashSet<>();
+            readStored(projectId, (feature, geometry) -> {
+                String id = featureId(feature);
+                if (id != null && patches.containsKey(id)) {
+                    if (applied.add(id) && patches.get(id) != null) visitPatched(patches.get(id), visitor);
+                    return;
+                }
+                visitor.visit(feature, geometry);
+            });
+            for (Map.Entry<String, String> e : patches.entrySet()) {
+                if (!applied.contains(e.getKey()) && e.getValue() != null) visitPatched(e.getValue(), visitor);
+            }
+            return null;
+        });
+    }
+
+    private void visitPatched(String content, FeatureVisitor visitor) throws IOException {
+        ObjectNode feature = (ObjectNode) mapper.readTree(content);
+        visitor.visit(feature, lenientGeometry(feature));
+    }
+
+    /**
+     * 已入库的文档逐要素回调，两种存储格式统一为 (feature, geometry)。
+     * 历史数据中无法解析的几何以 null 传给 handler，原始 geometry 成员保留在 feature 中，不中断遍历。
+     */
+    private void readStored(Long projectId, BinaryFeatureCodec.Handler handler) throws IOException {
+        withContent(projectId, reader -> {
+            try (JsonParser parser = mapper.getFactory().createParser(reader)) {
+                if (parser.nextToken() == null) return; // 空正文视为空集合
+                FeatureCollectionReader.read(parser, new FeatureCollectionReader.Handler() {
+                    @Override
+                    public void member(String name, JsonNode value) throws IOException {
+                        handler.member(name, value);
+                    }
+
+                    @Override
+                    public void feature(ObjectNode feature, int index) throws IOException {
+                        handler.feature(feature, lenientGeometry(feature));
+                    }
+                });
+            }
+        }, in -> BinaryFeatureCodec.read(in, mapper, handler));
+    }
+
+    /**
+     * 主文档逐要素输出，命中补丁的要素就地替换或跳过，新增要素追加在末尾。
+     * onEmit 不为空时对每个输出的要素回调（合并时用于统计要素数与外包矩形）。
+     */
+    private void writeMerged(Long projectId, Map<String, String> patches, JsonGenerator gen,
+                             FeatureVisitor onEmit) throws IOException {
+        writeMerged(handler -> readStored(projectId, handler), patches, gen, onEmit);
+    }
+
+    private void writeMerged(InputStream binary, Map<String, String> patches, JsonGenerator gen,
+                             FeatureVisitor onEmit) throws IOException {
+        writeMerged(handler -> BinaryFeatureCodec.read(binary, mapper, handler), patches, gen, onEmit);
+    }
+
+    @FunctionalInterface
+    private interface StoredSource {
+        void read(BinaryFeatureCodec.Handler handler) throws IOException;
+    }
+
+    // 位于 features 之后的顶层成员在数组结束后补写，成员顺序不影响 GeoJSON 语义
+    private void writeMerged(StoredSource source, Map<String, String> patches, JsonGenerator gen,
+                             FeatureVisitor onEmit) throws IOException {
+        Set<String> applied = new HashSet<>();
+        boolean[] inFeatures = {false};
+        Map<String, JsonNode> trailing = new LinkedHashMap<>();
+        gen.writeStartObject();
+        gen.writeStringField("type", "FeatureCollection");
+        source.read(new BinaryFeatureCodec.Handler() {
+            @Override
+            public void member(String name, JsonNode value) throws IOException {
+                if (inFeatures[0]) {
+                    trailing.put(name, value);
+                    return;
+                }
+                gen.writeFieldName(name);
+                gen.writeTree(value);
+            }
+
+            @Override
+            public void feature(ObjectNode feature, Geometry geometry) throws IOException {
+                if (!inFeatures[0]) {
+                    inFeatures[0] = true;
+                    gen.writeArrayFieldStart("features");
+                }
+                String id = featureId(feature);
+                if (id != null && patches.containsKey(id)) {
+                    if (applied.add(id) && patches.get(id) != null) emit(gen, patches.get(id), onEmit);
+                    return;
+                }
+                emit(gen, feature, geometry, onEmit);
+            }
+        });
+        if (!inFeatures[0]) gen.writeArrayFieldStart("features");
+        writeRemaining(gen, patches, applied, onEmit);
+        gen.writeEndArray();
+        for (Map.Entry<String, JsonNode> e : trailing.entrySet()) {
+            gen.writeFieldName(e.getKey());
+            gen.writeTree(e.getValue());
+        }
+        gen.writeEndObject();
+        gen.flush();
+    }
+
+    private void writeRemaining(JsonGenerator gen, Map<String, String> patches, Set<String> applied,
+                                FeatureVisitor onEmit) throws IOException {
+        for (Map.Entry<String, String> e : patches.entrySet()) {
+            if (applied.add(e.getKey()) && e.getValue() != null) emit(gen, e.getValue(), onEmit);
+        }
+    }
+
+    private void emit(JsonGenerator gen, String content, FeatureVisitor onEmit) throws IOException {
+        if (onEmit == null) {
+            gen.writeRawValue(content);
+            return;
+        }
+        ObjectNode feature = (ObjectNode) mapper.readTree(content);
+        emit(gen, feature, lenientGeometry(feature), onEmit);
+    }
+
+    private void emit(JsonGenerator gen, ObjectNode feature, Geometry geometry, FeatureVisitor onEmit) throws IOException {
+        writeFeature(gen, feature, geometry);
+        if (onEmit != null) onEmit.visit(feature, geometry);
+    }
+
+    // 二进制文档解出的要素中 geometry 是 null 占位，输出时换成解码出的几何
+    private static void writeFeature(JsonGenerator gen, ObjectNode feature, Geometry geometry) throws IOException {
+        JsonNode stored = feature.get("geometry");
+        if (geometry == null || stored == null || !stored.isNull()) {
+            gen.writeTree(feature);
+            return;
+        }
+        gen.writeStartObject();
+        Iterator<Map.Entry<String, JsonNode>> it = feature.fields();
+        while (it.hasNext()) {
+            Map.Entry<String, JsonNode> e = it.next();
+            gen.writeFieldName(e.getKey());
+            if ("geometry".equals(e.getKey())) geometry.writeGeoJson(gen);
+            else gen.writeTree(e.getValue());
+        }
+        gen.writeEndObject();
+    }
+
+    // 逐 token 复制，不构建任何中间对象；正文为空时返回 false
+    private boolean copyTokens(Reader reader, OutputStream out) throws IOException {
+        try (JsonParser parser = mapper.getFactory().createParser(reader);
+             JsonGenerator gen = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (parser.nextToken() == null) return false;
+            do {
+                gen.copyCurrentEvent(parser);
+            } while (parser.nextToken() != null);
+            gen.flush();
+            return true;
+        }
+    }
+
+    // ---------------------------------------------------------------- 全量保存
+
+    @Override
+    public FeatureSummary save(Long projectId, InputStream body) throws IOException {
+        Envelope env = new Envelope();
+        int[] count = {0};
+        try (JsonParser parser = mapper.createParser(body);
+             Spool spool = spool(projectId, gen -> count[0] = copyValidated(parser, gen, env))) {
+            return persist(projectId, spool, count[0], env);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("GeoJSON 解析失败: " + e.getOriginalMessage());
+        }
+    }
+
+    @Override
+    public FeatureSummary save(Long projectId, FeatureSource source) throws IOException {
+        Envelope env = new Envelope();
+        int[] count = {0};
+        try (Spool spool = spool(projectId, gen -> {
+            gen.writeStartObject();
+            gen.writeStringField("type", "FeatureCollection");
+            gen.writeArrayFieldStart("features");
+            source.forEach((properties, geometry) -> {
+                count[0]++;
+                if (geometry != null) {
+                    if (!geometry.isWithinLngLat()) {
+                        throw new IllegalArgumentException("第 " + count[0] + " 个要素坐标超出经纬度范围，请检查坐标系");
+                    }
+                    geometry.expandEnvelope(env);
+                }
+                gen.writeStartObject();
+                gen.writeStringField("type", "Feature");
+                gen.writeFieldName("properties");
+                if (properties == null) gen.writeNull();
+                else gen.writeTree(properties);
+                gen.writeFieldName("geometry");
+                if (geometry == null) gen.writeNull();
+                else geometry.writeGeoJson(gen);
+                gen.writeEndObject();
+            });
+            gen.writeEndArray();
+            gen.writeEndObject();
+        })) {
+            return persist(projectId, spool, count[0], env);
+        }
+    }
+
+    private int copyValidated(JsonParser parser, JsonGenerator gen, Envelope env) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("type", "FeatureCollection");
+        boolean[] sawFeatures = {false};
+        int count = FeatureCollectionReader.read(parser, new FeatureCollectionReader.Handler() {
+            @Override
+            public void member(String name, JsonNode value) throws IOException {
+                gen.writeFieldName(name);
+                gen.writeTree(value);
+            }
+
+            @Override
+            public void beginFeatures() throws IOException {
+                sawFeatures[0] = true;
+                gen.writeArrayFieldStart("features");
+            }
+
+            @Override
+            public void feature(ObjectNode feature, int index) throws IOException {
+                Geometry geometry = FeatureCollectionReader.validateFeature(feature, index);
+                if (geometry != null) geometry.expandEnvelope(env);
+                gen.writeTree(feature);
+            }
+
+            @Override
+            public void endFeatures() throws IOException {
+                gen.writeEndArray();
+            }
+        });
+        if (!sawFeatures[0]) {
+            gen.writeArrayFieldStart("features");
+            gen.writeEndArray();
+        }
+        gen.writeEndObject();
+        return count;
+    }
+
+    private FeatureSummary persist(Long projectId, Spool spool, int count, Envelope env) {
+        double[] bbox = env.toArray();
+        LocalDateTime now = LocalDateTime.now();
+        for (int attempt = 0; attempt < MAX_SAVE_ATTEMPTS; attempt++) {
+            DocState before;
+            try {
+                before = tx.execute(status -> {
+                    DocState current = loadState(projectId);
+                    long next = current == null ? 1 : current.version + 1;
+                    try (Reader reader = spool.openContent();
+                         InputStream binary = spool.openBinary();
+                         InputStream gzip = spool.openGzip()) {
+                        if (current == null) {
+                            jdbc.update("INSERT INTO project_features (content, content_binary, content_hash, content_gzip, "
+                                            + "feature_count, min_lng, min_lat, max_lng, max_lat, updated_at, version, project_id) "
+                                            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                                    ps -> {
+                                        bind(ps, spool, reader, binary, gzip, count, bbox);
+                                        ps.setTimestamp(10, Timestamp.valueOf(now));
+                                        ps.setLong(11, next);
+                                        ps.setLong(12, projectId);
+                                    });
+                        } else {
+                            int updated = jdbc.update("UPDATE project_features SET content = ?, content_binary = ?, "
+                                            + "content_hash = ?, content_gzip = ?, feature_count = ?, "
+                                            + "min_lng = ?, min_lat = ?, max_lng = ?, max_lat = ?, "
+                                            + "updated_at = ?, version = ? WHERE project_id = ? AND COALESCE(version, 0) = ?",
+                                    ps -> {
+                                        bind(ps, spool, reader, binary, gzip, count, bbox);
+                                        ps.setTimestamp(10, Timestamp.valueOf(now));
+                                        ps.setLong(11, next);
+                                        ps.setLong(12, projectId);
+                                        ps.setLong(13, current.version);
+                                    });
+                            if (updated == 0) return null;
+                            // 全量替换后，之前的补丁全部作废
+                            jdbc.update("DELETE FROM project_feature_patches WHERE project_id = ?", projectId);
+                        }
+                        replaceRows(projectId, spool.file);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return current == null ? new DocState(0, new Envelope(), null) : current;
+                });
+            } catch (DataIntegrityViolationException e) {
+                continue; // 并发首次保存，改走更新
+            }
+            if (before == null) continue;
+            long version = before.version + 1;
+            events.publishEvent(new FeatureDocumentChangedEvent(projectId, before.bbox, env, version));
+            return new FeatureSummary(projectId, count, bbox, version, now, spool.hash());
+        }
+        throw new IllegalStateException("要素文档并发保存冲突，请重试");
+    }
+
+    // ---------------------------------------------------------------- 增量修改
+
+    @Override
+    public FeaturePatchResult patch(Long projectId, Long expectedVersion, InputStream body) throws IOException {
+        PatchRequest req = readPatch(body);
+        LocalDateTime now = LocalDateTime.now();
+        for (int attempt = 0; attempt < MAX_SAVE_ATTEMPTS; attempt++) {
+            Applied applied;
+            try {
+                applied = tx.execute(status -> applyPatch(projectId, expectedVersion, req, now));
+            } catch (DataIntegrityViolationException e) {
+                continue; // 并发创建文档，重试
+            }
+            if (applied == null) continue;
+            FeaturePatchResult result = applied.result;
+            events.publishEvent(new FeatureDocumentChangedEvent(projectId, applied.before, req.bbox, result.version()));
+            if (result.pendingPatches() >= compactThreshold) scheduleCompaction(projectId);
+            return result;
+        }
+        throw new IllegalStateException("要素文档并发修改冲突，请重试");
+    }
+
+    // 版本被并发修改且未指定 expectedVersion 时返回 null 以重试
+    private Applied applyPatch(Long projectId, Long expectedVersion, PatchRequest req, LocalDateTime now) {
+        DocState current = loadState(projectId);
+        if (current == null) {
+            jdbc.update("INSERT INTO project_features (content, updated_at, version, feature_count, project_id) "
+                    + "VALUES (?, ?, 0, 0, ?)", EMPTY_COLLECTION, Timestamp.valueOf(now), projectId);
+            current = new DocState(0, new Envelope(), null);
+        }
+        if (expectedVersion != null && expectedVersion != current.version) {
+            throw new OptimisticLockingFailureException("要素文档已被修改，当前版本 " + current.version);
+        }
+        long next = current.version + 1;
+        // 外包矩形只扩不缩，合并补丁时再精确重算
+        double[] bbox = new Envelope().expand(current.bbox).expand(req.bbox).toArray();
+        // 压缩副本对应主文档原文，叠加补丁后不再一致
+        int updated = jdbc.update("UPDATE project_features SET version = ?, updated_at = ?, content_gzip = NULL, "
+                        + "min_lng = ?, min_lat = ?, max_lng = ?, max_lat = ? WHERE project_id = ? AND COALESCE(version, 0) = ?",
+                next, Timestamp.valueOf(now), bbox == null ? null : bbox[0], bbox == null ? null : bbox[1],
+                bbox == null ? null : bbox[2], bbox == null ? null : bbox[3], projectId, current.version);
+        if (updated == 0) {
+            if (expectedVersion != null) throw new OptimisticLockingFailureException("要素文档已被修改");
+            return null;
+        }
+        List<Object[]> patchRows = new ArrayList<>();
+        for (Map.Entry<String, String> e : req.upserts.entrySet()) {
+            patchRows.add(new Object[]{projectId, e.getKey(), "upsert", e.getValue(), next, Timestamp.valueOf(now)});
+        }
+        for (String id : req.deletes) {
+            patchRows.add(new Object[]{projectId, id, "delete", null, next, Timestamp.valueOf(now)});
+        }
+        jdbc.batchUpdate("INSERT INTO project_feature_patches (project_id, feature_id, op, content, doc_version, created_at) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", patchRows);
+        this.rows.apply(projectId, req.upserts, req.deletes);
+        Long pending = jdbc.queryForObject("SELECT COUNT(*) FROM project_feature_patches WHERE project_id = ?",
+                Long.class, projectId);
+        FeaturePatchResult result = new FeaturePatchResult(projectId, next, req.upserts.size(), req.deletes.size(),
+                pending == null ? 0 : pending, current.contentHash);
+        return new Applied(result, current.bbox);
+    }
+
+    /**
+     * 请求体：{"add": [Feature...], "update": [Feature...], "delete": [id...]}。
+     * add 与 update 都按 id 覆盖写入（add 缺少 id 时自动生成）；同一 id 以最后一次出现为准。
+     */
+    private PatchRequest readPatch(InputStream body) throws IOException {
+        PatchRequest req = new PatchRequest();
+        try (JsonParser p = mapper.createParser(body)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) throw new IllegalArgumentException("补丁必须是对象");
+            int index = 0;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.currentName();
+                if (p.nextToken() != JsonToken.START_ARRAY) throw new IllegalArgumentException(name + " 必须是数组");
+                while (p.nextToken() != JsonToken.END_ARRAY) {
+                    JsonNode node = p.readValueAsTree();
+                    switch (name) {
+                        case "add":
+                        case "update": {
+                            if (!node.isObject()) throw new IllegalArgumentException("第 " + index + " 个要素不是对象");
+                            ObjectNode feature = (ObjectNode) node;
+                            String id = featureId(feature);
+                            if (id == null) {
+                                if ("update".equals(name)) throw new IllegalArgumentException("update 中的要素必须带 id");
+                                id = UUID.randomUUID().toString();
+                                feature.put("id", id);
+                            }
+                            Geometry geometry = FeatureCollectionReader.validateFeature(feature, index++);
+                            if (geometry != null) geometry.expandEnvelope(req.bbox);
+                            req.deletes.remove(id);
+                            req.upserts.put(id, mapper.writeValueAsString(feature));
+                            break;
+                        }
+                        case "delete": {
+                            if (!node.isValueNode() || node.isNull()) throw new IllegalArgumentException("delete 中必须是要素 id");
+                            req.upserts.remove(node.asText());
+                            req.deletes.add(node.asText());
+                            break;
+                        }
+                        default:
+                            throw new IllegalArgumentException("不支持的补丁字段: " + name);
+                    }
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("补丁解析失败: " + e.getOriginalMessage());
+        }
+        if (req.upserts.isEmpty() && req.deletes.isEmpty()) throw new IllegalArgumentException("补丁为空");
+        return req;
+    }
+
+    // ---------------------------------------------------------------- 补丁合并
+
+    private void scheduleCompaction(Long projectId) {
+        if (!compacting.add(projectId)) return;
+        executor.execute(() -> {
+            try {
+                compact(projectId);
+            } finally {
+                compacting.remove(projectId);
+            }
+        });
+    }
+
+    @Override
+    public void compact(Long projectId) {
+        if (!loadPatches(projectId).isEmpty()) rewrite(projectId);
+    }
+
+    /**
+     * 将叠加补丁后的文档重新写回主文档，重算要素数、外包矩形、内容摘要与压缩副本。
+     * 只在期间版本未变时生效，内容等价因此版本号与修改时间保持不变。
+     */
+    private boolean rewrite(Long projectId) {
+        long[] version = {0};
+        Envelope env = new Envelope();
+        int[] count = {0};
+        try (Spool spool = inSnapshot(() -> {
+            DocState state = loadState(projectId);
+            if (state == null) return null;
+            version[0] = state.version;
+            Map<String, String> patches = loadPatches(projectId);
+            return spool(projectId, gen -> writeMerged(projectId, patches, gen, (feature, geometry) -> {
+                count[0]++;
+                if (geometry != null) geometry.expandEnvelope(env);
+            }));
+        })) {
+            if (spool == null) return false;
+            double[] bbox = env.toArray();
+            Boolean updated = tx.execute(status -> {
+                try (Reader reader = spool.openContent();
+                     InputStream binary = spool.openBinary();
+                     InputStream gzip = spool.openGzip()) {
+                    int n = jdbc.update("UPDATE project_features SET content = ?, content_binary = ?, content_hash = ?, "
+                            + "content_gzip = ?, feature_count = ?, min_lng = ?, min_lat = ?, max_lng = ?, max_lat = ? "
+                            + "WHERE project_id = ? AND COALESCE(version, 0) = ?", ps -> {
+                        bind(ps, spool, reader, binary, gzip, count[0], bbox);
+                        ps.setLong(10, projectId);
+                        ps.setLong(11, version[0]);
+                    });
+                    if (n == 0) return false;
+                    jdbc.update("DELETE FROM project_feature_patches WHERE project_id = ?", projectId);
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            return Boolean.TRUE.equals(updated);
+        } catch (IOException | RuntimeException e) {
+            log.warn("项目 {} 的要素文档重写失败: {}", projectId, e.getMessage());
+            return false;
+        }
+    }
+
+    // ---------------------------------------------------------------- 落盘
+
+    @FunctionalInterface
+    private interface GeneratorCallback {
+        void write(JsonGenerator gen) throws IOException;
+    }
+
+    /**
+     * 先把文档写到临时文件，同时统计字符数并计算 SHA-256；开启 store-gzip 时再压缩出一份副本，
+     * 二进制存储时再编码出一份二进制文档。内容摘要始终按 GeoJSON 原文计算。
+     */
+    private Spool spool(Long projectId, GeneratorCallback callback) throws IOException {
+        Path file = Files.createTempFile("features-" + projectId + "-", ".geojson");
+        Path gzip = null;
+        Path binary = null;
+        try {
+            MessageDigest sha = sha256();
+            long chars;
+            try (CountingWriter writer = new CountingWriter(new BufferedWriter(new OutputStreamWriter(
+                    new DigestOutputStream(Files.newOutputStream(file), sha), StandardCharsets.UTF_8)));
+                 JsonGenerator gen = mapper.getFactory().createGenerator(writer)) {
+                callback.write(gen);
+                gen.flush();
+                chars = writer.count;
+            }
+            if (chars > Integer.MAX_VALUE) throw new IllegalArgumentException("要素文档过大");
+            if (storeGzip) {
+                gzip = file.resolveSibling(file.getFileName() + ".gz");
+                compress(file, gzip);
+            }
+            if (binaryStorage) {
+                binary = file.resolveSibling(file.getFileName() + ".bin");
+                encode(file, binary);
+            }
+            return new Spool(file, (int) chars, HexFormat.of().formatHex(sha.digest()), gzip, binary);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            if (gzip != null) Files.deleteIfExists(gzip);
+            if (binary != null) Files.deleteIfExists(binary);
+            throw e;
+        }
+    }
+
+    // 逐要素转成二进制格式；临时文件中的文档已经过校验，个别无法解析的历史几何以及带高程等无法无损编码的几何
+    // 原样保留在要素 JSON 中
+    private void encode(Path source, Path target) throws IOException {
+        try (Reader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8);
+             JsonParser parser = mapper.getFactory().createParser(reader);
+             OutputStream out = new BufferedOutputStream(Files.newOutputStream(target), 64 * 1024)) {
+            BinaryFeatureCodec.Writer writer = new BinaryFeatureCodec.Writer(out, mapper, binaryPrecision);
+            FeatureCollectionReader.read(parser, new FeatureCollectionReader.Handler() {
+                @Override
+                public void member(String name, JsonNode value) throws IOException {
+                    writer.member(name, value);
+                }
+
+                @Override
+                public void feature(ObjectNode feature, int index) throws IOException {
+                    writer.feature(feature, lenientGeometry(feature));
+                }
+            });
+        }
+    }
+
+    // 从临时文件重建项目的要素行；文档已经过校验，个别无法解析的历史几何不写行
+    private void replaceRows(Long projectId, Path source) throws IOException {
+        FeatureRows.Batch batch = rows.replace(projectId);
+        try (Reader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8);
+             JsonParser parser = mapper.getFactory().createParser(reader)) {
+            FeatureCollectionReader.read(parser, (feature, index) -> batch.add(feature, lenientGeometry(feature)));
+        }
+        batch.flush();
+    }
+
+    // 压缩只在写入时做一次，因此用最高压缩级别
+    private static void compress(Path source, Path target) throws IOException {
+        try (InputStream in = Files.newInputStream(source);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(target), 64 * 1024) {
+                 {
+                     def.setLevel(Deflater.BEST_COMPRESSION);
+                 }
+             }) {
+            in.transferTo(out);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // ---------------------------------------------------------------- 工具
+
+    private interface ReaderCallback {
+        void accept(Reader reader) throws IOException;
+    }
+
+    private interface BinaryCallback {
+        void accept(InputStream in) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface SnapshotWork<T> {
+        T run() throws IOException;
+    }
+
+    // 补丁与主文档须在同一快照中读取：否则整体保存可能在两次查询之间提交，旧补丁被叠加到新文档上
+    private <T> T inSnapshot(SnapshotWork<T> work) throws IOException {
+        try {
+            return snapshot.execute(status -> {
+                try {
+                    return work.run();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // content_binary 有值时交给 binary，否则把 GeoJSON 正文交给 text
+    private void withContent(Long projectId, ReaderCallback text, BinaryCallback binary) throws IOException {
+        try {
+            jdbc.query("SELECT content_binary, content FROM project_features WHERE project_id = ?", rs -> {
+                if (!rs.next()) return null;
+                try (InputStream in = rs.getBinaryStream(1)) {
+                    if (in != null) {
+                        binary.accept(new BufferedInputStream(in, 64 * 1024));
+                        return null;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                try (Reader reader = rs.getCharacterStream(2)) {
+                    if (reader != null) text.accept(reader);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            }, projectId);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // 按写入顺序加载补丁，同一要素以最后一次为准；值为 null 表示删除
+    private Map<String, String> loadPatches(Long projectId) {
+        Map<String, String> patches = new LinkedHashMap<>();
+        jdbc.query("SELECT feature_id, op, content FROM project_feature_patches WHERE project_id = ? ORDER BY id",
+                rs -> {
+                    patches.put(rs.getString(1), "delete".equals(rs.getString(2)) ? null : rs.getString(3));
+                }, projectId);
+        return patches;
+    }
+
+    private DocState loadState(Long projectId) {
+        return jdbc.query("SELECT COALESCE(version, 0), min_lng, min_lat, max_lng, max_lat, content_hash "
+                + "FROM project_features WHERE project_id = ?", rs -> {
+            if (!rs.next()) return null;
+            Envelope env = new Envelope();
+            readEnvelope(rs, 2, env);
+            return new DocState(rs.getLong(1), env, rs.getString(6));
+        }, projectId);
+    }
+
+    private static String featureId(ObjectNode feature) {
+        JsonNode id = feature.get("id");
+        return id == null || id.isNull() || !id.isValueNode() ? null : id.asText();
+    }
+
+    private static Geometry lenientGeometry(ObjectNode feature) {
+        try {
+            return Geometry.fromGeoJson(feature.get("geometry"));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void readEnvelope(ResultSet rs, int column, Envelope env) throws SQLException {
+        double minX = rs.getDouble(column);
+        if (rs.wasNull()) return;
+        env.expand(minX, rs.getDouble(column + 1));
+        env.expand(rs.getDouble(column + 2), rs.getDouble(column + 3));
+    }
+
+    // 绑定前 9 个参数：content, content_binary, content_hash, content_gzip, feature_count,
+    // min_lng, min_lat, max_lng, max_lat；content 与 content_binary 只有一个有值
+    private static void bind(PreparedStatement ps, Spool spool, Reader reader, InputStream binary, InputStream gzip,
+                             int count, double[] bbox) throws SQLException {
+        if (reader == null) ps.setNull(1, Types.LONGVARCHAR);
+        else ps.setCharacterStream(1, reader, spool.chars);
+        if (binary == null) ps.setNull(2, Types.LONGVARBINARY);
+        else ps.setBinaryStream(2, binary, size(spool.binary));
+        ps.setString(3, spool.hash);
+        if (gzip == null) ps.setNull(4, Types.LONGVARBINARY);
+        else ps.setBinaryStream(4, gzip, size(spool.gzip));
+        ps.setInt(5, count);
+        for (int i = 0; i < 4; i++) {
+            if (bbox == null) ps.setNull(6 + i, Types.DOUBLE);
+            else ps.setDouble(6 + i, bbox[i]);
+        }
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record Spool(Path file, int chars, String hash, Path gzip, Path binary) implements AutoCloseable {
+
+        // 二进制存储时正文列置空
+        Reader openContent() throws IOException {
+            return binary != null ? null : Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        }
+
+        InputStream openBinary() throws IOException {
+            return binary == null ? null : Files.newInputStream(binary);
+        }
+
+        InputStream openGzip() throws IOException {
+            return gzip == null ? null : Files.newInputStream(gzip);
+        }
+
+        @Override
+        public void close() throws IOException {
+            Files.deleteIfExists(file);
+            if (gzip != null) Files.deleteIfExists(gzip);
+            if (binary != null) Files.deleteIfExists(binary);
+        }
+    }
+
+    private record DocState(long version, Envelope bbox, String contentHash) {
+    }
+
+    private record Applied(FeaturePatchResult result, Envelope before) {
+    }
+
+    private static final class PatchRequest {
+        final Map<String, String> upserts = new LinkedHashMap<>();
+        final Set<String> deletes = new HashSet<>();
+        final Envelope bbox = new Envelope();
+    }
+}
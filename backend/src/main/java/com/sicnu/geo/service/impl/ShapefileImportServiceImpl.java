@@ -0,0 +1,133 @@
+package com.sicnu.geo.service.impl;
+
+import com.sicnu.geo.dto.FeatureSummary;
+import com.sicnu.geo.service.FeatureStoreService;
+import com.sicnu.geo.service.ShapefileImportService;
+import com.sicnu.geo.shapefile.ShapefileLayer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * 上传内容先落到临时目录（zip 边读边解压），再以内存映射逐条读取，堆内存占用与文件大小无关。
+ */
+@Service
+public class ShapefileImportServiceImpl implements ShapefileImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ShapefileImportServiceImpl.class);
+
+    private static final Set<String> EXTENSIONS = Set.of("shp", "shx", "dbf", "prj", "cpg");
+
+    private final FeatureStoreService featureStore;
+    private final Charset defaultCharset;
+    private final long maxBytes;
+
+    public ShapefileImportServiceImpl(FeatureStoreService featureStore,
+                                      @Value("${sicnugeo.shapefile.default-charset:GBK}") String defaultCharset,
+                                      @Value("${sicnugeo.shapefile.max-bytes:2147483648}") long maxBytes) {
+        this.featureStore = featureStore;
+        this.defaultCharset = Charset.forName(defaultCharset);
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public FeatureSummary importShapefile(Long projectId, List<MultipartFile> files, String encoding, String layer) throws IOException {
+        if (files == null || files.isEmpty()) throw new IllegalArgumentException("没有上传文件");
+        Path dir = Files.createTempDirectory("sicnugeo-shp-");
+        try {
+            // 图层名（小写） -> 扩展名 -> 临时文件
+            Map<String, Map<String, Path>> layers = new TreeMap<>();
+            long[] total = {0};
+            for (MultipartFile file : files) {
+                String name = file.getOriginalFilename() == null ? "" : file.getOriginalFilename();
+                if (name.toLowerCase(Locale.ROOT).endsWith(".zip")) {
+                    try (ZipInputStream zip = new ZipInputStream(file.getInputStream())) {
+                        ZipEntry entry;
+                        while ((entry = zip.getNextEntry()) != null) {
+                            if (entry.isDirectory() || entry.getName().startsWith("__MACOSX/")) continue;
+                            store(dir, layers, entry.getName(), zip, total);
+                        }
+                    }
+                } else {
+                    try (InputStream in = file.getInputStream()) {
+                        store(dir, layers, name, in, total);
+                    }
+                }
+            }
+            Map<String, Path> parts = selectLayer(layers, layer);
+            ShapefileLayer source = new ShapefileLayer(parts.get("shp"), parts.get("shx"), parts.get("dbf"),
+                    parts.get("prj"), parts.get("cpg"), encoding, defaultCharset);
+            FeatureSummary summary = featureStore.save(projectId, source);
+            log.info("项目 {} 导入 Shapefile（{}），{} 个要素", projectId, source.charset(), summary.featureCount());
+            return summary;
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    // 临时文件名按序号生成，不使用上传的路径，避免路径穿越
+    private void store(Path dir, Map<String, Map<String, Path>> layers, String path, InputStream in, long[] total) throws IOException {
+        String name = path.substring(Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\')) + 1);
+        int dot = name.lastIndexOf('.');
+        if (dot <= 0) return;
+        String ext = name.substring(dot + 1).toLowerCase(Locale.ROOT);
+        if (!EXTENSIONS.contains(ext)) return;
+        Map<String, Path> parts = layers.computeIfAbsent(name.substring(0, dot).toLowerCase(Locale.ROOT), k -> new TreeMap<>());
+        if (parts.containsKey(ext)) throw new IllegalArgumentException("重复的文件: " + name);
+        Path target = dir.resolve(layers.values().stream().mapToInt(Map::size).sum() + "." + ext);
+        byte[] buffer = new byte[64 * 1024];
+        try (OutputStream out = Files.newOutputStream(target)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                total[0] += n;
+                if (total[0] > maxBytes) throw new IllegalArgumentException("上传内容超过 " + maxBytes + " 字节");
+                out.write(buffer, 0, n);
+            }
+        }
+        parts.put(ext, target);
+    }
+
+    private static Map<String, Path> selectLayer(Map<String, Map<String, Path>> layers, String layer) {
+        layers.values().removeIf(parts -> !parts.containsKey("shp"));
+        if (layers.isEmpty()) throw new IllegalArgumentException("没有找到 .shp 文件");
+        if (layer != null && !layer.isBlank()) {
+            Map<String, Path> parts = layers.get(layer.trim().toLowerCase(Locale.ROOT));
+            if (parts == null) throw new IllegalArgumentException("图层不存在: " + layer + "，可选图层: " + layers.keySet());
+            return parts;
+        }
+        if (layers.size() > 1) throw new IllegalArgumentException("包含多个图层，请指定 layer: " + layers.keySet());
+        return layers.values().iterator().next();
+    }
+
+    private static void deleteRecursively(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.deleteIfExists(p);
+                } catch (IOException e) {
+                    log.warn("删除临时文件失败: {}", p, e);
+                }
+            });
+        } catch (IOException e) {
+            log.warn("删除临时目录失败: {}", dir, e);
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.sicnu.geo.service.impl;
+
+import com.sicnu.geo.cache.CacheInvalidationBus;
+import com.sicnu.geo.cache.ProjectCache;
+import com.sicnu.geo.dto.BatchSubscriptionResult;
+import com.sicnu.geo.dto.ProjectSubscriptionStatus;
+import com.sicnu.geo.dto.SubscribedProject;
+import com.sicnu.geo.dto.SubscribedProjects;
+import com.sicnu.geo.dto.SubscriptionRequest;
+import com.sicnu.geo.dto.SubscriptionStats;
+import com.sicnu.geo.entity.Subscription;
+import com.sicnu.geo.entity.SubscriptionDigest;
+import com.sicnu.geo.enums.ProjectCategory;
+import com.sicnu.geo.index.SubscriptionIndex;
+import com.sicnu.geo.repository.SubscriptionDigestRepository;
+import com.sicnu.geo.repository.SubscriptionRepository;
+import com.sicnu.geo.service.SubscriptionService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * 列表、统计直接在 project_subscriptions 上按 user_id 查询（有 user_id 开头的索引），不经过订阅索引；
+ * 批量订阅用一条 INSERT ... SELECT（只插入存在且尚未订阅的项目），批量取消用一条 DELETE ... IN。
+ */
+@Service
+public class SubscriptionServiceImpl implements SubscriptionService {
+
+    private static final int DEFAULT_PAGE_SIZE = 10;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int DEFAULT_DIGEST_LIMIT = 20;
+    private static final int MAX_DIGEST_LIMIT = 200;
+
+    private final SubscriptionRepository repo;
+    private final SubscriptionDigestRepository digestRepo;
+    private final ProjectCache projectCache;
+    private final SubscriptionIndex index;
+    private final CacheInvalidationBus bus;
+    private final JdbcTemplate jdbc;
+    private final int maxBatch;
+
+    public SubscriptionServiceImpl(SubscriptionRepository repo, SubscriptionDigestRepository digestRepo,
+                                   ProjectCache projectCache, SubscriptionIndex index, CacheInvalidationBus bus,
+                                   JdbcTemplate jdbc,
+                                   @Value("${sicnugeo.subscriptions.max-batch:500}") int maxBatch) {
+        this.repo = repo;
+        this.digestRepo = digestRepo;
+        this.projectCache = projectCache;
+        this.index = index;
+        this.bus = bus;
+        this.jdbc = jdbc;
+        this.maxBatch = maxBatch;
+    }
+
+    @Override
+    public List<Subscription> list(long userId) {
+        return repo.findByUserIdOrderByCreatedAtDesc(userId);
+    }
+
+    @Override
+    public Subscription subscribe(long userId, SubscriptionRequest request) {
+        if (request == null) throw new IllegalArgumentException("订阅条件不能为空");
+        int given = (request.projectId() != null ? 1 : 0) + (request.category() != null ? 1 : 0)
+                + (request.bbox() != null ? 1 : 0);
+        if (given != 1) throw new IllegalArgumentException("projectId、category、bbox 必须且只能指定一个");
+        boolean notify = request.notificationEnabled() == null || request.notificationEnabled();
+        Subscription s = new Subscription().setUserId(userId).setNotificationEnabled(notify);
+
+        if (request.projectId() != null) {
+            if (!projectCache.exists(request.projectId())) throw new IllegalArgumentException("项目不存在");
+            Optional<Subscription> existing = repo.findByUserIdAndProjectId(userId, request.projectId());
+            if (existing.isPresent()) return existing.get();
+            s.setKind("project").setProjectId(request.projectId());
+        } else if (request.category() != null) {
+            Optional<Subscription> existing = repo.findByUserIdAndCategory(userId, request.category());
+            if (existing.isPresent()) return existing.get();
+            s.setKind("category").setCategory(request.category());
+        } else {
+            double[] b = request.bbox();
+            if (b.length != 4) throw new IllegalArgumentException("bbox 必须是 [minLng, minLat, maxLng, maxLat]");
+            if (b[0] > b[2] || b[1] > b[3]) throw new IllegalArgumentException("bbox 的最小值不能大于最大值");
+            if (b[0] < -180 || b[2] > 180 || b[1] < -90 || b[3] > 90) {
+                throw new IllegalArgumentException("bbox 超出经纬度范围");
+            }
+            String name = request.name() == null ? null : request.name().trim();
+            if (name != null && name.length() > 255) throw new IllegalArgumentException("名称不能超过 255 个字符");
+            s.setKind("area").setMinLng(b[0]).setMinLat(b[1]).setMaxLng(b[2]).setMaxLat(b[3])
+                    .setName(name == null || name.isEmpty() ? null : name);
+        }
+
+        Subscription saved;
+        try {
+            saved = repo.save(s);
+        } catch (DataIntegrityViolationException e) {
+            // 并发的重复订阅被唯一约束拦下，返回先写入的那条
+            Optional<Subscription> existing = s.getProjectId() != null
+                    ? repo.findByUserIdAndProjectId(userId, s.getProjectId())
+                    : repo.findByUserIdAndCategory(userId, s.getCategory());
+            return existing.orElseThrow(() -> e);
+        }
+        changed(userId);
+        return saved;
+    }
+
+    @Override
+    public boolean unsubscribe(long userId, long subscriptionId) {
+        int n = jdbc.update("DELETE FROM project_subscriptions WHERE id = ? AND user_id = ?", subscriptionId, userId);
+        if (n > 0) changed(userId);
+        return n > 0;
+    }
+
+    @Override
+    public boolean unsubscribeProject(long userId, long projectId) {
+        int n = jdbc.update("DELETE FROM project_subscriptions WHERE user_id = ? AND project_id = ?", userId, projectId);
+        if (n > 0) changed(userId);
+        return n > 0;
+    }
+
+    @Override
+    public SubscribedProjects subscribedProjects(long userId, String status, String search, Integer page,
+                                                 Integer limit) {
+        if (page != null && page < 1) throw new IllegalArgumentException("page 必须大于 0");
+        if (limit != null && limit < 1) throw new IllegalArgumentException("limit 必须大于 0");
+        int p = page == null ? 1 : page;
+        int size = limit == null ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+
+        // 只在该用户自己的订阅里筛选，行数有限，名称、描述直接用 LIKE
+        StringBuilder where = new StringBuilder(" FROM project_subscriptions s JOIN projects p ON p.id = s.project_id "
+                + "WHERE s.user_id = ?");
+        List<Object> args = new ArrayList<>();
+        args.add(userId);
+        if (status != null && !status.isBlank() && !"all".equals(status)) {
+            where.append(" AND p.status = ?");
+            args.add(status);
+        }
+        if (search != null && !search.isBlank()) {
+            String like = "%" + search.trim().toLowerCase(Locale.ROOT).replace("!", "!!")
+                    .replace("%", "!%").replace("_", "!_") + "%";
+            where.append(" AND (LOWER(p.name) LIKE ? ESCAPE '!' OR LOWER(p.description) LIKE ? ESCAPE '!')");
+            args.add(like);
+            args.add(like);
+        }
+
+        Long total = jdbc.queryForObject("SELECT COUNT(*)" + where, Long.class, args.toArray());
+        List<SubscribedProject> projects = new ArrayList<>();
+        if (total != null && total > (long) (p - 1) * size) {
+            List<Object> pageArgs = new ArrayList<>(args);
+            pageArgs.add(size);
+            pageArgs.add((p - 1) * size);
+            jdbc.query("SELECT p.id, p.name, p.description, p.status, p.category, p.start_date, p.end_date, "
+                    + "p.center_lng, p.center_lat, s.id, s.created_at, s.notification_enabled" + where
+                    + " ORDER BY s.created_at DESC, s.id DESC LIMIT ? OFFSET ?", (RowCallbackHandler) rs -> {
+                String category = rs.getString(5);
+                Date start = rs.getDate(6), end = rs.getDate(7);
+                Timestamp created = rs.getTimestamp(11);
+                projects.add(new SubscribedProject(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                        category == null ? null : ProjectCategory.valueOf(category),
+                        start == null ? null : start.toLocalDate(), end == null ? null : end.toLocalDate(),
+                        rs.getObject(8) == null ? null : rs.getDouble(8),
+                        rs.getObject(9) == null ? null : rs.getDouble(9),
+                        rs.getLong(10), created == null ? null : created.toLocalDateTime(), rs.getBoolean(12)));
+            }, pageArgs.toArray());
+        }
+        return new SubscribedProjects(projects, total == null ? 0 : total, p, size);
+    }
+
+    @Override
+    public ProjectSubscriptionStatus projectStatus(long userId, long projectId) {
+        return repo.findByUserIdAndProjectId(userId, projectId)
+                .map(s -> new ProjectSubscriptionStatus(projectId, true, Boolean.TRUE.equals(s.getNotificationEnabled()),
+                        s.getCreatedAt()))
+                .orElse(new ProjectSubscriptionStatus(projectId, false, false, null));
+    }
+
+    @Override
+    public ProjectSubscriptionStatus updateNotification(long userId, long projectId, boolean enabled) {
+        int n = jdbc.update("UPDATE project_subscriptions SET notification_enabled = ? WHERE user_id = ? AND project_id = ?",
+                enabled, userId, projectId);
+        if (n == 0) return null;
+        changed(userId);
+        return projectStatus(userId, projectId);
+    }
+
+    @Override
+    public SubscriptionStats stats(long userId) {
+        int[] c = new int[9]; // total, project, category, area, 进行中, 已完成, 延期, 未开始, 开启通知
+        jdbc.query("SELECT s.kind, p.status, s.notification_enabled, COUNT(*) FROM project_subscriptions s "
+                + "LEFT JOIN projects p ON p.id = s.project_id WHERE s.user_id = ? "
+                + "GROUP BY s.kind, p.status, s.notification_enabled", (RowCallbackHandler) rs -> {
+            String kind = rs.getString(1);
+            String status = rs.getString(2);
+            boolean notify = rs.getBoolean(3);
+            int n = rs.getInt(4);
+            c[0] += n;
+            if (notify) c[8] += n;
+            switch (kind) {
+                case "project":
+                    c[1] += n;
+                    break;
+                case "category":
+                    c[2] += n;
+                    break;
+                default:
+                    c[3] += n;
+            }
+            if (status == null) return;
+            switch (status) {
+                case "inProgress":
+                    c[4] += n;
+                    break;
+                case "completed":
+                    c[5] += n;
+                    break;
+                case "delayed":
+                    c[6] += n;
+                    break;
+                case "notStarted":
+                    c[7] += n;
+                    break;
+                default:
+            }
+        }, userId);
+        return new SubscriptionStats(c[0], c[1], c[2], c[3], c[4], c[5], c[6], c[7], c[8],
+                digestRepo.countByUserIdAndReadAtIsNull(userId));
+    }
+
+    @Override
+    public BatchSubscriptionResult batch(long userId, List<Long> projectIds, String action,
+                                         Boolean notificationEnabled) {
+        if (projectIds == null || projectIds.isEmpty()) throw new IllegalArgumentException("projectIds 不能为空");
+        if (!"subscribe".equals(action) && !"unsubscribe".equals(action)) {
+            throw new IllegalArgumentException("action 必须是 subscribe 或 unsubscribe");
+        }
+        Set<Long> ids = new LinkedHashSet<>();
+        for (Long id : projectIds) {
+            if (id == null) throw new IllegalArgumentException("projectIds 不能包含空值");
+            ids.add(id);
+        }
+        if (ids.size() > maxBatch) throw new IllegalArgumentException("一次最多处理 " + maxBatch + " 个项目");
+        String in = String.join(",", Collections.nCopies(ids.size(), "?"));
+
+        Set<Long> ok;
+        if ("unsubscribe".equals(action)) {
+            List<Object> args = new ArrayList<>();
+            args.add(userId);
+            args.addAll(ids);
+            // 先查出确实订阅了的项目，未订阅的记为失败；并发取消的项目同样算作已取消
+            ok = new HashSet<>();
+            jdbc.query("SELECT project_id FROM project_subscriptions WHERE user_id = ? AND project_id IN (" + in + ")",
+                    (RowCallbackHandler) rs -> ok.add(rs.getLong(1)), args.toArray());
+            if (!ok.isEmpty()) {
+                jdbc.update("DELETE FROM project_subscriptions WHERE user_id = ? AND project_id IN (" + in + ")",
+                        args.toArray());
+            }
+        } else {
+            boolean notify = notificationEnabled == null || notificationEnabled;
+            List<Object> args = new ArrayList<>();
+            args.add(userId);
+            args.add(notify);
+            args.add(Timestamp.valueOf(LocalDateTime.now()));
+            args.addAll(ids);
+            args.add(userId);
+            String sql = "INSERT INTO project_subscriptions (user_id, kind, project_id, notification_enabled, created_at) "
+                    + "SELECT ?, 'project', p.id, ?, ? FROM projects p WHERE p.id IN (" + in + ") "
+                    + "AND NOT EXISTS (SELECT 1 FROM project_subscriptions s WHERE s.user_id = ? AND s.project_id = p.id)";
+            try {
+                jdbc.update(sql, args.toArray());
+            } catch (DataIntegrityViolationException e) {
+                // 与单个订阅并发写入了同一项目；重试时 NOT EXISTS 会跳过它
+                jdbc.update(sql, args.toArray());
+            }
+            ok = new HashSet<>();
+            List<Object> existsArgs = new ArrayList<>(ids);
+            jdbc.query("SELECT id FROM projects WHERE id IN (" + in + ")",
+                    (RowCallbackHandler) rs -> ok.add(rs.getLong(1)), existsArgs.toArray());
+        }
+        changed(userId);
+
+        List<BatchSubscriptionResult.Item> results = new ArrayList<>(ids.size());
+        int success = 0;
+        for (Long id : ids) {
+            boolean s = ok.contains(id);
+            if (s) success++;
+            results.add(new BatchSubscriptionResult.Item(id, s));
+        }
+        return new BatchSubscriptionResult(results, success, ids.size() - success);
+    }
+
+    @Override
+    public List<SubscriptionDigest> digests(long userId, boolean unreadOnly, Integer limit) {
+        if (limit != null && limit < 1) throw new IllegalArgumentException("limit 必须大于 0");
+        int size = limit == null ? DEFAULT_DIGEST_LIMIT : Math.min(limit, MAX_DIGEST_LIMIT);
+        return digestRepo.findRecent(userId, unreadOnly, PageRequest.of(0, size));
+    }
+
+    @Override
+    public int markDigestsRead(long userId) {
+        return digestRepo.markAllRead(userId, LocalDateTime.now());
+    }
+
+    @Override
+    public void removeForProjects(List<Long> projectIds) {
+        if (projectIds.isEmpty()) return;
+        String in = String.join(",", Collections.nCopies(projectIds.size(), "?"));
+        Object[] args = projectIds.toArray();
+        List<Long> users = jdbc.queryForList("SELECT DISTINCT user_id FROM project_subscriptions WHERE project_id IN ("
+                + in + ")", Long.class, args);
+        if (users.isEmpty()) return;
+        jdbc.update("DELETE FROM project_subscriptions WHERE project_id IN (" + in + ")", args);
+        for (Long userId : users) changed(userId);
+    }
+
+    // 本节点立即更新索引，其它节点收到通知后各自从数据库重新加载该用户
+    private void changed(long userId) {
+        index.reloadUser(userId);
+        bus.publish(SubscriptionIndex.BUS_NAME, String.valueOf(userId));
+    }
+}
@@ -1,14 +1,24 @@
 package com.sicnu.geo.service.impl;
 
+import com.sicnu.geo.auth.LoginRejectedException;
+import com.sicnu.geo.auth.SlidingWindowLimiter;
+import com.sicnu.geo.cache.RedisScripts;
 import com.sicnu.geo.entity.User;
 import com.sicnu.geo.repository.UserRepository;
 import com.sicnu.geo.service.UserService;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
-import java.util.Random;
+import java.security.SecureRandom;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 @Service
 public class UserServiceImpl implements UserService {
@@ -19,16 +29,77 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private SlidingWindowLimiter limiter;
+
+    // 同一手机号的键带 {phone} 哈希标签，Redis 集群下落在同一槽位，脚本可以一起操作
     private static final String LOGIN_CODE_KEY = "login:code:";
+    private static final String LOGIN_ATTEMPTS_KEY = "login:attempts:";
+    private static final String LOGIN_LOCK_KEY = "login:lock:";
+    private static final String SEND_PHONE_KEY = "login:send:phone:";
+    private static final String SEND_IP_KEY = "login:send:ip:";
     private static final Long LOGIN_CODE_TTL = 5L; // 5 minutes
+    private static final Pattern PHONE = Pattern.compile("1\\d{10}");
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    // KEYS[1] 验证码，KEYS[2] 错误次数，KEYS[3] 锁定标记；ARGV[1] 提交的验证码，ARGV[2] 最大错误次数，ARGV[3] 锁定秒数。
+    // 返回 {状态, 数值}：0 通过（验证码已删除）；1 错误，数值为剩余次数；2 验证码不存在或已过期；3 已锁定，数值为剩余锁定秒数
+    private static final DefaultRedisScript<List<Long>> VERIFY_AND_CONSUME = RedisScripts.returningLongs("""
+            local locked = redis.call('TTL', KEYS[3])
+            if locked > 0 then return {3, locked} end
+            local code = redis.call('GET', KEYS[1])
+            if not code then return {2, 0} end
+            if code == ARGV[1] then
+              redis.call('DEL', KEYS[1], KEYS[2])
+              return {0, 0}
+            end
+            local max, lock = tonumber(ARGV[2]), tonumber(ARGV[3])
+            local attempts = redis.call('INCR', KEYS[2])
+            if attempts == 1 then redis.call('EXPIRE', KEYS[2], lock) end
+            if attempts >= max then
+              redis.call('DEL', KEYS[1], KEYS[2])
+              redis.call('SET', KEYS[3], '1', 'EX', lock)
+              return {3, lock}
+            end
+            return {1, max - attempts}
+            """);
+
+    @Value("${sicnugeo.sms.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${sicnugeo.sms.lock-minutes:15}")
+    private long lockMinutes;
+
+    @Value("${sicnugeo.sms.phone-limits:1/60,5/3600}")
+    private String phoneLimitSpec;
+
+    @Value("${sicnugeo.sms.ip-limits:10/60,50/3600}")
+    private String ipLimitSpec;
+
+    private List<SlidingWindowLimiter.Window> phoneLimits;
+    private List<SlidingWindowLimiter.Window> ipLimits;
+
+    @PostConstruct
+    void parseLimits() {
+        phoneLimits = SlidingWindowLimiter.Window.parseAll(phoneLimitSpec);
+        ipLimits = SlidingWindowLimiter.Window.parseAll(ipLimitSpec);
+    }
 
     @Override
-    public void sendCode(String phone) {
+    public void sendCode(String phone, String clientIp) {
+        checkPhone(phone);
+        // 先按地址再按手机号限流：同一地址轮换手机号、多个地址轰炸同一手机号都会被拦下
+        long wait = limiter.tryAcquire(SEND_IP_KEY + clientIp, ipLimits);
+        if (wait == 0) wait = limiter.tryAcquire(SEND_PHONE_KEY + "{" + phone + "}", phoneLimits);
+        if (wait > 0) {
+            throw new LoginRejectedException(HttpStatus.TOO_MANY_REQUESTS, "验证码发送太频繁，请 " + wait + " 秒后再试", wait);
+        }
+
         // 1. Generate 6-digit code
-        String code = String.format("%06d", new Random().nextInt(999999));
+        String code = String.format("%06d", RANDOM.nextInt(1_000_000));
 
         // 2. Save to Redis with TTL
-        stringRedisTemplate.opsForValue().set(LOGIN_CODE_KEY + phone, code, LOGIN_CODE_TTL, TimeUnit.MINUTES);
+        stringRedisTemplate.opsForValue().set(LOGIN_CODE_KEY + "{" + phone + "}", code, LOGIN_CODE_TTL, TimeUnit.MINUTES);
 
         // 3. Send SMS (Mock implementation)
         System.out.println("Sending SMS to " + phone + ": " + code);
@@ -36,24 +107,49 @@ public class UserServiceImpl implements UserService {
 
     @Override
     public User login(String phone, String code) {
-        // 1. Verify code from Redis
-        String cacheCode = stringRedisTemplate.opsForValue().get(LOGIN_CODE_KEY + phone);
-        if (cacheCode == null || !cacheCode.equals(code)) {
-            throw new RuntimeException("验证码错误或已过期");
+        checkPhone(phone);
+        if (code == null || code.isBlank()) throw new LoginRejectedException(HttpStatus.BAD_REQUEST, "请输入验证码", 0);
+
+        // 1. Verify and consume the code in one atomic script
+        String tag = "{" + phone + "}";
+        List<Long> result = stringRedisTemplate.execute(VERIFY_AND_CONSUME,
+                List.of(LOGIN_CODE_KEY + tag, LOGIN_ATTEMPTS_KEY + tag, LOGIN_LOCK_KEY + tag),
+                code, String.valueOf(maxAttempts), String.valueOf(lockMinutes * 60));
+        long status = result.get(0);
+        long value = result.get(1);
+        if (status == 1) {
+            throw new LoginRejectedException(HttpStatus.BAD_REQUEST, "验证码错误，还可尝试 " + value + " 次", 0);
+        } else if (status == 2) {
+            throw new LoginRejectedException(HttpStatus.BAD_REQUEST, "验证码错误或已过期", 0);
+        } else if (status == 3) {
+            throw new LoginRejectedException(HttpStatus.TOO_MANY_REQUESTS, "验证码错误次数过多，请 " + (value + 59) / 60 + " 分钟后再试", value);
         }
 
         // 2. Find user or register
-        User user = userRepository.findByPhone(phone).orElseGet(() -> {
-            User newUser = new User();
-            newUser.setPhone(phone);
-            newUser.setNickName("User_" + phone.substring(phone.length() - 4));
-            newUser.setRole("normal"); // Default role
-            return userRepository.save(newUser);
-        });
+        return userRepository.findByPhone(phone).orElseGet(() -> register(phone));
+    }
 
-        // 3. Delete code from Redis
-        stringRedisTemplate.delete(LOGIN_CODE_KEY + phone);
+    @Override
+    public User findById(Long id) {
+        return userRepository.findById(id).orElse(null);
+    }
 
-        return user;
+    // 同一手机号并发首次登录时只有一个插入成功，其余撞上唯一约束后读取已注册的用户
+    private User register(String phone) {
+        User newUser = new User();
+        newUser.setPhone(phone);
+        newUser.setNickName("User_" + phone.substring(phone.length() - 4));
+        newUser.setRole("normal"); // Default role
+        try {
+            return userRepository.save(newUser);
+        } catch (DataIntegrityViolationException e) {
+            return userRepository.findByPhone(phone).orElseThrow(() -> e);
+        }
+    }
+
+    private static void checkPhone(String phone) {
+        if (phone == null || !PHONE.matcher(phone).matches()) {
+            throw new LoginRejectedException(HttpStatus.BAD_REQUEST, "手机号格式不正确", 0);
+        }
     }
 }
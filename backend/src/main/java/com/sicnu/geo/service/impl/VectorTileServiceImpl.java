@@ -0,0 +1,184 @@
+package com.sicnu.geo.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sicnu.geo.cache.CacheInvalidationBus;
+import com.sicnu.geo.enums.ProjectCategory;
+import com.sicnu.geo.event.FeatureDocumentChangedEvent;
+import com.sicnu.geo.event.ProjectChangedEvent;
+import com.sicnu.geo.geometry.Envelope;
+import com.sicnu.geo.service.FeatureStoreService;
+import com.sicnu.geo.service.VectorTileService;
+import com.sicnu.geo.tile.MvtEncoder;
+import com.sicnu.geo.tile.TileCache;
+import com.sicnu.geo.tile.TileClipper;
+import com.sicnu.geo.tile.TileGeometry;
+import com.sicnu.geo.tile.TileMath;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 瓦片缓存在各节点本地；本节点按要素变化范围失效后，把范围经 {@link CacheInvalidationBus} 通知其它节点失效同一范围。
+ */
+@Service
+public class VectorTileServiceImpl implements VectorTileService {
+
+    private static final Logger log = LoggerFactory.getLogger(VectorTileServiceImpl.class);
+    private static final String BUS_NAME = "tiles";
+
+    private static final String LAYER = "features";
+    private static final int EXTENT = 4096;
+    private static final int BUFFER = 64;
+    private static final double BUFFER_RATIO = (double) BUFFER / EXTENT;
+
+    private final JdbcTemplate jdbc;
+    private final FeatureStoreService featureStore;
+    private final CacheInvalidationBus bus;
+    private final TileCache cache;
+    private final double tolerance;
+
+    public VectorTileServiceImpl(JdbcTemplate jdbc, FeatureStoreService featureStore, CacheInvalidationBus bus,
+                                 @Value("${sicnugeo.tiles.cache-max-entries:20000}") int maxEntries,
+                                 @Value("${sicnugeo.tiles.cache-max-bytes:268435456}") long maxBytes,
+                                 @Value("${sicnugeo.tiles.simplify-tolerance:8}") double tolerance) {
+        this.jdbc = jdbc;
+        this.featureStore = featureStore;
+        this.bus = bus;
+        this.cache = new TileCache(maxEntries, maxBytes);
+        this.tolerance = tolerance;
+        bus.register(BUS_NAME, key -> {
+            try {
+                cache.invalidate(Envelope.parse(key), BUFFER_RATIO);
+            } catch (IllegalArgumentException e) {
+                log.warn("无效的瓦片失效范围: {}", key);
+            }
+        });
+    }
+
+    @Override
+    public byte[] getTile(int z, int x, int y, ProjectCategory category, String status) {
+        TileCache.Key key = new TileCache.Key(z, x, y, category == null ? null : category.name(), status);
+        byte[] tile = cache.get(key);
+        if (tile != null) return tile;
+        long generation = cache.generation();
+        tile = render(z, x, y, category, status);
+        cache.putIfFresh(key, tile, generation);
+        return tile;
+    }
+
+    @Override
+    public Map<String, Object> cacheStats() {
+        return cache.stats();
+    }
+
+    // 只失效与保存前后外包矩形相交的瓦片
+    @EventListener
+    public void onFeaturesChanged(FeatureDocumentChangedEvent e) {
+        cache.invalidate(e.before(), BUFFER_RATIO);
+        cache.invalidate(e.after(), BUFFER_RATIO);
+    }
+
+    // 提交后通知其它节点，避免它们在提交前按旧数据重新生成瓦片
+    @TransactionalEventListener(fallbackExecution = true)
+    public void broadcastFeaturesChanged(FeatureDocumentChangedEvent e) {
+        broadcast(e.before());
+        broadcast(e.after());
+    }
+
+    // 项目分类/状态变化会影响筛选结果与瓦片属性；其它节点的项目写入经 ProjectChangeRelay 同样到达这里
+    @EventListener
+    public void onProjectChanged(ProjectChangedEvent e) {
+        if (e.type() == ProjectChangedEvent.Type.CREATED) return;
+        jdbc.query("SELECT min_lng, min_lat, max_lng, max_lat FROM project_features "
+                + "WHERE project_id = ? AND min_lng IS NOT NULL", rs -> {
+            cache.invalidate(new Envelope(rs.getDouble(1), rs.getDouble(2), rs.getDouble(3), rs.getDouble(4)),
+                    BUFFER_RATIO);
+        }, e.projectId());
+    }
+
+    private void broadcast(Envelope env) {
+        if (env != null && !env.isEmpty()) bus.publish(BUS_NAME, env.toString());
+    }
+
+    private byte[] render(int z, int x, int y, ProjectCategory category, String status) {
+        Envelope env = TileMath.tileEnvelope(z, x, y, BUFFER_RATIO);
+        StringBuilder sql = new StringBuilder("SELECT f.project_id, p.category, p.status FROM project_features f "
+                + "JOIN projects p ON p.id = f.project_id "
+                + "WHERE f.max_lng >= ? AND f.min_lng <= ? AND f.max_lat >= ? AND f.min_lat <= ?");
+        List<Object> args = new ArrayList<>(List.of(env.getMinX(), env.getMaxX(), env.getMinY(), env.getMaxY()));
+        if (category != null) {
+            sql.append(" AND p.category = ?");
+            args.add(category.name());
+        }
+        if (status != null) {
+            sql.append(" AND p.status = ?");
+            args.add(status);
+        }
+        List<Object[]> docs = jdbc.query(sql.toString(),
+                (rs, i) -> new Object[]{rs.getLong(1), rs.getString(2), rs.getString(3)}, args.toArray());
+
+        MvtEncoder encoder = new MvtEncoder(LAYER, EXTENT);
+        TileClipper clipper = new TileClipper(z, x, y, EXTENT, BUFFER, tolerance);
+        for (Object[] doc : docs) {
+            Long projectId = (Long) doc[0];
+            try {
+                featureStore.forEachFeature(projectId, (feature, geometry) -> {
+                    if (geometry == null || !env.intersects(geometry.envelope())) return;
+                    List<TileGeometry> parts = clipper.clip(geometry);
+                    if (parts.isEmpty()) return;
+                    Map<String, Object> props = properties(feature, projectId, (String) doc[1], (String) doc[2]);
+                    Long id = numericId(feature.get("id"));
+                    for (TileGeometry part : parts) encoder.addFeature(id, props, part);
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return encoder.encode();
+    }
+
+    // 要素自身属性只保留标量，嵌套结构按 JSON 文本写入
+    private static Map<String, Object> properties(ObjectNode feature, Long projectId, String category, String status) {
+        Map<String, Object> props = new LinkedHashMap<>();
+        JsonNode src = feature.get("properties");
+        if (src != null && src.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> it = src.fields();
+            while (it.hasNext()) {
+                Map.Entry<String, JsonNode> e = it.next();
+                JsonNode v = e.getValue();
+                if (v.isNull()) continue;
+                if (v.isTextual()) props.put(e.getKey(), v.asText());
+                else if (v.isBoolean()) props.put(e.getKey(), v.asBoolean());
+                else if (v.isIntegralNumber()) props.put(e.getKey(), v.asLong());
+                else if (v.isNumber()) props.put(e.getKey(), v.asDouble());
+                else props.put(e.getKey(), v.toString());
+            }
+        }
+        JsonNode fid = feature.get("id");
+        if (fid != null && !fid.isNull() && !props.containsKey("id")) props.put("id", fid.asText());
+        props.put("projectId", projectId);
+        if (category != null) props.put("category", category);
+        if (status != null) props.put("status", status);
+        return props;
+    }
+
+    private static Long numericId(JsonNode id) {
+        if (id == null) return null;
+        if (id.isIntegralNumber() && id.canConvertToLong()) return id.asLong();
+        if (id.isTextual() && id.asText().matches("\\d{1,18}")) return Long.parseLong(id.asText());
+        return null;
+    }
+}
@@ -0,0 +1,141 @@
+package com.sicnu.geo.shapefile;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 以内存映射方式逐条读取 .dbf 属性记录，复用同一个记录缓冲区，每次只解码一条记录。
+ * 字符字段按给定的代码页解码（国内数据多为 GBK）；数值字段无小数位时解码为整数。
+ */
+public class DbfReader {
+
+    // dBASE 文件头中的语言驱动号与代码页的对应关系（只列出常见的几种）
+    private static final Map<Integer, String> LANGUAGE_DRIVERS = Map.of(
+            0x01, "IBM437",
+            0x02, "IBM850",
+            0x03, "windows-1252",
+            0x4D, "GBK",
+            0x7A, "GBK",
+            0x78, "Big5",
+            0x7B, "Shift_JIS");
+
+    private record Field(String name, char type, int offset, int length, int decimals) {
+    }
+
+    private final MappedByteBuffer dbf;
+    private final Charset charset;
+    private final int recordCount;
+    private final int headerLength;
+    private final int recordLength;
+    private final List<Field> fields = new ArrayList<>();
+    private final byte[] record;
+
+    public DbfReader(Path file, Charset charset) throws IOException {
+        this.dbf = ShpReader.map(file);
+        dbf.order(ByteOrder.LITTLE_ENDIAN);
+        if (dbf.limit() < 32) throw new IllegalArgumentException(".dbf 文件头无效");
+        this.charset = charset;
+        this.recordCount = dbf.getInt(4);
+        this.headerLength = Short.toUnsignedInt(dbf.getShort(8));
+        this.recordLength = Short.toUnsignedInt(dbf.getShort(10));
+        int offset = 1; // 每条记录第一个字节是删除标记
+        for (int at = 32; at + 32 <= headerLength && dbf.get(at) != 0x0D; at += 32) {
+            int nameLength = 0;
+            while (nameLength < 11 && dbf.get(at + nameLength) != 0) nameLength++;
+            byte[] name = new byte[nameLength];
+            dbf.get(at, name);
+            int length = Byte.toUnsignedInt(dbf.get(at + 16));
+            fields.add(new Field(new String(name, charset).trim(), (char) dbf.get(at + 11), offset, length,
+                    Byte.toUnsignedInt(dbf.get(at + 17))));
+            offset += length;
+        }
+        if (offset > recordLength) throw new IllegalArgumentException(".dbf 字段定义与记录长度不符");
+        this.record = new byte[recordLength];
+    }
+
+    /**
+     * 文件头中语言驱动号对应的代码页，未知时返回 null。
+     */
+    public static Charset languageDriverCharset(Path file) throws IOException {
+        MappedByteBuffer buffer = ShpReader.map(file);
+        if (buffer.limit() < 32) return null;
+        String name = LANGUAGE_DRIVERS.get(Byte.toUnsignedInt(buffer.get(29)));
+        return name == null ? null : Charset.forName(name);
+    }
+
+    public int recordCount() {
+        return recordCount;
+    }
+
+    /**
+     * 读取第 index 条记录的属性；记录已被标记删除时返回 null。
+     */
+    public ObjectNode read(int index, JsonNodeFactory factory) {
+        long at = headerLength + (long) index * recordLength;
+        if (at + recordLength > dbf.limit()) throw new IllegalArgumentException("第 " + (index + 1) + " 条 .dbf 记录越界");
+        dbf.get((int) at, record);
+        if (record[0] == '*') return null;
+        ObjectNode props = factory.objectNode();
+        for (Field f : fields) {
+            int start = f.offset, end = f.offset + f.length;
+            // 去掉两端的空格与 NUL
+            while (start < end && (record[start] == ' ' || record[start] == 0)) start++;
+            while (end > start && (record[end - 1] == ' ' || record[end - 1] == 0)) end--;
+            if (start == end) {
+                props.putNull(f.name);
+                continue;
+            }
+            switch (f.type) {
+                case 'N': case 'F':
+                    putNumber(props, f, start, end);
+                    break;
+                case 'L': {
+                    char c = Character.toUpperCase((char) record[start]);
+                    if (c == 'T' || c == 'Y') props.put(f.name, true);
+                    else if (c == 'F' || c == 'N') props.put(f.name, false);
+                    else props.putNull(f.name);
+                    break;
+                }
+                case 'D':
+                    // YYYYMMDD 转为 ISO 日期
+                    if (end - start == 8) {
+                        String d = new String(record, start, 8, charset);
+                        props.put(f.name, d.substring(0, 4) + "-" + d.substring(4, 6) + "-" + d.substring(6));
+                    } else {
+                        props.putNull(f.name);
+                    }
+                    break;
+                default:
+                    props.put(f.name, new String(record, start, end - start, charset));
+            }
+        }
+        return props;
+    }
+
+    private void putNumber(ObjectNode props, Field f, int start, int end) {
+        String text = new String(record, start, end - start, StandardCharsets.US_ASCII);
+        try {
+            if (f.decimals == 0 && end - start <= 18 && text.indexOf('.') < 0 && text.indexOf('e') < 0 && text.indexOf('E') < 0) {
+                props.put(f.name, Long.parseLong(text));
+            } else {
+                double v = Double.parseDouble(text);
+                if (Double.isFinite(v)) props.put(f.name, v);
+                else props.put(f.name, new BigDecimal(text));
+            }
+        } catch (NumberFormatException e) {
+            // 空值常以 "*****" 等占位符表示
+            props.putNull(f.name);
+        }
+    }
+}
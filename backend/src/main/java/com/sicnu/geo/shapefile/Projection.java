@@ -0,0 +1,296 @@
+package com.sicnu.geo.shapefile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 由 .prj（ESRI WKT）得到的坐标转换，把图层坐标就地换算为 WGS84 经纬度。
+ * <p>
+ * 支持的坐标系：
+ * <ul>
+ *     <li>WGS84 / CGCS2000 地理坐标（CGCS2000 与 WGS84 的差异在厘米级，直接视为相同）；</li>
+ *     <li>基于上述基准面的高斯-克吕格 / 横轴墨卡托投影（含带号前缀的东偏）；</li>
+ *     <li>Web 墨卡托（Mercator_Auxiliary_Sphere、Pseudo-Mercator）。</li>
+ * </ul>
+ * 北京54、西安80 等基准面需要当地的七参数才能准确转换，这里直接拒绝，而不是给出偏差上百米的结果。
+ */
+public abstract class Projection {
+
+    public static final Projection WGS84 = new Projection() {
+        @Override
+        public void toLngLat(double[] seq) {
+        }
+
+        @Override
+        public boolean isIdentity() {
+            return true;
+        }
+    };
+
+    /**
+     * 把交错坐标 {x0, y0, x1, y1, ...} 就地换算为 {lng0, lat0, ...}。
+     */
+    public abstract void toLngLat(double[] seq);
+
+    public boolean isIdentity() {
+        return false;
+    }
+
+    /**
+     * 解析 .prj 文本；为空时视为 WGS84 经纬度。不支持的坐标系抛出 IllegalArgumentException。
+     */
+    public static Projection fromWkt(String wkt) {
+        if (wkt == null || wkt.isBlank()) return WGS84;
+        Node root = new WktParser(wkt).parse();
+        switch (root.name) {
+            case "GEOGCS":
+                return geographic(root);
+            case "PROJCS":
+                return projected(root);
+            default:
+                throw new IllegalArgumentException("不支持的坐标系定义: " + root.name);
+        }
+    }
+
+    private static Projection geographic(Node geogcs) {
+        checkDatum(geogcs);
+        double primeMeridian = primeMeridian(geogcs);
+        double unitDegrees = Math.toDegrees(geogcs.child("UNIT") == null ? Math.toRadians(1) : geogcs.child("UNIT").number(1));
+        if (primeMeridian == 0 && Math.abs(unitDegrees - 1) < 1e-9) return WGS84;
+        return new Projection() {
+            @Override
+            public void toLngLat(double[] seq) {
+                for (int i = 0; i + 1 < seq.length; i += 2) {
+                    seq[i] = seq[i] * unitDegrees + primeMeridian;
+                    seq[i + 1] = seq[i + 1] * unitDegrees;
+                }
+            }
+        };
+    }
+
+    private static Projection projected(Node projcs) {
+        Node geogcs = projcs.child("GEOGCS");
+        if (geogcs == null) throw new IllegalArgumentException("投影坐标系缺少 GEOGCS");
+        checkDatum(geogcs);
+        Node spheroid = geogcs.child("DATUM") == null ? null : geogcs.child("DATUM").child("SPHEROID");
+        double a = spheroid == null ? 6378137.0 : spheroid.number(1);
+        double inverseFlattening = spheroid == null ? 298.257223563 : spheroid.number(2);
+        double f = inverseFlattening == 0 ? 0 : 1 / inverseFlattening;
+        double primeMeridian = primeMeridian(geogcs);
+        Node unit = projcs.child("UNIT");
+        double metersPerUnit = unit == null ? 1 : unit.number(1);
+        Node projection = projcs.child("PROJECTION");
+        String method = projection == null ? "" : projection.string(0).toLowerCase(Locale.ROOT);
+
+        double falseEasting = projcs.parameter("false_easting", 0) * metersPerUnit;
+        double falseNorthing = projcs.parameter("false_northing", 0) * metersPerUnit;
+        double centralMeridian = projcs.parameter("central_meridian",
+                projcs.parameter("longitude_of_center", projcs.parameter("longitude_of_origin", 0))) + primeMeridian;
+        double latitudeOfOrigin = projcs.parameter("latitude_of_origin", projcs.parameter("latitude_of_center", 0));
+        double scale = projcs.parameter("scale_factor", 1);
+
+        if (method.equals("transverse_mercator") || method.equals("gauss_kruger")) {
+            return new TransverseMercator(a, f, centralMeridian, latitudeOfOrigin, scale,
+                    falseEasting, falseNorthing, metersPerUnit);
+        }
+        if (method.equals("mercator_auxiliary_sphere") || method.equals("popular_visualisation_pseudo_mercator")) {
+            return new Projection() {
+                @Override
+                public void toLngLat(double[] seq) {
+                    for (int i = 0; i + 1 < seq.length; i += 2) {
+                        double x = seq[i] * metersPerUnit - falseEasting;
+                        double y = seq[i + 1] * metersPerUnit - falseNorthing;
+                        seq[i] = centralMeridian + Math.toDegrees(x / a);
+                        seq[i + 1] = Math.toDegrees(2 * Math.atan(Math.exp(y / a)) - Math.PI / 2);
+                    }
+                }
+            };
+        }
+        throw new IllegalArgumentException("不支持的投影方式: " + (projection == null ? "未指定" : projection.string(0)));
+    }
+
+    private static void checkDatum(Node geogcs) {
+        Node datum = geogcs.child("DATUM");
+        String name = (datum == null ? geogcs.string(0) : datum.string(0)).toLowerCase(Locale.ROOT);
+        if (name.contains("wgs_1984") || name.contains("wgs84") || name.contains("wgs 84")
+                || name.contains("china_2000") || name.contains("cgcs2000") || name.contains("china_geodetic_coordinate_system_2000")) {
+            return;
+        }
+        throw new IllegalArgumentException("不支持的基准面 " + (datum == null ? geogcs.string(0) : datum.string(0))
+                + "，请先转换到 WGS84 或 CGCS2000");
+    }
+
+    private static double primeMeridian(Node geogcs) {
+        Node primem = geogcs.child("PRIMEM");
+        return primem == null ? 0 : primem.number(1);
+    }
+
+    // ---------------------------------------------------------------- 横轴墨卡托
+
+    /**
+     * 横轴墨卡托（高斯-克吕格）反算，采用 Snyder《Map Projections - A Working Manual》中的级数公式，带内精度在毫米级。
+     */
+    static final class TransverseMercator extends Projection {
+
+        private final double a;
+        private final double e2;
+        private final double ep2;
+        private final double e1;
+        private final double lon0;
+        private final double k0;
+        private final double falseEasting;
+        private final double falseNorthing;
+        private final double metersPerUnit;
+        private final double m0;
+
+        TransverseMercator(double a, double f, double lon0, double lat0, double k0,
+                           double falseEasting, double falseNorthing, double metersPerUnit) {
+            this.a = a;
+            this.e2 = f * (2 - f);
+            this.ep2 = e2 / (1 - e2);
+            double s = Math.sqrt(1 - e2);
+            this.e1 = (1 - s) / (1 + s);
+            this.lon0 = lon0;
+            this.k0 = k0;
+            this.falseEasting = falseEasting;
+            this.falseNorthing = falseNorthing;
+            this.metersPerUnit = metersPerUnit;
+            this.m0 = meridianArc(Math.toRadians(lat0));
+        }
+
+        @Override
+        public void toLngLat(double[] seq) {
+            for (int i = 0; i + 1 < seq.length; i += 2) {
+                double x = seq[i] * metersPerUnit - falseEasting;
+                double y = seq[i + 1] * metersPerUnit - falseNorthing;
+                double m = m0 + y / k0;
+                double mu = m / (a * (1 - e2 / 4 - 3 * e2 * e2 / 64 - 5 * e2 * e2 * e2 / 256));
+                double phi1 = mu + (3 * e1 / 2 - 27 * Math.pow(e1, 3) / 32) * Math.sin(2 * mu)
+                        + (21 * e1 * e1 / 16 - 55 * Math.pow(e1, 4) / 32) * Math.sin(4 * mu)
+                        + (151 * Math.pow(e1, 3) / 96) * Math.sin(6 * mu)
+                        + (1097 * Math.pow(e1, 4) / 512) * Math.sin(8 * mu);
+                double sin = Math.sin(phi1), cos = Math.cos(phi1), tan = Math.tan(phi1);
+                double c1 = ep2 * cos * cos;
+                double t1 = tan * tan;
+                double w = 1 - e2 * sin * sin;
+                double n1 = a / Math.sqrt(w);
+                double r1 = a * (1 - e2) / (w * Math.sqrt(w));
+                double d = x / (n1 * k0);
+                double d2 = d * d;
+                double lat = phi1 - (n1 * tan / r1) * (d2 / 2
+                        - (5 + 3 * t1 + 10 * c1 - 4 * c1 * c1 - 9 * ep2) * d2 * d2 / 24
+                        + (61 + 90 * t1 + 298 * c1 + 45 * t1 * t1 - 252 * ep2 - 3 * c1 * c1) * d2 * d2 * d2 / 720);
+                double lon = (d - (1 + 2 * t1 + c1) * d2 * d / 6
+                        + (5 - 2 * c1 + 28 * t1 - 3 * c1 * c1 + 8 * ep2 + 24 * t1 * t1) * d2 * d2 * d / 120) / cos;
+                seq[i] = lon0 + Math.toDegrees(lon);
+                seq[i + 1] = Math.toDegrees(lat);
+            }
+        }
+
+        private double meridianArc(double phi) {
+            return a * ((1 - e2 / 4 - 3 * e2 * e2 / 64 - 5 * e2 * e2 * e2 / 256) * phi
+                    - (3 * e2 / 8 + 3 * e2 * e2 / 32 + 45 * e2 * e2 * e2 / 1024) * Math.sin(2 * phi)
+                    + (15 * e2 * e2 / 256 + 45 * e2 * e2 * e2 / 1024) * Math.sin(4 * phi)
+                    - (35 * e2 * e2 * e2 / 3072) * Math.sin(6 * phi));
+        }
+    }
+
+    // ---------------------------------------------------------------- WKT
+
+    // WKT 节点：名称与参数（字符串、数字或子节点）
+    private static final class Node {
+        final String name;
+        final List<Object> args = new ArrayList<>();
+
+        Node(String name) {
+            this.name = name.toUpperCase(Locale.ROOT);
+        }
+
+        Node child(String childName) {
+            for (Object o : args) {
+                if (o instanceof Node n && n.name.equals(childName)) return n;
+            }
+            return null;
+        }
+
+        String string(int index) {
+            return index < args.size() ? String.valueOf(args.get(index)) : "";
+        }
+
+        double number(int index) {
+            if (index < args.size() && args.get(index) instanceof Double d) return d;
+            throw new IllegalArgumentException(name + " 缺少数值参数");
+        }
+
+        double parameter(String key, double fallback) {
+            for (Object o : args) {
+                if (o instanceof Node n && n.name.equals("PARAMETER") && n.string(0).equalsIgnoreCase(key)) {
+                    return n.number(1);
+                }
+            }
+            return fallback;
+        }
+    }
+
+    private static final class WktParser {
+        private final String s;
+        private int pos;
+
+        WktParser(String s) {
+            this.s = s.trim();
+        }
+
+        Node parse() {
+            Node node = node();
+            skipSpace();
+            return node;
+        }
+
+        private Node node() {
+            skipSpace();
+            int start = pos;
+            while (pos < s.length() && (Character.isLetterOrDigit(s.charAt(pos)) || s.charAt(pos) == '_')) pos++;
+            if (start == pos) throw error();
+            Node node = new Node(s.substring(start, pos));
+            skipSpace();
+            if (pos >= s.length() || (s.charAt(pos) != '[' && s.charAt(pos) != '(')) return node;
+            pos++;
+            while (true) {
+                skipSpace();
+                if (pos >= s.length()) throw error();
+                char c = s.charAt(pos);
+                if (c == '"') {
+                    int end = s.indexOf('"', pos + 1);
+                    if (end < 0) throw error();
+                    node.args.add(s.substring(pos + 1, end));
+                    pos = end + 1;
+                } else if (c == '-' || c == '+' || c == '.' || Character.isDigit(c)) {
+                    int begin = pos;
+                    pos++;
+                    while (pos < s.length() && "0123456789.eE+-".indexOf(s.charAt(pos)) >= 0) pos++;
+                    try {
+                        node.args.add(Double.parseDouble(s.substring(begin, pos)));
+                    } catch (NumberFormatException e) {
+                        throw error();
+                    }
+                } else {
+                    node.args.add(node());
+                }
+                skipSpace();
+                if (pos >= s.length()) throw error();
+                c = s.charAt(pos++);
+                if (c == ']' || c == ')') return node;
+                if (c != ',') throw error();
+            }
+        }
+
+        private void skipSpace() {
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++;
+        }
+
+        private IllegalArgumentException error() {
+            return new IllegalArgumentException(".prj 坐标系定义格式错误（位置 " + pos + "）");
+        }
+    }
+}
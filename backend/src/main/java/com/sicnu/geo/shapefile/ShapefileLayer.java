@@ -0,0 +1,98 @@
+package com.sicnu.geo.shapefile;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sicnu.geo.geometry.Geometry;
+import com.sicnu.geo.service.FeatureStoreService;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一个 Shapefile 图层（.shp 及同名的 .shx / .dbf / .prj / .cpg），作为要素数据源逐条产出 WGS84 要素。
+ * 第 i 条几何与第 i 条属性记录对应；属性记录被标记删除的要素跳过。
+ */
+public class ShapefileLayer implements FeatureStoreService.FeatureSource {
+
+    // .cpg 中常见的代码页写法
+    private static final Map<String, String> CODE_PAGES = Map.of(
+            "936", "GBK",
+            "65001", "UTF-8",
+            "950", "Big5",
+            "1252", "windows-1252",
+            "88591", "ISO-8859-1",
+            "932", "Shift_JIS");
+
+    private final Path shp;
+    private final Path shx;
+    private final Path dbf;
+    private final Charset charset;
+    private final Projection projection;
+
+    /**
+     * 代码页的优先级：调用方指定 > .cpg > .dbf 文件头的语言驱动号 > fallback。
+     *
+     * @param shx      可以为 null
+     * @param dbf      可以为 null，此时要素没有属性
+     * @param prj      可以为 null，此时按 WGS84 经纬度处理
+     * @param cpg      可以为 null
+     * @param encoding 调用方指定的编码，可以为空
+     */
+    public ShapefileLayer(Path shp, Path shx, Path dbf, Path prj, Path cpg, String encoding, Charset fallback) throws IOException {
+        this.shp = shp;
+        this.shx = shx;
+        this.dbf = dbf;
+        Charset cs = charsetOf(encoding);
+        if (cs == null && encoding != null && !encoding.isBlank()) throw new IllegalArgumentException("不支持的编码: " + encoding);
+        if (cs == null && cpg != null) cs = charsetOf(Files.readString(cpg, StandardCharsets.ISO_8859_1));
+        if (cs == null && dbf != null) cs = DbfReader.languageDriverCharset(dbf);
+        this.charset = cs == null ? fallback : cs;
+        this.projection = prj == null ? Projection.WGS84 : Projection.fromWkt(Files.readString(prj, StandardCharsets.ISO_8859_1));
+    }
+
+    public Charset charset() {
+        return charset;
+    }
+
+    @Override
+    public void forEach(FeatureStoreService.FeatureSink sink) throws IOException {
+        ShpReader geometries = new ShpReader(shp, shx);
+        DbfReader attributes = dbf == null ? null : new DbfReader(dbf, charset);
+        JsonNodeFactory factory = JsonNodeFactory.instance;
+        for (int i = 0; geometries.hasNext(); i++) {
+            Geometry geometry = geometries.next();
+            ObjectNode properties = attributes == null ? factory.objectNode()
+                    : i < attributes.recordCount() ? attributes.read(i, factory) : factory.objectNode();
+            if (properties == null) continue;
+            if (geometry != null && !projection.isIdentity()) project(geometry);
+            sink.accept(properties, geometry);
+        }
+    }
+
+    private void project(Geometry geometry) {
+        for (List<double[]> part : geometry.getParts()) {
+            for (double[] seq : part) projection.toLngLat(seq);
+        }
+    }
+
+    // 识别 "GBK"、"936"、"ANSI 936"、"CP936" 等写法，无法识别时返回 null
+    static Charset charsetOf(String name) {
+        if (name == null || name.isBlank()) return null;
+        String n = name.trim().toUpperCase();
+        if (n.startsWith("ANSI")) n = n.substring(4).trim();
+        if (n.startsWith("CP") && n.length() > 2 && Character.isDigit(n.charAt(2))) n = n.substring(2);
+        String mapped = CODE_PAGES.get(n);
+        try {
+            return Charset.forName(mapped != null ? mapped : n);
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+            return null;
+        }
+    }
+}
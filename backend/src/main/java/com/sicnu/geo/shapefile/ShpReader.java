@@ -0,0 +1,229 @@
+package com.sicnu.geo.shapefile;
+
+import com.sicnu.geo.geometry.Geometry;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 以内存映射方式逐条读取 .shp 几何记录，文件内容不进入堆内存，每次只解码一条记录。
+ * 有 .shx 时按索引中的偏移定位记录，否则顺序读取。
+ * Z、M 值被丢弃；面按环的方向区分外环（顺时针）与洞（逆时针），输出时按 GeoJSON 约定改为外环逆时针。
+ */
+public class ShpReader {
+
+    private static final int FILE_CODE = 9994;
+    private static final int HEADER_LENGTH = 100;
+
+    private final MappedByteBuffer shp;
+    private final MappedByteBuffer shx;
+    private final int shapeType;
+    private final int limit;
+    private final int recordCount;
+    private int next;
+    private int position = HEADER_LENGTH;
+
+    public ShpReader(Path shpFile, Path shxFile) throws IOException {
+        this.shp = map(shpFile);
+        this.shx = shxFile == null ? null : map(shxFile);
+        if (shp.limit() < HEADER_LENGTH || shp.order(ByteOrder.BIG_ENDIAN).getInt(0) != FILE_CODE) {
+            throw new IllegalArgumentException(".shp 文件头无效");
+        }
+        // 文件头中的长度以 16 位字为单位，以实际大小为上限
+        this.limit = (int) Math.min((long) shp.getInt(24) * 2, shp.limit());
+        shp.order(ByteOrder.LITTLE_ENDIAN);
+        this.shapeType = shp.getInt(32);
+        this.recordCount = shx == null ? -1 : Math.max(0, (shx.limit() - HEADER_LENGTH) / 8);
+    }
+
+    public int shapeType() {
+        return shapeType;
+    }
+
+    public boolean hasNext() {
+        if (shx != null) return next < recordCount;
+        return position + 8 <= limit;
+    }
+
+    /**
+     * 读取下一条记录的几何，空几何返回 null。
+     */
+    public Geometry next() {
+        int start;
+        if (shx != null) {
+            long offset = shx.order(ByteOrder.BIG_ENDIAN).getInt(HEADER_LENGTH + next * 8) * 2L;
+            if (offset < HEADER_LENGTH || offset + 8 > shp.limit()) {
+                throw new IllegalArgumentException("第 " + (next + 1) + " 条 .shx 索引偏移无效: " + offset);
+            }
+            start = (int) offset;
+        } else {
+            start = position;
+        }
+        next++;
+        shp.order(ByteOrder.BIG_ENDIAN);
+        long contentLength = shp.getInt(start + 4) * 2L;
+        int content = start + 8;
+        if (contentLength < 4 || content + contentLength > shp.limit()) {
+            throw new IllegalArgumentException("第 " + next + " 条 .shp 记录越界");
+        }
+        int end = content + (int) contentLength;
+        position = end;
+        shp.order(ByteOrder.LITTLE_ENDIAN);
+        return decode(content, end);
+    }
+
+    private Geometry decode(int p, int end) {
+        int type = shp.getInt(p);
+        switch (type) {
+            case 0:
+                return null;
+            case 1: case 11: case 21:
+                return new Geometry(Geometry.Type.Point, List.of(List.of(new double[]{shp.getDouble(p + 4), shp.getDouble(p + 12)})));
+            case 8: case 18: case 28: {
+                int numPoints = shp.getInt(p + 36);
+                checkLength(p + 40 + numPoints * 16L, end);
+                if (numPoints == 0) return null;
+                List<List<double[]>> parts = new ArrayList<>(numPoints);
+                for (int i = 0; i < numPoints; i++) {
+                    int at = p + 40 + i * 16;
+                    parts.add(List.of(new double[]{shp.getDouble(at), shp.getDouble(at + 8)}));
+                }
+                return new Geometry(Geometry.Type.MultiPoint, parts);
+            }
+            case 3: case 13: case 23:
+                return lines(readParts(p, end));
+            case 5: case 15: case 25:
+                return polygons(readParts(p, end));
+            default:
+                throw new IllegalArgumentException("不支持的 Shapefile 几何类型: " + type);
+        }
+    }
+
+    // 多段线 / 面的各部分，每部分一条交错坐标序列
+    private List<double[]> readParts(int p, int end) {
+        int numParts = shp.getInt(p + 36);
+        int numPoints = shp.getInt(p + 40);
+        if (numParts < 0 || numPoints < 0) throw new IllegalArgumentException("第 " + next + " 条 .shp 记录部分数无效");
+        checkLength(p + 44 + numParts * 4L + numPoints * 16L, end);
+        int pointsAt = p + 44 + numParts * 4;
+        List<double[]> parts = new ArrayList<>(numParts);
+        for (int i = 0; i < numParts; i++) {
+            int from = shp.getInt(p + 44 + i * 4);
+            int to = i + 1 < numParts ? shp.getInt(p + 44 + (i + 1) * 4) : numPoints;
+            if (from < 0 || to > numPoints || from >= to) continue;
+            double[] seq = new double[(to - from) * 2];
+            for (int k = 0; k < to - from; k++) {
+                int at = pointsAt + (from + k) * 16;
+                seq[k * 2] = shp.getDouble(at);
+                seq[k * 2 + 1] = shp.getDouble(at + 8);
+            }
+            parts.add(seq);
+        }
+        return parts;
+    }
+
+    private static Geometry lines(List<double[]> parts) {
+        List<List<double[]>> lines = new ArrayList<>(parts.size());
+        for (double[] seq : parts) {
+            if (seq.length >= 4) lines.add(List.of(seq));
+        }
+        if (lines.isEmpty()) return null;
+        return new Geometry(lines.size() == 1 ? Geometry.Type.LineString : Geometry.Type.MultiLineString, lines);
+    }
+
+    // 顺时针环为外环，逆时针环归入包含它的最小外环作为洞；找不到外环的洞按外环处理
+    private static Geometry polygons(List<double[]> rings) {
+        List<List<double[]>> polygons = new ArrayList<>();
+        List<double[]> holes = new ArrayList<>();
+        for (double[] ring : rings) {
+            ring = close(ring);
+            if (ring.length < 8) continue;
+            if (signedArea(ring) <= 0) {
+                List<double[]> polygon = new ArrayList<>();
+                polygon.add(reverse(ring));
+                polygons.add(polygon);
+            } else {
+                holes.add(ring);
+            }
+        }
+        for (double[] hole : holes) {
+            // 外环互相嵌套时（面的洞里还有面），最内层的外环才是洞的归属
+            List<double[]> owner = null;
+            double ownerArea = Double.MAX_VALUE;
+            for (List<double[]> polygon : polygons) {
+                double[] shell = polygon.get(0);
+                if (!contains(shell, hole[0], hole[1])) continue;
+                double area = Math.abs(signedArea(shell));
+                if (area < ownerArea) {
+                    owner = polygon;
+                    ownerArea = area;
+                }
+            }
+            if (owner != null) {
+                owner.add(reverse(hole));
+            } else {
+                List<double[]> polygon = new ArrayList<>();
+                polygon.add(hole);
+                polygons.add(polygon);
+            }
+        }
+        if (polygons.isEmpty()) return null;
+        return new Geometry(polygons.size() == 1 ? Geometry.Type.Polygon : Geometry.Type.MultiPolygon, polygons);
+    }
+
+    private static double[] close(double[] ring) {
+        int n = ring.length;
+        if (n >= 2 && ring[0] == ring[n - 2] && ring[1] == ring[n - 1]) return ring;
+        double[] closed = Arrays.copyOf(ring, n + 2);
+        closed[n] = ring[0];
+        closed[n + 1] = ring[1];
+        return closed;
+    }
+
+    // 鞋带公式；逆时针为正
+    private static double signedArea(double[] ring) {
+        double sum = 0;
+        for (int i = 0; i + 3 < ring.length; i += 2) {
+            sum += ring[i] * ring[i + 3] - ring[i + 2] * ring[i + 1];
+        }
+        return sum / 2;
+    }
+
+    private static double[] reverse(double[] ring) {
+        double[] r = new double[ring.length];
+        for (int i = 0, j = ring.length - 2; j >= 0; i += 2, j -= 2) {
+            r[i] = ring[j];
+            r[i + 1] = ring[j + 1];
+        }
+        return r;
+    }
+
+    // 射线法判断点是否在环内
+    private static boolean contains(double[] ring, double x, double y) {
+        boolean inside = false;
+        for (int i = 0, j = ring.length - 2; i < ring.length; j = i, i += 2) {
+            double xi = ring[i], yi = ring[i + 1], xj = ring[j], yj = ring[j + 1];
+            if ((yi > y) != (yj > y) && x < (xj - xi) * (y - yi) / (yj - yi) + xi) inside = !inside;
+        }
+        return inside;
+    }
+
+    private void checkLength(long needed, int end) {
+        if (needed > end) throw new IllegalArgumentException("第 " + next + " 条 .shp 记录长度不足");
+    }
+
+    static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IllegalArgumentException(file.getFileName() + " 超过 2GB");
+            // 映射在通道关闭后依然有效
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+}
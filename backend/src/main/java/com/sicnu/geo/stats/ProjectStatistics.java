@@ -0,0 +1,220 @@
+package com.sicnu.geo.stats;
+
+import com.sicnu.geo.dto.ProjectStats;
+import com.sicnu.geo.entity.Project;
+import com.sicnu.geo.enums.ProjectCategory;
+import com.sicnu.geo.event.ProjectChangedEvent;
+import com.sicnu.geo.export.ExportCommand;
+import com.sicnu.geo.repository.ProjectRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 仪表盘统计的内存计数器：每个项目写入只按新旧两份快照增减计数，查询直接读取计数，不扫描项目表。
+ * 其他节点的写入经 ProjectChangeRelay 转发为本地事件；转发消息可能丢失，因此仍定期从数据库重建一次计数并替换，
+ * 重建期间到达的变更在替换前重放到新计数上（按 id 覆盖，重放是幂等的）。
+ */
+@Component
+public class ProjectStatistics {
+
+    private static final Logger log = LoggerFactory.getLogger(ProjectStatistics.class);
+
+    private static final String COMPLETED = "completed";
+    private static final String DELAYED = "delayed";
+
+    private record Member(ProjectCategory category, String status, LocalDate startDate, LocalDate endDate,
+                         LocalDate createdAt) {
+
+        String month() {
+            LocalDate d = startDate != null ? startDate : createdAt;
+            return d == null ? null : d.toString().substring(0, 7);
+        }
+
+        long durationDays() {
+            if (startDate == null || endDate == null || endDate.isBefore(startDate)) return -1;
+            return ChronoUnit.DAYS.between(startDate, endDate);
+        }
+
+        boolean open() {
+            return endDate != null && !COMPLETED.equals(status);
+        }
+    }
+
+    private record Change(long id, Member member) {
+    }
+
+    private final ProjectRepository repo;
+    private final Object lock = new Object();
+    private Counters counters = new Counters(LocalDate.now());
+    // 重建期间不为 null，记录期间到达的变更
+    private List<Change> replay;
+    private LocalDateTime reconciledAt;
+
+    public ProjectStatistics(ProjectRepository repo) {
+        this.repo = repo;
+    }
+
+    @EventListener(value = ApplicationReadyEvent.class, condition = ExportCommand.NOT_EXPORTING)
+    public void load() {
+        reconcile();
+    }
+
+    @Scheduled(fixedDelayString = "${sicnugeo.stats.reconcile-minutes:10}",
+            initialDelayString = "${sicnugeo.stats.reconcile-minutes:10}", timeUnit = TimeUnit.MINUTES)
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    @EventListener
+    public void onProjectChanged(ProjectChangedEvent e) {
+        Project p = e.project();
+        Member member = e.type() == ProjectChangedEvent.Type.DELETED ? null : member(p);
+        Change change = new Change(e.projectId(), member);
+        synchronized (lock) {
+            counters.put(change.id, change.member);
+            if (replay != null) replay.add(change);
+        }
+    }
+
+    public ProjectStats snapshot() {
+        synchronized (lock) {
+            counters.advance(LocalDate.now());
+            return counters.toStats(reconciledAt);
+        }
+    }
+
+    // 从数据库重建计数；失败时保留现有计数，等下一轮
+    public void reconcile() {
+        synchronized (lock) {
+            if (replay != null) return;
+            replay = new ArrayList<>();
+        }
+        Counters fresh = new Counters(LocalDate.now());
+        try {
+            for (Object[] row : repo.findAllForStats()) {
+                fresh.put((Long) row[0], new Member((ProjectCategory) row[1], (String) row[2],
+                        (LocalDate) row[3], (LocalDate) row[4], (LocalDate) row[5]));
+            }
+        } catch (RuntimeException e) {
+            log.warn("项目统计与数据库校准失败: {}", e.getMessage());
+            synchronized (lock) {
+                replay = null;
+            }
+            return;
+        }
+        synchronized (lock) {
+            for (Change c : replay) fresh.put(c.id, c.member);
+            replay = null;
+            if (reconciledAt != null && !fresh.members.equals(counters.members)) {
+                log.info("项目统计与数据库不一致，已按数据库重建（内存 {} 个项目，数据库 {} 个）",
+                        counters.members.size(), fresh.members.size());
+            }
+            fresh.advance(counters.asOf);
+            counters = fresh;
+            reconciledAt = LocalDateTime.now();
+        }
+    }
+
+    private static Member member(Project p) {
+        return new Member(p.getCategory(), p.getStatus(), p.getStartDate(), p.getEndDate(), p.getCreatedAt());
+    }
+
+    /**
+     * 全部计数；非线程安全，由外层加锁。
+     */
+    private static final class Counters {
+        final Map<Long, Member> members = new HashMap<>();
+        final Map<String, Integer> byCategory = new LinkedHashMap<>();
+        final Map<String, Integer> byStatus = new HashMap<>();
+        final Map<String, Map<String, Integer>> byCategoryStatus = new LinkedHashMap<>();
+        final Map<String, Integer> byMonth = new TreeMap<>();
+        // 工期：[项目数, 总天数]
+        final Map<String, long[]> durationByCategory = new LinkedHashMap<>();
+        final Map<String, long[]> durationByStatus = new HashMap<>();
+        // 未完成项目按结束日期计数；结束日期早于 asOf 的已计入 overdue
+        final NavigableMap<LocalDate, Integer> openEnds = new TreeMap<>();
+        LocalDate asOf;
+        int overdue;
+
+        Counters(LocalDate asOf) {
+            this.asOf = asOf;
+        }
+
+        void put(long id, Member member) {
+            Member old = member == null ? members.remove(id) : members.put(id, member);
+            if (old != null) apply(old, -1);
+            if (member != null) apply(member, 1);
+        }
+
+        private void apply(Member m, int delta) {
+            String category = m.category == null ? null : m.category.name();
+            add(byCategory, category, delta);
+            add(byStatus, m.status, delta);
+            if (category != null && m.status != null) {
+                Map<String, Integer> statuses = byCategoryStatus.computeIfAbsent(category, k -> new HashMap<>());
+                add(statuses, m.status, delta);
+                if (statuses.isEmpty()) byCategoryStatus.remove(category);
+            }
+            add(byMonth, m.month(), delta);
+            long days = m.durationDays();
+            if (days >= 0) {
+                addDuration(durationByCategory, category, days, delta);
+                addDuration(durationByStatus, m.status, days, delta);
+            }
+            if (m.open()) {
+                openEnds.merge(m.endDate, delta, (a, b) -> a + b == 0 ? null : a + b);
+                if (m.endDate.isBefore(asOf)) overdue += delta;
+            }
+        }
+
+        // 日期前移时把新过期的结束日期计入 overdue，只扫描两次查询之间的日期段
+        void advance(LocalDate today) {
+            if (!today.isAfter(asOf)) return;
+            for (int count : openEnds.subMap(asOf, true, today, false).values()) overdue += count;
+            asOf = today;
+        }
+
+        ProjectStats toStats(LocalDateTime reconciledAt) {
+            Map<String, Map<String, Integer>> categoryStatus = new LinkedHashMap<>();
+            byCategoryStatus.forEach((k, v) -> categoryStatus.put(k, new HashMap<>(v)));
+            return new ProjectStats(members.size(), new LinkedHashMap<>(byCategory), new HashMap<>(byStatus),
+                    categoryStatus, new TreeMap<>(byMonth), durations(durationByCategory), durations(durationByStatus),
+                    overdue, byStatus.getOrDefault(DELAYED, 0), reconciledAt);
+        }
+
+        private static Map<String, ProjectStats.Duration> durations(Map<String, long[]> source) {
+            Map<String, ProjectStats.Duration> result = new LinkedHashMap<>();
+            source.forEach((k, v) -> result.put(k, new ProjectStats.Duration((int) v[0], v[1],
+                    Math.round(v[1] * 10.0 / v[0]) / 10.0)));
+            return result;
+        }
+
+        private static void add(Map<String, Integer> map, String key, int delta) {
+            if (key != null) map.merge(key, delta, (a, b) -> a + b == 0 ? null : a + b);
+        }
+
+        private static void addDuration(Map<String, long[]> map, String key, long days, int delta) {
+            if (key == null) return;
+            long[] d = map.computeIfAbsent(key, k -> new long[2]);
+            d[0] += delta;
+            d[1] += delta * days;
+            if (d[0] == 0) map.remove(key);
+        }
+    }
+}
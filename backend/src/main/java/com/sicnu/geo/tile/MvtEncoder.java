@@ -0,0 +1,172 @@
+package com.sicnu.geo.tile;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mapbox Vector Tile 2.1 编码器：手写 protobuf 线格式，只覆盖瓦片所需字段。
+ * 一个实例对应一个图层；属性键值在图层内去重。
+ */
+public final class MvtEncoder {
+
+    private static final int CMD_MOVE_TO = 1;
+    private static final int CMD_LINE_TO = 2;
+    private static final int CMD_CLOSE_PATH = 7;
+
+    private final String layerName;
+    private final int extent;
+    private final List<String> keys = new ArrayList<>();
+    private final Map<String, Integer> keyIndex = new HashMap<>();
+    private final List<Object> values = new ArrayList<>();
+    private final Map<Object, Integer> valueIndex = new HashMap<>();
+    private final ByteArrayOutputStream features = new ByteArrayOutputStream();
+    private int featureCount;
+
+    public MvtEncoder(String layerName, int extent) {
+        this.layerName = layerName;
+        this.extent = extent;
+    }
+
+    public int getFeatureCount() {
+        return featureCount;
+    }
+
+    /**
+     * @param id         要素 id，null 表示不写
+     * @param properties 属性值仅支持 String / Number / Boolean，其它类型按 toString 写入
+     */
+    public void addFeature(Long id, Map<String, Object> properties, TileGeometry geometry) {
+        ByteArrayOutputStream f = new ByteArrayOutputStream();
+        if (id != null && id >= 0) {
+            writeTag(f, 1, 0);
+            writeVarint(f, id);
+        }
+        if (properties != null && !properties.isEmpty()) {
+            ByteArrayOutputStream tags = new ByteArrayOutputStream();
+            for (Map.Entry<String, Object> e : properties.entrySet()) {
+                if (e.getValue() == null) continue;
+                writeVarint(tags, keyIndex.computeIfAbsent(e.getKey(), k -> {
+                    keys.add(k);
+                    return keys.size() - 1;
+                }));
+                writeVarint(tags, valueIndex.computeIfAbsent(normalize(e.getValue()), v -> {
+                    values.add(v);
+                    return values.size() - 1;
+                }));
+            }
+            writeBytes(f, 2, tags.toByteArray());
+        }
+        writeTag(f, 3, 0);
+        writeVarint(f, geometry.type());
+        writeBytes(f, 4, encodeGeometry(geometry));
+        writeBytes(features, 2, f.toByteArray());
+        featureCount++;
+    }
+
+    /**
+     * 输出完整的 Tile 消息；没有要素时返回空数组（合法的空瓦片）。
+     */
+    public byte[] encode() {
+        if (featureCount == 0) return new byte[0];
+        ByteArrayOutputStream layer = new ByteArrayOutputStream();
+        writeTag(layer, 15, 0);
+        writeVarint(layer, 2);
+        writeBytes(layer, 1, layerName.getBytes(StandardCharsets.UTF_8));
+        layer.writeBytes(features.toByteArray());
+        for (String k : keys) writeBytes(layer, 3, k.getBytes(StandardCharsets.UTF_8));
+        for (Object v : values) writeBytes(layer, 4, encodeValue(v));
+        writeTag(layer, 5, 0);
+        writeVarint(layer, extent);
+
+        ByteArrayOutputStream tile = new ByteArrayOutputStream();
+        writeBytes(tile, 3, layer.toByteArray());
+        return tile.toByteArray();
+    }
+
+    private static Object normalize(Object v) {
+        if (v instanceof String || v instanceof Boolean) return v;
+        if (v instanceof Integer || v instanceof Long || v instanceof Short || v instanceof Byte) return ((Number) v).longValue();
+        if (v instanceof Number) return ((Number) v).doubleValue();
+        return v.toString();
+    }
+
+    private static byte[] encodeValue(Object v) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (v instanceof String s) {
+            writeBytes(out, 1, s.getBytes(StandardCharsets.UTF_8));
+        } else if (v instanceof Double d) {
+            writeTag(out, 3, 1);
+            long bits = Double.doubleToLongBits(d);
+            for (int i = 0; i < 8; i++) out.write((int) (bits >>> (8 * i)) & 0xff);
+        } else if (v instanceof Long l) {
+            writeTag(out, 6, 0);
+            writeVarint(out, zigzag(l));
+        } else if (v instanceof Boolean b) {
+            writeTag(out, 7, 0);
+            writeVarint(out, b ? 1 : 0);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] encodeGeometry(TileGeometry g) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int cx = 0, cy = 0;
+        if (g.type() == TileGeometry.POINT) {
+            writeVarint(out, command(CMD_MOVE_TO, g.sequences().size()));
+            for (int[] p : g.sequences()) {
+                writeVarint(out, zigzag(p[0] - cx));
+                writeVarint(out, zigzag(p[1] - cy));
+                cx = p[0];
+                cy = p[1];
+            }
+            return out.toByteArray();
+        }
+        for (int[] seq : g.sequences()) {
+            int n = seq.length / 2;
+            writeVarint(out, command(CMD_MOVE_TO, 1));
+            writeVarint(out, zigzag(seq[0] - cx));
+            writeVarint(out, zigzag(seq[1] - cy));
+            cx = seq[0];
+            cy = seq[1];
+            writeVarint(out, command(CMD_LINE_TO, n - 1));
+            for (int i = 1; i < n; i++) {
+                writeVarint(out, zigzag(seq[2 * i] - cx));
+                writeVarint(out, zigzag(seq[2 * i + 1] - cy));
+                cx = seq[2 * i];
+                cy = seq[2 * i + 1];
+            }
+            if (g.type() == TileGeometry.POLYGON) writeVarint(out, command(CMD_CLOSE_PATH, 1));
+        }
+        return out.toByteArray();
+    }
+
+    private static int command(int id, int count) {
+        return (id & 0x7) | (count << 3);
+    }
+
+    private static long zigzag(long n) {
+        return (n << 1) ^ (n >> 63);
+    }
+
+    private static void writeTag(ByteArrayOutputStream out, int field, int wireType) {
+        writeVarint(out, ((long) field << 3) | wireType);
+    }
+
+    private static void writeBytes(ByteArrayOutputStream out, int field, byte[] bytes) {
+        writeTag(out, field, 2);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+}
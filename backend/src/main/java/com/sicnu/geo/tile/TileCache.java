@@ -0,0 +1,97 @@
+package com.sicnu.geo.tile;
+
+import com.sicnu.geo.geometry.Envelope;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按访问顺序淘汰的瓦片缓存，同时限制条目数与总字节数。
+ */
+public class TileCache {
+
+    public record Key(int z, int x, int y, String category, String status) {
+    }
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<Key, byte[]> map = new LinkedHashMap<>(256, 0.75f, true);
+    private long bytes;
+    private long generation;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public TileCache(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized byte[] get(Key key) {
+        byte[] v = map.get(key);
+        if (v == null) misses++;
+        else hits++;
+        return v;
+    }
+
+    /**
+     * 每次失效都会递增；渲染前取值，写回时用 putIfFresh 丢弃渲染期间已被失效的结果。
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    public synchronized void putIfFresh(Key key, byte[] tile, long renderedAt) {
+        if (renderedAt == generation) put(key, tile);
+    }
+
+    public synchronized void put(Key key, byte[] tile) {
+        byte[] old = map.put(key, tile);
+        if (old != null) bytes -= old.length;
+        bytes += tile.length;
+        Iterator<Map.Entry<Key, byte[]>> it = map.entrySet().iterator();
+        while ((map.size() > maxEntries || bytes > maxBytes) && it.hasNext()) {
+            Map.Entry<Key, byte[]> eldest = it.next();
+            bytes -= eldest.getValue().length;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * 移除与 env 相交的所有瓦片（含缓冲区），返回移除个数。
+     */
+    public synchronized int invalidate(Envelope env, double buffer) {
+        if (env == null || env.isEmpty()) return 0;
+        generation++;
+        int removed = 0;
+        Iterator<Map.Entry<Key, byte[]>> it = map.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, byte[]> e = it.next();
+            Key k = e.getKey();
+            if (TileMath.tileEnvelope(k.z(), k.x(), k.y(), buffer).intersects(env)) {
+                bytes -= e.getValue().length;
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public synchronized void clear() {
+        generation++;
+        map.clear();
+        bytes = 0;
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("entries", map.size());
+        s.put("bytes", bytes);
+        s.put("hits", hits);
+        s.put("misses", misses);
+        s.put("evictions", evictions);
+        return s;
+    }
+}
@@ -0,0 +1,258 @@
+package com.sicnu.geo.tile;
+
+import com.sicnu.geo.geometry.Geometry;
+import com.sicnu.geo.geometry.Simplifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 将经纬度几何投影到某一瓦片的像素坐标系，按缓冲区裁剪、Douglas-Peucker 简化后量化为整数。
+ */
+public final class TileClipper {
+
+    private final int z;
+    private final int tileX;
+    private final int tileY;
+    private final int extent;
+    private final double min;
+    private final double max;
+    private final double tolerance;
+
+    /**
+     * @param buffer    瓦片外缓冲（瓦片坐标单位）
+     * @param tolerance 简化容差（瓦片坐标单位），0 表示不简化
+     */
+    public TileClipper(int z, int tileX, int tileY, int extent, int buffer, double tolerance) {
+        this.z = z;
+        this.tileX = tileX;
+        this.tileY = tileY;
+        this.extent = extent;
+        this.min = -buffer;
+        this.max = extent + buffer;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * 返回落入瓦片的几何，可能为多个（GeometryCollection 按成员拆开）；完全在瓦片外时返回空列表。
+     */
+    public List<TileGeometry> clip(Geometry geometry) {
+        List<TileGeometry> out = new ArrayList<>();
+        if (geometry != null) clipInto(geometry, out);
+        return out;
+    }
+
+    private void clipInto(Geometry g, List<TileGeometry> out) {
+        switch (g.getType()) {
+            case GeometryCollection:
+                for (Geometry m : g.getGeometries()) clipInto(m, out);
+                return;
+            case Point:
+            case MultiPoint: {
+                List<int[]> pts = new ArrayList<>();
+                for (List<double[]> part : g.getParts()) {
+                    double[] p = project(part.get(0));
+                    if (p[0] >= min && p[0] <= max && p[1] >= min && p[1] <= max) {
+                        pts.add(new int[]{(int) Math.round(p[0]), (int) Math.round(p[1])});
+                    }
+                }
+                if (!pts.isEmpty()) out.add(new TileGeometry(TileGeometry.POINT, pts));
+                return;
+            }
+            case LineString:
+            case MultiLineString: {
+                List<int[]> lines = new ArrayList<>();
+                for (List<double[]> part : g.getParts()) {
+                    for (double[] piece : clipLine(project(part.get(0)))) {
+                        int[] q = quantize(Simplifier.simplify(piece, tolerance), false);
+                        if (q.length >= 4) lines.add(q);
+                    }
+                }
+                if (!lines.isEmpty()) out.add(new TileGeometry(TileGeometry.LINESTRING, lines));
+                return;
+            }
+            default: {
+                List<int[]> rings = new ArrayList<>();
+                for (List<double[]> polygon : g.getParts()) {
+                    for (int r = 0; r < polygon.size(); r++) {
+                        double[] ring = clipRing(project(polygon.get(r)));
+                        if (ring.length < 8) {
+                            if (r == 0) break; // 外环不在瓦片内，整块面跳过
+                            continue;
+                        }
+                        int[] q = quantize(Simplifier.simplify(ring, tolerance), true);
+                        if (q.length < 6 || signedArea(q) == 0) {
+                            if (r == 0) break;
+                            continue;
+                        }
+                        // MVT：外环在 y 向下坐标系中面积为正（顺时针），内环为负
+                        boolean exterior = r == 0;
+                        if ((signedArea(q) > 0) != exterior) reverse(q);
+                        rings.add(q);
+                    }
+                }
+                if (!rings.isEmpty()) out.add(new TileGeometry(TileGeometry.POLYGON, rings));
+            }
+        }
+    }
+
+    private double[] project(double[] lngLat) {
+        double scale = 1L << z;
+        double[] p = new double[lngLat.length];
+        for (int i = 0; i + 1 < lngLat.length; i += 2) {
+            p[i] = (TileMath.lngToX(lngLat[i]) * scale - tileX) * extent;
+            p[i + 1] = (TileMath.latToY(lngLat[i + 1]) * scale - tileY) * extent;
+        }
+        return p;
+    }
+
+    // Liang-Barsky 逐段裁剪，连续的可见段合并为一条折线
+    private List<double[]> clipLine(double[] s) {
+        List<double[]> pieces = new ArrayList<>();
+        DoubleList current = null;
+        for (int i = 0; i + 3 < s.length; i += 2) {
+            double[] seg = clipSegment(s[i], s[i + 1], s[i + 2], s[i + 3]);
+            if (seg == null) {
+                if (current != null) pieces.add(current.toArray());
+                current = null;
+                continue;
+            }
+            if (current == null) {
+                current = new DoubleList();
+                current.add(seg[0], seg[1]);
+            } else if (current.lastX() != seg[0] || current.lastY() != seg[1]) {
+                pieces.add(current.toArray());
+                current = new DoubleList();
+                current.add(seg[0], seg[1]);
+            }
+            current.add(seg[2], seg[3]);
+            if (seg[2] != s[i + 2] || seg[3] != s[i + 3]) {
+                pieces.add(current.toArray());
+                current = null;
+            }
+        }
+        if (current != null) pieces.add(current.toArray());
+        return pieces;
+    }
+
+    private double[] clipSegment(double x0, double y0, double x1, double y1) {
+        double t0 = 0, t1 = 1;
+        double dx = x1 - x0, dy = y1 - y0;
+        double[] p = {-dx, dx, -dy, dy};
+        double[] q = {x0 - min, max - x0, y0 - min, max - y0};
+        for (int i = 0; i < 4; i++) {
+            if (p[i] == 0) {
+                if (q[i] < 0) return null;
+                continue;
+            }
+            double t = q[i] / p[i];
+            if (p[i] < 0) {
+                if (t > t1) return null;
+                if (t > t0) t0 = t;
+            } else {
+                if (t < t0) return null;
+                if (t < t1) t1 = t;
+            }
+        }
+        return new double[]{x0 + t0 * dx, y0 + t0 * dy, x0 + t1 * dx, y0 + t1 * dy};
+    }
+
+    // Sutherland-Hodgman 依次对四条边裁剪闭合环，返回闭合环（首尾相同）
+    private double[] clipRing(double[] ring) {
+        double[] r = ring;
+        for (int edge = 0; edge < 4 && r.length >= 6; edge++) {
+            DoubleList out = new DoubleList();
+            int n = r.length / 2;
+            for (int i = 0; i < n - 1; i++) {
+                double ax = r[2 * i], ay = r[2 * i + 1];
+                double bx = r[2 * i + 2], by = r[2 * i + 3];
+                boolean aIn = inside(edge, ax, ay), bIn = inside(edge, bx, by);
+                if (aIn) out.add(ax, ay);
+                if (aIn != bIn) {
+                    double[] x = intersect(edge, ax, ay, bx, by);
+                    out.add(x[0], x[1]);
+                }
+            }
+            if (out.size() > 0) out.add(out.get(0), out.get(1));
+            r = out.toArray();
+        }
+        return r;
+    }
+
+    private boolean inside(int edge, double x, double y) {
+        switch (edge) {
+            case 0: return x >= min;
+            case 1: return x <= max;
+            case 2: return y >= min;
+            default: return y <= max;
+        }
+    }
+
+    private double[] intersect(int edge, double ax, double ay, double bx, double by) {
+        double bound = (edge == 0 || edge == 2) ? min : max;
+        if (edge < 2) {
+            double t = (bound - ax) / (bx - ax);
+            return new double[]{bound, ay + t * (by - ay)};
+        }
+        double t = (bound - ay) / (by - ay);
+        return new double[]{ax + t * (bx - ax), bound};
+    }
+
+    // 取整并去掉连续重复点；环去掉末尾的闭合点
+    private static int[] quantize(double[] s, boolean ring) {
+        int n = s.length / 2;
+        int[] tmp = new int[s.length];
+        int j = 0;
+        for (int i = 0; i < n; i++) {
+            int x = (int) Math.round(s[2 * i]), y = (int) Math.round(s[2 * i + 1]);
+            if (j >= 2 && tmp[j - 2] == x && tmp[j - 1] == y) continue;
+            tmp[j++] = x;
+            tmp[j++] = y;
+        }
+        if (ring && j >= 4 && tmp[0] == tmp[j - 2] && tmp[1] == tmp[j - 1]) j -= 2;
+        int[] out = new int[j];
+        System.arraycopy(tmp, 0, out, 0, j);
+        return out;
+    }
+
+    private static long signedArea(int[] ring) {
+        long sum = 0;
+        int n = ring.length / 2;
+        for (int i = 0, k = n - 1; i < n; k = i++) {
+            sum += (long) ring[2 * k] * ring[2 * i + 1] - (long) ring[2 * i] * ring[2 * k + 1];
+        }
+        return sum;
+    }
+
+    private static void reverse(int[] ring) {
+        int n = ring.length / 2;
+        for (int i = 0, k = n - 1; i < k; i++, k--) {
+            int x = ring[2 * i], y = ring[2 * i + 1];
+            ring[2 * i] = ring[2 * k];
+            ring[2 * i + 1] = ring[2 * k + 1];
+            ring[2 * k] = x;
+            ring[2 * k + 1] = y;
+        }
+    }
+
+    private static final class DoubleList {
+        private double[] data = new double[32];
+        private int size;
+
+        void add(double x, double y) {
+            if (size + 2 > data.length) data = Arrays.copyOf(data, data.length * 2);
+            data[size++] = x;
+            data[size++] = y;
+        }
+
+        double get(int i) { return data[i]; }
+        double lastX() { return data[size - 2]; }
+        double lastY() { return data[size - 1]; }
+        int size() { return size; }
+
+        double[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.sicnu.geo.tile;
+
+import java.util.List;
+
+/**
+ * 已裁剪、简化并量化到瓦片整数坐标的几何。
+ * type 取 MVT 定义：1=点, 2=线, 3=面；sequences 为交错的 int[]{x0, y0, x1, y1, ...}，
+ * 面的环不含重复的闭合点，外环/内环方向已按 MVT 规范调整。
+ */
+public record TileGeometry(int type, List<int[]> sequences) {
+
+    public static final int POINT = 1;
+    public static final int LINESTRING = 2;
+    public static final int POLYGON = 3;
+}
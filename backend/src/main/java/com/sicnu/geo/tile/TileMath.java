@@ -0,0 +1,50 @@
+package com.sicnu.geo.tile;
+
+import com.sicnu.geo.geometry.Envelope;
+
+/**
+ * Web Mercator（EPSG:3857）瓦片坐标换算，x/y 归一化到 [0, 1]，y 轴向下。
+ */
+public final class TileMath {
+
+    public static final int MAX_ZOOM = 22;
+    public static final double MAX_LAT = 85.0511287798066;
+
+    private TileMath() {
+    }
+
+    public static double lngToX(double lng) {
+        return (lng + 180.0) / 360.0;
+    }
+
+    public static double latToY(double lat) {
+        double clamped = Math.max(-MAX_LAT, Math.min(MAX_LAT, lat));
+        double sin = Math.sin(Math.toRadians(clamped));
+        return 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+    }
+
+    public static double xToLng(double x) {
+        return x * 360.0 - 180.0;
+    }
+
+    public static double yToLat(double y) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y))));
+    }
+
+    public static boolean isValid(int z, int x, int y) {
+        if (z < 0 || z > MAX_ZOOM) return false;
+        long n = 1L << z;
+        return x >= 0 && x < n && y >= 0 && y < n;
+    }
+
+    /**
+     * 瓦片的经纬度范围，buffer 为按瓦片边长比例外扩的缓冲。
+     */
+    public static Envelope tileEnvelope(int z, int x, int y, double buffer) {
+        double n = 1L << z;
+        double minX = (x - buffer) / n, maxX = (x + 1 + buffer) / n;
+        double minY = (y - buffer) / n, maxY = (y + 1 + buffer) / n;
+        return new Envelope(xToLng(Math.max(0, minX)), yToLat(Math.min(1, maxY)),
+                xToLng(Math.min(1, maxX)), yToLat(Math.max(0, minY)));
+    }
+}
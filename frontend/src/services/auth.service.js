@@ -4,6 +4,40 @@ const API_BASE_URL = '/api/user';
 class AuthService {
   constructor() {
     this.user = JSON.parse(localStorage.getItem('user') || 'null');
+    this.token = localStorage.getItem('accessToken');
+    this.tokenExpires = Number(localStorage.getItem('accessTokenExpires') || 0);
+  }
+
+  // 保存响应头中的访问令牌（登录与续签都会返回）
+  saveToken(response) {
+    const token = response.headers.get('X-Access-Token');
+    if (!token) return;
+    this.token = token;
+    this.tokenExpires = Number(response.headers.get('X-Access-Token-Expires') || 0);
+    localStorage.setItem('accessToken', token);
+    localStorage.setItem('accessTokenExpires', String(this.tokenExpires));
+  }
+
+  // 访问令牌即将过期时凭 Session 续签；返回可用的令牌，Session 也失效时返回 null
+  async getToken() {
+    if (this.token && this.tokenExpires - Date.now() / 1000 > 30) {
+      return this.token;
+    }
+    if (!this.user) return null;
+    try {
+      const response = await fetch(`${API_BASE_URL}/token`, { method: 'POST', credentials: 'include' });
+      if (!response.ok) return null;
+      this.saveToken(response);
+      return this.token;
+    } catch (e) {
+      return null;
+    }
+  }
+
+  // 需要登录的接口请求头
+  async authHeaders() {
+    const token = await this.getToken();
+    return token ? { Authorization: `Bearer ${token}` } : {};
   }
 
   // 发送验证码
@@ -29,6 +63,7 @@ class AuthService {
     try {
       const response = await fetch(`${API_BASE_URL}/login`, {
         method: 'POST',
+        credentials: 'include',
         headers: {
           'Content-Type': 'application/json'
         },
@@ -41,6 +76,7 @@ class AuthService {
       }
 
       const user = await response.json();
+      this.saveToken(response);
       
       // 保存用户信息
       this.user = user;
@@ -57,7 +93,8 @@ class AuthService {
   async getCurrentUser() {
     try {
       const response = await fetch(`${API_BASE_URL}/me`, {
-        method: 'GET'
+        method: 'GET',
+        headers: await this.authHeaders()
       });
 
       if (!response.ok) {
@@ -81,12 +118,17 @@ class AuthService {
   // 用户登出
   async logout() {
     try {
-      await fetch(`${API_BASE_URL}/logout`, { method: 'POST' });
+      const headers = this.token ? { Authorization: `Bearer ${this.token}` } : {};
+      await fetch(`${API_BASE_URL}/logout`, { method: 'POST', credentials: 'include', headers });
     } catch (e) {
       console.error('Logout error', e);
     } finally {
       this.user = null;
+      this.token = null;
+      this.tokenExpires = 0;
       localStorage.removeItem('user');
+      localStorage.removeItem('accessToken');
+      localStorage.removeItem('accessTokenExpires');
     }
   }
 
@@ -1,4 +1,5 @@
 import axios from 'axios';
+import authService from './auth.service';
 
 // 创建axios实例
 const api = axios.create({
@@ -6,6 +7,16 @@ const api = axios.create({
   timeout: 5000
 });
 
+// 请求拦截器，/api/** 需要访问令牌
+api.interceptors.request.use(async config => {
+  try {
+    Object.assign(config.headers, await authService.authHeaders());
+  } catch (e) {
+    // 忽略 token 注入失败，保持请求继续
+  }
+  return config;
+});
+
 /**
  * 项目分类服务
  */
@@ -0,0 +1,77 @@
+import authService from './auth.service';
+import { readEvents } from './sse';
+
+const API_URL = '/api/changes';
+const RETRY_MS = 3000;
+
+// 订阅条件转为查询参数：{ projectIds: [1, 2], categories: ['ROAD'], bbox: [minLng, minLat, maxLng, maxLat] }
+const toQuery = (filters = {}) => {
+  const params = new URLSearchParams();
+  if (filters.projectIds && filters.projectIds.length) params.set('projectIds', filters.projectIds.join(','));
+  if (filters.categories && filters.categories.length) params.set('categories', filters.categories.join(','));
+  if (filters.bbox) params.set('bbox', filters.bbox.join(','));
+  return params.toString();
+};
+
+/**
+ * 订阅项目、要素、评论的变更推送（SSE）。EventSource 不能携带 Authorization 头，因此用 fetch 读取事件流，
+ * 断开后自动重连。
+ * @param {Object} filters { projectIds, categories, bbox }，任一命中即推送，都为空时接收全部
+ * @param {Object} handlers { onChange(event), onResync() }；event 为 { type, action, projectId, commentId, version, fields, ... }
+ * @returns {{ update: Function, close: Function }} update(filters) 修改订阅条件（如视野移动），close() 结束订阅
+ */
+const subscribe = (filters = {}, { onChange, onResync } = {}) => {
+  let current = filters;
+  let subscriptionId = null;
+  let controller = null;
+  let closed = false;
+
+  const connect = async () => {
+    controller = new AbortController();
+    subscriptionId = null;
+    try {
+      const token = await authService.getToken();
+      const response = await fetch(`${API_URL}?${toQuery(current)}`, {
+        headers: { Accept: 'text/event-stream', ...(token ? { Authorization: `Bearer ${token}` } : {}) },
+        signal: controller.signal
+      });
+      if (!response.ok) throw new Error(`变更推送连接失败: ${response.status}`);
+      await readEvents(response, (name, data) => {
+        if (name === 'ready') subscriptionId = data.subscriptionId;
+        else if (name === 'resync') onResync && onResync();
+        else onChange && onChange(data);
+      });
+    } catch (error) {
+      if (closed) return;
+      console.error('变更推送中断:', error);
+    }
+    // 重连期间可能错过变更，重连后按 resync 处理
+    if (!closed) setTimeout(() => {
+      if (closed) return;
+      onResync && onResync();
+      connect();
+    }, RETRY_MS);
+  };
+
+  connect();
+
+  return {
+    update: async (filters) => {
+      current = filters;
+      if (!subscriptionId) return;
+      const token = await authService.getToken();
+      const response = await fetch(`${API_URL}/${subscriptionId}?${toQuery(filters)}`, {
+        method: 'PUT',
+        headers: token ? { Authorization: `Bearer ${token}` } : {}
+      });
+      // 订阅已在服务端结束时重新连接
+      if (response.status === 404 && controller) controller.abort();
+    },
+    close: () => {
+      closed = true;
+      if (controller) controller.abort();
+    }
+  };
+};
+
+export default { subscribe };
@@ -1,14 +1,82 @@
 import axios from 'axios';
+import authService from './auth.service';
+import { readEvents } from './sse';
 
 const API_URL = 'http://localhost:8085/api/chat';
 
+const CONVERSATION_HEADER = 'x-conversation-id';
+
+// 同一页面内的对话共用一个会话 id，后端按它隔离聊天记忆。
+// 会话 id 由后端在首次提问时签发（X-Conversation-Id），之后每次回复都以后端返回的为准
 class ChatService {
-  sendMessage(message) {
-    return axios.get(API_URL, {
-      params: {
-        message: message
-      }
+  constructor() {
+    this.conversationId = null;
+  }
+
+  adopt(conversationId) {
+    if (conversationId) this.conversationId = conversationId;
+  }
+
+  // 已登录时带上访问令牌，后端按用户隔离聊天记忆并按用户限流
+  async sendMessage(message) {
+    const params = { message: message };
+    if (this.conversationId) params.conversationId = this.conversationId;
+    const response = await axios.get(API_URL, {
+      params: params,
+      headers: await authService.authHeaders()
     });
+    this.adopt(response.headers[CONVERSATION_HEADER]);
+    return response;
+  }
+
+  // 清空当前会话的记忆，下次提问时开始新会话
+  async resetConversation() {
+    const old = this.conversationId;
+    this.conversationId = null;
+    if (!old) return null;
+    return axios.delete(`${API_URL}/conversations/${encodeURIComponent(old)}`, { headers: await authService.authHeaders() });
+  }
+
+  // 通过 SSE 逐段接收回答，返回用于中途取消的函数。
+  // EventSource 不能携带 Authorization 头，因此用 fetch 读取事件流
+  streamMessage(message, { onToken, onDone, onError } = {}) {
+    let query = `message=${encodeURIComponent(message)}`;
+    if (this.conversationId) query += `&conversationId=${encodeURIComponent(this.conversationId)}`;
+    const controller = new AbortController();
+    let finished = false;
+    const finish = (callback, arg) => {
+      if (finished) return;
+      finished = true;
+      callback && callback(arg);
+    };
+    (async () => {
+      try {
+        const response = await fetch(`${API_URL}/stream?${query}`, {
+          headers: { Accept: 'text/event-stream', ...(await authService.authHeaders()) },
+          signal: controller.signal
+        });
+        this.adopt(response.headers.get(CONVERSATION_HEADER));
+        if (!response.ok) {
+          // 限流等拒绝以 JSON 返回 { message }
+          const body = await response.json().catch(() => ({}));
+          finish(onError, body.message || null);
+          return;
+        }
+        await readEvents(response, (name, data) => {
+          if (name === 'token') onToken && onToken(data.content);
+          else if (name === 'done') finish(onDone);
+          else if (name === 'error') finish(onError, data.message || null);
+        });
+        finish(onDone);
+      } catch (error) {
+        if (controller.signal.aborted) return;
+        finish(onError, null);
+      }
+    })();
+    return () => {
+      finished = true;
+      controller.abort();
+    };
   }
 }
 
@@ -1,6 +1,7 @@
 import axios from 'axios';
 import { useUserStore } from '@/store/index';
 import { getActivePinia } from 'pinia'
+import authService from './auth.service';
 
 // 创建axios实例
 const api = axios.create({
@@ -9,15 +10,20 @@ const api = axios.create({
 });
 
 // 请求拦截器，添加认证token
-api.interceptors.request.use(config => {
+api.interceptors.request.use(async config => {
   try {
+    let token = null;
     // 仅当 Pinia 已激活时才访问 store，避免在模块初始化阶段报错
     if (getActivePinia && getActivePinia()) {
       const userStore = useUserStore();
-      const token = userStore.token;
-      if (token) {
-        config.headers.Authorization = `Bearer ${token}`;
-      }
+      token = userStore.token;
+    }
+    // 否则使用登录时保存的访问令牌（临近过期时自动续签）
+    if (!token) {
+      token = await authService.getToken();
+    }
+    if (token) {
+      config.headers.Authorization = `Bearer ${token}`;
     }
   } catch (e) {
     // 忽略 token 注入失败，保持请求继续
@@ -216,11 +222,33 @@ export const projectService = {
     }
   },
 
+  /**
+   * 跨项目按范围检索要素
+   * @param {Array<number>} bbox 范围 [minLng, minLat, maxLng, maxLat]
+   * @param {Object} filters 可选 { category, status, limit }
+   * @returns {Promise<Object>} GeoJSON FeatureCollection，要素带 projectId、projectName，超过上限时 truncated 为 true
+   */
+  searchFeatures: async (bbox, filters = {}) => {
+    try {
+      const response = await api.get('/features', { params: { bbox: bbox.join(','), ...filters } })
+      return response.data
+    } catch (error) {
+      console.error('检索要素失败:', error)
+      throw error
+    }
+  },
+
   /** 评论相关 **/
-  getProjectComments: async (projectId) => {
+  /**
+   * 按时间倒序分页获取评论
+   * @param {number|string} projectId 项目ID
+   * @param {Object} options 可选 { cursor, limit }，cursor 为上一页返回的 nextCursor
+   * @returns {Promise<Object>} { comments, nextCursor }，没有更早的评论时 nextCursor 为 null
+   */
+  getProjectComments: async (projectId, { cursor, limit } = {}) => {
     try {
-      const resp = await api.get(`/projects/${projectId}/comments`)
-      return resp.data
+      const resp = await api.get(`/projects/${projectId}/comments`, { params: { cursor, limit } })
+      return { comments: resp.data, nextCursor: resp.headers['x-next-cursor'] || null }
     } catch (e) { console.error('获取评论失败', e); throw e }
   },
   addProjectComment: async (projectId, payload) => {
@@ -414,9 +442,10 @@ export const projectService = {
   },
 
   /**
-   * 获取项目统计数据
+   * 获取项目统计数据（服务端增量维护的计数，不需要下载全部项目再统计）
    * @param {Object} filters 过滤条件
-   * @returns {Promise<Object>} 统计数据
+   * @returns {Promise<Object>} { total, byCategory, byStatus, byCategoryStatus, byMonth,
+   *   durationByCategory, durationByStatus, overdue, delayed, reconciledAt }
    */
   getProjectStatistics: async (filters = {}) => {
     try {
@@ -446,6 +475,57 @@ export const projectService = {
     }
   },
 
+  /**
+   * 获取某日处于工期内的项目
+   * @param {string} date 日期 yyyy-MM-dd
+   * @param {Object} filters 过滤条件 { category, status, bbox, fields }
+   * @returns {Promise<Array>} 项目列表
+   */
+  getProjectsActiveOn: async (date, filters = {}) => {
+    try {
+      const response = await api.get('/projects', { params: { activeOn: date, ...filters } });
+      return response.data;
+    } catch (error) {
+      console.error('按日期查询项目失败:', error);
+      throw error;
+    }
+  },
+
+  /**
+   * 时间轴从 from 拖到 to 时进入与离开的项目，只返回变化部分
+   * @param {string} from 原日期 yyyy-MM-dd
+   * @param {string} to 新日期 yyyy-MM-dd
+   * @param {Object} filters 过滤条件 { category, status, bbox }
+   * @returns {Promise<Object>} { from, to, added: [项目摘要], removed: [项目id] }
+   */
+  getActiveChanges: async (from, to, filters = {}) => {
+    try {
+      const response = await api.get('/projects/active-changes', { params: { from, to, ...filters } });
+      return response.data;
+    } catch (error) {
+      console.error('获取时间轴变化失败:', error);
+      throw error;
+    }
+  },
+
+  /**
+   * 获取概览地图的网格聚合
+   * @param {Array<number>} bbox 视野范围 [minLng, minLat, maxLng, maxLat]
+   * @param {number} zoom 当前缩放级别
+   * @returns {Promise<Object>} { zoom, total, clusters: [{ lng, lat, count, projectId, categories, statuses, bounds }] }
+   */
+  getProjectClusters: async (bbox, zoom) => {
+    try {
+      const response = await api.get('/projects/clusters', {
+        params: { bbox: bbox.join(','), zoom: Math.floor(zoom) }
+      });
+      return response.data;
+    } catch (error) {
+      console.error('获取项目聚合失败:', error);
+      throw error;
+    }
+  },
+
   /**
    * 获取热力图数据
    * @param {string} dataType 数据类型 (investment, density, etc.)
@@ -469,16 +549,17 @@ export const projectService = {
   },
 
   /**
-   * 导出项目地理数据
-   * @param {string} format 导出格式 (geojson, kml, shapefile)
-   * @param {Object} filters 过滤条件
+   * 导出项目地理数据（项目、要素与评论）
+   * @param {string} format 导出格式 (ndjson: 每行一个GeoJSON要素, fgb: FlatGeobuf)
+   * @param {Object} filters 过滤条件 { category, status, ids: '1,2,3' }
    * @returns {Promise<Blob>} 导出文件
    */
-  exportProjectGeoData: async (format = 'geojson', filters = {}) => {
+  exportProjectGeoData: async (format = 'ndjson', filters = {}) => {
     try {
       const response = await api.get('/projects/export', {
         params: { format, ...filters },
-        responseType: 'blob'
+        responseType: 'blob',
+        timeout: 0 // 全量导出耗时较长，不使用默认超时
       });
       return response.data;
     } catch (error) {
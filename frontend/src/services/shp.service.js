@@ -1,3 +1,5 @@
+import authService from './auth.service'
+
 /**
  * SHP文件处理服务
  * 用于处理Shapefile文件的上传、解析和转换
@@ -161,6 +163,39 @@ async function parseShapefileBuffers(buffers) {
   }
 }
 
+/**
+ * 上传SHP文件集（或zip压缩包）由服务端解析，适合浏览器内解析过慢或内存不足的大文件
+ * 服务端按 .prj 转换为WGS84经纬度，属性表按 .cpg / 文件头识别编码（默认GBK）
+ * @param {number|string} projectId - 项目ID
+ * @param {FileList|File[]} files - .shp/.shx/.dbf/.prj/.cpg 文件或 .zip
+ * @param {Object} options - { encoding: 属性表编码, layer: 包含多个图层时的图层名 }
+ * @returns {Promise<Object>} 要素摘要（要素数、范围、版本）
+ */
+export async function uploadShapefile(projectId, files, options = {}) {
+  const form = new FormData()
+  Array.from(files).forEach(file => form.append('files', file))
+  if (options.encoding) form.append('encoding', options.encoding)
+  if (options.layer) form.append('layer', options.layer)
+
+  const response = await fetch(`/api/projects/${projectId}/features/shapefile`, {
+    method: 'POST',
+    credentials: 'include',
+    headers: await authService.authHeaders(),
+    body: form
+  })
+  if (!response.ok) {
+    const text = await response.text()
+    let message = text
+    try {
+      message = JSON.parse(text).message || text
+    } catch (e) {
+      // 非JSON响应直接使用原文
+    }
+    throw new Error('Shapefile上传失败: ' + (message || response.status))
+  }
+  return response.json()
+}
+
 /**
  * 验证SHP文件集的完整性
  * @param {FileList} files - 文件列表
@@ -0,0 +1,44 @@
+/**
+ * 解析一段 SSE 文本中的完整事件，返回未完成的剩余部分。
+ * EventSource 不能携带 Authorization 头，需要登录的事件流都用 fetch 读取，再交给这里解析。
+ * @param {string} buffer 已收到但尚未解析的文本
+ * @param {Function} onEvent (name, data) 回调，data 为 JSON 解析后的对象；数据不是 JSON 时为原文
+ */
+export const parseEvents = (buffer, onEvent) => {
+  const blocks = buffer.split('\n\n');
+  const rest = blocks.pop();
+  blocks.forEach(block => {
+    let name = 'message';
+    const data = [];
+    block.split('\n').forEach(line => {
+      if (line.startsWith('event:')) name = line.slice(6).trim();
+      else if (line.startsWith('data:')) data.push(line.slice(5).trim());
+    });
+    if (!data.length) return;
+    const text = data.join('\n');
+    let value = text;
+    try {
+      value = JSON.parse(text);
+    } catch (e) {
+      // 非 JSON 数据（如 done 事件的空串）原样传递
+    }
+    onEvent(name, value);
+  });
+  return rest;
+};
+
+/**
+ * 逐块读取响应体中的 SSE 事件，直到流结束。
+ * @param {Response} response fetch 的响应
+ * @param {Function} onEvent (name, data) 回调
+ */
+export const readEvents = async (response, onEvent) => {
+  const reader = response.body.getReader();
+  const decoder = new TextDecoder();
+  let buffer = '';
+  for (;;) {
+    const { value, done } = await reader.read();
+    if (done) break;
+    buffer = parseEvents(buffer + decoder.decode(value, { stream: true }), onEvent);
+  }
+};
@@ -2,6 +2,32 @@
  * 订阅项目服务
  * 处理项目订阅、取消订阅、获取订阅列表等功能
  */
+import axios from 'axios'
+import authService from './auth.service'
+
+const api = axios.create({
+  baseURL: '/api/subscriptions',
+  timeout: 5000
+})
+
+// 请求拦截器，添加访问令牌
+api.interceptors.request.use(async config => {
+  try {
+    const token = await authService.getToken()
+    if (token) {
+      config.headers.Authorization = `Bearer ${token}`
+    }
+  } catch (e) {
+    // 忽略 token 注入失败，保持请求继续
+  }
+  return config
+})
+
+// 后端的错误信息在 message 字段中
+const errorMessage = (error, fallback) =>
+  (error.response && error.response.data && error.response.data.message) || fallback
+
+const toDate = (value) => (value ? String(value).split('T')[0] : null)
 
 class SubscriptionService {
   constructor() {
@@ -20,99 +46,25 @@ class SubscriptionService {
    */
   async getSubscribedProjects(params = {}) {
     try {
-      // 模拟API调用，实际应该发送HTTP请求
-      const mockData = {
-        success: true,
-        data: {
-          projects: [
-            {
-              id: 1,
-              name: '智慧城市数据平台',
-              manager: '张三',
-              status: '进行中',
-              startDate: '2024-01-01',
-              endDate: '2024-06-30',
-              description: '构建智慧城市综合数据管理平台，整合各部门数据资源，提供统一的数据服务接口。',
-              progress: 65,
-              subscriptionDate: '2024-01-15',
-              notificationEnabled: true,
-              location: {
-                center: [113.2644, 23.1291],
-                zoom: 12
-              }
-            },
-            {
-              id: 2,
-              name: '城市交通优化系统',
-              manager: '李四',
-              status: '规划中',
-              startDate: '2024-03-01',
-              endDate: '2024-09-30',
-              description: '基于大数据分析的城市交通流量优化系统，提高道路通行效率。',
-              progress: 25,
-              subscriptionDate: '2024-02-20',
-              notificationEnabled: false,
-              location: {
-                center: [113.2644, 23.1291],
-                zoom: 12
-              }
-            },
-            {
-              id: 3,
-              name: '环境监测网络',
-              manager: '王五',
-              status: '已完成',
-              startDate: '2023-09-01',
-              endDate: '2024-01-31',
-              description: '建设覆盖全市的环境监测传感器网络，实时监控空气质量、噪音等环境指标。',
-              progress: 100,
-              subscriptionDate: '2023-10-10',
-              notificationEnabled: true,
-              location: {
-                center: [113.2644, 23.1291],
-                zoom: 12
-              }
-            },
-            {
-              id: 4,
-              name: '公共安全预警系统',
-              manager: '赵六',
-              status: '已延期',
-              startDate: '2023-12-01',
-              endDate: '2024-05-31',
-              description: '集成视频监控、人员识别、异常行为检测的公共安全预警系统。',
-              progress: 40,
-              subscriptionDate: '2024-01-05',
-              notificationEnabled: true,
-              location: {
-                center: [113.2644, 23.1291],
-                zoom: 12
-              }
-            }
-          ],
-          total: 4,
+      const { data } = await api.get('/projects', {
+        params: {
+          status: params.status && params.status !== 'all' ? params.status : undefined,
+          search: params.search || undefined,
           page: params.page || 1,
           limit: params.limit || 10
         }
-      }
+      })
 
-      // 应用筛选条件
-      let filteredProjects = mockData.data.projects
-      
-      if (params.status && params.status !== 'all') {
-        filteredProjects = filteredProjects.filter(p => p.status === params.status)
-      }
-      
-      if (params.search) {
-        const searchLower = params.search.toLowerCase()
-        filteredProjects = filteredProjects.filter(p => 
-          p.name.toLowerCase().includes(searchLower) ||
-          p.manager.toLowerCase().includes(searchLower)
-        )
-      }
+      const projects = data.projects.map(project => ({
+        ...project,
+        subscriptionDate: toDate(project.subscriptionDate),
+        location: project.centerLng != null && project.centerLat != null
+          ? { center: [project.centerLng, project.centerLat], zoom: 12 }
+          : null
+      }))
 
       // 更新本地缓存
-      filteredProjects.forEach(project => {
+      projects.forEach(project => {
         this.subscriptions.set(project.id, {
           subscribed: true,
           subscriptionDate: project.subscriptionDate,
@@ -121,16 +73,17 @@ class SubscriptionService {
       })
 
       return {
-        ...mockData,
+        success: true,
         data: {
-          ...mockData.data,
-          projects: filteredProjects,
-          total: filteredProjects.length
+          projects,
+          total: data.total,
+          page: data.page,
+          limit: data.limit
         }
       }
     } catch (error) {
       console.error('获取订阅项目失败:', error)
-      throw new Error('获取订阅项目失败')
+      throw new Error(errorMessage(error, '获取订阅项目失败'))
     }
   }
 
@@ -143,28 +96,49 @@ class SubscriptionService {
    */
   async subscribeProject(projectId, options = {}) {
     try {
-      // 模拟API调用
-      const response = {
+      const { data } = await api.post('', {
+        projectId,
+        notificationEnabled: options.enableNotification !== false
+      })
+      const subscription = {
+        subscribed: true,
+        subscriptionDate: toDate(data.createdAt),
+        notificationEnabled: data.notificationEnabled
+      }
+
+      // 更新本地缓存
+      this.subscriptions.set(projectId, subscription)
+
+      return {
         success: true,
         message: '订阅成功',
         data: {
           projectId,
-          subscriptionDate: new Date().toISOString().split('T')[0],
-          notificationEnabled: options.enableNotification !== false
+          subscriptionDate: subscription.subscriptionDate,
+          notificationEnabled: subscription.notificationEnabled
         }
       }
+    } catch (error) {
+      console.error('订阅项目失败:', error)
+      throw new Error(errorMessage(error, '订阅项目失败'))
+    }
+  }
 
-      // 更新本地缓存
-      this.subscriptions.set(projectId, {
-        subscribed: true,
-        subscriptionDate: response.data.subscriptionDate,
-        notificationEnabled: response.data.notificationEnabled
+  /**
+   * 订阅一个分类或一个区域的全部项目
+   * @param {Object} condition - { category } 或 { bbox: [minLng, minLat, maxLng, maxLat], name }
+   * @returns {Promise<Object>} 订阅结果
+   */
+  async subscribe(condition, options = {}) {
+    try {
+      const { data } = await api.post('', {
+        ...condition,
+        notificationEnabled: options.enableNotification !== false
       })
-
-      return response
+      return { success: true, message: '订阅成功', data }
     } catch (error) {
-      console.error('订阅项目失败:', error)
-      throw new Error('订阅项目失败')
+      console.error('订阅失败:', error)
+      throw new Error(errorMessage(error, '订阅失败'))
     }
   }
 
@@ -175,22 +149,24 @@ class SubscriptionService {
    */
   async unsubscribeProject(projectId) {
     try {
-      // 模拟API调用
-      const response = {
+      await api.delete(`/projects/${projectId}`).catch(error => {
+        // 本来就未订阅
+        if (!error.response || error.response.status !== 404) throw error
+      })
+
+      // 更新本地缓存
+      this.subscriptions.delete(projectId)
+
+      return {
         success: true,
         message: '取消订阅成功',
         data: {
           projectId
         }
       }
-
-      // 更新本地缓存
-      this.subscriptions.delete(projectId)
-
-      return response
     } catch (error) {
       console.error('取消订阅失败:', error)
-      throw new Error('取消订阅失败')
+      throw new Error(errorMessage(error, '取消订阅失败'))
     }
   }
 
@@ -206,15 +182,15 @@ class SubscriptionService {
         return this.subscriptions.get(projectId).subscribed
       }
 
-      // 模拟API调用检查订阅状态
-      const response = {
-        success: true,
-        data: {
-          subscribed: false // 默认未订阅
-        }
+      const { data } = await api.get(`/projects/${projectId}`)
+      if (data.subscribed) {
+        this.subscriptions.set(projectId, {
+          subscribed: true,
+          subscriptionDate: toDate(data.subscriptionDate),
+          notificationEnabled: data.notificationEnabled
+        })
       }
-
-      return response.data.subscribed
+      return data.subscribed
     } catch (error) {
       console.error('检查订阅状态失败:', error)
       return false
@@ -229,27 +205,26 @@ class SubscriptionService {
    */
   async updateNotificationSettings(projectId, enabled) {
     try {
-      // 模拟API调用
-      const response = {
-        success: true,
-        message: enabled ? '已开启通知' : '已关闭通知',
-        data: {
-          projectId,
-          notificationEnabled: enabled
-        }
-      }
+      const { data } = await api.put(`/projects/${projectId}/notification`, { enabled })
 
       // 更新本地缓存
       if (this.subscriptions.has(projectId)) {
         const subscription = this.subscriptions.get(projectId)
-        subscription.notificationEnabled = enabled
+        subscription.notificationEnabled = data.notificationEnabled
         this.subscriptions.set(projectId, subscription)
       }
 
-      return response
+      return {
+        success: true,
+        message: enabled ? '已开启通知' : '已关闭通知',
+        data: {
+          projectId,
+          notificationEnabled: data.notificationEnabled
+        }
+      }
     } catch (error) {
       console.error('更新通知设置失败:', error)
-      throw new Error('更新通知设置失败')
+      throw new Error(errorMessage(error, '更新通知设置失败'))
     }
   }
 
@@ -259,48 +234,36 @@ class SubscriptionService {
    */
   async getSubscriptionStats() {
     try {
-      // 模拟API调用
-      const response = {
-        success: true,
-        data: {
-          totalSubscriptions: 4,
-          activeProjects: 1,
-          completedProjects: 1,
-          delayedProjects: 1,
-          planningProjects: 1,
-          notificationEnabled: 3
-        }
-      }
-
-      return response
+      const { data } = await api.get('/stats')
+      return { success: true, data }
     } catch (error) {
       console.error('获取订阅统计失败:', error)
-      throw new Error('获取订阅统计失败')
+      throw new Error(errorMessage(error, '获取订阅统计失败'))
     }
   }
 
   /**
-   * 批量操作订阅
+   * 批量操作订阅（服务端一次写入）
    * @param {Array} projectIds - 项目ID数组
    * @param {string} action - 操作类型 ('subscribe' | 'unsubscribe')
    * @returns {Promise<Object>} 批量操作结果
    */
   async batchSubscriptionOperation(projectIds, action) {
     try {
-      const results = []
-      
-      for (const projectId of projectIds) {
+      const { data } = await api.post('/batch', { projectIds, action })
+      const { results, successCount, failCount } = data
+
+      // 更新本地缓存；取消订阅失败的项目本来就未订阅，同样移出缓存
+      const today = new Date().toISOString().split('T')[0]
+      results.forEach(({ projectId, success }) => {
         if (action === 'subscribe') {
-          const result = await this.subscribeProject(projectId)
-          results.push({ projectId, success: result.success })
-        } else if (action === 'unsubscribe') {
-          const result = await this.unsubscribeProject(projectId)
-          results.push({ projectId, success: result.success })
+          if (success && !this.subscriptions.has(projectId)) {
+            this.subscriptions.set(projectId, { subscribed: true, subscriptionDate: today, notificationEnabled: true })
+          }
+        } else {
+          this.subscriptions.delete(projectId)
         }
-      }
-
-      const successCount = results.filter(r => r.success).length
-      const failCount = results.length - successCount
+      })
 
       return {
         success: failCount === 0,
@@ -313,7 +276,36 @@ class SubscriptionService {
       }
     } catch (error) {
       console.error('批量操作失败:', error)
-      throw new Error('批量操作失败')
+      throw new Error(errorMessage(error, '批量操作失败'))
+    }
+  }
+
+  /**
+   * 获取订阅命中的变更摘要
+   * @param {Object} params - { unreadOnly, limit }
+   * @returns {Promise<Object>} 摘要列表，content 为各项目的变化
+   */
+  async getDigests(params = {}) {
+    try {
+      const { data } = await api.get('/digests', { params })
+      return { success: true, data }
+    } catch (error) {
+      console.error('获取订阅摘要失败:', error)
+      throw new Error(errorMessage(error, '获取订阅摘要失败'))
+    }
+  }
+
+  /**
+   * 将全部摘要标记为已读
+   * @returns {Promise<Object>} 更新结果
+   */
+  async markDigestsRead() {
+    try {
+      const { data } = await api.post('/digests/read')
+      return { success: true, data }
+    } catch (error) {
+      console.error('标记摘要已读失败:', error)
+      throw new Error(errorMessage(error, '标记摘要已读失败'))
     }
   }
 
@@ -336,4 +328,4 @@ class SubscriptionService {
 
 // 创建单例实例
 export const subscriptionService = new SubscriptionService()
-export default subscriptionService
\ No newline at end of file
+export default subscriptionService